@@ -1,8 +1,10 @@
 package com.github.uchan_nos.c_helper.analysis;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
@@ -13,8 +15,6 @@ import com.github.uchan_nos.c_helper.util.Util;
 
 public class ASTPrinter {
     private IASTNode ast;
-    private StringBuilder dotBuilder = null;
-    private HashMap<IASTNode, Integer> nodeIdMap = null;
     final private String nodePrefix;
     final private String sourceCodeLineDelimiter;
     public ASTPrinter(IASTNode ast, String nodePrefix, String sourceCodeLineDelimiter) {
@@ -24,98 +24,196 @@ public class ASTPrinter {
     }
 
     public String toDot(boolean includeGraphDecl) {
-        this.dotBuilder = new StringBuilder();
-        this.nodeIdMap = new HashMap<IASTNode, Integer>();
-
-        allocateId(this.ast);
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeDot(sb, includeGraphDecl);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
 
+    /**
+     * AST を DOT 形式で出力先へ逐次書き出す.
+     * 頂点名は行きがけ順の通し番号であり、ノードとIDの対応表は保持しない.
+     * @param out 出力先
+     * @param includeGraphDecl digraph 宣言を含めるなら true
+     */
+    public void writeDot(Appendable out, boolean includeGraphDecl) throws IOException {
         if (includeGraphDecl) {
-            this.dotBuilder.append("digraph AST {\n");
+            out.append("digraph AST {\n");
         }
-        createVertex(this.ast);
-        createEdge(this.ast);
+        writeVertices(out, this.ast, 0);
+        writeEdges(out, this.ast, 0);
         if (includeGraphDecl) {
-            this.dotBuilder.append("}\n");
+            out.append("}\n");
         }
+    }
 
-        return this.dotBuilder.toString();
+    /**
+     * AST を {@link JsonGraphWriter} の形式で1つのグラフとして書き出す.
+     * 頂点IDは DOT 形式と同じ行きがけ順の通し番号である.
+     * 位置情報を持たないノードとその部分木は、頂点も辺も出力しない.
+     * @param writer 出力先
+     * @param name グラフ名
+     */
+    public void writeJson(JsonGraphWriter writer, String name) throws IOException {
+        writer.beginGraph(name, 0);
+        writeJsonVertices(writer, this.ast, 0);
+        writer.beginEdges();
+        writeJsonEdges(writer, this.ast, 0);
+        writer.endGraph();
     }
 
-    private void allocateId(IASTNode node) {
-        nodeIdMap.put(node, nodeIdMap.size());
+    // node を根とする部分木のノード数
+    private static int countNodes(IASTNode node) {
+        int n = 1;
         for (IASTNode child : node.getChildren()) {
-            allocateId(child);
+            n += countNodes(child);
         }
+        return n;
     }
 
-    private void createVertex(IASTNode node) {
-        if (node.getFileLocation() != null) {
-            String sig = node.getRawSignature();
-            if (sig.indexOf(sourceCodeLineDelimiter) != -1) {
-                sig = sig.substring(0, sig.indexOf(sourceCodeLineDelimiter));
-            }
-            sig = sig.replace("\"", "\\\"").replace("\\n", "|n").replace("\n", "\\n");
-            this.dotBuilder.append(nodePrefix);
-            this.dotBuilder.append('v');
-            this.dotBuilder.append(nodeIdMap.get(node));
-            this.dotBuilder.append(" [shape=box,label=\"");
-            this.dotBuilder.append(node.getClass().getSimpleName());
-            //this.dotBuilder.append("\\l");
-            //this.dotBuilder.append(
-            //    node.getRawSignature().replace("\"", "\\\"").replace("\\n", "|n").replace("\n", "\\n"));
-            //this.dotBuilder.append("\\l");
-            this.dotBuilder.append("\\l");
-            this.dotBuilder.append(node.getFileLocation().getStartingLineNumber());
-            this.dotBuilder.append(":");
-            this.dotBuilder.append(sig);
-            this.dotBuilder.append("\\l");
-            this.dotBuilder.append("\"]\n");
-            for (IASTNode child : node.getChildren()) {
-                createVertex(child);
-            }
+    // 頂点を出力し、部分木の次のIDを返す
+    private int writeVertices(Appendable out, IASTNode node, int id) throws IOException {
+        if (node.getFileLocation() == null) {
+            return id + countNodes(node);
+        }
+        String sig = getSignature(node);
+        sig = sig.replace("\"", "\\\"").replace("\\n", "|n").replace("\n", "\\n");
+        out.append(nodePrefix);
+        out.append('v');
+        out.append(String.valueOf(id));
+        out.append(" [shape=box,label=\"");
+        out.append(node.getClass().getSimpleName());
+        out.append("\\l");
+        out.append(String.valueOf(node.getFileLocation().getStartingLineNumber()));
+        out.append(":");
+        out.append(sig);
+        out.append("\\l");
+        out.append("\"]\n");
+        int next = id + 1;
+        for (IASTNode child : node.getChildren()) {
+            next = writeVertices(out, child, next);
         }
+        return next;
     }
 
-    private void createEdge(IASTNode node) {
+    // 辺を出力し、部分木の次のIDを返す.
+    // 位置情報を持たず頂点を出力しなかったノードの部分木には、辺も出力しない
+    private int writeEdges(Appendable out, IASTNode node, int id) throws IOException {
+        if (node.getFileLocation() == null) {
+            return id + countNodes(node);
+        }
         int i = 0;
+        int next = id + 1;
         for (IASTNode child : node.getChildren()) {
-            this.dotBuilder.append(nodePrefix);
-            this.dotBuilder.append('v');
-            this.dotBuilder.append(nodeIdMap.get(node));
-            this.dotBuilder.append(" -> ");
-            this.dotBuilder.append(nodePrefix);
-            this.dotBuilder.append('v');
-            this.dotBuilder.append(nodeIdMap.get(child));
-            this.dotBuilder.append(" [label=\"");
-            this.dotBuilder.append(i);
-            this.dotBuilder.append("\"]\n");
-            createEdge(child);
+            if (child.getFileLocation() == null) {
+                next += countNodes(child);
+                ++i;
+                continue;
+            }
+            out.append(nodePrefix);
+            out.append('v');
+            out.append(String.valueOf(id));
+            out.append(" -> ");
+            out.append(nodePrefix);
+            out.append('v');
+            out.append(String.valueOf(next));
+            out.append(" [label=\"");
+            out.append(String.valueOf(i));
+            out.append("\"]\n");
+            next = writeEdges(out, child, next);
 
             ++i;
         }
+        return next;
+    }
+
+    private int writeJsonVertices(JsonGraphWriter writer, IASTNode node, int id) throws IOException {
+        if (node.getFileLocation() == null) {
+            return id + countNodes(node);
+        }
+        writer.vertex(id, getSignature(node),
+                "type", node.getClass().getSimpleName(),
+                "line", String.valueOf(node.getFileLocation().getStartingLineNumber()));
+        int next = id + 1;
+        for (IASTNode child : node.getChildren()) {
+            next = writeJsonVertices(writer, child, next);
+        }
+        return next;
     }
 
+    private int writeJsonEdges(JsonGraphWriter writer, IASTNode node, int id) throws IOException {
+        if (node.getFileLocation() == null) {
+            return id + countNodes(node);
+        }
+        int i = 0;
+        int next = id + 1;
+        for (IASTNode child : node.getChildren()) {
+            if (child.getFileLocation() == null) {
+                next += countNodes(child);
+                ++i;
+                continue;
+            }
+            writer.edge(id, next, String.valueOf(i));
+            next = writeJsonEdges(writer, child, next);
+            ++i;
+        }
+        return next;
+    }
+
+    // ソースコードの1行目のみを取り出す
+    private String getSignature(IASTNode node) {
+        String sig = node.getRawSignature();
+        if (sig.indexOf(sourceCodeLineDelimiter) != -1) {
+            sig = sig.substring(0, sig.indexOf(sourceCodeLineDelimiter));
+        }
+        return sig;
+    }
+
+    /**
+     * 指定されたファイルの AST を標準出力へ書き出す.
+     * 引数は [--json] ファイル名. --json を指定すると宣言ごとに1つのグラフとして JSON 形式で、
+     * 指定しなければ DOT 形式で出力する.
+     */
     public static void main(String[] args) {
-        if (args.length == 1) {
-            String inputFilename = args[0];
+        boolean json = args.length == 2 && args[0].equals("--json");
+        if (args.length == 1 || json) {
+            String inputFilename = args[args.length - 1];
             File inputFile = new File(inputFilename);
 
             try {
                 String fileContent = Util.readFileAll(inputFile, "UTF-8");
                 IASTTranslationUnit translationUnit =
                         new Parser(new FileInfo(inputFilename, false), fileContent).parse();
-                System.out.println("digraph AST {\n");
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+                JsonGraphWriter writer = new JsonGraphWriter(out);
+                if (json) {
+                    writer.beginDocument();
+                } else {
+                    out.append("digraph AST {\n");
+                }
 
                 int declCount = 0;
                 for (IASTDeclaration declaration : translationUnit.getDeclarations()) {
                     if (declaration.isPartOfTranslationUnitFile()) {
-                        String dot =
-                                new ASTPrinter(declaration, "decl" + declCount, "\n").toDot(false);
-                        System.out.print(dot);
+                        ASTPrinter printer = new ASTPrinter(declaration, "decl" + declCount, "\n");
+                        if (json) {
+                            printer.writeJson(writer, "decl" + declCount);
+                        } else {
+                            printer.writeDot(out, false);
+                        }
                         declCount++;
                     }
                 }
-                System.out.println("}\n");
+
+                if (json) {
+                    writer.endDocument();
+                } else {
+                    out.append("}\n");
+                }
+                out.flush();
             } catch (CoreException e) {
                 e.printStackTrace();
             } catch (IOException e) {
@@ -7,7 +7,6 @@ import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.eclipse.cdt.core.dom.ast.*;
 import org.eclipse.core.resources.IFile;
@@ -57,6 +56,7 @@ public class Analyzer {
     }
 
     public void analyze(FileInfo fileInfo, IDocument source, RunOption opt) {
+        SolverScheduler scheduler = new SolverScheduler();
         try {
             Suggester[] suggesters;
             if (opt.suggester == null) {
@@ -139,20 +139,27 @@ public class Analyzer {
 
             IASTTranslationUnit translationUnit =
                     new Parser(fileInfo, source.get()).parse();
-            Map<String, CFG> procToCFG =
+            final Map<String, CFG> procToCFG =
                     new CFGCreator(translationUnit).create();
+            final Map<String, DefinitionUniverse> procToUniverse =
+                    DefinitionUniverse.create(translationUnit);
+
+            // 関数ごとの到達定義解析は互いに独立なので並列に実行する
+            SolverScheduler.resolveBindings(translationUnit);
             Map<String, RD<CFG.Vertex>> procToRD =
-                    new HashMap<String, RD<CFG.Vertex>>();
-            for (Entry<String, CFG> entry : procToCFG.entrySet()) {
-                CFG cfg = entry.getValue();
-                RD<CFG.Vertex> rd =
-                        new RDAnalyzer(translationUnit, cfg).analyze();
-                procToRD.put(entry.getKey(), rd);
-            }
+                    new HashMap<String, RD<CFG.Vertex>>(scheduler.runAll(procToCFG.keySet(),
+                            new SolverScheduler.Task<RD<CFG.Vertex>>() {
+                                @Override
+                                public RD<CFG.Vertex> run(String proc) {
+                                    return new RDAnalyzer(
+                                            procToUniverse.get(proc), procToCFG.get(proc), true).analyze();
+                                }
+                            }));
+            CallGraph callGraph = new CallGraph(procToCFG);
 
             SuggesterInput input = new SuggesterInput(
-                    fileInfo.getPath(), source, translationUnit, procToCFG, procToRD,
-                    analysisEnvironment);
+                    fileInfo.getPath(), source, translationUnit, procToCFG, procToUniverse, procToRD,
+                    callGraph, analysisEnvironment, scheduler);
             ArrayList<Suggestion> suggestions = new ArrayList<Suggestion>();
 
             // 各種サジェストを生成
@@ -249,6 +256,8 @@ public class Analyzer {
 
         } catch (CoreException e) {
             e.printStackTrace();
+        } finally {
+            scheduler.shutdown();
         }
     }
 
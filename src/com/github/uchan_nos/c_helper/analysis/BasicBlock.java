@@ -0,0 +1,70 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+
+/**
+ * 基本ブロック. 制御フローグラフ上で分岐も合流も含まない、連続した頂点の列を表す.
+ * 先頭以外の頂点は直前の頂点のみから到達し、末尾以外の頂点は直後の頂点のみへ遷移する.
+ *
+ * @author uchan
+ *
+ */
+public class BasicBlock {
+    private final List<CFG.Vertex> vertices;
+
+    BasicBlock(List<CFG.Vertex> vertices) {
+        this.vertices = Collections.unmodifiableList(new ArrayList<CFG.Vertex>(vertices));
+    }
+
+    /**
+     * ブロックに含まれる頂点を実行順に返す.
+     */
+    public List<CFG.Vertex> vertices() {
+        return this.vertices;
+    }
+
+    /**
+     * ブロックに含まれるASTノードを実行順に返す. ASTノードを持たない頂点は含まない.
+     */
+    public List<IASTNode> astNodes() {
+        List<IASTNode> result = new ArrayList<IASTNode>(this.vertices.size());
+        for (CFG.Vertex v : this.vertices) {
+            if (v.getASTNode() != null) {
+                result.add(v.getASTNode());
+            }
+        }
+        return result;
+    }
+
+    public CFG.Vertex first() {
+        return this.vertices.get(0);
+    }
+
+    public CFG.Vertex last() {
+        return this.vertices.get(this.vertices.size() - 1);
+    }
+
+    public int size() {
+        return this.vertices.size();
+    }
+
+    /**
+     * 指定された頂点のブロック内での位置を返す. 含まれなければ -1 を返す.
+     */
+    public int indexOf(CFG.Vertex v) {
+        return this.vertices.indexOf(v);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (CFG.Vertex v : this.vertices) {
+            sb.append(v.label());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 制御フローグラフの基本ブロック単位のビュー.
+ * 文ごとの頂点を、分岐・合流を含まない最大の列にまとめた {@link BasicBlock} を頂点とする.
+ * データフロー解析の集合の数と遷移関数の適用回数を減らすために用いる.
+ *
+ * @author uchan
+ *
+ */
+public class BasicBlockGraph extends DirectedGraph<BasicBlock> {
+    private final List<BasicBlock> blocks;
+    private final Map<CFG.Vertex, BasicBlock> blockOf;
+    private final BasicBlock entryBlock;
+    private final BasicBlock exitBlock;
+
+    /**
+     * 指定された制御フローグラフの基本ブロックグラフを生成する.
+     * @param cfg 元の制御フローグラフ
+     */
+    public BasicBlockGraph(CFG cfg) {
+        List<CFG.Vertex> vertices = new ArrayList<CFG.Vertex>(cfg.getVertices());
+        Collections.sort(vertices, CFG.CREATION_ORDER);
+
+        Map<CFG.Vertex, Integer> numPredecessors = new HashMap<CFG.Vertex, Integer>();
+        Map<CFG.Vertex, CFG.Vertex> singlePredecessor = new HashMap<CFG.Vertex, CFG.Vertex>();
+        for (CFG.Vertex v : vertices) {
+            numPredecessors.put(v, 0);
+        }
+        for (CFG.Vertex v : vertices) {
+            for (CFG.Vertex to : cfg.getConnectedVerticesFrom(v)) {
+                numPredecessors.put(to, numPredecessors.get(to) + 1);
+                singlePredecessor.put(to, v);
+            }
+        }
+
+        // 直前の頂点と同じブロックに入れられない頂点を先頭（リーダー）とする
+        this.blocks = new ArrayList<BasicBlock>();
+        this.blockOf = new HashMap<CFG.Vertex, BasicBlock>();
+        for (CFG.Vertex v : vertices) {
+            if (isLeader(cfg, v, numPredecessors, singlePredecessor)) {
+                createBlock(cfg, v, numPredecessors);
+            }
+        }
+        // 到達不能な閉路のように先頭を持たない頂点が残っていれば、そこから新たなブロックを作る
+        for (CFG.Vertex v : vertices) {
+            if (!this.blockOf.containsKey(v)) {
+                createBlock(cfg, v, numPredecessors);
+            }
+        }
+
+        for (BasicBlock b : this.blocks) {
+            add(b);
+        }
+        for (BasicBlock b : this.blocks) {
+            for (CFG.Vertex to : cfg.getConnectedVerticesFrom(b.last())) {
+                connect(b, this.blockOf.get(to));
+            }
+        }
+
+        this.entryBlock = cfg.entryVertex() == null ? null : this.blockOf.get(cfg.entryVertex());
+        this.exitBlock = cfg.exitVertex() == null ? null : this.blockOf.get(cfg.exitVertex());
+    }
+
+    private static boolean isLeader(CFG cfg, CFG.Vertex v,
+            Map<CFG.Vertex, Integer> numPredecessors,
+            Map<CFG.Vertex, CFG.Vertex> singlePredecessor) {
+        if (v == cfg.entryVertex() || numPredecessors.get(v) != 1) {
+            return true;
+        }
+        CFG.Vertex pred = singlePredecessor.get(v);
+        return pred == v || cfg.getConnectedVerticesFrom(pred).size() != 1;
+    }
+
+    private void createBlock(CFG cfg, CFG.Vertex leader,
+            Map<CFG.Vertex, Integer> numPredecessors) {
+        List<CFG.Vertex> chain = new ArrayList<CFG.Vertex>();
+        CFG.Vertex v = leader;
+        while (true) {
+            chain.add(v);
+            if (cfg.getConnectedVerticesFrom(v).size() != 1) {
+                break;
+            }
+            CFG.Vertex next = cfg.getConnectedVerticesFrom(v).iterator().next();
+            if (next == leader || next == cfg.entryVertex()
+                    || numPredecessors.get(next) != 1 || this.blockOf.containsKey(next)) {
+                break;
+            }
+            v = next;
+        }
+
+        BasicBlock block = new BasicBlock(chain);
+        this.blocks.add(block);
+        for (CFG.Vertex u : chain) {
+            this.blockOf.put(u, block);
+        }
+    }
+
+    /**
+     * すべての基本ブロックを、先頭の頂点の生成順に返す.
+     */
+    public List<BasicBlock> blocks() {
+        return Collections.unmodifiableList(this.blocks);
+    }
+
+    /**
+     * 指定された頂点を含む基本ブロックを返す.
+     */
+    public BasicBlock blockOf(CFG.Vertex v) {
+        return this.blockOf.get(v);
+    }
+
+    /**
+     * 元の制御フローグラフの入口を含むブロックを返す.
+     */
+    public BasicBlock entryBlock() {
+        return this.entryBlock;
+    }
+
+    /**
+     * 元の制御フローグラフの出口を含むブロックを返す.
+     */
+    public BasicBlock exitBlock() {
+        return this.exitBlock;
+    }
+}
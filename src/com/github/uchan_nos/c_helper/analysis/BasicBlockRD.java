@@ -0,0 +1,95 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基本ブロック単位で解いた到達定義解析の結果.
+ * 不動点計算ではブロックの入口の集合のみを保持し、
+ * 文ごとの集合は問い合わせのたびにブロックの入口から再計算する.
+ *
+ * @author uchan
+ *
+ */
+class BasicBlockRD extends RD<CFG.Vertex> {
+    private final BasicBlockGraph blocks;
+    private final Map<BasicBlock, BitSet> blockEntrySets;
+    private final Map<CFG.Vertex, RDAnalyzer.GenKill> genkill;
+
+    private Map<CFG.Vertex, BitSet> entrySets = null;
+    private Map<CFG.Vertex, BitSet> exitSets = null;
+
+    BasicBlockRD(AssignExpression[] assigns, BasicBlockGraph blocks,
+            Map<BasicBlock, BitSet> blockEntrySets,
+            Map<CFG.Vertex, RDAnalyzer.GenKill> genkill) {
+        super(assigns, null, null);
+        this.blocks = blocks;
+        this.blockEntrySets = blockEntrySets;
+        this.genkill = genkill;
+    }
+
+    @Override
+    public BitSet getEntrySet(CFG.Vertex v) {
+        return compute(v, false);
+    }
+
+    @Override
+    public BitSet getExitSet(CFG.Vertex v) {
+        return compute(v, true);
+    }
+
+    /**
+     * すべての頂点の集合を展開する. 頂点数に比例するメモリを消費する.
+     */
+    @Override
+    public synchronized Map<CFG.Vertex, BitSet> getEntrySets() {
+        if (this.entrySets == null) {
+            expandAll();
+        }
+        return this.entrySets;
+    }
+
+    /**
+     * すべての頂点の集合を展開する. 頂点数に比例するメモリを消費する.
+     */
+    @Override
+    public synchronized Map<CFG.Vertex, BitSet> getExitSets() {
+        if (this.exitSets == null) {
+            expandAll();
+        }
+        return this.exitSets;
+    }
+
+    // ブロックの入口から v まで遷移関数を順に適用する
+    private BitSet compute(CFG.Vertex v, boolean exit) {
+        BasicBlock block = this.blocks.blockOf(v);
+        if (block == null) {
+            return null;
+        }
+        BitSet s = (BitSet)this.blockEntrySets.get(block).clone();
+        for (CFG.Vertex u : block.vertices()) {
+            if (u == v && !exit) {
+                break;
+            }
+            this.genkill.get(u).apply(s);
+            if (u == v) {
+                break;
+            }
+        }
+        return s;
+    }
+
+    private void expandAll() {
+        this.entrySets = new HashMap<CFG.Vertex, BitSet>();
+        this.exitSets = new HashMap<CFG.Vertex, BitSet>();
+        for (BasicBlock block : this.blocks.blocks()) {
+            BitSet s = (BitSet)this.blockEntrySets.get(block).clone();
+            for (CFG.Vertex u : block.vertices()) {
+                this.entrySets.put(u, (BitSet)s.clone());
+                this.genkill.get(u).apply(s);
+                this.exitSets.put(u, (BitSet)s.clone());
+            }
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package com.github.uchan_nos.c_helper.analysis;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.cdt.core.dom.ast.IASTCaseStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDefaultStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDoStatement;
+import org.eclipse.cdt.core.dom.ast.IASTForStatement;
+import org.eclipse.cdt.core.dom.ast.IASTIfStatement;
+import org.eclipse.cdt.core.dom.ast.IASTLabelStatement;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTSwitchStatement;
+import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
 
 /**
  * 制御フローグラフの実装. このクラスは、制御フローグラフ本体と、グラフへの入口ノード、グラフからの出口ノードを記憶する.
@@ -20,6 +34,9 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
      *
      */
     static public class Vertex {
+        private static final AtomicInteger serialCounter = new AtomicInteger();
+
+        private final int serial = serialCounter.getAndIncrement();
         private IASTNode astNode = null;
         private String label;
 
@@ -59,6 +76,34 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
             return this.astNode;
         }
 
+        /**
+         * この頂点で実際に評価されるASTノードを取得する.
+         * if, while, do-while, switch 文の頂点は文全体を保持するが、評価されるのは条件式のみである.
+         * for 文の初期化・条件・更新部分、ラベル付き文の本体は別の頂点となるため、
+         * for 文、ラベル、default の頂点では何も評価されない.
+         *
+         * @return 評価されるASTノード. 何も評価されなければ null
+         */
+        public IASTNode getEvaluatedNode() {
+            IASTNode node = this.astNode;
+            if (node instanceof IASTIfStatement) {
+                return ((IASTIfStatement)node).getConditionExpression();
+            } else if (node instanceof IASTWhileStatement) {
+                return ((IASTWhileStatement)node).getCondition();
+            } else if (node instanceof IASTDoStatement) {
+                return ((IASTDoStatement)node).getCondition();
+            } else if (node instanceof IASTSwitchStatement) {
+                return ((IASTSwitchStatement)node).getControllerExpression();
+            } else if (node instanceof IASTCaseStatement) {
+                return ((IASTCaseStatement)node).getExpression();
+            } else if (node instanceof IASTForStatement
+                    || node instanceof IASTLabelStatement
+                    || node instanceof IASTDefaultStatement) {
+                return null;
+            }
+            return node;
+        }
+
         /**
          * 頂点のラベルを取得する.
          *
@@ -78,11 +123,27 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
         }
     }
 
+    /**
+     * 頂点の生成順による比較器.
+     * 同じ関数の頂点は常に同じ順に生成されるので、ハッシュ値に依存しない決定的な順序となる.
+     */
+    public static final Comparator<Vertex> CREATION_ORDER = new Comparator<Vertex>() {
+        @Override
+        public int compare(Vertex o1, Vertex o2) {
+            return o1.serial < o2.serial ? -1 : (o1.serial == o2.serial ? 0 : 1);
+        }
+    };
+
     private Vertex entryVertex;
     private Vertex exitVertex;
     private Set<Vertex> breakVertices = new HashSet<CFG.Vertex>();
     private Set<Vertex> continueVertices = new HashSet<CFG.Vertex>();
     private Set<Vertex> caseVertices = new HashSet<CFG.Vertex>();
+    private Set<Vertex> unreachableVertices = new HashSet<CFG.Vertex>();
+    private Map<Vertex, Vertex[]> branches = new HashMap<CFG.Vertex, CFG.Vertex[]>();
+    private boolean frozen = false;
+    private CFGStructure structure = null;
+    private BasicBlockGraph basicBlocks = null;
 
     /**
      * 指定された入口ノードと出口ノードを持つ制御フローグラフを生成する.
@@ -110,6 +171,7 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
      * @param cfg 追加するグラフ
      */
     public void add(CFG cfg) {
+        checkNotFrozen();
         if (cfg != null) {
             Set<Vertex> vs = cfg.getVertices();
 
@@ -130,6 +192,8 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
             for (Vertex to : cfg.getConnectedVerticesFrom(cfg.exitVertex())) {
                 connect(cfg.entryVertex(), to);
             }
+
+            this.branches.putAll(cfg.branches);
         }
     }
 
@@ -144,6 +208,7 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
      * @param connectTo 追加したグラフの出口ノードから接続される本体側グラフのノード
      */
     public void add(CFG cfg, Vertex connectFrom, Vertex connectTo) {
+        checkNotFrozen();
         add(cfg);
         if (connectFrom != null) {
             connect(connectFrom, cfg.entryVertex());
@@ -159,6 +224,7 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
      * @param v 入口ノードとして設定したい頂点
      */
     public void setEntryVertex(Vertex v) {
+        checkNotFrozen();
         this.entryVertex = v;
     }
 
@@ -168,6 +234,7 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
      * @param vs 出口ノードとして設定したい頂点集合
      */
     public void setExitVertex(Vertex v) {
+        checkNotFrozen();
         this.exitVertex = v;
     }
 
@@ -229,4 +296,155 @@ public class CFG extends DirectedGraph<CFG.Vertex> {
     public Set<Vertex> caseVertices() {
         return this.caseVertices;
     }
+
+    /**
+     * 入口から到達できない、ASTノードを持つ頂点を記録する.
+     * @param vs 到達できない頂点の集合
+     */
+    public void setUnreachableVertices(Set<Vertex> vs) {
+        checkNotFrozen();
+        this.unreachableVertices = vs;
+    }
+
+    /**
+     * 入口から到達できない、ASTノードを持つ頂点の集合を返す.
+     * グラフから削除済みの頂点も含む. 到達しないコードの検出に用いる.
+     */
+    public Set<Vertex> unreachableVertices() {
+        return Collections.unmodifiableSet(this.unreachableVertices);
+    }
+
+    /**
+     * 条件分岐の頂点について、条件が真のときと偽のときに進む後続頂点を記録する.
+     * @param condition if, while, do-while 文、for 文の条件部分の頂点
+     * @param ifTrue 条件が真のときに進む頂点
+     * @param ifFalse 条件が偽のときに進む頂点
+     */
+    public void setBranch(Vertex condition, Vertex ifTrue, Vertex ifFalse) {
+        checkNotFrozen();
+        this.branches.put(condition, new Vertex[] {ifTrue, ifFalse});
+    }
+
+    /**
+     * 条件分岐の頂点から、条件が真のときに進む後続頂点を返す.
+     * 条件分岐の頂点でなければ null を返す.
+     */
+    public Vertex getTrueSuccessor(Vertex condition) {
+        Vertex[] targets = this.branches.get(condition);
+        return targets == null ? null : targets[0];
+    }
+
+    /**
+     * 条件分岐の頂点から、条件が偽のときに進む後続頂点を返す.
+     * 条件分岐の頂点でなければ null を返す.
+     */
+    public Vertex getFalseSuccessor(Vertex condition) {
+        Vertex[] targets = this.branches.get(condition);
+        return targets == null ? null : targets[1];
+    }
+
+    /**
+     * 頂点の併合に合わせて、分岐先として記録された頂点を置き換える.
+     * 置き換え先が null なら、その頂点を含む分岐の記録を削除する.
+     * @param old 併合により削除される頂点
+     * @param replacement 代わりとなる頂点
+     */
+    void replaceBranchTarget(Vertex old, Vertex replacement) {
+        checkNotFrozen();
+        this.branches.remove(old);
+        Iterator<Map.Entry<Vertex, Vertex[]>> it = this.branches.entrySet().iterator();
+        while (it.hasNext()) {
+            Vertex[] targets = it.next().getValue();
+            for (int i = 0; i < targets.length; ++i) {
+                if (targets[i] == old) {
+                    targets[i] = replacement;
+                }
+            }
+            if (targets[0] == null || targets[1] == null) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void add(Vertex v) {
+        checkNotFrozen();
+        super.add(v);
+    }
+
+    @Override
+    public void add(Collection<Vertex> vs) {
+        checkNotFrozen();
+        super.add(vs);
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        checkNotFrozen();
+        super.remove(v);
+    }
+
+    @Override
+    public void connect(Vertex from, Vertex to) {
+        checkNotFrozen();
+        super.connect(from, to);
+    }
+
+    @Override
+    public void disconnect(Vertex from, Vertex to) {
+        checkNotFrozen();
+        super.disconnect(from, to);
+    }
+
+    /**
+     * グラフの構築を完了し、以降の変更を禁止する.
+     * 変更しようとすると IllegalStateException を投げる.
+     */
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * 支配木、後支配木、ループ森などの構造情報を返す.
+     * 構造情報は最初の呼び出し時に計算され、以降はキャッシュされる.
+     * 凍結されていないグラフに対して呼び出すと IllegalStateException を投げる.
+     *
+     * @return このグラフの構造情報
+     */
+    public synchronized CFGStructure getStructure() {
+        if (!this.frozen) {
+            throw new IllegalStateException("getStructure() requires a frozen CFG");
+        }
+        if (this.structure == null) {
+            this.structure = new CFGStructure(this);
+        }
+        return this.structure;
+    }
+
+    /**
+     * 基本ブロック単位のビューを返す.
+     * 最初の呼び出し時に生成され、以降はキャッシュされる.
+     * 凍結されていないグラフに対して呼び出すと IllegalStateException を投げる.
+     *
+     * @return このグラフの基本ブロックグラフ
+     */
+    public synchronized BasicBlockGraph getBasicBlocks() {
+        if (!this.frozen) {
+            throw new IllegalStateException("getBasicBlocks() requires a frozen CFG");
+        }
+        if (this.basicBlocks == null) {
+            this.basicBlocks = new BasicBlockGraph(this);
+        }
+        return this.basicBlocks;
+    }
+
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("this CFG is frozen");
+        }
+    }
 }
@@ -1,7 +1,10 @@
 package com.github.uchan_nos.c_helper.analysis;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -43,9 +46,14 @@ public class CFGCreator {
         return procToCFG;
     }
 
+    /**
+     * 指定されたファイルの制御フローグラフを標準出力へ書き出す.
+     * 引数は [--json] ファイル名. --json を指定すると JSON 形式、指定しなければ DOT 形式で出力する.
+     */
     public static void main(String[] args) {
-        if (args.length == 1) {
-            String inputFilename = args[0];
+        boolean json = args.length == 2 && args[0].equals("--json");
+        if (args.length == 1 || json) {
+            String inputFilename = args[args.length - 1];
             File inputFile = new File(inputFilename);
 
             try {
@@ -54,9 +62,13 @@ public class CFGCreator {
                         new Parser(new FileInfo(inputFilename, false), fileContent).parse();
                 Map<String, CFG> procToCFG =
                         new CFGCreator(translationUnit).create();
-                String dot =
-                        new CFGPrinter(procToCFG).toDotString();
-                System.out.print(dot);
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+                if (json) {
+                    new CFGPrinter(procToCFG).writeJson(out);
+                } else {
+                    new CFGPrinter(procToCFG).writeDot(out);
+                }
+                out.flush();
             } catch (CoreException e) {
                 e.printStackTrace();
             } catch (IOException e) {
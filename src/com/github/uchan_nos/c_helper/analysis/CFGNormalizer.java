@@ -79,7 +79,10 @@ class CFGUtil {
         CFG.Vertex from = edge.from;
         CFG.Vertex to = edge.to;
 
-        // toをfromに統合
+        // toをfromに統合. toを分岐先とする分岐は、toの唯一の後続頂点へ進むことになる
+        Set<CFG.Vertex> exitVerticesOfTo = this.cfg.getConnectedVerticesFrom(to);
+        this.cfg.replaceBranchTarget(to,
+                exitVerticesOfTo.size() == 1 ? exitVerticesOfTo.iterator().next() : null);
         from.setLabel(from.label() + to.label());
         if (from.getASTNode() != null && to.getASTNode() != null) {
             throw new RuntimeException("cannot merge because both from and to have ast nodes");
@@ -97,6 +100,7 @@ class CFGUtil {
         CFG.Vertex to = edge.to;
 
         // fromをtoに統合
+        this.cfg.replaceBranchTarget(from, to);
         to.setLabel(from.label() + to.label());
         if (from.getASTNode() != null && to.getASTNode() != null) {
             throw new RuntimeException("cannot merge because both from and to have ast nodes");
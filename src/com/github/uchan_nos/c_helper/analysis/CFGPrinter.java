@@ -1,10 +1,10 @@
 package com.github.uchan_nos.c_helper.analysis;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
 
 import com.github.uchan_nos.c_helper.util.Util;
 
@@ -17,19 +17,62 @@ public class CFGPrinter {
     }
 
     public String toDotString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeDot(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 制御フローグラフを DOT 形式で出力先へ逐次書き出す.
+     * 頂点名は {@link Util#sort(Set)} の順に割り当てた通し番号である.
+     * @param out 出力先
+     */
+    public void writeDot(Appendable out) throws IOException {
         if (this.vertexNames == null) {
             allocateSerialNumbers();
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("digraph {\n");
-        //for (Entry<String, CFG> entry : new TreeSet<Entry<String, CFG>>(procToCFG.entrySet())) {
+        out.append("digraph {\n");
         for (Entry<String, CFG> entry : procToCFG.entrySet()) {
-            sb.append(toDot(entry.getKey(), entry.getValue()));
-            sb.append('\n');
+            writeDot(out, entry.getKey(), entry.getValue());
+            out.append('\n');
         }
-        sb.append("}\n");
-        return sb.toString();
+        out.append("}\n");
+    }
+
+    /**
+     * 制御フローグラフを JSON 形式で出力先へ逐次書き出す.
+     * 頂点IDは DOT 形式の頂点名と同じ通し番号である.
+     * @param out 出力先
+     */
+    public void writeJson(Appendable out) throws IOException {
+        if (this.vertexNames == null) {
+            allocateSerialNumbers();
+        }
+
+        JsonGraphWriter writer = new JsonGraphWriter(out);
+        writer.beginDocument();
+        for (Entry<String, CFG> entry : procToCFG.entrySet()) {
+            CFG cfg = entry.getValue();
+            Set<CFG.Vertex> sortedVertices = Util.sort(cfg.getVertices());
+            Integer entryId = cfg.entryVertex() == null ? null : this.vertexNames.get(cfg.entryVertex());
+            writer.beginGraph(entry.getKey(), entryId == null ? -1 : entryId);
+            for (CFG.Vertex v : sortedVertices) {
+                writer.vertex(this.vertexNames.get(v), v.label().replace("\\l", "\n"));
+            }
+            writer.beginEdges();
+            for (CFG.Vertex from : sortedVertices) {
+                for (CFG.Vertex to : Util.sort(cfg.getConnectedVerticesFrom(from))) {
+                    writer.edge(this.vertexNames.get(from), this.vertexNames.get(to), null);
+                }
+            }
+            writer.endGraph();
+        }
+        writer.endDocument();
     }
 
     private void allocateSerialNumbers() {
@@ -43,31 +86,28 @@ public class CFGPrinter {
         }
     }
 
-    private String toDot(String name, CFG cfg) {
-        StringBuilder sb = new StringBuilder();
+    private void writeDot(Appendable out, String name, CFG cfg) throws IOException {
         Set<CFG.Vertex> sortedVertices = Util.sort(cfg.getVertices());
 
         // vertex attribute lines
-        sb.append(name + "[shape=parallelogram];\n");
+        out.append(name).append("[shape=parallelogram];\n");
         for (CFG.Vertex v : sortedVertices) {
             String label = v.label().replace("\"", "\\\"").replace("\\n", "|n")
                     .replace("\n", "\\n").replace("\\0", "\\\\0");
-            sb.append(getVertexName(v) + " [shape=box,label=\"" + label
-                    + "\"];\n");
+            out.append(getVertexName(v)).append(" [shape=box,label=\"").append(label)
+                .append("\"];\n");
         }
 
         // edges
         if (cfg.entryVertex() != null) {
-            sb.append(name + " -> " + getVertexName(cfg.entryVertex()) + ";\n");
+            out.append(name).append(" -> ").append(getVertexName(cfg.entryVertex())).append(";\n");
             for (CFG.Vertex from : sortedVertices) {
                 for (CFG.Vertex to : Util.sort(cfg.getConnectedVerticesFrom(from))) {
-                    sb.append(getVertexName(from) + " -> "
-                            + getVertexName(to) + ";\n");
+                    out.append(getVertexName(from)).append(" -> ")
+                        .append(getVertexName(to)).append(";\n");
                 }
             }
         }
-
-        return sb.toString();
     }
 
     private String getVertexName(CFG.Vertex v) {
@@ -0,0 +1,57 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+/**
+ * 制御フローグラフの構造情報. 支配木、後支配木、自然ループの入れ子構造を保持する.
+ * 凍結された制御フローグラフに対して1度だけ計算され、{@link CFG#getStructure()} でキャッシュされる.
+ *
+ * @author uchan
+ *
+ */
+public class CFGStructure {
+    private final IndexedGraph<CFG.Vertex> graph;
+    private final DominatorTree<CFG.Vertex> dominators;
+    private final DominatorTree<CFG.Vertex> postDominators;
+    private final LoopForest<CFG.Vertex> loops;
+
+    public CFGStructure(CFG cfg) {
+        this.dominators = DominatorTree.dominators(cfg, cfg.entryVertex(), CFG.CREATION_ORDER);
+        this.graph = this.dominators.getGraph();
+        this.postDominators = DominatorTree.postDominators(cfg, cfg.exitVertex(), CFG.CREATION_ORDER);
+        this.loops = new LoopForest<CFG.Vertex>(this.dominators);
+    }
+
+    /**
+     * 入口を根とし、頂点に逆後順の整数IDを割り当てたビューを返す.
+     */
+    public IndexedGraph<CFG.Vertex> getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * 入口を根とする支配木を返す.
+     */
+    public DominatorTree<CFG.Vertex> getDominators() {
+        return this.dominators;
+    }
+
+    /**
+     * 後支配木を返す. 出口と return 文の頂点を束ねる仮想的な出口を根とする.
+     */
+    public DominatorTree<CFG.Vertex> getPostDominators() {
+        return this.postDominators;
+    }
+
+    /**
+     * 自然ループの入れ子構造を返す.
+     */
+    public LoopForest<CFG.Vertex> getLoops() {
+        return this.loops;
+    }
+
+    /**
+     * 指定された頂点のループの深さを返す. ループに含まれなければ 0 を返す.
+     */
+    public int loopDepth(CFG.Vertex v) {
+        return this.loops.loopDepth(v);
+    }
+}
@@ -0,0 +1,242 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+
+import com.github.uchan_nos.c_helper.util.ASTFilter;
+
+/**
+ * 翻訳単位の関数呼び出しグラフ. 頂点は翻訳単位で定義された関数の名前である.
+ * 関数 f の制御フローグラフが関数 g の呼び出しを含むとき、辺 f -> g を持つ.
+ * 関数ポインタによる間接呼び出しは扱わない.
+ *
+ * 強連結成分を逆トポロジカル順（呼び出される側が先）に求めるので、
+ * 関数の要約をボトムアップに計算する際の処理順として使える.
+ *
+ * @author uchan
+ *
+ */
+public class CallGraph extends DirectedGraph<String> {
+    private final Map<String, List<IASTFunctionCallExpression>> callSites;
+    private final List<List<String>> components;
+    private final Map<String, Integer> componentIndex;
+
+    /**
+     * 各関数の制御フローグラフから呼び出しグラフを生成する.
+     * @param procToCFG 関数名から制御フローグラフへの写像
+     */
+    public CallGraph(Map<String, CFG> procToCFG) {
+        this.callSites = new HashMap<String, List<IASTFunctionCallExpression>>();
+
+        List<String> procs = new ArrayList<String>(procToCFG.keySet());
+        Collections.sort(procs);
+        for (String proc : procs) {
+            add(proc);
+        }
+
+        for (String proc : procs) {
+            List<IASTFunctionCallExpression> calls = new ArrayList<IASTFunctionCallExpression>();
+            List<CFG.Vertex> vertices = new ArrayList<CFG.Vertex>(procToCFG.get(proc).getVertices());
+            Collections.sort(vertices, CFG.CREATION_ORDER);
+            for (CFG.Vertex v : vertices) {
+                IASTNode node = v.getEvaluatedNode();
+                if (node == null) {
+                    continue;
+                }
+                for (IASTNode call : new ASTFilter(node).filter(new ASTFilter.Predicate() {
+                    @Override
+                    public boolean pass(IASTNode n) {
+                        return n instanceof IASTFunctionCallExpression;
+                    }
+                })) {
+                    calls.add((IASTFunctionCallExpression)call);
+                }
+            }
+            this.callSites.put(proc, calls);
+
+            for (IASTFunctionCallExpression call : calls) {
+                String callee = getCalleeName(call);
+                if (callee != null && contains(callee)) {
+                    connect(proc, callee);
+                }
+            }
+        }
+
+        this.components = new ArrayList<List<String>>();
+        this.componentIndex = new HashMap<String, Integer>();
+        new Tarjan().run(procs);
+    }
+
+    /**
+     * 関数呼び出し式が直接呼び出す関数の名前を返す.
+     * 関数ポインタ経由の呼び出しなど、名前が分からなければ null を返す.
+     */
+    public static String getCalleeName(IASTFunctionCallExpression call) {
+        IASTExpression nameExpression = call.getFunctionNameExpression();
+        if (nameExpression instanceof IASTIdExpression) {
+            return ((IASTIdExpression)nameExpression).getName().toString();
+        }
+        return null;
+    }
+
+    // Tarjan のアルゴリズム. 成分は逆トポロジカル順に見つかる
+    private class Tarjan {
+        private final Map<String, Integer> index = new HashMap<String, Integer>();
+        private final Map<String, Integer> lowlink = new HashMap<String, Integer>();
+        private final List<String> stack = new ArrayList<String>();
+        private final Set<String> onStack = new HashSet<String>();
+        private int nextIndex = 0;
+
+        void run(List<String> procs) {
+            for (String proc : procs) {
+                if (!index.containsKey(proc)) {
+                    visit(proc);
+                }
+            }
+        }
+
+        private void visit(String v) {
+            index.put(v, nextIndex);
+            lowlink.put(v, nextIndex);
+            nextIndex++;
+            stack.add(v);
+            onStack.add(v);
+
+            List<String> callees = new ArrayList<String>(getConnectedVerticesFrom(v));
+            Collections.sort(callees);
+            for (String w : callees) {
+                if (!index.containsKey(w)) {
+                    visit(w);
+                    lowlink.put(v, Math.min(lowlink.get(v), lowlink.get(w)));
+                } else if (onStack.contains(w)) {
+                    lowlink.put(v, Math.min(lowlink.get(v), index.get(w)));
+                }
+            }
+
+            if (lowlink.get(v).equals(index.get(v))) {
+                List<String> component = new ArrayList<String>();
+                String w;
+                do {
+                    w = stack.remove(stack.size() - 1);
+                    onStack.remove(w);
+                    component.add(w);
+                    componentIndex.put(w, components.size());
+                } while (!w.equals(v));
+                Collections.sort(component);
+                components.add(Collections.unmodifiableList(component));
+            }
+        }
+    }
+
+    /**
+     * 強連結成分のリストを逆トポロジカル順に返す.
+     * ある成分から呼び出される成分は、必ずその成分より前に現れる.
+     */
+    public List<List<String>> getStronglyConnectedComponents() {
+        return Collections.unmodifiableList(this.components);
+    }
+
+    /**
+     * 関数を、呼び出される側が先になるように段に分けて返す.
+     * 各段の関数が呼び出す関数は、同じ強連結成分に属するものを除いてすべて前の段にあるので、
+     * 前の段の処理が終われば同じ段の関数は互いに独立に（並列に）処理できる.
+     */
+    public List<List<String>> getBottomUpLevels() {
+        List<List<String>> levels = new ArrayList<List<String>>();
+        int[] levelOf = new int[this.components.size()];
+        for (int c = 0; c < this.components.size(); ++c) {
+            int level = 0;
+            for (String proc : this.components.get(c)) {
+                for (String callee : getConnectedVerticesFrom(proc)) {
+                    int d = this.componentIndex.get(callee);
+                    if (d != c) {
+                        level = Math.max(level, levelOf[d] + 1);
+                    }
+                }
+            }
+            levelOf[c] = level;
+            while (levels.size() <= level) {
+                levels.add(new ArrayList<String>());
+            }
+            levels.get(level).addAll(this.components.get(c));
+        }
+        return levels;
+    }
+
+    /**
+     * 指定された関数を含む強連結成分の、{@link #getStronglyConnectedComponents()} での位置を返す.
+     * 定義されていない関数なら -1 を返す.
+     */
+    public int getComponentIndex(String proc) {
+        Integer i = this.componentIndex.get(proc);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * 指定された関数が（相互）再帰呼び出しに含まれるかを返す.
+     */
+    public boolean isRecursive(String proc) {
+        int i = getComponentIndex(proc);
+        return i >= 0 && (this.components.get(i).size() > 1 || isConnected(proc, proc));
+    }
+
+    /**
+     * 指定された関数が呼び出す、翻訳単位で定義された関数の集合を返す.
+     */
+    public Set<String> getCallees(String proc) {
+        return Collections.unmodifiableSet(getConnectedVerticesFrom(proc));
+    }
+
+    /**
+     * 指定された関数を呼び出す関数の集合を返す.
+     */
+    public Set<String> getCallers(String proc) {
+        return Collections.unmodifiableSet(getConnectedVerticesTo(proc));
+    }
+
+    /**
+     * 指定された関数に含まれる関数呼び出し式を、頂点の生成順に返す.
+     * 翻訳単位で定義されていない関数（ライブラリ関数など）の呼び出しも含む.
+     */
+    public List<IASTFunctionCallExpression> getCallSites(String proc) {
+        List<IASTFunctionCallExpression> calls = this.callSites.get(proc);
+        if (calls == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(calls);
+    }
+
+    /**
+     * 指定された関数から呼び出しを辿って到達できる関数の集合を返す. 指定された関数自身を含む.
+     * 定義されていない関数を指定した場合は空集合を返す.
+     */
+    public Set<String> getReachableFrom(String proc) {
+        Set<String> reachable = new LinkedHashSet<String>();
+        if (!contains(proc)) {
+            return reachable;
+        }
+        List<String> stack = new ArrayList<String>();
+        stack.add(proc);
+        reachable.add(proc);
+        while (!stack.isEmpty()) {
+            String v = stack.remove(stack.size() - 1);
+            for (String w : getConnectedVerticesFrom(v)) {
+                if (reachable.add(w)) {
+                    stack.add(w);
+                }
+            }
+        }
+        return reachable;
+    }
+}
@@ -0,0 +1,624 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTArrayDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTCaseStatement;
+import org.eclipse.cdt.core.dom.ast.IASTCastExpression;
+import org.eclipse.cdt.core.dom.ast.IASTConditionalExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTDefaultStatement;
+import org.eclipse.cdt.core.dom.ast.IASTEqualsInitializer;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionList;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTLiteralExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTSwitchStatement;
+import org.eclipse.cdt.core.dom.ast.IASTTypeId;
+import org.eclipse.cdt.core.dom.ast.IASTTypeIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
+import org.eclipse.cdt.core.dom.ast.IBasicType;
+import org.eclipse.cdt.core.dom.ast.IType;
+
+import com.github.uchan_nos.c_helper.analysis.values.IntegralValue;
+import com.github.uchan_nos.c_helper.util.IntegerLimits;
+import com.github.uchan_nos.c_helper.util.TypeUtil;
+
+/**
+ * SSA 形式上の疎な条件付き定数伝播 (Wegman, Zadeck).
+ *
+ * 実行可能な辺だけを辿りながら、SSA の各値が定数かどうかを求める.
+ * 条件が定数となる分岐では、選ばれない側の辺を実行不能とする.
+ * 解析は生成時に1度だけ行い、式の値は問い合わせごとにキャッシュする.
+ *
+ * 扱う値は汎整数型のみである. 符号付き整数のオーバーフローなど、
+ * 結果が処理系や未定義動作に依存する演算は定数とみなさない.
+ *
+ * @author uchan
+ */
+public class ConstantPropagation {
+    // 束の要素. TOP（未確定）、定数、BOTTOM（定数でない）のいずれか
+    private static class Lattice {
+        static final Lattice TOP = new Lattice(null);
+        static final Lattice BOTTOM = new Lattice(null);
+
+        final BigInteger value;
+
+        private Lattice(BigInteger value) {
+            this.value = value;
+        }
+
+        static Lattice of(BigInteger value) {
+            return new Lattice(value);
+        }
+
+        static Lattice of(boolean value) {
+            return new Lattice(value ? BigInteger.ONE : BigInteger.ZERO);
+        }
+
+        boolean isConstant() {
+            return this.value != null;
+        }
+
+        Lattice meet(Lattice other) {
+            if (this == TOP) {
+                return other;
+            } else if (other == TOP) {
+                return this;
+            } else if (this == BOTTOM || other == BOTTOM || !this.value.equals(other.value)) {
+                return BOTTOM;
+            }
+            return this;
+        }
+
+        boolean sameAs(Lattice other) {
+            return this == other
+                || (this.isConstant() && other.isConstant() && this.value.equals(other.value));
+        }
+    }
+
+    private final SSAForm ssa;
+    private final CFG cfg;
+    private final AnalysisEnvironment analysisEnvironment;
+
+    private final Lattice[] lattice;
+    private final Set<CFG.Vertex> executableVertices;
+    private final Map<CFG.Vertex, Set<CFG.Vertex>> executableEdges;
+    private final Map<IASTExpression, IntegralValue> cache;
+
+    // 解析中の作業リスト
+    private final List<CFG.Vertex[]> flowWorklist;
+    private final List<SSAForm.Value> ssaWorklist;
+
+    /**
+     * 定数伝播を行う.
+     * @param ssa 関数の SSA 形式
+     * @param analysisEnvironment 型のビット数などの前提
+     */
+    public ConstantPropagation(SSAForm ssa, AnalysisEnvironment analysisEnvironment) {
+        this.ssa = ssa;
+        this.cfg = ssa.getCFG();
+        this.analysisEnvironment = analysisEnvironment;
+
+        this.lattice = new Lattice[ssa.values().size()];
+        for (SSAForm.Value value : ssa.values()) {
+            // 仮引数や未初期化の局所変数の値は分からない
+            this.lattice[value.getId()] =
+                value.getKind() == SSAForm.Kind.ENTRY ? Lattice.BOTTOM : Lattice.TOP;
+        }
+        this.executableVertices = new HashSet<CFG.Vertex>();
+        this.executableEdges = new HashMap<CFG.Vertex, Set<CFG.Vertex>>();
+        this.cache = new HashMap<IASTExpression, IntegralValue>();
+        this.flowWorklist = new ArrayList<CFG.Vertex[]>();
+        this.ssaWorklist = new ArrayList<SSAForm.Value>();
+
+        solve();
+    }
+
+    private void solve() {
+        if (this.cfg.entryVertex() == null) {
+            return;
+        }
+        this.flowWorklist.add(new CFG.Vertex[] {null, this.cfg.entryVertex()});
+        while (!this.flowWorklist.isEmpty() || !this.ssaWorklist.isEmpty()) {
+            while (!this.flowWorklist.isEmpty()) {
+                CFG.Vertex[] edge = this.flowWorklist.remove(this.flowWorklist.size() - 1);
+                visitEdge(edge[0], edge[1]);
+            }
+            while (!this.ssaWorklist.isEmpty()) {
+                SSAForm.Value value = this.ssaWorklist.remove(this.ssaWorklist.size() - 1);
+                Set<CFG.Vertex> visited = new HashSet<CFG.Vertex>();
+                for (IASTIdExpression use : this.ssa.getUses(value)) {
+                    CFG.Vertex v = this.ssa.getVertex(use);
+                    if (this.executableVertices.contains(v) && visited.add(v)) {
+                        visitVertex(v);
+                    }
+                }
+                for (SSAForm.Value phi : this.ssa.getPhiUsers(value)) {
+                    if (this.executableVertices.contains(phi.getVertex())) {
+                        update(phi, evaluatePhi(phi));
+                    }
+                }
+            }
+        }
+    }
+
+    // 辺が初めて実行可能になったら、φ 関数を評価し直す. 頂点が初めて実行可能になったら頂点を評価する
+    private void visitEdge(CFG.Vertex from, CFG.Vertex to) {
+        if (from != null) {
+            Set<CFG.Vertex> targets = this.executableEdges.get(from);
+            if (targets == null) {
+                targets = new HashSet<CFG.Vertex>();
+                this.executableEdges.put(from, targets);
+            }
+            if (!targets.add(to)) {
+                return;
+            }
+        }
+        boolean first = this.executableVertices.add(to);
+        for (SSAForm.Value phi : this.ssa.getPhis(to)) {
+            update(phi, evaluatePhi(phi));
+        }
+        if (first) {
+            visitVertex(to);
+        }
+    }
+
+    // 頂点での定義を評価し、条件に応じて実行可能な出辺を登録する
+    private void visitVertex(CFG.Vertex v) {
+        for (SSAForm.Value def : this.ssa.getDefinitions(v)) {
+            update(def, evaluateDefinition(def));
+        }
+
+        Set<CFG.Vertex> successors = this.cfg.getConnectedVerticesFrom(v);
+        CFG.Vertex ifTrue = this.cfg.getTrueSuccessor(v);
+        CFG.Vertex ifFalse = this.cfg.getFalseSuccessor(v);
+        if (ifTrue != null && ifFalse != null) {
+            IASTNode condition = v.getEvaluatedNode();
+            Lattice c = condition == null ? Lattice.of(true) : evaluate((IASTExpression)condition);
+            if (c.isConstant()) {
+                addFlow(v, c.value.signum() != 0 ? ifTrue : ifFalse);
+                return;
+            } else if (c == Lattice.TOP) {
+                return;
+            }
+        } else if (v.getASTNode() instanceof IASTSwitchStatement) {
+            Lattice c = evaluate((IASTExpression)v.getEvaluatedNode());
+            if (c == Lattice.TOP) {
+                return;
+            } else if (c.isConstant()) {
+                CFG.Vertex target = selectCase(successors, c.value);
+                if (target != null) {
+                    addFlow(v, target);
+                    return;
+                }
+            }
+        }
+        for (CFG.Vertex to : successors) {
+            addFlow(v, to);
+        }
+    }
+
+    // 制御式の値に一致する case の頂点を返す. なければ default の頂点、それもなければ null を返す
+    private CFG.Vertex selectCase(Set<CFG.Vertex> successors, BigInteger value) {
+        CFG.Vertex defaultVertex = null;
+        for (CFG.Vertex to : successors) {
+            IASTNode node = to.getASTNode();
+            if (node instanceof IASTCaseStatement) {
+                Lattice label = evaluate(((IASTCaseStatement)node).getExpression());
+                if (!label.isConstant()) {
+                    return null;
+                } else if (label.value.equals(value)) {
+                    return to;
+                }
+            } else if (node instanceof IASTDefaultStatement) {
+                defaultVertex = to;
+            }
+        }
+        return defaultVertex;
+    }
+
+    private void addFlow(CFG.Vertex from, CFG.Vertex to) {
+        this.flowWorklist.add(new CFG.Vertex[] {from, to});
+    }
+
+    private void update(SSAForm.Value value, Lattice newValue) {
+        Lattice old = this.lattice[value.getId()];
+        Lattice lowered = old.meet(newValue);
+        if (!lowered.sameAs(old)) {
+            this.lattice[value.getId()] = lowered;
+            this.ssaWorklist.add(value);
+        }
+    }
+
+    private Lattice evaluatePhi(SSAForm.Value phi) {
+        Lattice result = Lattice.TOP;
+        for (Map.Entry<CFG.Vertex, SSAForm.Value> operand : phi.getOperands().entrySet()) {
+            if (operand.getKey() == null || isExecutable(operand.getKey(), phi.getVertex())) {
+                result = result.meet(this.lattice[operand.getValue().getId()]);
+            }
+        }
+        return result;
+    }
+
+    private Lattice evaluateDefinition(SSAForm.Value def) {
+        IType type = def.getVariable().getType();
+        IASTNode node = def.getNode();
+        Lattice result;
+        if (node instanceof IASTDeclarator) {
+            result = Lattice.BOTTOM;
+            if (((IASTDeclarator)node).getInitializer() instanceof IASTEqualsInitializer) {
+                IASTEqualsInitializer init = (IASTEqualsInitializer)((IASTDeclarator)node).getInitializer();
+                if (init.getInitializerClause() instanceof IASTExpression) {
+                    result = convert(evaluate((IASTExpression)init.getInitializerClause()), type);
+                }
+            }
+        } else if (node instanceof IASTBinaryExpression) {
+            IASTBinaryExpression be = (IASTBinaryExpression)node;
+            Lattice rhs = evaluate(be.getOperand2());
+            if (be.getOperator() == IASTBinaryExpression.op_assign) {
+                result = convert(rhs, type);
+            } else {
+                result = convert(arithmetic(compoundOperator(be.getOperator()),
+                            lattice(def.getPrevious()), rhs, null), type);
+            }
+        } else if (node instanceof IASTUnaryExpression) {
+            int op = ((IASTUnaryExpression)node).getOperator();
+            boolean increment = op == IASTUnaryExpression.op_prefixIncr
+                || op == IASTUnaryExpression.op_postFixIncr;
+            result = convert(arithmetic(
+                        increment ? IASTBinaryExpression.op_plus : IASTBinaryExpression.op_minus,
+                        lattice(def.getPrevious()), Lattice.of(BigInteger.ONE), null), type);
+        } else {
+            return Lattice.BOTTOM;
+        }
+
+        if (def.getKind() == SSAForm.Kind.CONDITIONAL) {
+            result = result.meet(lattice(def.getPrevious()));
+        }
+        return result;
+    }
+
+    private Lattice lattice(SSAForm.Value value) {
+        return value == null ? Lattice.BOTTOM : this.lattice[value.getId()];
+    }
+
+    // 現在の束の値のもとで式を評価する
+    private Lattice evaluate(IASTExpression e) {
+        if (e == null) {
+            return Lattice.BOTTOM;
+        } else if (e instanceof IASTIdExpression) {
+            return lattice(this.ssa.getValue((IASTIdExpression)e));
+        } else if (e instanceof IASTLiteralExpression) {
+            IASTLiteralExpression le = (IASTLiteralExpression)e;
+            if (le.getKind() == IASTLiteralExpression.lk_integer_constant) {
+                BigInteger value = parseInteger(String.valueOf(le.getValue()));
+                return value == null ? Lattice.BOTTOM : Lattice.of(value);
+            }
+            return Lattice.BOTTOM;
+        } else if (e instanceof IASTUnaryExpression) {
+            return evaluate((IASTUnaryExpression)e);
+        } else if (e instanceof IASTBinaryExpression) {
+            return evaluate((IASTBinaryExpression)e);
+        } else if (e instanceof IASTConditionalExpression) {
+            IASTConditionalExpression ce = (IASTConditionalExpression)e;
+            Lattice c = evaluate(ce.getLogicalConditionExpression());
+            if (c == Lattice.TOP) {
+                return Lattice.TOP;
+            } else if (c.isConstant()) {
+                return evaluate(c.value.signum() != 0
+                        ? ce.getPositiveResultExpression() : ce.getNegativeResultExpression());
+            }
+            return evaluate(ce.getPositiveResultExpression())
+                .meet(evaluate(ce.getNegativeResultExpression()));
+        } else if (e instanceof IASTCastExpression) {
+            return convert(evaluate(((IASTCastExpression)e).getOperand()), e.getExpressionType());
+        } else if (e instanceof IASTExpressionList) {
+            IASTExpression[] es = ((IASTExpressionList)e).getExpressions();
+            return es.length == 0 ? Lattice.BOTTOM : evaluate(es[es.length - 1]);
+        } else if (e instanceof IASTTypeIdExpression) {
+            IASTTypeIdExpression tie = (IASTTypeIdExpression)e;
+            if (tie.getOperator() == IASTTypeIdExpression.op_sizeof) {
+                return sizeOf(tie.getTypeId());
+            }
+        }
+        return Lattice.BOTTOM;
+    }
+
+    private Lattice evaluate(IASTUnaryExpression e) {
+        switch (e.getOperator()) {
+        case IASTUnaryExpression.op_bracketedPrimary:
+            return evaluate(e.getOperand());
+        case IASTUnaryExpression.op_plus:
+            return convert(evaluate(e.getOperand()), e.getExpressionType());
+        case IASTUnaryExpression.op_minus: {
+            Lattice v = evaluate(e.getOperand());
+            return v.isConstant() ? convert(Lattice.of(v.value.negate()), e.getExpressionType()) : v;
+        }
+        case IASTUnaryExpression.op_tilde: {
+            Lattice v = evaluate(e.getOperand());
+            return v.isConstant() ? convert(Lattice.of(v.value.not()), e.getExpressionType()) : v;
+        }
+        case IASTUnaryExpression.op_not: {
+            Lattice v = evaluate(e.getOperand());
+            return v.isConstant() ? Lattice.of(v.value.signum() == 0) : v;
+        }
+        case IASTUnaryExpression.op_prefixIncr:
+        case IASTUnaryExpression.op_prefixDecr:
+            return lattice(this.ssa.getDefinition(e));
+        case IASTUnaryExpression.op_postFixIncr:
+        case IASTUnaryExpression.op_postFixDecr: {
+            SSAForm.Value def = this.ssa.getDefinition(e);
+            return def == null ? Lattice.BOTTOM : lattice(def.getPrevious());
+        }
+        case IASTUnaryExpression.op_sizeof:
+            try {
+                return Lattice.of(BigInteger.valueOf(TypeUtil.bytesOfType(
+                                e.getOperand().getExpressionType(), this.analysisEnvironment)));
+            } catch (RuntimeException ex) {
+                return Lattice.BOTTOM;
+            }
+        }
+        return Lattice.BOTTOM;
+    }
+
+    private Lattice evaluate(IASTBinaryExpression e) {
+        int op = e.getOperator();
+        if (op == IASTBinaryExpression.op_logicalAnd || op == IASTBinaryExpression.op_logicalOr) {
+            Lattice lhs = evaluate(e.getOperand1());
+            if (!lhs.isConstant()) {
+                return lhs;
+            }
+            boolean l = lhs.value.signum() != 0;
+            if (l == (op == IASTBinaryExpression.op_logicalOr)) {
+                // 右辺は評価されない
+                return Lattice.of(l);
+            }
+            Lattice rhs = evaluate(e.getOperand2());
+            return rhs.isConstant() ? Lattice.of(rhs.value.signum() != 0) : rhs;
+        } else if (this.ssa.getDefinition(e) != null) {
+            return lattice(this.ssa.getDefinition(e));
+        }
+        Lattice lhs = evaluate(e.getOperand1());
+        Lattice rhs = evaluate(e.getOperand2());
+        if (isComparison(op)) {
+            // 符号無し整数と負の値の比較は、通常の算術型変換の結果が処理系の型の大きさに依存する
+            if ((isNegative(lhs) || isNegative(rhs))
+                    && (isUnsigned(e.getOperand1()) || isUnsigned(e.getOperand2()))) {
+                return Lattice.BOTTOM;
+            }
+        } else if (isUnsigned(e)) {
+            // 演算結果が符号無し整数型なら、オペランドもその型に変換されてから演算される
+            lhs = convert(lhs, e.getExpressionType());
+            if (op != IASTBinaryExpression.op_shiftLeft && op != IASTBinaryExpression.op_shiftRight) {
+                rhs = convert(rhs, e.getExpressionType());
+            }
+        }
+        return arithmetic(op, lhs, rhs, e.getExpressionType());
+    }
+
+    private static boolean isComparison(int op) {
+        return op == IASTBinaryExpression.op_lessThan || op == IASTBinaryExpression.op_greaterThan
+            || op == IASTBinaryExpression.op_lessEqual || op == IASTBinaryExpression.op_greaterEqual
+            || op == IASTBinaryExpression.op_equals || op == IASTBinaryExpression.op_notequals;
+    }
+
+    private static boolean isNegative(Lattice v) {
+        return v.isConstant() && v.value.signum() < 0;
+    }
+
+    private static boolean isUnsigned(IASTExpression e) {
+        IBasicType type = TypeUtil.asIntegralType(e.getExpressionType());
+        return type != null && type.isUnsigned();
+    }
+
+    // 二項演算を行う. type が null でなければ結果をその型に変換する
+    private Lattice arithmetic(int op, Lattice lhs, Lattice rhs, IType type) {
+        if (lhs == Lattice.BOTTOM || rhs == Lattice.BOTTOM) {
+            return Lattice.BOTTOM;
+        } else if (lhs == Lattice.TOP || rhs == Lattice.TOP) {
+            return Lattice.TOP;
+        }
+        BigInteger l = lhs.value, r = rhs.value;
+        BigInteger result;
+        switch (op) {
+        case IASTBinaryExpression.op_plus: result = l.add(r); break;
+        case IASTBinaryExpression.op_minus: result = l.subtract(r); break;
+        case IASTBinaryExpression.op_multiply: result = l.multiply(r); break;
+        case IASTBinaryExpression.op_divide:
+            if (r.signum() == 0) {
+                return Lattice.BOTTOM;
+            }
+            result = l.divide(r);
+            break;
+        case IASTBinaryExpression.op_modulo:
+            if (r.signum() == 0) {
+                return Lattice.BOTTOM;
+            }
+            result = l.remainder(r);
+            break;
+        case IASTBinaryExpression.op_shiftLeft:
+        case IASTBinaryExpression.op_shiftRight:
+            if (l.signum() < 0 || r.signum() < 0 || r.bitLength() > 7) {
+                return Lattice.BOTTOM;
+            }
+            result = op == IASTBinaryExpression.op_shiftLeft
+                ? l.shiftLeft(r.intValue()) : l.shiftRight(r.intValue());
+            break;
+        case IASTBinaryExpression.op_binaryAnd: result = l.and(r); break;
+        case IASTBinaryExpression.op_binaryOr: result = l.or(r); break;
+        case IASTBinaryExpression.op_binaryXor: result = l.xor(r); break;
+        case IASTBinaryExpression.op_lessThan: return Lattice.of(l.compareTo(r) < 0);
+        case IASTBinaryExpression.op_greaterThan: return Lattice.of(l.compareTo(r) > 0);
+        case IASTBinaryExpression.op_lessEqual: return Lattice.of(l.compareTo(r) <= 0);
+        case IASTBinaryExpression.op_greaterEqual: return Lattice.of(l.compareTo(r) >= 0);
+        case IASTBinaryExpression.op_equals: return Lattice.of(l.equals(r));
+        case IASTBinaryExpression.op_notequals: return Lattice.of(!l.equals(r));
+        default:
+            return Lattice.BOTTOM;
+        }
+        return type == null ? Lattice.of(result) : convert(Lattice.of(result), type);
+    }
+
+    private static int compoundOperator(int op) {
+        switch (op) {
+        case IASTBinaryExpression.op_multiplyAssign: return IASTBinaryExpression.op_multiply;
+        case IASTBinaryExpression.op_divideAssign: return IASTBinaryExpression.op_divide;
+        case IASTBinaryExpression.op_moduloAssign: return IASTBinaryExpression.op_modulo;
+        case IASTBinaryExpression.op_plusAssign: return IASTBinaryExpression.op_plus;
+        case IASTBinaryExpression.op_minusAssign: return IASTBinaryExpression.op_minus;
+        case IASTBinaryExpression.op_shiftLeftAssign: return IASTBinaryExpression.op_shiftLeft;
+        case IASTBinaryExpression.op_shiftRightAssign: return IASTBinaryExpression.op_shiftRight;
+        case IASTBinaryExpression.op_binaryAndAssign: return IASTBinaryExpression.op_binaryAnd;
+        case IASTBinaryExpression.op_binaryXorAssign: return IASTBinaryExpression.op_binaryXor;
+        case IASTBinaryExpression.op_binaryOrAssign: return IASTBinaryExpression.op_binaryOr;
+        }
+        return -1;
+    }
+
+    // 値を型に変換する. 符号無し整数型なら剰余を取り、符号付き整数型で表せなければ BOTTOM とする
+    private Lattice convert(Lattice v, IType type) {
+        if (!v.isConstant()) {
+            return v;
+        }
+        IBasicType t = TypeUtil.asIntegralType(type);
+        if (t == null) {
+            return Lattice.BOTTOM;
+        }
+        IntegerLimits limits = IntegerLimits.create(t, this.analysisEnvironment);
+        if (t.isUnsigned()) {
+            return Lattice.of(v.value.mod(limits.max.add(BigInteger.ONE)));
+        } else if (v.value.compareTo(limits.min) < 0 || v.value.compareTo(limits.max) > 0) {
+            return Lattice.BOTTOM;
+        }
+        return v;
+    }
+
+    private Lattice sizeOf(IASTTypeId typeId) {
+        IASTDeclarator declarator = typeId.getAbstractDeclarator();
+        if (declarator != null) {
+            if (declarator instanceof IASTArrayDeclarator
+                    || declarator instanceof IASTFunctionDeclarator
+                    || declarator.getNestedDeclarator() != null) {
+                return Lattice.BOTTOM;
+            } else if (declarator.getPointerOperators().length > 0) {
+                // sizeof(int *) などポインタ型の大きさ
+                return Lattice.of(BigInteger.valueOf(this.analysisEnvironment.POINTER_BYTE));
+            }
+        }
+        try {
+            return Lattice.of(BigInteger.valueOf(
+                        TypeUtil.bytesOfType(typeId.getDeclSpecifier(), this.analysisEnvironment)));
+        } catch (RuntimeException e) {
+            return Lattice.BOTTOM;
+        }
+    }
+
+    // 整数定数（10進、8進、16進、接尾辞付き）を解釈する
+    static BigInteger parseInteger(String literal) {
+        String s = literal.toLowerCase();
+        int end = s.length();
+        while (end > 0 && (s.charAt(end - 1) == 'u' || s.charAt(end - 1) == 'l')) {
+            end--;
+        }
+        s = s.substring(0, end);
+        try {
+            if (s.startsWith("0x")) {
+                return new BigInteger(s.substring(2), 16);
+            } else if (s.length() > 1 && s.startsWith("0")) {
+                return new BigInteger(s.substring(1), 8);
+            }
+            return new BigInteger(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public SSAForm getSSA() {
+        return this.ssa;
+    }
+
+    /**
+     * SSA の値が定数なら、その値を返す. 定数でない、または実行されない定義なら null を返す.
+     */
+    public BigInteger getConstant(SSAForm.Value value) {
+        return this.lattice[value.getId()].value;
+    }
+
+    /**
+     * 式の値が定数なら、式の型を持つ値として返す. 定数でなければ null を返す.
+     * 式に現れる変数の値は、その式を含む頂点での値である. 結果はキャッシュされる.
+     */
+    public synchronized IntegralValue getValue(IASTExpression expression) {
+        if (this.cache.containsKey(expression)) {
+            return this.cache.get(expression);
+        }
+        IntegralValue result = null;
+        Lattice v = evaluate(expression);
+        IBasicType type = TypeUtil.asIntegralType(expression.getExpressionType());
+        if (v.isConstant() && type != null) {
+            result = new IntegralValue(v.value, type, 0, this.analysisEnvironment);
+        }
+        this.cache.put(expression, result);
+        return result;
+    }
+
+    /**
+     * 頂点が実行され得るかを返す.
+     */
+    public boolean isExecutable(CFG.Vertex v) {
+        return this.executableVertices.contains(v);
+    }
+
+    /**
+     * 辺が実行され得るかを返す.
+     */
+    public boolean isExecutable(CFG.Vertex from, CFG.Vertex to) {
+        Set<CFG.Vertex> targets = this.executableEdges.get(from);
+        return targets != null && targets.contains(to);
+    }
+
+    /**
+     * 条件が定数であるために、一方の後続頂点へ進まない分岐の頂点を生成順に返す.
+     */
+    public List<CFG.Vertex> getConstantBranches() {
+        List<CFG.Vertex> result = new ArrayList<CFG.Vertex>();
+        for (CFG.Vertex v : this.executableVertices) {
+            Set<CFG.Vertex> targets = this.executableEdges.get(v);
+            int numTargets = targets == null ? 0 : targets.size();
+            if (numTargets < this.cfg.getConnectedVerticesFrom(v).size()
+                    && (this.cfg.getTrueSuccessor(v) != null
+                        || v.getASTNode() instanceof IASTSwitchStatement)) {
+                result.add(v);
+            }
+        }
+        Collections.sort(result, CFG.CREATION_ORDER);
+        return result;
+    }
+
+    /**
+     * 入口から辺を辿れば到達できるが、定数の条件により実行されない頂点を生成順に返す.
+     */
+    public List<CFG.Vertex> getUnexecutableVertices() {
+        List<CFG.Vertex> result = new ArrayList<CFG.Vertex>();
+        IndexedGraph<CFG.Vertex> graph = this.cfg.getStructure().getGraph();
+        for (int id = 0; id < graph.numReachable(); ++id) {
+            CFG.Vertex v = graph.vertex(id);
+            if (!this.executableVertices.contains(v)) {
+                result.add(v);
+            }
+        }
+        Collections.sort(result, CFG.CREATION_ORDER);
+        return result;
+    }
+}
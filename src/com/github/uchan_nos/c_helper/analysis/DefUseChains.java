@@ -0,0 +1,150 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.util.ASTFilter;
+
+/**
+ * 到達定義解析の結果から求めた use-def 連鎖と def-use 連鎖.
+ * 変数の使用（右辺値として現れる IASTIdExpression）ごとに、そこへ到達する
+ * その変数の定義を保持する. また定義ごとに、その定義が到達する使用を保持する.
+ *
+ * 使用の到達定義は、使用を含む頂点の入口の到達定義集合から求める.
+ * if 文などの頂点では条件式など、頂点で評価される部分（{@link CFG.Vertex#getEvaluatedNode()}）
+ * に含まれる使用だけをその頂点の使用とする.
+ *
+ * @author uchan
+ *
+ */
+public class DefUseChains {
+    private final Map<IASTIdExpression, Set<AssignExpression>> useToDefs;
+    private final Map<AssignExpression, Set<IASTIdExpression>> defToUses;
+    private final Map<IASTIdExpression, CFG.Vertex> useToVertex;
+
+    /**
+     * 関数の到達定義解析の結果から連鎖を生成する.
+     * @param cfg 関数の制御フローグラフ
+     * @param rd cfg の到達定義解析の結果
+     * @param universe 到達定義解析に用いた変数定義の集合
+     */
+    public DefUseChains(CFG cfg, RD<CFG.Vertex> rd, DefinitionUniverse universe) {
+        this.useToDefs = new HashMap<IASTIdExpression, Set<AssignExpression>>();
+        this.defToUses = new HashMap<AssignExpression, Set<IASTIdExpression>>();
+        this.useToVertex = new HashMap<IASTIdExpression, CFG.Vertex>();
+
+        List<CFG.Vertex> vertices = new ArrayList<CFG.Vertex>(cfg.getVertices());
+        Collections.sort(vertices, CFG.CREATION_ORDER);
+        for (CFG.Vertex v : vertices) {
+            IASTNode node = v.getEvaluatedNode();
+            if (node == null) {
+                continue;
+            }
+            List<IASTIdExpression> uses = findUses(node);
+            if (uses.isEmpty()) {
+                continue;
+            }
+
+            BitSet entry = rd.getEntrySet(v);
+            for (IASTIdExpression use : uses) {
+                IBinding var = use.getName().resolveBinding();
+                BitSet reaching = (BitSet)universe.getDefinitionsOf(var).clone();
+                reaching.and(entry);
+
+                Set<AssignExpression> defs = new LinkedHashSet<AssignExpression>();
+                for (int i = reaching.nextSetBit(0); i >= 0; i = reaching.nextSetBit(i + 1)) {
+                    AssignExpression def = universe.getAssigns().get(i);
+                    defs.add(def);
+                    Set<IASTIdExpression> defUses = this.defToUses.get(def);
+                    if (defUses == null) {
+                        defUses = new LinkedHashSet<IASTIdExpression>();
+                        this.defToUses.put(def, defUses);
+                    }
+                    defUses.add(use);
+                }
+                this.useToDefs.put(use, defs);
+                this.useToVertex.put(use, v);
+            }
+        }
+    }
+
+    /**
+     * 指定されたノードに含まれる、変数の値を読み出す IASTIdExpression を探す.
+     * 単純代入の左辺そのものは含まない.
+     */
+    static List<IASTIdExpression> findUses(IASTNode node) {
+        List<IASTIdExpression> result = new ArrayList<IASTIdExpression>();
+        for (IASTNode n : new ASTFilter(node).filter(new ASTFilter.Predicate() {
+            @Override
+            public boolean pass(IASTNode n) {
+                return n instanceof IASTIdExpression;
+            }
+        })) {
+            IASTIdExpression id = (IASTIdExpression)n;
+            if (!(id.getName().resolveBinding() instanceof IVariable) || isAssignTarget(id)) {
+                continue;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    // 単純代入の左辺そのものなら true
+    private static boolean isAssignTarget(IASTIdExpression id) {
+        IASTNode parent = id.getParent();
+        if (parent instanceof IASTBinaryExpression) {
+            IASTBinaryExpression be = (IASTBinaryExpression)parent;
+            return be.getOperator() == IASTBinaryExpression.op_assign && be.getOperand1() == id;
+        }
+        return false;
+    }
+
+    /**
+     * 指定された使用に到達する定義の集合を返す.
+     * 指定されたID式が使用として記録されていなければ空集合を返す.
+     */
+    public Set<AssignExpression> getReachingDefinitions(IASTIdExpression use) {
+        Set<AssignExpression> defs = this.useToDefs.get(use);
+        if (defs == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(defs);
+    }
+
+    /**
+     * 指定された定義が到達する使用の集合を返す.
+     */
+    public Set<IASTIdExpression> getUses(AssignExpression def) {
+        Set<IASTIdExpression> uses = this.defToUses.get(def);
+        if (uses == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(uses);
+    }
+
+    /**
+     * 指定されたID式が使用として記録されていれば true を返す.
+     */
+    public boolean isUse(IASTIdExpression id) {
+        return this.useToDefs.containsKey(id);
+    }
+
+    /**
+     * 指定された使用を評価する頂点を返す. 記録されていなければ null を返す.
+     */
+    public CFG.Vertex getVertex(IASTIdExpression use) {
+        return this.useToVertex.get(use);
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IFunctionType;
+import org.eclipse.cdt.core.dom.ast.IType;
+
+import com.github.uchan_nos.c_helper.util.Util;
+
+/**
+ * 1つの関数の到達定義解析で扱う変数定義の集合.
+ * 関数本体に含まれる代入式と初期化付き変数定義に、本体で参照される変数ごとの
+ * ダミー変数定義（{@link DummyAssignExpression}）を加えたものである.
+ * 大域変数や仮引数の関数入口での値はダミー変数定義が表す.
+ *
+ * 定義のIDは 0 から始まる連番で、{@link #getAssigns()} の位置と一致する.
+ *
+ * @author uchan
+ *
+ */
+public class DefinitionUniverse {
+    private final IASTFunctionDefinition function;
+    private final ArrayList<AssignExpression> assignList; // 代入文のリスト（DummyAssignExpressionを含む）
+    private final ArrayList<DummyAssignExpression> dummyAssignList; // ダミー変数定義のリスト
+    private final Map<IASTNode, AssignExpression> nodeToAssign; // 代入式・宣言子から変数定義への写像
+    private final IBinding[] lhsBindings; // 各変数定義の左辺の変数. 変数でなければ null
+    private final Map<IBinding, BitSet> bindingToIds; // 変数からその変数の定義のID集合への写像
+
+    /**
+     * 指定された関数定義の変数定義の集合を生成する.
+     * @param function 関数定義
+     */
+    public DefinitionUniverse(IASTFunctionDefinition function) {
+        this.function = function;
+        this.assignList = createAssignExpressionList(function);
+        this.dummyAssignList = createInitialAssigns(
+                this.assignList.size(), createIdExpressionList(function));
+        this.assignList.addAll(this.dummyAssignList);
+
+        // 左辺の名前解決は定義ごとに一度だけ行う
+        this.nodeToAssign = new HashMap<IASTNode, AssignExpression>();
+        this.lhsBindings = new IBinding[this.assignList.size()];
+        this.bindingToIds = new HashMap<IBinding, BitSet>();
+        for (AssignExpression assign : this.assignList) {
+            if (assign.getAST() != null) {
+                this.nodeToAssign.put(assign.getAST(), assign);
+            }
+            IASTName name = Util.getName(assign.getLHS());
+            IBinding binding = name == null ? null : name.resolveBinding();
+            if (binding != null) {
+                this.lhsBindings[assign.getId()] = binding;
+                BitSet ids = this.bindingToIds.get(binding);
+                if (ids == null) {
+                    ids = new BitSet(this.assignList.size());
+                    this.bindingToIds.put(binding, ids);
+                }
+                ids.set(assign.getId());
+            }
+        }
+    }
+
+    /**
+     * 翻訳単位に含まれる各関数定義の変数定義の集合を生成する.
+     * 各関数の本体は一度だけ走査する.
+     * @param ast 翻訳単位
+     * @return 関数名から変数定義の集合への写像
+     */
+    public static Map<String, DefinitionUniverse> create(IASTTranslationUnit ast) {
+        Map<String, DefinitionUniverse> result = new HashMap<String, DefinitionUniverse>();
+        for (IASTDeclaration decl : ast.getDeclarations()) {
+            if (decl instanceof IASTFunctionDefinition) {
+                IASTFunctionDefinition fd = (IASTFunctionDefinition)decl;
+                String id = String.valueOf(fd.getDeclarator().getName().getSimpleID());
+                result.put(id, new DefinitionUniverse(fd));
+            }
+        }
+        return result;
+    }
+
+    public IASTFunctionDefinition getFunction() {
+        return function;
+    }
+
+    /**
+     * 変数定義の総数を返す.
+     */
+    public int size() {
+        return assignList.size();
+    }
+
+    /**
+     * ダミー変数定義を含むすべての変数定義を、IDの順に返す.
+     */
+    public List<AssignExpression> getAssigns() {
+        return Collections.unmodifiableList(assignList);
+    }
+
+    /**
+     * ダミー変数定義の一覧を返す.
+     */
+    public List<DummyAssignExpression> getDummyAssigns() {
+        return Collections.unmodifiableList(dummyAssignList);
+    }
+
+    /**
+     * 指定されたASTノードに対応する変数定義を返す.
+     * 指定するASTノードは初期化付き変数定義のIASTDeclaratorか
+     * 代入文のIASTBinaryExpressionである. 対応する定義がなければ null を返す.
+     */
+    public AssignExpression getAssignOfNode(IASTNode node) {
+        return nodeToAssign.get(node);
+    }
+
+    /**
+     * 指定された変数定義の左辺の変数を返す. 左辺が変数でなければ null を返す.
+     */
+    public IBinding getLHSBinding(AssignExpression assign) {
+        return lhsBindings[assign.getId()];
+    }
+
+    /**
+     * 指定された変数を左辺に持つ変数定義（ダミー変数定義を含む）のID集合を返す.
+     * 返された集合を変更してはならない.
+     */
+    public BitSet getDefinitionsOf(IBinding var) {
+        BitSet ids = bindingToIds.get(var);
+        return ids == null ? new BitSet() : ids;
+    }
+
+    /**
+     * 指定された名前の変数を左辺に持つ変数定義のID集合を返す.
+     * 返された集合を変更してはならない.
+     */
+    public BitSet getDefinitionsOf(IASTName name) {
+        return getDefinitionsOf(name.resolveBinding());
+    }
+
+    private static ArrayList<DummyAssignExpression> createInitialAssigns(int startId, Set<IASTIdExpression> idExpressionList) {
+        int id = startId;
+        ArrayList<DummyAssignExpression> result = new ArrayList<DummyAssignExpression>();
+        for (IASTIdExpression idExpression : idExpressionList) {
+            IType type = idExpression.getExpressionType();
+            if (!(type instanceof IFunctionType)) {
+                DummyAssignExpression e = new DummyAssignExpression(id, idExpression);
+                result.add(e);
+                id++;
+            }
+        }
+        return result;
+    }
+
+    private static ArrayList<AssignExpression> createAssignExpressionList(IASTFunctionDefinition function) {
+        final ArrayList<AssignExpression> result = new ArrayList<AssignExpression>();
+        function.getBody().accept(new ASTVisitor(true) {
+            private int id = 0;
+            @Override
+            public int visit(IASTExpression expression) {
+                if (expression instanceof IASTBinaryExpression) {
+                    IASTBinaryExpression e = (IASTBinaryExpression)expression;
+                    if (e.getOperator() == IASTBinaryExpression.op_assign) {
+                        result.add(new AssignExpression(id, e));
+                        id++;
+                    }
+                }
+                return super.visit(expression);
+            }
+            @Override
+            public int visit(IASTDeclaration declaration) {
+                if (declaration instanceof IASTSimpleDeclaration) {
+                    IASTSimpleDeclaration d = (IASTSimpleDeclaration)declaration;
+                    for (IASTDeclarator decl : d.getDeclarators()) {
+                        if (decl.getInitializer() != null) {
+                            // 初期化付き変数宣言
+                            result.add(new AssignExpression(id, decl));
+                            id++;
+                        }
+                    }
+                }
+                return super.visit(declaration);
+            }
+        });
+        return result;
+    }
+
+    private static Set<IASTIdExpression> createIdExpressionList(IASTFunctionDefinition function) {
+        final Set<IASTIdExpression> result = new TreeSet<IASTIdExpression>(new Comparator<IASTIdExpression>() {
+            @Override
+            public int compare(IASTIdExpression o1, IASTIdExpression o2) {
+                return o1.getName().toString().compareTo(o2.getName().toString());
+            }
+        });
+        function.getBody().accept(new ASTVisitor(true) {
+            @Override
+            public int visit(IASTExpression expression) {
+                if (expression instanceof IASTIdExpression) {
+                    result.add((IASTIdExpression)expression);
+                }
+                return super.visit(expression);
+            }
+        });
+        return result;
+    }
+}
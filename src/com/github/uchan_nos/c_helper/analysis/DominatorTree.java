@@ -0,0 +1,355 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 支配木. Cooper, Harvey, Kennedy による反復アルゴリズム
+ * ("A Simple, Fast Dominance Algorithm") で直接支配者を計算する.
+ *
+ * 逆グラフに対して構築すれば後支配木となる.
+ * 根から到達できない頂点は支配関係を持たない.
+ *
+ * @author uchan
+ *
+ * @param <Vertex> 頂点の型
+ */
+public class DominatorTree<Vertex> {
+    private final IndexedGraph<Vertex> graph;
+
+    // idom[v] = v の直接支配者の ID. 根と到達不能な頂点は -1
+    private final int[] idom;
+
+    // 支配木上の子
+    private final int[][] children;
+
+    // 支配木を深さ優先で辿ったときの行きがけ順と帰りがけ順. 支配判定に用いる
+    private final int[] preorder;
+    private final int[] postorder;
+
+    // 支配辺境. 最初に要求されたときに計算する
+    private int[][] frontier = null;
+
+    /**
+     * 指定されたビューの根を根とする支配木を構築する.
+     * @param graph 頂点に整数IDを割り当てたグラフ
+     */
+    public DominatorTree(IndexedGraph<Vertex> graph) {
+        this.graph = graph;
+        final int n = graph.size();
+        final int reachable = graph.numReachable();
+
+        this.idom = new int[n];
+        for (int i = 0; i < n; ++i) {
+            this.idom[i] = -1;
+        }
+
+        if (reachable > 0) {
+            // ID は逆後順なので、ID の昇順に処理すれば先行頂点の多くが処理済みとなる
+            this.idom[0] = 0;
+            boolean changed;
+            do {
+                changed = false;
+                for (int b = 1; b < reachable; ++b) {
+                    int newIdom = -1;
+                    for (int p : graph.predecessors(b)) {
+                        if (!graph.isReachable(p) || this.idom[p] < 0) {
+                            continue;
+                        }
+                        newIdom = newIdom < 0 ? p : intersect(p, newIdom);
+                    }
+                    if (newIdom >= 0 && this.idom[b] != newIdom) {
+                        this.idom[b] = newIdom;
+                        changed = true;
+                    }
+                }
+            } while (changed);
+            this.idom[0] = -1;
+        }
+
+        // 子のリストを作る
+        int[] numChildren = new int[n];
+        for (int v = 0; v < n; ++v) {
+            if (this.idom[v] >= 0) {
+                numChildren[this.idom[v]]++;
+            }
+        }
+        this.children = new int[n][];
+        for (int v = 0; v < n; ++v) {
+            this.children[v] = new int[numChildren[v]];
+            numChildren[v] = 0;
+        }
+        for (int v = 0; v < n; ++v) {
+            if (this.idom[v] >= 0) {
+                this.children[this.idom[v]][numChildren[this.idom[v]]++] = v;
+            }
+        }
+
+        // 支配木を反復的に深さ優先探索して行きがけ順・帰りがけ順を付ける
+        this.preorder = new int[n];
+        this.postorder = new int[n];
+        for (int i = 0; i < n; ++i) {
+            this.preorder[i] = -1;
+            this.postorder[i] = -1;
+        }
+        if (reachable > 0) {
+            int[] stack = new int[n];
+            int[] nextChild = new int[n];
+            int sp = 0;
+            int preCount = 0, postCount = 0;
+            stack[sp++] = 0;
+            this.preorder[0] = preCount++;
+            while (sp > 0) {
+                int v = stack[sp - 1];
+                if (nextChild[v] < this.children[v].length) {
+                    int c = this.children[v][nextChild[v]++];
+                    this.preorder[c] = preCount++;
+                    stack[sp++] = c;
+                } else {
+                    this.postorder[v] = postCount++;
+                    --sp;
+                }
+            }
+        }
+    }
+
+    /**
+     * 指定された頂点を入口とする支配木を構築する.
+     * @param graph 対象のグラフ
+     * @param entry 入口の頂点
+     * @param order 頂点の順序. null ならグラフの列挙順
+     * @return 支配木
+     */
+    public static <Vertex> DominatorTree<Vertex> dominators(IGraph<Vertex> graph,
+            Vertex entry, Comparator<? super Vertex> order) {
+        return new DominatorTree<Vertex>(new IndexedGraph<Vertex>(graph, entry, order));
+    }
+
+    /**
+     * 後支配木を構築する.
+     * 出口の頂点に加え、後続を持たない頂点（return 文など）もすべて出口とみなし、
+     * それらを束ねる仮想的な出口を根とする.
+     * @param graph 対象のグラフ
+     * @param exit 出口の頂点
+     * @param order 頂点の順序. null ならグラフの列挙順
+     * @return 後支配木
+     */
+    public static <Vertex> DominatorTree<Vertex> postDominators(IGraph<Vertex> graph,
+            Vertex exit, Comparator<? super Vertex> order) {
+        Set<Vertex> exits = new LinkedHashSet<Vertex>();
+        if (exit != null) {
+            exits.add(exit);
+        }
+        List<Vertex> vs = new ArrayList<Vertex>(graph.getVertices());
+        if (order != null) {
+            Collections.sort(vs, order);
+        }
+        for (Vertex v : vs) {
+            if (graph.getConnectedVerticesFrom(v).isEmpty()) {
+                exits.add(v);
+            }
+        }
+        return new DominatorTree<Vertex>(IndexedGraph.reverse(graph, exits, order));
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = this.idom[a];
+            }
+            while (b > a) {
+                b = this.idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 支配木の構築に用いたビューを返す.
+     */
+    public IndexedGraph<Vertex> getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * 直接支配者の ID を返す. 根、到達不能な頂点では -1 を返す.
+     */
+    public int immediateDominator(int id) {
+        return this.idom[id];
+    }
+
+    /**
+     * 直接支配者を返す.
+     * 根、到達不能な頂点、および直接支配者が仮想的な根である場合は null を返す.
+     */
+    public Vertex immediateDominator(Vertex v) {
+        int id = this.graph.id(v);
+        if (id < 0 || this.idom[id] < 0) {
+            return null;
+        }
+        return this.graph.vertex(this.idom[id]);
+    }
+
+    /**
+     * a が b を支配するかを返す. 任意の到達可能な頂点は自身を支配する.
+     */
+    public boolean dominates(int a, int b) {
+        if (this.preorder[a] < 0 || this.preorder[b] < 0) {
+            return false;
+        }
+        return this.preorder[a] <= this.preorder[b] && this.postorder[b] <= this.postorder[a];
+    }
+
+    /**
+     * a が b を支配するかを返す. 任意の到達可能な頂点は自身を支配する.
+     */
+    public boolean dominates(Vertex a, Vertex b) {
+        int ia = this.graph.id(a), ib = this.graph.id(b);
+        return ia >= 0 && ib >= 0 && dominates(ia, ib);
+    }
+
+    /**
+     * a が b を狭義に支配する (a != b かつ a が b を支配する) かを返す.
+     */
+    public boolean strictlyDominates(Vertex a, Vertex b) {
+        return !a.equals(b) && dominates(a, b);
+    }
+
+    /**
+     * 支配木上の子の ID 配列を返す. 返された配列を変更してはならない.
+     */
+    public int[] children(int id) {
+        return this.children[id];
+    }
+
+    /**
+     * 支配木上の子（直接支配する頂点）の集合を返す.
+     */
+    public Collection<Vertex> children(Vertex v) {
+        int id = this.graph.id(v);
+        List<Vertex> result = new ArrayList<Vertex>();
+        if (id >= 0) {
+            for (int c : this.children[id]) {
+                result.add(this.graph.vertex(c));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 支配辺境の ID 配列を返す. 返された配列を変更してはならない.
+     * 頂点 v の支配辺境は、v が先行頂点の一つを支配するが、狭義には支配しない頂点の集合である.
+     */
+    public synchronized int[] dominanceFrontier(int id) {
+        if (this.frontier == null) {
+            this.frontier = computeFrontier();
+        }
+        return this.frontier[id];
+    }
+
+    /**
+     * 支配辺境を返す. 仮想的な根は含まない.
+     */
+    public Collection<Vertex> dominanceFrontier(Vertex v) {
+        int id = this.graph.id(v);
+        List<Vertex> result = new ArrayList<Vertex>();
+        if (id >= 0) {
+            for (int f : dominanceFrontier(id)) {
+                if (this.graph.vertex(f) != null) {
+                    result.add(this.graph.vertex(f));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 指定された頂点集合の反復支配辺境 DF+ を返す.
+     * SSA 形式で φ 関数を置く頂点の計算に用いる.
+     * @param ids 頂点の ID 集合
+     * @return 反復支配辺境の ID 集合
+     */
+    public BitSet iteratedDominanceFrontier(BitSet ids) {
+        BitSet result = new BitSet(this.graph.size());
+        BitSet processed = new BitSet(this.graph.size());
+        List<Integer> worklist = new ArrayList<Integer>();
+        for (int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1)) {
+            worklist.add(i);
+            processed.set(i);
+        }
+        while (!worklist.isEmpty()) {
+            int v = worklist.remove(worklist.size() - 1);
+            for (int f : dominanceFrontier(v)) {
+                if (!result.get(f)) {
+                    result.set(f);
+                    if (!processed.get(f)) {
+                        processed.set(f);
+                        worklist.add(f);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Cooper, Harvey, Kennedy の方法で支配辺境を求める.
+    // 合流点 b の各先行頂点から b の直接支配者の手前まで支配木を遡り、その頂点の支配辺境に b を加える
+    private int[][] computeFrontier() {
+        final int n = this.graph.size();
+        List<Set<Integer>> df = new ArrayList<Set<Integer>>(n);
+        for (int v = 0; v < n; ++v) {
+            df.add(null);
+        }
+        for (int b = 0; b < this.graph.numReachable(); ++b) {
+            int numReachablePreds = 0;
+            for (int p : this.graph.predecessors(b)) {
+                if (this.graph.isReachable(p)) {
+                    numReachablePreds++;
+                }
+            }
+            // 根は入口からの暗黙の辺を持つとみなす
+            if (numReachablePreds < (b == 0 ? 1 : 2)) {
+                continue;
+            }
+            for (int p : this.graph.predecessors(b)) {
+                if (!this.graph.isReachable(p)) {
+                    continue;
+                }
+                int runner = p;
+                while (runner >= 0 && runner != this.idom[b]) {
+                    if (df.get(runner) == null) {
+                        df.set(runner, new LinkedHashSet<Integer>());
+                    }
+                    df.get(runner).add(b);
+                    runner = this.idom[runner];
+                }
+            }
+        }
+
+        int[][] result = new int[n][];
+        for (int v = 0; v < n; ++v) {
+            Set<Integer> f = df.get(v);
+            result[v] = new int[f == null ? 0 : f.size()];
+            if (f != null) {
+                int i = 0;
+                for (int b : f) {
+                    result[v][i++] = b;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 頂点が根から到達可能（支配関係が定義される）かを返す.
+     */
+    public boolean isReachable(Vertex v) {
+        return this.graph.isReachable(this.graph.id(v));
+    }
+}
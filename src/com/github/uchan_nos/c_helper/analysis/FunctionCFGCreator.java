@@ -28,9 +28,22 @@ public class FunctionCFGCreator {
     private Set<NamedVertex<CFG.Vertex>> labelVertices;
     private Set<NamedVertex<CFG.Vertex>> gotoVertices;
     private Set<CFG.Vertex> returnVertices;
+    private boolean removeUnreachableVertices;
 
     public FunctionCFGCreator(IASTFunctionDefinition functionDefinition) {
+        this(functionDefinition, true);
+    }
+
+    /**
+     * 関数の制御フローグラフ生成器を生成する.
+     * @param functionDefinition 関数定義
+     * @param removeUnreachableVertices 入口から到達できない頂点をグラフから削除するなら true.
+     *        削除しない場合も、到達できない頂点は {@link CFG#unreachableVertices()} に記録される
+     */
+    public FunctionCFGCreator(IASTFunctionDefinition functionDefinition,
+            boolean removeUnreachableVertices) {
         this.functionDefinition = functionDefinition;
+        this.removeUnreachableVertices = removeUnreachableVertices;
         this.labelVertices = new HashSet<NamedVertex<CFG.Vertex>>();
         this.gotoVertices = new HashSet<NamedVertex<CFG.Vertex>>();
         this.returnVertices = new HashSet<CFG.Vertex>();
@@ -40,7 +53,9 @@ public class FunctionCFGCreator {
         CFG cfg = create(functionDefinition.getBody());
         applyGotoInfo(cfg);
         applyReturnInfo(cfg);
+        applyReachability(cfg);
         CFGNormalizer.normalize(cfg);
+        cfg.freeze();
         return cfg;
     }
 
@@ -131,6 +146,8 @@ public class FunctionCFGCreator {
         } else {
             cfg.connect(entryVertex, exitVertex);
         }
+        cfg.setBranch(entryVertex, thencfg.entryVertex(),
+                elsecfg == null ? exitVertex : elsecfg.entryVertex());
         return cfg;
     }
 
@@ -150,6 +167,7 @@ public class FunctionCFGCreator {
         cfg.connect(subcfg.exitVertex(), bodyendVertex);
         cfg.connect(bodyendVertex, entryVertex);
         cfg.connect(entryVertex, exitVertex);
+        cfg.setBranch(entryVertex, subcfg.entryVertex(), exitVertex);
 
         applyJumps(cfg, subcfg.continueVertices(), bodyendVertex, subcfg.breakVertices(), exitVertex);
 
@@ -173,6 +191,7 @@ public class FunctionCFGCreator {
         cfg.connect(bodyendVertex, condVertex);
         cfg.connect(condVertex, subcfg.entryVertex());
         cfg.connect(condVertex, exitVertex);
+        cfg.setBranch(condVertex, subcfg.entryVertex(), exitVertex);
 
         applyJumps(cfg, subcfg.continueVertices(), bodyendVertex, subcfg.breakVertices(), exitVertex);
 
@@ -218,6 +237,7 @@ public class FunctionCFGCreator {
         cfg.connect(subcfg.exitVertex(), bodyendVertex);
         cfg.connect(bodyendVertex, iterVertex);
         cfg.connect(iterVertex, condVertex);
+        cfg.setBranch(condVertex, subcfg.entryVertex(), exitVertex);
 
         applyJumps(cfg, subcfg.continueVertices(), bodyendVertex, subcfg.breakVertices(), exitVertex);
 
@@ -329,6 +349,29 @@ public class FunctionCFGCreator {
         }
     }
 
+    /**
+     * 入口から到達できない頂点を求め、ASTノードを持つものを到達不能頂点として記録する.
+     * removeUnreachableVertices が true ならそれらをグラフから削除する.
+     * 入口と出口の頂点は削除しない.
+     */
+    private void applyReachability(CFG cfg) {
+        IndexedGraph<CFG.Vertex> graph = new IndexedGraph<CFG.Vertex>(cfg, cfg.entryVertex());
+        Set<CFG.Vertex> unreachable = new HashSet<CFG.Vertex>();
+        for (int id = graph.numReachable(); id < graph.size(); ++id) {
+            CFG.Vertex v = graph.vertex(id);
+            if (v == cfg.entryVertex() || v == cfg.exitVertex()) {
+                continue;
+            }
+            if (v.getASTNode() != null) {
+                unreachable.add(v);
+            }
+            if (this.removeUnreachableVertices) {
+                cfg.remove(v);
+            }
+        }
+        cfg.setUnreachableVertices(unreachable);
+    }
+
     private static void applyUnconditionalJumps(CFG cfg, Set<CFG.Vertex> jumpFromVertices, CFG.Vertex jumpToVertex) {
         for (CFG.Vertex from : jumpFromVertices) {
             // まずジャンプ元頂点から出ている辺を削除
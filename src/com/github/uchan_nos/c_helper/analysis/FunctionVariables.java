@@ -0,0 +1,133 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTDeclSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTParameterDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTStandardFunctionDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 関数が参照する変数の一覧. 各変数に出現順の整数IDを割り当てる.
+ * 仮引数と自動記憶域の局所変数のうち、アドレスを取られないものは関数の外から
+ * 読み書きされないので、代入で値が確定する変数（{@link #isPrivate(IVariable)}）として扱える.
+ * @author uchan
+ */
+class FunctionVariables {
+    private final List<IVariable> variables;
+    private final Map<IVariable, Integer> ids;
+    private final Set<IVariable> locals;
+    private final Set<IVariable> addressTaken;
+
+    public FunctionVariables(IASTFunctionDefinition function) {
+        this.variables = new ArrayList<IVariable>();
+        this.ids = new HashMap<IVariable, Integer>();
+        this.locals = new HashSet<IVariable>();
+        this.addressTaken = new HashSet<IVariable>();
+
+        if (function.getDeclarator() instanceof IASTStandardFunctionDeclarator) {
+            for (IASTParameterDeclaration param :
+                    ((IASTStandardFunctionDeclarator)function.getDeclarator()).getParameters()) {
+                IBinding binding = param.getDeclarator().getName().resolveBinding();
+                if (binding instanceof IVariable) {
+                    register((IVariable)binding);
+                    locals.add((IVariable)binding);
+                }
+            }
+        }
+
+        function.getBody().accept(new ASTVisitor(true) {
+            @Override
+            public int visit(IASTDeclaration declaration) {
+                if (declaration instanceof IASTSimpleDeclaration) {
+                    IASTSimpleDeclaration d = (IASTSimpleDeclaration)declaration;
+                    int storageClass = d.getDeclSpecifier().getStorageClass();
+                    boolean automatic = storageClass != IASTDeclSpecifier.sc_static
+                        && storageClass != IASTDeclSpecifier.sc_extern;
+                    for (IASTDeclarator decl : d.getDeclarators()) {
+                        IBinding binding = decl.getName().resolveBinding();
+                        if (binding instanceof IVariable) {
+                            register((IVariable)binding);
+                            if (automatic) {
+                                locals.add((IVariable)binding);
+                            }
+                        }
+                    }
+                }
+                return super.visit(declaration);
+            }
+
+            @Override
+            public int visit(IASTExpression expression) {
+                if (expression instanceof IASTIdExpression) {
+                    IBinding binding = ((IASTIdExpression)expression).getName().resolveBinding();
+                    if (binding instanceof IVariable) {
+                        register((IVariable)binding);
+                    }
+                } else if (expression instanceof IASTUnaryExpression
+                        && ((IASTUnaryExpression)expression).getOperator() == IASTUnaryExpression.op_amper) {
+                    IASTExpression operand = ((IASTUnaryExpression)expression).getOperand();
+                    while (operand instanceof IASTUnaryExpression
+                            && ((IASTUnaryExpression)operand).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+                        operand = ((IASTUnaryExpression)operand).getOperand();
+                    }
+                    if (operand instanceof IASTIdExpression) {
+                        IBinding binding = ((IASTIdExpression)operand).getName().resolveBinding();
+                        if (binding instanceof IVariable) {
+                            addressTaken.add((IVariable)binding);
+                        }
+                    }
+                }
+                return super.visit(expression);
+            }
+        });
+    }
+
+    private void register(IVariable var) {
+        if (!ids.containsKey(var)) {
+            ids.put(var, variables.size());
+            variables.add(var);
+        }
+    }
+
+    /**
+     * 変数の一覧を返す. 位置が変数のIDである.
+     */
+    public List<IVariable> variables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    public int size() {
+        return variables.size();
+    }
+
+    /**
+     * 変数のIDを返す. 関数が参照しない変数なら -1 を返す.
+     */
+    public int id(IBinding var) {
+        Integer id = ids.get(var);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 変数が仮引数または自動記憶域の局所変数で、かつアドレスを取られていなければ true を返す.
+     */
+    public boolean isPrivate(IVariable var) {
+        return locals.contains(var) && !addressTaken.contains(var);
+    }
+}
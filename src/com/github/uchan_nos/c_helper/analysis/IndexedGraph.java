@@ -0,0 +1,242 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * グラフの各頂点に 0 から始まる密な整数IDを割り当てた読み取り専用のビュー.
+ * 根から到達可能な頂点には逆後順 (reverse postorder) で 0 .. numReachable()-1 を割り当て、
+ * 到達不能な頂点にはその後ろの番号を割り当てる.
+ * したがって、到達可能な頂点 u, v について u が v の祖先なら id(u) < id(v) が成り立つ.
+ *
+ * 根が複数指定された場合は、すべての根へ辺を持つ仮想的な根をID 0 として追加する.
+ * 仮想的な根に対応する頂点は null である.
+ *
+ * @author uchan
+ *
+ * @param <Vertex> 頂点の型
+ */
+public class IndexedGraph<Vertex> {
+    private static final int[] EMPTY = new int[0];
+
+    private final List<Vertex> vertices;
+    private final Map<Vertex, Integer> ids;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final int numReachable;
+    private final boolean hasVirtualRoot;
+
+    /**
+     * 指定された頂点を根とするビューを生成する.
+     * @param graph 元のグラフ
+     * @param root 根とする頂点
+     */
+    public IndexedGraph(IGraph<Vertex> graph, Vertex root) {
+        this(graph, Collections.singletonList(root), false, null);
+    }
+
+    /**
+     * 指定された頂点を根とするビューを生成する.
+     * 後続頂点を comparator の順に辿るため、ID の割り当てはハッシュ値に依存せず決定的になる.
+     * @param graph 元のグラフ
+     * @param root 根とする頂点
+     * @param order 頂点の順序. null ならグラフの列挙順
+     */
+    public IndexedGraph(IGraph<Vertex> graph, Vertex root, Comparator<? super Vertex> order) {
+        this(graph, Collections.singletonList(root), false, order);
+    }
+
+    /**
+     * 辺の向きを逆にしたグラフのビューを生成する.
+     * 後支配木の計算に用いる.
+     * @param graph 元のグラフ
+     * @param roots 逆グラフでの根（元のグラフの出口）. 2つ以上なら仮想的な根が追加される
+     * @param order 頂点の順序. null ならグラフの列挙順
+     * @return 逆グラフのビュー
+     */
+    public static <Vertex> IndexedGraph<Vertex> reverse(IGraph<Vertex> graph,
+            Collection<Vertex> roots, Comparator<? super Vertex> order) {
+        return new IndexedGraph<Vertex>(graph, roots, true, order);
+    }
+
+    private IndexedGraph(IGraph<Vertex> graph, Collection<Vertex> roots,
+            boolean reverse, Comparator<? super Vertex> order) {
+        // 元のグラフの頂点と隣接リスト
+        List<Vertex> allVertices = new ArrayList<Vertex>(graph.getVertices());
+        if (order != null) {
+            Collections.sort(allVertices, order);
+        }
+        Map<Vertex, List<Vertex>> adjacent = new HashMap<Vertex, List<Vertex>>();
+        for (Vertex v : allVertices) {
+            adjacent.put(v, new ArrayList<Vertex>());
+        }
+        for (Vertex v : allVertices) {
+            for (Vertex to : graph.getConnectedVerticesFrom(v)) {
+                if (reverse) {
+                    adjacent.get(to).add(v);
+                } else {
+                    adjacent.get(v).add(to);
+                }
+            }
+        }
+        if (order != null) {
+            for (List<Vertex> l : adjacent.values()) {
+                Collections.sort(l, order);
+            }
+        }
+
+        List<Vertex> rootList = new ArrayList<Vertex>();
+        for (Vertex r : roots) {
+            if (r != null && adjacent.containsKey(r) && !rootList.contains(r)) {
+                rootList.add(r);
+            }
+        }
+        this.hasVirtualRoot = rootList.size() != 1;
+
+        // 反復的な深さ優先探索で後順を求める
+        List<Vertex> postorder = new ArrayList<Vertex>();
+        Map<Vertex, Boolean> visited = new HashMap<Vertex, Boolean>();
+        for (Vertex r : rootList) {
+            if (visited.containsKey(r)) {
+                continue;
+            }
+            ArrayList<Vertex> stack = new ArrayList<Vertex>();
+            ArrayList<Integer> nextChild = new ArrayList<Integer>();
+            stack.add(r);
+            nextChild.add(0);
+            visited.put(r, Boolean.TRUE);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                Vertex v = stack.get(top);
+                List<Vertex> adj = adjacent.get(v);
+                int i = nextChild.get(top);
+                if (i < adj.size()) {
+                    nextChild.set(top, i + 1);
+                    Vertex w = adj.get(i);
+                    if (!visited.containsKey(w)) {
+                        visited.put(w, Boolean.TRUE);
+                        stack.add(w);
+                        nextChild.add(0);
+                    }
+                } else {
+                    stack.remove(top);
+                    nextChild.remove(top);
+                    postorder.add(v);
+                }
+            }
+        }
+
+        // 仮想的な根 → 逆後順 → 到達不能な頂点 の順にIDを割り当てる
+        this.vertices = new ArrayList<Vertex>(allVertices.size() + 1);
+        this.ids = new HashMap<Vertex, Integer>();
+        if (this.hasVirtualRoot) {
+            this.vertices.add(null);
+        }
+        for (int i = postorder.size() - 1; i >= 0; --i) {
+            this.ids.put(postorder.get(i), this.vertices.size());
+            this.vertices.add(postorder.get(i));
+        }
+        this.numReachable = this.vertices.size();
+        for (Vertex v : allVertices) {
+            if (!visited.containsKey(v)) {
+                this.ids.put(v, this.vertices.size());
+                this.vertices.add(v);
+            }
+        }
+
+        // 整数IDによる隣接配列を作る
+        final int n = this.vertices.size();
+        this.successors = new int[n][];
+        this.predecessors = new int[n][];
+        int[] numPredecessors = new int[n];
+        for (int id = 0; id < n; ++id) {
+            Vertex v = this.vertices.get(id);
+            List<Vertex> adj = v == null ? rootList : adjacent.get(v);
+            int[] succ = adj.isEmpty() ? EMPTY : new int[adj.size()];
+            for (int i = 0; i < succ.length; ++i) {
+                succ[i] = this.ids.get(adj.get(i));
+                numPredecessors[succ[i]]++;
+            }
+            this.successors[id] = succ;
+        }
+        for (int id = 0; id < n; ++id) {
+            this.predecessors[id] = numPredecessors[id] == 0 ? EMPTY : new int[numPredecessors[id]];
+            numPredecessors[id] = 0;
+        }
+        for (int id = 0; id < n; ++id) {
+            for (int to : this.successors[id]) {
+                this.predecessors[to][numPredecessors[to]++] = id;
+            }
+        }
+    }
+
+    /**
+     * 仮想的な根を含む頂点数を返す.
+     */
+    public int size() {
+        return this.vertices.size();
+    }
+
+    /**
+     * 根から到達可能な頂点数を返す. ID が 0 以上この値未満の頂点が到達可能である.
+     */
+    public int numReachable() {
+        return this.numReachable;
+    }
+
+    /**
+     * 仮想的な根を持つかを返す. 持つ場合、その ID は 0 である.
+     */
+    public boolean hasVirtualRoot() {
+        return this.hasVirtualRoot;
+    }
+
+    /**
+     * 指定されたIDの頂点を返す. 仮想的な根なら null を返す.
+     */
+    public Vertex vertex(int id) {
+        return this.vertices.get(id);
+    }
+
+    /**
+     * 指定された頂点のIDを返す. グラフに含まれない頂点なら -1 を返す.
+     */
+    public int id(Vertex v) {
+        Integer id = this.ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 指定されたIDの頂点が根から到達可能かを返す.
+     */
+    public boolean isReachable(int id) {
+        return id >= 0 && id < this.numReachable;
+    }
+
+    /**
+     * 指定されたIDの頂点の後続頂点のID配列を返す. 返された配列を変更してはならない.
+     */
+    public int[] successors(int id) {
+        return this.successors[id];
+    }
+
+    /**
+     * 指定されたIDの頂点の先行頂点のID配列を返す. 返された配列を変更してはならない.
+     */
+    public int[] predecessors(int id) {
+        return this.predecessors[id];
+    }
+
+    /**
+     * 辺 from -> to が逆後順で後退する辺（深さ優先探索木での後退辺）かを返す.
+     * 自然ループの戻り辺に加え、既約でないループの戻り辺もこれに含まれる.
+     */
+    public boolean isRetreatingEdge(int from, int to) {
+        return isReachable(from) && isReachable(to) && to <= from;
+    }
+}
@@ -0,0 +1,621 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTConditionalExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarationStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTEqualsInitializer;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionList;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTLiteralExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTTypeIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
+import org.eclipse.cdt.core.dom.ast.IBasicType;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.analysis.values.Interval;
+import com.github.uchan_nos.c_helper.dataflow.WideningProblem;
+import com.github.uchan_nos.c_helper.dataflow.WideningSolver;
+import com.github.uchan_nos.c_helper.util.IntegerLimits;
+import com.github.uchan_nos.c_helper.util.TypeUtil;
+
+/**
+ * 汎整数型の変数の値域を区間で求める抽象解釈器.
+ *
+ * 解析値は、追跡する変数ごとの区間の配列である. 到達しない頂点の値は null とする.
+ * ループの先頭で拡大演算を行うので、反復回数はループの入れ子の深さと変数の数で抑えられる.
+ * 分岐の辺では条件式（比較、!, &&, ||）により変数の区間を絞り込む.
+ *
+ * 追跡するのは、アドレスを取られない仮引数と自動記憶域の局所変数のうち、汎整数型のものである.
+ * 値が型で表せる範囲を超えるときは、その型の値域全体とする.
+ *
+ * @author uchan
+ */
+public class IntervalAnalyzer implements WideningProblem<CFG.Vertex, Interval[]> {
+    private final CFG cfg;
+    private final AnalysisEnvironment analysisEnvironment;
+    private final List<IVariable> tracked;
+    private final Map<IVariable, Integer> trackedIndex;
+
+    /**
+     * 値域解析器を生成する.
+     * @param function 解析する関数の定義
+     * @param cfg 解析する関数の制御フローグラフ
+     * @param analysisEnvironment 型のビット数などの前提
+     */
+    public IntervalAnalyzer(IASTFunctionDefinition function, CFG cfg,
+            AnalysisEnvironment analysisEnvironment) {
+        this.cfg = cfg;
+        this.analysisEnvironment = analysisEnvironment;
+        this.tracked = new ArrayList<IVariable>();
+        this.trackedIndex = new HashMap<IVariable, Integer>();
+        FunctionVariables variables = new FunctionVariables(function);
+        for (IVariable var : variables.variables()) {
+            if (variables.isPrivate(var) && TypeUtil.asIntegralType(var.getType()) != null) {
+                this.trackedIndex.put(var, this.tracked.size());
+                this.tracked.add(var);
+            }
+        }
+    }
+
+    public Intervals analyze() {
+        WideningSolver.Result<CFG.Vertex, Interval[]> result =
+            new WideningSolver<CFG.Vertex, Interval[]>(
+                    cfg, cfg.entryVertex(), this, CFG.CREATION_ORDER).solve();
+        return new Intervals(this, result);
+    }
+
+    List<IVariable> getTrackedVariables() {
+        return this.tracked;
+    }
+
+    int indexOf(IBinding var) {
+        Integer i = this.trackedIndex.get(var);
+        return i == null ? -1 : i;
+    }
+
+    @Override
+    public Interval[] initialValue() {
+        // 仮引数と未初期化の局所変数は型の値域全体を取り得る
+        Interval[] state = new Interval[this.tracked.size()];
+        for (int i = 0; i < state.length; ++i) {
+            state[i] = typeRange(this.tracked.get(i).getType());
+        }
+        return state;
+    }
+
+    @Override
+    public Interval[] transfer(CFG.Vertex v, Interval[] entry) {
+        IASTNode node = v.getEvaluatedNode();
+        if (node == null) {
+            return entry;
+        }
+        Interval[] state = entry.clone();
+        if (node instanceof IASTExpression) {
+            eval((IASTExpression)node, state);
+        } else if (node instanceof IASTExpressionStatement) {
+            eval(((IASTExpressionStatement)node).getExpression(), state);
+        } else if (node instanceof IASTReturnStatement) {
+            eval(((IASTReturnStatement)node).getReturnValue(), state);
+        } else if (node instanceof IASTDeclarationStatement) {
+            IASTDeclaration decl = ((IASTDeclarationStatement)node).getDeclaration();
+            if (decl instanceof IASTSimpleDeclaration) {
+                for (IASTDeclarator d : ((IASTSimpleDeclaration)decl).getDeclarators()) {
+                    declare(d, state);
+                }
+            }
+        }
+        return state;
+    }
+
+    private void declare(IASTDeclarator d, Interval[] state) {
+        Interval value = null;
+        if (d.getInitializer() instanceof IASTEqualsInitializer) {
+            IASTEqualsInitializer init = (IASTEqualsInitializer)d.getInitializer();
+            if (init.getInitializerClause() instanceof IASTExpression) {
+                value = eval((IASTExpression)init.getInitializerClause(), state);
+            }
+        }
+        int var = indexOf(d.getName().resolveBinding());
+        if (var >= 0) {
+            IType type = this.tracked.get(var).getType();
+            state[var] = value == null ? typeRange(type) : convert(value, type);
+        }
+    }
+
+    @Override
+    public Interval[] transferEdge(CFG.Vertex from, CFG.Vertex to, Interval[] exit) {
+        CFG.Vertex ifTrue = this.cfg.getTrueSuccessor(from);
+        CFG.Vertex ifFalse = this.cfg.getFalseSuccessor(from);
+        if (ifTrue == null || ifFalse == null || ifTrue == ifFalse) {
+            return exit;
+        }
+        IASTNode condition = from.getEvaluatedNode();
+        if (condition == null) {
+            // for (;;) の条件は常に真
+            return to == ifTrue ? exit : null;
+        }
+        if (!(condition instanceof IASTExpression) || hasSideEffect(condition)) {
+            return exit;
+        }
+        Interval[] state = exit.clone();
+        return refine((IASTExpression)condition, to == ifTrue, state) ? state : null;
+    }
+
+    @Override
+    public Interval[] join(Interval[] a, Interval[] b) {
+        Interval[] result = new Interval[a.length];
+        for (int i = 0; i < a.length; ++i) {
+            result[i] = a[i].join(b[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Interval[] widen(Interval[] previous, Interval[] next) {
+        Interval[] result = new Interval[previous.length];
+        for (int i = 0; i < previous.length; ++i) {
+            result[i] = previous[i].widen(next[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Interval[] narrow(Interval[] previous, Interval[] next) {
+        Interval[] result = new Interval[previous.length];
+        for (int i = 0; i < previous.length; ++i) {
+            result[i] = previous[i].narrow(next[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isSame(Interval[] a, Interval[] b) {
+        for (int i = 0; i < a.length; ++i) {
+            if (!a[i].equals(b[i]) && !(a[i].isEmpty() && b[i].isEmpty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 式を評価し、その値の区間を返す. 式の副作用（追跡する変数への代入）は state に反映する.
+     */
+    Interval eval(IASTExpression e, Interval[] state) {
+        if (e == null) {
+            return Interval.TOP;
+        } else if (e instanceof IASTIdExpression) {
+            int var = indexOf(((IASTIdExpression)e).getName().resolveBinding());
+            return var >= 0 ? state[var] : typeRange(e.getExpressionType());
+        } else if (e instanceof IASTLiteralExpression) {
+            IASTLiteralExpression le = (IASTLiteralExpression)e;
+            if (le.getKind() == IASTLiteralExpression.lk_integer_constant) {
+                BigInteger value = ConstantPropagation.parseInteger(String.valueOf(le.getValue()));
+                if (value != null) {
+                    return Interval.of(value);
+                }
+            }
+            return typeRange(e.getExpressionType());
+        } else if (e instanceof IASTUnaryExpression) {
+            return eval((IASTUnaryExpression)e, state);
+        } else if (e instanceof IASTBinaryExpression) {
+            return eval((IASTBinaryExpression)e, state);
+        } else if (e instanceof IASTConditionalExpression) {
+            IASTConditionalExpression ce = (IASTConditionalExpression)e;
+            Interval c = eval(ce.getLogicalConditionExpression(), state);
+            Interval[] positiveState = state.clone();
+            Interval[] negativeState = state.clone();
+            Interval result = Interval.EMPTY;
+            if (!c.isConstant() || c.lower().signum() != 0) {
+                result = result.join(eval(ce.getPositiveResultExpression(), positiveState));
+            } else {
+                positiveState = null;
+            }
+            if (c.contains(BigInteger.ZERO)) {
+                result = result.join(eval(ce.getNegativeResultExpression(), negativeState));
+            } else {
+                negativeState = null;
+            }
+            joinInto(state, positiveState, negativeState);
+            return result;
+        } else if (e instanceof IASTExpressionList) {
+            Interval result = Interval.TOP;
+            for (IASTExpression sub : ((IASTExpressionList)e).getExpressions()) {
+                result = eval(sub, state);
+            }
+            return result;
+        } else if (e instanceof IASTTypeIdExpression) {
+            return typeRange(e.getExpressionType());
+        }
+
+        // 関数呼び出し、配列の添字など. 部分式の副作用だけを反映する
+        for (IASTNode child : e.getChildren()) {
+            if (child instanceof IASTExpression) {
+                eval((IASTExpression)child, state);
+            }
+        }
+        return typeRange(e.getExpressionType());
+    }
+
+    private Interval eval(IASTUnaryExpression e, Interval[] state) {
+        int op = e.getOperator();
+        switch (op) {
+        case IASTUnaryExpression.op_bracketedPrimary:
+            return eval(e.getOperand(), state);
+        case IASTUnaryExpression.op_plus:
+            return convert(eval(e.getOperand(), state), e.getExpressionType());
+        case IASTUnaryExpression.op_minus:
+            return convert(eval(e.getOperand(), state).negate(), e.getExpressionType());
+        case IASTUnaryExpression.op_tilde:
+            // ~x = -x - 1
+            return convert(eval(e.getOperand(), state).negate().subtract(Interval.of(BigInteger.ONE)),
+                    e.getExpressionType());
+        case IASTUnaryExpression.op_not:
+            return truth(eval(e.getOperand(), state), false);
+        case IASTUnaryExpression.op_prefixIncr:
+        case IASTUnaryExpression.op_prefixDecr:
+        case IASTUnaryExpression.op_postFixIncr:
+        case IASTUnaryExpression.op_postFixDecr: {
+            Interval old = eval(e.getOperand(), state);
+            int var = trackedOperand(e.getOperand());
+            boolean increment = op == IASTUnaryExpression.op_prefixIncr
+                || op == IASTUnaryExpression.op_postFixIncr;
+            Interval one = Interval.of(increment ? BigInteger.ONE : BigInteger.ONE.negate());
+            IType type = var >= 0 ? this.tracked.get(var).getType() : e.getOperand().getExpressionType();
+            Interval updated = convert(old.add(one), type);
+            if (var >= 0) {
+                state[var] = updated;
+            }
+            boolean prefix = op == IASTUnaryExpression.op_prefixIncr
+                || op == IASTUnaryExpression.op_prefixDecr;
+            return prefix ? updated : old;
+        }
+        case IASTUnaryExpression.op_sizeof:
+            return typeRange(e.getExpressionType());
+        }
+        eval(e.getOperand(), state);
+        return typeRange(e.getExpressionType());
+    }
+
+    private Interval eval(IASTBinaryExpression e, Interval[] state) {
+        int op = e.getOperator();
+        if (op == IASTBinaryExpression.op_logicalAnd || op == IASTBinaryExpression.op_logicalOr) {
+            boolean isAnd = op == IASTBinaryExpression.op_logicalAnd;
+            Interval lhs = truth(eval(e.getOperand1(), state), true);
+            if (lhs.isConstant() && (lhs.lower().signum() != 0) != isAnd) {
+                // 右辺は評価されない
+                return lhs;
+            }
+            Interval[] rhsState = state.clone();
+            Interval rhs = truth(eval(e.getOperand2(), rhsState), true);
+            joinInto(state, lhs.isConstant() ? null : state.clone(), rhsState);
+            if (lhs.isConstant()) {
+                return rhs;
+            }
+            return rhs.join(Interval.of(isAnd ? BigInteger.ZERO : BigInteger.ONE));
+        }
+
+        int compound = compoundOperator(op);
+        if (op == IASTBinaryExpression.op_assign || compound >= 0) {
+            int var = trackedOperand(e.getOperand1());
+            Interval lhs = eval(e.getOperand1(), state);
+            Interval rhs = eval(e.getOperand2(), state);
+            IType type = var >= 0 ? this.tracked.get(var).getType() : e.getOperand1().getExpressionType();
+            Interval value = convert(op == IASTBinaryExpression.op_assign
+                    ? rhs : arithmetic(compound, lhs, rhs), type);
+            if (var >= 0) {
+                state[var] = value;
+            }
+            return value;
+        }
+
+        Interval lhs = eval(e.getOperand1(), state);
+        Interval rhs = eval(e.getOperand2(), state);
+        switch (op) {
+        case IASTBinaryExpression.op_lessThan:
+        case IASTBinaryExpression.op_lessEqual:
+        case IASTBinaryExpression.op_greaterThan:
+        case IASTBinaryExpression.op_greaterEqual:
+        case IASTBinaryExpression.op_equals:
+        case IASTBinaryExpression.op_notequals:
+            if (mixesSignedness(e.getOperand1(), lhs, e.getOperand2(), rhs)) {
+                return Interval.of(0, 1);
+            }
+            return compare(op, lhs, rhs);
+        }
+        return convert(arithmetic(op, lhs, rhs), e.getExpressionType());
+    }
+
+    private static Interval arithmetic(int op, Interval lhs, Interval rhs) {
+        switch (op) {
+        case IASTBinaryExpression.op_plus: return lhs.add(rhs);
+        case IASTBinaryExpression.op_minus: return lhs.subtract(rhs);
+        case IASTBinaryExpression.op_multiply: return lhs.multiply(rhs);
+        case IASTBinaryExpression.op_divide: return lhs.divide(rhs);
+        case IASTBinaryExpression.op_modulo: return lhs.remainder(rhs);
+        case IASTBinaryExpression.op_binaryAnd:
+            // 非負同士の論理積は、どちらの値も超えない
+            if (isNonNegative(lhs) && isNonNegative(rhs)) {
+                return Interval.of(BigInteger.ZERO, min(lhs.upper(), rhs.upper()));
+            } else if (isNonNegative(lhs) || isNonNegative(rhs)) {
+                return Interval.of(BigInteger.ZERO, isNonNegative(lhs) ? lhs.upper() : rhs.upper());
+            }
+            return Interval.TOP;
+        case IASTBinaryExpression.op_shiftRight:
+            if (isNonNegative(lhs) && isNonNegative(rhs)) {
+                return Interval.of(BigInteger.ZERO, lhs.upper());
+            }
+            return Interval.TOP;
+        }
+        return Interval.TOP;
+    }
+
+    private static boolean isNonNegative(Interval v) {
+        return !v.isEmpty() && v.lower() != null && v.lower().signum() >= 0;
+    }
+
+    private static BigInteger min(BigInteger a, BigInteger b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : a.min(b);
+    }
+
+    // 比較の結果を [0, 0], [1, 1], [0, 1] のいずれかで返す
+    private static Interval compare(int op, Interval lhs, Interval rhs) {
+        if (lhs.isEmpty() || rhs.isEmpty()) {
+            return Interval.EMPTY;
+        }
+        Interval satisfying = constraint(op, rhs);
+        Interval violating = constraint(negate(op), rhs);
+        boolean canBeTrue = !lhs.meet(satisfying).isEmpty();
+        boolean canBeFalse = !lhs.meet(violating).isEmpty();
+        if (op == IASTBinaryExpression.op_notequals) {
+            canBeTrue = !(lhs.isConstant() && rhs.isConstant() && lhs.equals(rhs));
+        } else if (op == IASTBinaryExpression.op_equals) {
+            canBeFalse = !(lhs.isConstant() && rhs.isConstant() && lhs.equals(rhs));
+        }
+        if (canBeTrue && canBeFalse) {
+            return Interval.of(0, 1);
+        }
+        return Interval.of(canBeTrue ? BigInteger.ONE : BigInteger.ZERO);
+    }
+
+    // x op rhs を満たす x の区間（の上界）を返す. != は区間では表せないので全体を返す
+    private static Interval constraint(int op, Interval rhs) {
+        BigInteger one = BigInteger.ONE;
+        switch (op) {
+        case IASTBinaryExpression.op_lessThan:
+            return Interval.of(null, rhs.upper() == null ? null : rhs.upper().subtract(one));
+        case IASTBinaryExpression.op_lessEqual:
+            return Interval.of(null, rhs.upper());
+        case IASTBinaryExpression.op_greaterThan:
+            return Interval.of(rhs.lower() == null ? null : rhs.lower().add(one), null);
+        case IASTBinaryExpression.op_greaterEqual:
+            return Interval.of(rhs.lower(), null);
+        case IASTBinaryExpression.op_equals:
+            return rhs;
+        }
+        return Interval.TOP;
+    }
+
+    private static int negate(int op) {
+        switch (op) {
+        case IASTBinaryExpression.op_lessThan: return IASTBinaryExpression.op_greaterEqual;
+        case IASTBinaryExpression.op_lessEqual: return IASTBinaryExpression.op_greaterThan;
+        case IASTBinaryExpression.op_greaterThan: return IASTBinaryExpression.op_lessEqual;
+        case IASTBinaryExpression.op_greaterEqual: return IASTBinaryExpression.op_lessThan;
+        case IASTBinaryExpression.op_equals: return IASTBinaryExpression.op_notequals;
+        case IASTBinaryExpression.op_notequals: return IASTBinaryExpression.op_equals;
+        }
+        return op;
+    }
+
+    // a op b を b op' a に書き換えたときの op'
+    private static int mirror(int op) {
+        switch (op) {
+        case IASTBinaryExpression.op_lessThan: return IASTBinaryExpression.op_greaterThan;
+        case IASTBinaryExpression.op_lessEqual: return IASTBinaryExpression.op_greaterEqual;
+        case IASTBinaryExpression.op_greaterThan: return IASTBinaryExpression.op_lessThan;
+        case IASTBinaryExpression.op_greaterEqual: return IASTBinaryExpression.op_lessEqual;
+        }
+        return op;
+    }
+
+    private static boolean isComparison(int op) {
+        return negate(op) != op;
+    }
+
+    /**
+     * 条件式 e の値が sense であると仮定して state の区間を絞り込む.
+     * 条件が成り立ち得なければ false を返す.
+     */
+    private boolean refine(IASTExpression e, boolean sense, Interval[] state) {
+        Interval value = eval(e, state.clone());
+        if (value.isEmpty()
+                || (sense && value.isConstant() && value.lower().signum() == 0)
+                || (!sense && !value.contains(BigInteger.ZERO))) {
+            return false;
+        }
+
+        if (e instanceof IASTUnaryExpression) {
+            IASTUnaryExpression ue = (IASTUnaryExpression)e;
+            if (ue.getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+                return refine(ue.getOperand(), sense, state);
+            } else if (ue.getOperator() == IASTUnaryExpression.op_not) {
+                return refine(ue.getOperand(), !sense, state);
+            }
+        } else if (e instanceof IASTBinaryExpression) {
+            IASTBinaryExpression be = (IASTBinaryExpression)e;
+            int op = be.getOperator();
+            if (op == IASTBinaryExpression.op_logicalAnd || op == IASTBinaryExpression.op_logicalOr) {
+                // a && b が真: a と b が真. 偽: a が偽、または a が真で b が偽
+                boolean both = (op == IASTBinaryExpression.op_logicalAnd) == sense;
+                if (both) {
+                    return refine(be.getOperand1(), sense, state)
+                        && refine(be.getOperand2(), sense, state);
+                }
+                Interval[] first = state.clone();
+                Interval[] second = state.clone();
+                boolean firstFeasible = refine(be.getOperand1(), sense, first);
+                boolean secondFeasible = refine(be.getOperand1(), !sense, second)
+                    && refine(be.getOperand2(), sense, second);
+                if (!firstFeasible && !secondFeasible) {
+                    return false;
+                }
+                joinInto(state, firstFeasible ? first : null, secondFeasible ? second : null);
+                return true;
+            } else if (isComparison(op)) {
+                int actual = sense ? op : negate(op);
+                Interval lhs = eval(be.getOperand1(), state.clone());
+                Interval rhs = eval(be.getOperand2(), state.clone());
+                if (mixesSignedness(be.getOperand1(), lhs, be.getOperand2(), rhs)) {
+                    return true;
+                }
+                return restrict(be.getOperand1(), constraint(actual, rhs), state)
+                    && restrict(be.getOperand2(), constraint(mirror(actual), lhs), state);
+            }
+        }
+
+        // 条件式が変数そのものなら、偽のとき 0 に絞り込める
+        if (!sense) {
+            return restrict(e, Interval.of(BigInteger.ZERO), state);
+        }
+        return true;
+    }
+
+    // 式が追跡する変数なら、その区間を制約との共通部分に絞り込む. 空になれば false を返す
+    private boolean restrict(IASTExpression e, Interval constraint, Interval[] state) {
+        int var = trackedOperand(e);
+        if (var < 0) {
+            return true;
+        }
+        state[var] = state[var].meet(constraint);
+        return !state[var].isEmpty();
+    }
+
+    // 括弧を外した式が追跡する変数なら、その番号を返す
+    private int trackedOperand(IASTExpression e) {
+        while (e instanceof IASTUnaryExpression
+                && ((IASTUnaryExpression)e).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+            e = ((IASTUnaryExpression)e).getOperand();
+        }
+        if (e instanceof IASTIdExpression) {
+            return indexOf(((IASTIdExpression)e).getName().resolveBinding());
+        }
+        return -1;
+    }
+
+    // 符号無し整数と負になり得る値の比較は、通常の算術型変換で値が変わるので扱わない
+    private static boolean mixesSignedness(IASTExpression e1, Interval v1, IASTExpression e2, Interval v2) {
+        boolean unsigned = isUnsigned(e1) || isUnsigned(e2);
+        return unsigned && (!isNonNegative(v1) || !isNonNegative(v2));
+    }
+
+    private static boolean isUnsigned(IASTExpression e) {
+        IBasicType type = TypeUtil.asIntegralType(e.getExpressionType());
+        return type != null && type.isUnsigned();
+    }
+
+    // 値を真偽として見たとき、1 なら真、0 なら偽、[0, 1] ならどちらもあり得る
+    private static Interval truth(Interval v, boolean sense) {
+        if (v.isEmpty()) {
+            return Interval.EMPTY;
+        }
+        boolean canBeZero = v.contains(BigInteger.ZERO);
+        boolean canBeNonZero = !(v.isConstant() && v.lower().signum() == 0);
+        if (canBeZero && canBeNonZero) {
+            return Interval.of(0, 1);
+        }
+        return Interval.of(canBeNonZero == sense ? BigInteger.ONE : BigInteger.ZERO);
+    }
+
+    // 2つの分岐の状態を合流させて state に書き込む. 到達しない分岐は null
+    private static void joinInto(Interval[] state, Interval[] a, Interval[] b) {
+        for (int i = 0; i < state.length; ++i) {
+            if (a != null && b != null) {
+                state[i] = a[i].join(b[i]);
+            } else if (a != null || b != null) {
+                state[i] = (a != null ? a : b)[i];
+            }
+        }
+    }
+
+    /**
+     * 区間を型の値に変換する. 型で表せない値を含むなら、その型の値域全体とする.
+     */
+    private Interval convert(Interval v, IType type) {
+        Interval range = typeRange(type);
+        return range.contains(v) ? v : range;
+    }
+
+    /**
+     * 型が表せる値の区間を返す. 汎整数型でなければすべての整数とする.
+     */
+    Interval typeRange(IType type) {
+        IBasicType t = TypeUtil.asIntegralType(type);
+        if (t == null) {
+            return Interval.TOP;
+        }
+        IntegerLimits limits = IntegerLimits.create(t, this.analysisEnvironment);
+        return Interval.of(limits.min, limits.max);
+    }
+
+    private static int compoundOperator(int op) {
+        switch (op) {
+        case IASTBinaryExpression.op_multiplyAssign: return IASTBinaryExpression.op_multiply;
+        case IASTBinaryExpression.op_divideAssign: return IASTBinaryExpression.op_divide;
+        case IASTBinaryExpression.op_moduloAssign: return IASTBinaryExpression.op_modulo;
+        case IASTBinaryExpression.op_plusAssign: return IASTBinaryExpression.op_plus;
+        case IASTBinaryExpression.op_minusAssign: return IASTBinaryExpression.op_minus;
+        case IASTBinaryExpression.op_shiftLeftAssign: return IASTBinaryExpression.op_shiftLeft;
+        case IASTBinaryExpression.op_shiftRightAssign: return IASTBinaryExpression.op_shiftRight;
+        case IASTBinaryExpression.op_binaryAndAssign: return IASTBinaryExpression.op_binaryAnd;
+        case IASTBinaryExpression.op_binaryXorAssign: return IASTBinaryExpression.op_binaryXor;
+        case IASTBinaryExpression.op_binaryOrAssign: return IASTBinaryExpression.op_binaryOr;
+        }
+        return -1;
+    }
+
+    // 代入、インクリメント、デクリメント、関数呼び出しを含むなら true
+    private static boolean hasSideEffect(IASTNode node) {
+        if (node instanceof IASTBinaryExpression
+                && (((IASTBinaryExpression)node).getOperator() == IASTBinaryExpression.op_assign
+                    || compoundOperator(((IASTBinaryExpression)node).getOperator()) >= 0)) {
+            return true;
+        } else if (node instanceof IASTUnaryExpression) {
+            switch (((IASTUnaryExpression)node).getOperator()) {
+            case IASTUnaryExpression.op_prefixIncr:
+            case IASTUnaryExpression.op_prefixDecr:
+            case IASTUnaryExpression.op_postFixIncr:
+            case IASTUnaryExpression.op_postFixDecr:
+                return true;
+            }
+        } else if (node instanceof IASTFunctionCallExpression) {
+            return true;
+        }
+        for (IASTNode child : node.getChildren()) {
+            if (hasSideEffect(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
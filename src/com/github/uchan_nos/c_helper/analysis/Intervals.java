@@ -0,0 +1,88 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.analysis.values.Interval;
+import com.github.uchan_nos.c_helper.dataflow.WideningSolver;
+
+/**
+ * {@link IntervalAnalyzer} による値域解析の結果.
+ * @author uchan
+ */
+public class Intervals {
+    private final IntervalAnalyzer analyzer;
+    private final WideningSolver.Result<CFG.Vertex, Interval[]> result;
+
+    // 式の区間のキャッシュ. キーは式と、その式を評価する頂点の組
+    private final Map<CFG.Vertex, Map<IASTExpression, Interval>> cache =
+        new HashMap<CFG.Vertex, Map<IASTExpression, Interval>>();
+
+    Intervals(IntervalAnalyzer analyzer, WideningSolver.Result<CFG.Vertex, Interval[]> result) {
+        this.analyzer = analyzer;
+        this.result = result;
+    }
+
+    /**
+     * 値域を追跡している変数のリストを返す.
+     */
+    public List<IVariable> getTrackedVariables() {
+        return Collections.unmodifiableList(this.analyzer.getTrackedVariables());
+    }
+
+    /**
+     * 頂点に到達し得るかを返す. 分岐条件から実行されないと分かる頂点では false となる.
+     */
+    public boolean isReachable(CFG.Vertex v) {
+        return this.result.getEntry(v) != null;
+    }
+
+    /**
+     * 頂点の実行直前における変数の区間を返す.
+     * 変数を追跡していなければ null、頂点に到達しなければ空の区間を返す.
+     */
+    public Interval getEntry(CFG.Vertex v, IVariable var) {
+        return lookup(this.result.getEntry(v), var);
+    }
+
+    /**
+     * 頂点の実行直後における変数の区間を返す.
+     * 変数を追跡していなければ null、頂点に到達しなければ空の区間を返す.
+     */
+    public Interval getExit(CFG.Vertex v, IVariable var) {
+        return lookup(this.result.getExit(v), var);
+    }
+
+    private Interval lookup(Interval[] state, IVariable var) {
+        int i = this.analyzer.indexOf(var);
+        if (i < 0) {
+            return null;
+        }
+        return state == null ? Interval.EMPTY : state[i];
+    }
+
+    /**
+     * 頂点 v の実行直前の状態で式を評価したときの区間を返す.
+     * 式は v が評価する部分式であることを想定している.
+     * 頂点に到達しなければ空の区間を返す.
+     */
+    public synchronized Interval getInterval(IASTExpression expr, CFG.Vertex v) {
+        Map<IASTExpression, Interval> values = this.cache.get(v);
+        if (values == null) {
+            values = new HashMap<IASTExpression, Interval>();
+            this.cache.put(v, values);
+        }
+        Interval value = values.get(expr);
+        if (value == null) {
+            Interval[] state = this.result.getEntry(v);
+            value = state == null ? Interval.EMPTY : this.analyzer.eval(expr, state.clone());
+            values.put(expr, value);
+        }
+        return value;
+    }
+}
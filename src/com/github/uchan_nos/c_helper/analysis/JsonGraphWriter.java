@@ -0,0 +1,138 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.io.IOException;
+
+/**
+ * グラフを JSON 形式で逐次書き出すクラス.
+ * 出力は次の形式となる. 頂点IDは0から始まる整数である.
+ * <pre>
+ * {"graphs":[
+ *   {"name":"f","entry":0,"vertices":[{"id":0,"label":"..."}, ...],
+ *    "edges":[{"from":0,"to":1}, ...]},
+ *   ...
+ * ]}
+ * </pre>
+ * 文字列全体をメモリ上に構築せず、呼び出しのたびに出力先へ書き込む.
+ *
+ * @author uchan
+ *
+ */
+public class JsonGraphWriter {
+    private final Appendable out;
+    private boolean firstGraph = true;
+    private boolean firstElement = true;
+
+    public JsonGraphWriter(Appendable out) {
+        this.out = out;
+    }
+
+    public void beginDocument() throws IOException {
+        out.append("{\"graphs\":[");
+        firstGraph = true;
+    }
+
+    public void endDocument() throws IOException {
+        out.append("\n]}\n");
+    }
+
+    /**
+     * グラフの出力を開始する. 続けて頂点を出力する.
+     * @param name グラフ名
+     * @param entry 入口の頂点ID. 入口がなければ負の値
+     */
+    public void beginGraph(String name, int entry) throws IOException {
+        if (!firstGraph) {
+            out.append(',');
+        }
+        firstGraph = false;
+        out.append("\n{\"name\":");
+        appendString(name);
+        if (entry >= 0) {
+            out.append(",\"entry\":").append(String.valueOf(entry));
+        }
+        out.append(",\"vertices\":[");
+        firstElement = true;
+    }
+
+    /**
+     * 頂点を出力する.
+     * @param id 頂点ID
+     * @param label ラベル
+     * @param attributes 追加の属性. キーと値を交互に並べる
+     */
+    public void vertex(int id, String label, String... attributes) throws IOException {
+        beginElement();
+        out.append("{\"id\":").append(String.valueOf(id)).append(",\"label\":");
+        appendString(label);
+        for (int i = 0; i + 1 < attributes.length; i += 2) {
+            out.append(',');
+            appendString(attributes[i]);
+            out.append(':');
+            appendString(attributes[i + 1]);
+        }
+        out.append('}');
+    }
+
+    /**
+     * 頂点の出力を終え、辺の出力を開始する.
+     */
+    public void beginEdges() throws IOException {
+        out.append("],\"edges\":[");
+        firstElement = true;
+    }
+
+    /**
+     * 辺を出力する.
+     * @param from 始点の頂点ID
+     * @param to 終点の頂点ID
+     * @param label ラベル. なければ null
+     */
+    public void edge(int from, int to, String label) throws IOException {
+        beginElement();
+        out.append("{\"from\":").append(String.valueOf(from))
+            .append(",\"to\":").append(String.valueOf(to));
+        if (label != null) {
+            out.append(",\"label\":");
+            appendString(label);
+        }
+        out.append('}');
+    }
+
+    public void endGraph() throws IOException {
+        out.append("]}");
+    }
+
+    private void beginElement() throws IOException {
+        if (!firstElement) {
+            out.append(',');
+        }
+        firstElement = false;
+        out.append("\n ");
+    }
+
+    private void appendString(String s) throws IOException {
+        out.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"': out.append("\\\""); break;
+            case '\\': out.append("\\\\"); break;
+            case '\n': out.append("\\n"); break;
+            case '\r': out.append("\\r"); break;
+            case '\t': out.append("\\t"); break;
+            default:
+                if (c < 0x20) {
+                    String hex = Integer.toHexString(c);
+                    out.append("\\u");
+                    for (int j = hex.length(); j < 4; ++j) {
+                        out.append('0');
+                    }
+                    out.append(hex);
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
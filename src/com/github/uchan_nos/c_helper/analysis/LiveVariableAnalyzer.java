@@ -0,0 +1,142 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarationStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.dataflow.BitVectorProblem;
+import com.github.uchan_nos.c_helper.dataflow.BitVectorSolver;
+
+/**
+ * 生存変数解析を行うクラス.
+ *
+ * 頂点で評価される部分に現れる変数の読み出しを use とし、
+ * 式文の単純代入と初期化付き変数定義による書き込みを def とする.
+ * 大域変数、静的局所変数、アドレスを取られた局所変数は、関数呼び出しやポインタ経由で
+ * 読み出される可能性があるため、def で殺さず、関数の出口で常に生きているとみなす.
+ *
+ * @author uchan
+ */
+public class LiveVariableAnalyzer {
+    private final CFG cfg;
+    private final FunctionVariables variables; // 関数が参照する変数
+
+    /**
+     * 生存変数解析器を生成する.
+     * @param function 解析する関数の定義
+     * @param cfg 解析する関数の制御フローグラフ
+     */
+    public LiveVariableAnalyzer(IASTFunctionDefinition function, CFG cfg) {
+        this.cfg = cfg;
+        this.variables = new FunctionVariables(function);
+    }
+
+    public LiveVariables analyze() {
+        final Map<CFG.Vertex, BitSet> use = new HashMap<CFG.Vertex, BitSet>();
+        final Map<CFG.Vertex, BitSet> def = new HashMap<CFG.Vertex, BitSet>();
+        for (CFG.Vertex v : cfg.getVertices()) {
+            use.put(v, createUse(v));
+            def.put(v, createDef(v));
+        }
+
+        final BitSet init = new BitSet(variables.size());
+        for (int i = 0; i < variables.size(); ++i) {
+            if (!variables.isPrivate(variables.variables().get(i))) {
+                init.set(i);
+            }
+        }
+
+        BitVectorSolver.Result<CFG.Vertex> result = new BitVectorSolver<CFG.Vertex>(
+                cfg, cfg.exitVertex(), new BitVectorProblem<CFG.Vertex>() {
+                    @Override
+                    public int universeSize() {
+                        return variables.size();
+                    }
+
+                    @Override
+                    public BitSet gen(CFG.Vertex v) {
+                        return use.get(v);
+                    }
+
+                    @Override
+                    public BitSet kill(CFG.Vertex v) {
+                        return def.get(v);
+                    }
+
+                    @Override
+                    public BitSet initialValue() {
+                        return init;
+                    }
+                }, BitVectorSolver.Direction.BACKWARD).solve();
+
+        Map<CFG.Vertex, BitSet> entrySets = new HashMap<CFG.Vertex, BitSet>();
+        Map<CFG.Vertex, BitSet> exitSets = new HashMap<CFG.Vertex, BitSet>();
+        for (CFG.Vertex v : cfg.getVertices()) {
+            entrySets.put(v, result.getEntry(v));
+            exitSets.put(v, result.getExit(v));
+        }
+        return new LiveVariables(variables, entrySets, exitSets);
+    }
+
+    // 頂点で読み出される変数の集合
+    private BitSet createUse(CFG.Vertex v) {
+        BitSet result = new BitSet(variables.size());
+        IASTNode node = v.getEvaluatedNode();
+        if (node != null) {
+            for (IASTIdExpression use : DefUseChains.findUses(node)) {
+                int id = variables.id(use.getName().resolveBinding());
+                if (id >= 0) {
+                    result.set(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    // 頂点で必ず書き込まれる変数の集合
+    private BitSet createDef(CFG.Vertex v) {
+        BitSet result = new BitSet(variables.size());
+        IASTNode node = v.getASTNode();
+        if (node instanceof IASTExpressionStatement) {
+            // a = b = ... = expr
+            IASTExpression e = ((IASTExpressionStatement)node).getExpression();
+            while (e instanceof IASTBinaryExpression
+                    && ((IASTBinaryExpression)e).getOperator() == IASTBinaryExpression.op_assign) {
+                IASTBinaryExpression be = (IASTBinaryExpression)e;
+                if (be.getOperand1() instanceof IASTIdExpression) {
+                    setIfKillable(result, ((IASTIdExpression)be.getOperand1()).getName().resolveBinding());
+                }
+                e = be.getOperand2();
+            }
+        } else if (node instanceof IASTDeclarationStatement) {
+            IASTDeclaration decl = ((IASTDeclarationStatement)node).getDeclaration();
+            if (decl instanceof IASTSimpleDeclaration) {
+                for (IASTDeclarator d : ((IASTSimpleDeclaration)decl).getDeclarators()) {
+                    if (d.getInitializer() != null) {
+                        setIfKillable(result, d.getName().resolveBinding());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void setIfKillable(BitSet set, IBinding binding) {
+        if (binding instanceof IVariable && variables.isPrivate((IVariable)binding)) {
+            set.set(variables.id(binding));
+        }
+    }
+}
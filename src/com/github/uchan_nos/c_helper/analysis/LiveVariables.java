@@ -0,0 +1,82 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 生存変数解析の結果.
+ * 各頂点の入口と出口で、その後に値が読み出される可能性のある変数の集合を保持する.
+ * @author uchan
+ */
+public class LiveVariables {
+    private final FunctionVariables variables;
+    private final Map<CFG.Vertex, BitSet> entrySets;
+    private final Map<CFG.Vertex, BitSet> exitSets;
+
+    LiveVariables(FunctionVariables variables,
+            Map<CFG.Vertex, BitSet> entrySets, Map<CFG.Vertex, BitSet> exitSets) {
+        this.variables = variables;
+        this.entrySets = entrySets;
+        this.exitSets = exitSets;
+    }
+
+    /**
+     * 解析対象の関数が参照する変数の一覧を返す. 位置が変数のIDである.
+     */
+    public List<IVariable> getVariables() {
+        return variables.variables();
+    }
+
+    /**
+     * 指定された頂点の入口で指定された変数が生きているかを返す.
+     * 関数が参照しない変数については、安全側に倒して true を返す.
+     */
+    public boolean isLiveAtEntry(CFG.Vertex v, IVariable var) {
+        return isLive(entrySets.get(v), var);
+    }
+
+    /**
+     * 指定された頂点の出口で指定された変数が生きているかを返す.
+     * 関数が参照しない変数については、安全側に倒して true を返す.
+     */
+    public boolean isLiveAtExit(CFG.Vertex v, IVariable var) {
+        return isLive(exitSets.get(v), var);
+    }
+
+    /**
+     * 指定された頂点の入口で生きている変数の集合を返す.
+     */
+    public Set<IVariable> getLiveAtEntry(CFG.Vertex v) {
+        return toVariables(entrySets.get(v));
+    }
+
+    /**
+     * 指定された頂点の出口で生きている変数の集合を返す.
+     */
+    public Set<IVariable> getLiveAtExit(CFG.Vertex v) {
+        return toVariables(exitSets.get(v));
+    }
+
+    private boolean isLive(BitSet live, IVariable var) {
+        int id = variables.id(var);
+        if (id < 0 || live == null) {
+            return true;
+        }
+        return live.get(id);
+    }
+
+    private Set<IVariable> toVariables(BitSet live) {
+        Set<IVariable> result = new LinkedHashSet<IVariable>();
+        if (live != null) {
+            for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+                result.add(variables.variables().get(i));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 自然ループの入れ子構造（ループ森）.
+ * 辺 u -> h で h が u を支配するものを戻り辺とし、同じヘッダ h を持つ戻り辺の自然ループを1つのループにまとめる.
+ *
+ * goto 文で作られる既約なループ（ヘッダが本体を支配しないループ）は自然ループとして検出されない.
+ * そのような閉路の戻り辺は {@link IndexedGraph#isRetreatingEdge(int, int)} で判定できる.
+ *
+ * @author uchan
+ *
+ * @param <Vertex> 頂点の型
+ */
+public class LoopForest<Vertex> {
+    /**
+     * 1つの自然ループ.
+     */
+    public static class Loop<Vertex> {
+        private final Vertex header;
+        private final Set<Vertex> body;
+        private final Set<Vertex> backEdgeSources;
+        private Loop<Vertex> parent = null;
+        private final List<Loop<Vertex>> children = new ArrayList<Loop<Vertex>>();
+        private int depth = 1;
+
+        private Loop(Vertex header, Set<Vertex> body, Set<Vertex> backEdgeSources) {
+            this.header = header;
+            this.body = Collections.unmodifiableSet(body);
+            this.backEdgeSources = Collections.unmodifiableSet(backEdgeSources);
+        }
+
+        /**
+         * ループのヘッダ（ループへの唯一の入口）を返す.
+         */
+        public Vertex header() {
+            return this.header;
+        }
+
+        /**
+         * ヘッダを含む、ループ本体の頂点集合を返す. 内側のループの頂点も含む.
+         */
+        public Set<Vertex> body() {
+            return this.body;
+        }
+
+        /**
+         * ヘッダへの戻り辺の始点の集合を返す.
+         */
+        public Set<Vertex> backEdgeSources() {
+            return this.backEdgeSources;
+        }
+
+        /**
+         * このループを直接含むループを返す. 最も外側のループなら null を返す.
+         */
+        public Loop<Vertex> parent() {
+            return this.parent;
+        }
+
+        /**
+         * このループに直接含まれるループのリストを返す.
+         */
+        public List<Loop<Vertex>> children() {
+            return Collections.unmodifiableList(this.children);
+        }
+
+        /**
+         * ループの深さを返す. 最も外側のループは 1 である.
+         */
+        public int depth() {
+            return this.depth;
+        }
+
+        /**
+         * 指定された頂点がループ本体に含まれるかを返す.
+         */
+        public boolean contains(Vertex v) {
+            return this.body.contains(v);
+        }
+    }
+
+    private final List<Loop<Vertex>> loops;
+    private final List<Loop<Vertex>> topLevelLoops;
+    private final Map<Vertex, Loop<Vertex>> innermostLoop;
+    private final Map<Vertex, Loop<Vertex>> headerToLoop;
+
+    /**
+     * 支配木からループ森を構築する.
+     * @param dominators 入口を根とする支配木（後支配木ではないこと）
+     */
+    public LoopForest(DominatorTree<Vertex> dominators) {
+        IndexedGraph<Vertex> graph = dominators.getGraph();
+
+        // ヘッダごとに戻り辺の始点を集める. ヘッダは ID 順（逆後順）に並ぶ
+        Map<Integer, List<Integer>> backEdges = new HashMap<Integer, List<Integer>>();
+        List<Integer> headers = new ArrayList<Integer>();
+        for (int u = 0; u < graph.numReachable(); ++u) {
+            for (int h : graph.successors(u)) {
+                if (dominators.dominates(h, u)) {
+                    List<Integer> sources = backEdges.get(h);
+                    if (sources == null) {
+                        sources = new ArrayList<Integer>();
+                        backEdges.put(h, sources);
+                        headers.add(h);
+                    }
+                    sources.add(u);
+                }
+            }
+        }
+        Collections.sort(headers);
+
+        // 各ヘッダについて、戻り辺の始点から逆向きにヘッダまで辿った頂点を本体とする
+        this.loops = new ArrayList<Loop<Vertex>>();
+        this.headerToLoop = new HashMap<Vertex, Loop<Vertex>>();
+        for (int h : headers) {
+            Set<Vertex> body = new HashSet<Vertex>();
+            Set<Vertex> sources = new HashSet<Vertex>();
+            boolean[] inBody = new boolean[graph.size()];
+            inBody[h] = true;
+            body.add(graph.vertex(h));
+            ArrayList<Integer> stack = new ArrayList<Integer>();
+            for (int u : backEdges.get(h)) {
+                sources.add(graph.vertex(u));
+                if (!inBody[u]) {
+                    inBody[u] = true;
+                    stack.add(u);
+                }
+            }
+            while (!stack.isEmpty()) {
+                int v = stack.remove(stack.size() - 1);
+                body.add(graph.vertex(v));
+                for (int p : graph.predecessors(v)) {
+                    if (graph.isReachable(p) && !inBody[p]) {
+                        inBody[p] = true;
+                        stack.add(p);
+                    }
+                }
+            }
+            Loop<Vertex> loop = new Loop<Vertex>(graph.vertex(h), body, sources);
+            this.loops.add(loop);
+            this.headerToLoop.put(loop.header(), loop);
+        }
+
+        // 親は、自身のヘッダを本体に含む他のループのうち最小のもの
+        List<Loop<Vertex>> bySize = new ArrayList<Loop<Vertex>>(this.loops);
+        Collections.sort(bySize, new Comparator<Loop<Vertex>>() {
+            @Override
+            public int compare(Loop<Vertex> o1, Loop<Vertex> o2) {
+                return o1.body().size() - o2.body().size();
+            }
+        });
+        this.topLevelLoops = new ArrayList<Loop<Vertex>>();
+        for (int i = 0; i < bySize.size(); ++i) {
+            Loop<Vertex> loop = bySize.get(i);
+            for (int j = i + 1; j < bySize.size(); ++j) {
+                Loop<Vertex> outer = bySize.get(j);
+                if (outer.contains(loop.header())) {
+                    loop.parent = outer;
+                    break;
+                }
+            }
+        }
+        // 外側のループから順に深さを決める
+        for (int i = bySize.size() - 1; i >= 0; --i) {
+            Loop<Vertex> loop = bySize.get(i);
+            if (loop.parent == null) {
+                this.topLevelLoops.add(loop);
+            } else {
+                loop.depth = loop.parent.depth + 1;
+            }
+        }
+        for (Loop<Vertex> loop : this.loops) {
+            if (loop.parent != null) {
+                loop.parent.children.add(loop);
+            }
+        }
+
+        // 各頂点を含む最も内側のループ. 小さいループから登録する
+        this.innermostLoop = new HashMap<Vertex, Loop<Vertex>>();
+        for (Loop<Vertex> loop : bySize) {
+            for (Vertex v : loop.body()) {
+                if (!this.innermostLoop.containsKey(v)) {
+                    this.innermostLoop.put(v, loop);
+                }
+            }
+        }
+    }
+
+    /**
+     * すべてのループを、ヘッダの逆後順に返す.
+     */
+    public List<Loop<Vertex>> loops() {
+        return Collections.unmodifiableList(this.loops);
+    }
+
+    /**
+     * 他のループに含まれないループのリストを返す.
+     */
+    public List<Loop<Vertex>> topLevelLoops() {
+        return Collections.unmodifiableList(this.topLevelLoops);
+    }
+
+    /**
+     * 指定された頂点を含む最も内側のループを返す. どのループにも含まれなければ null を返す.
+     */
+    public Loop<Vertex> innermostLoop(Vertex v) {
+        return this.innermostLoop.get(v);
+    }
+
+    /**
+     * 指定された頂点のループの深さを返す. どのループにも含まれなければ 0 を返す.
+     */
+    public int loopDepth(Vertex v) {
+        Loop<Vertex> loop = this.innermostLoop.get(v);
+        return loop == null ? 0 : loop.depth();
+    }
+
+    /**
+     * 指定された頂点がループのヘッダかを返す.
+     */
+    public boolean isLoopHeader(Vertex v) {
+        return this.headerToLoop.containsKey(v);
+    }
+
+    /**
+     * 指定された頂点をヘッダとするループを返す. ヘッダでなければ null を返す.
+     */
+    public Loop<Vertex> loopWithHeader(Vertex v) {
+        return this.headerToLoop.get(v);
+    }
+}
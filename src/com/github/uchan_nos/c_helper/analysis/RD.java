@@ -18,11 +18,35 @@ public class RD<Vertex> {
         return assigns;
     }
 
+    /**
+     * すべての頂点の入口の到達定義集合を返す.
+     * 頂点ごとの集合が必要なだけなら {@link #getEntrySet(Object)} を用いること.
+     */
     public Map<Vertex, BitSet> getEntrySets() {
         return entrySets;
     }
 
+    /**
+     * すべての頂点の出口の到達定義集合を返す.
+     * 頂点ごとの集合が必要なだけなら {@link #getExitSet(Object)} を用いること.
+     */
     public Map<Vertex, BitSet> getExitSets() {
         return exitSets;
     }
+
+    /**
+     * 指定された頂点の入口の到達定義集合を返す.
+     * 返された集合を変更してはならない.
+     */
+    public BitSet getEntrySet(Vertex v) {
+        return getEntrySets().get(v);
+    }
+
+    /**
+     * 指定された頂点の出口の到達定義集合を返す.
+     * 返された集合を変更してはならない.
+     */
+    public BitSet getExitSet(Vertex v) {
+        return getExitSets().get(v);
+    }
 }
@@ -4,23 +4,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeSet;
 
-import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.DOMException;
-import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
-import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTDeclarationStatement;
 import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
-import org.eclipse.cdt.core.dom.ast.IASTExpression;
 import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
 import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
 import org.eclipse.cdt.core.dom.ast.IASTName;
@@ -28,11 +21,11 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IBinding;
-import org.eclipse.cdt.core.dom.ast.IFunctionType;
 import org.eclipse.cdt.core.dom.ast.IScope;
-import org.eclipse.cdt.core.dom.ast.IType;
 import org.eclipse.core.runtime.CoreException;
 
+import com.github.uchan_nos.c_helper.dataflow.BitVectorProblem;
+import com.github.uchan_nos.c_helper.dataflow.BitVectorSolver;
 import com.github.uchan_nos.c_helper.util.Util;
 
 /**
@@ -41,114 +34,151 @@ import com.github.uchan_nos.c_helper.util.Util;
  */
 public class RDAnalyzer {
     // gen, kill集合を保持する構造体
-    private static class GenKill {
+    static class GenKill {
         final public BitSet gen;
         final public BitSet kill;
         public GenKill(BitSet gen, BitSet kill) {
             this.gen = gen;
             this.kill = kill;
         }
+
+        /**
+         * 遷移関数 (s - kill) | gen を s に適用する.
+         */
+        public void apply(BitSet s) {
+            s.andNot(kill);
+            s.or(gen);
+        }
+
+        /**
+         * this の後に next を実行する列の gen, kill 集合を返す.
+         * gen = (this.gen - next.kill) | next.gen, kill = this.kill | next.kill
+         */
+        public GenKill then(GenKill next) {
+            BitSet g = (BitSet)gen.clone();
+            g.andNot(next.kill);
+            g.or(next.gen);
+            BitSet k = (BitSet)kill.clone();
+            k.or(next.kill);
+            return new GenKill(g, k);
+        }
     }
 
     private CFG cfg; // 解析すべきソースのフローグラフ
-    private ArrayList<AssignExpression> assignList; // cfgに含まれる代入文のリスト（DummyAssignExpressionを含む）
-    private Set<IASTIdExpression> idExpressionList; // cfgに含まれるID式のリスト
-    private ArrayList<DummyAssignExpression> dummyAssignList; // cfgに含まれるダミー変数定義のリスト
+    private DefinitionUniverse universe; // 関数に含まれる変数定義の集合
+    private List<AssignExpression> assignList; // 関数に含まれる代入文のリスト（DummyAssignExpressionを含む）
+    private List<DummyAssignExpression> dummyAssignList; // 関数に含まれるダミー変数定義のリスト
+    private boolean useBasicBlocks; // 基本ブロック単位で不動点計算を行うなら true
 
     /**
      * 到達定義実行器を生成する.
-     * @param cfg 解析するソースコードの制御フローグラフ
-     * @param assignList ソースコード中の代入文のリスト
+     * @param universe 解析する関数の変数定義の集合
+     * @param cfg 解析する関数の制御フローグラフ
      */
-    public RDAnalyzer(IASTTranslationUnit ast, CFG cfg) {
+    public RDAnalyzer(DefinitionUniverse universe, CFG cfg) {
+        this(universe, cfg, false);
+    }
+
+    /**
+     * 到達定義実行器を生成する.
+     * useBasicBlocks が true なら、基本ブロック単位で不動点計算を行い、
+     * 文ごとの集合は {@link RD#getEntrySet(Object)} などの呼び出し時に再計算する.
+     * @param universe 解析する関数の変数定義の集合
+     * @param cfg 解析する関数の制御フローグラフ
+     * @param useBasicBlocks 基本ブロック単位で解析するなら true
+     */
+    public RDAnalyzer(DefinitionUniverse universe, CFG cfg, boolean useBasicBlocks) {
         this.cfg = cfg;
-        this.assignList = createAssignExpressionList(ast);
-        this.idExpressionList = createIdExpressionList(ast);
-        this.dummyAssignList = createInitialAssigns(this.assignList.size(), this.idExpressionList);
-        this.assignList.addAll(this.dummyAssignList);
+        this.useBasicBlocks = useBasicBlocks;
+        this.universe = universe;
+        this.assignList = universe.getAssigns();
+        this.dummyAssignList = universe.getDummyAssigns();
     }
 
     public RD<CFG.Vertex> analyze() {
-        // フローグラフ中の頂点数
-        final int numVertex = cfg.getVertices().size();
-
-        ArrayList<CFG.Vertex> vertices = new ArrayList<CFG.Vertex>(Util.sort(cfg.getVertices()));
+        if (useBasicBlocks) {
+            return analyzeBasicBlocks();
+        }
 
         // 各頂点に対応するgen, killを生成
-        ArrayList<GenKill> genkill = new ArrayList<RDAnalyzer.GenKill>(numVertex);
-        for (int i = 0; i < numVertex; ++i) {
-            genkill.add(createGenKill(vertices.get(i)));
+        final Map<CFG.Vertex, GenKill> genkill = new HashMap<CFG.Vertex, GenKill>();
+        for (CFG.Vertex v : cfg.getVertices()) {
+            genkill.put(v, createGenKill(v));
         }
 
-        // 各頂点の入口と出口の到達定義集合
-        ArrayList<BitSet> entry = new ArrayList<BitSet>(numVertex);
-        ArrayList<BitSet> exit = new ArrayList<BitSet>(numVertex);
-        // exitに変更が加わったか調べるために過去の値を保存しておく
-        ArrayList<BitSet> exitPrev = new ArrayList<BitSet>(numVertex);
-        for (int i = 0; i < numVertex; ++i) {
-            entry.add(new BitSet(assignList.size()));
-            exit.add(new BitSet(assignList.size()));
-            exitPrev.add(new BitSet(assignList.size()));
-        }
+        BitVectorSolver.Result<CFG.Vertex> result = new BitVectorSolver<CFG.Vertex>(
+                cfg, cfg.entryVertex(), new Problem<CFG.Vertex>(genkill)).solve();
 
-        final BitSet entryOfEntryVertex = entry.get(vertices.indexOf(cfg.entryVertex()));
-        for (DummyAssignExpression e : this.dummyAssignList) {
-            entryOfEntryVertex.set(e.getId());
+        final Map<CFG.Vertex, BitSet> entrySets = new HashMap<CFG.Vertex, BitSet>();
+        final Map<CFG.Vertex, BitSet> exitSets = new HashMap<CFG.Vertex, BitSet>();
+        for (CFG.Vertex vertex : cfg.getVertices()) {
+            entrySets.put(vertex, result.getEntry(vertex));
+            exitSets.put(vertex, result.getExit(vertex));
         }
 
-        boolean modified = true;
-        while (modified) {
-            for (int i = 0; i < numVertex; ++i) {
-                for (CFG.Vertex leading : cfg.getConnectedVerticesTo(vertices.get(i))) {
-                    int leadingIndex = vertices.indexOf(leading);
-                    entry.get(i).or(exit.get(leadingIndex));
-                }
-                // exit, entryは単調増加であるので、clearしなくてよい
-                exit.get(i).or(entry.get(i));
-                exit.get(i).andNot(genkill.get(i).kill);
-                exit.get(i).or(genkill.get(i).gen);
-            }
-            if (exit.equals(exitPrev)) {
-                modified = false;
-            } else {
-                for (int i = 0; i < exit.size(); ++i) {
-                    // exit, entryは単調増加であるので、clearしなくてよい
-                    exitPrev.get(i).or(exit.get(i));
-                }
+        AssignExpression[] assigns = new AssignExpression[assignList.size()];
+        return new RD<CFG.Vertex>(assignList.toArray(assigns), entrySets, exitSets);
+    }
+
+    // 基本ブロック単位で到達定義を解く. ブロックの gen, kill は文の gen, kill を合成したもの
+    private RD<CFG.Vertex> analyzeBasicBlocks() {
+        BasicBlockGraph bbg = cfg.isFrozen() ? cfg.getBasicBlocks() : new BasicBlockGraph(cfg);
+
+        Map<CFG.Vertex, GenKill> vertexGenKill = new HashMap<CFG.Vertex, GenKill>();
+        Map<BasicBlock, GenKill> blockGenKill = new HashMap<BasicBlock, GenKill>();
+        for (BasicBlock block : bbg.blocks()) {
+            GenKill composed = null;
+            for (CFG.Vertex v : block.vertices()) {
+                GenKill gk = createGenKill(v);
+                vertexGenKill.put(v, gk);
+                composed = composed == null ? gk : composed.then(gk);
             }
+            blockGenKill.put(block, composed);
         }
 
-        //final int dummyAssignStartId = dummyAssignList.size() > 0 ?
-        //                dummyAssignList.get(0).getId() : assignList.size();
-        final Map<CFG.Vertex, BitSet> entrySets = new HashMap<CFG.Vertex, BitSet>();
-        final Map<CFG.Vertex, BitSet> exitSets = new HashMap<CFG.Vertex, BitSet>();
-        for (int i = 0; i < numVertex; ++i) {
-            CFG.Vertex vertex = vertices.get(i);
-            entrySets.put(vertex, entry.get(i));
-            exitSets.put(vertex, exit.get(i));
-            /*
-            System.out.println();
-            System.out.print("  entry  ");
-            for (int b = 0; b < assignList.size(); ++b) {
-                if (entry.get(i).get(b)) {
-                    System.out.print("(" + assignList.get(b).getLHS().getRawSignature()
-                            + "," + (b >= dummyAssignStartId ? "?" : String.valueOf(b)) + ")");
-                }
-            }
-            System.out.println();
-            System.out.print("  exit  ");
-            for (int b = 0; b < assignList.size(); ++b) {
-                if (exit.get(i).get(b)) {
-                    System.out.print("(" + assignList.get(b).getLHS().getRawSignature()
-                            + "," + (b >= dummyAssignStartId ? "?" : String.valueOf(b)) + ")");
-                }
-            }
-            System.out.println();
-            */
+        BitVectorSolver.Result<BasicBlock> result = new BitVectorSolver<BasicBlock>(
+                bbg, bbg.entryBlock(), new Problem<BasicBlock>(blockGenKill)).solve();
+
+        Map<BasicBlock, BitSet> blockEntrySets = new HashMap<BasicBlock, BitSet>();
+        for (BasicBlock block : bbg.blocks()) {
+            blockEntrySets.put(block, result.getEntry(block));
         }
 
         AssignExpression[] assigns = new AssignExpression[assignList.size()];
-        return new RD<CFG.Vertex>(assignList.toArray(assigns), entrySets, exitSets);
+        return new BasicBlockRD(assignList.toArray(assigns), bbg, blockEntrySets, vertexGenKill);
+    }
+
+    // 到達定義を BitVectorSolver に渡すための問題定義. 入口ではダミー変数定義が到達する
+    private class Problem<Node> implements BitVectorProblem<Node> {
+        private final Map<Node, GenKill> genkill;
+
+        public Problem(Map<Node, GenKill> genkill) {
+            this.genkill = genkill;
+        }
+
+        @Override
+        public int universeSize() {
+            return assignList.size();
+        }
+
+        @Override
+        public BitSet gen(Node v) {
+            return genkill.get(v).gen;
+        }
+
+        @Override
+        public BitSet kill(Node v) {
+            return genkill.get(v).kill;
+        }
+
+        @Override
+        public BitSet initialValue() {
+            BitSet init = new BitSet(assignList.size());
+            for (DummyAssignExpression e : dummyAssignList) {
+                init.set(e.getId());
+            }
+            return init;
+        }
     }
 
     /**
@@ -179,27 +209,16 @@ public class RDAnalyzer {
 
     private GenKill createGenKill(IASTExpressionStatement ast) {
         // 代入に対応したgen, kill
-        AssignExpression assign = getAssignExpressionOfNode(ast.getExpression());
-        ArrayList<AssignExpression> killedAssigns = null;
-
-        if (assign != null) {
-            if (assign.getLHS() instanceof IASTIdExpression) {
-                killedAssigns = getAssignExpressionsOfName(
-                        ((IASTIdExpression)assign.getLHS()).getName());
-            }
-        }
+        AssignExpression assign = universe.getAssignOfNode(ast.getExpression());
 
-        if (assign != null && killedAssigns != null) {
+        if (assign != null && assign.getLHS() instanceof IASTIdExpression) {
             BitSet gen = new BitSet(assignList.size());
             BitSet kill = new BitSet(assignList.size());
-            for (int i = 0; i < killedAssigns.size(); ++i) {
-                kill.set(killedAssigns.get(i).getId());
-            }
+            kill.or(universe.getDefinitionsOf(((IASTIdExpression)assign.getLHS()).getName()));
             gen.set(assign.getId());
             return new GenKill(gen, kill);
         }
         return null;
-
     }
 
     private GenKill createGenKill(IASTDeclarationStatement ast) {
@@ -211,21 +230,11 @@ public class RDAnalyzer {
             BitSet kill = new BitSet(assignList.size());
             for (int i = 0; i < declarators.length; ++i) {
                 if (declarators[i].getInitializer() != null) {
-                    AssignExpression assign = getAssignExpressionOfNode(declarators[i]);
-                    // assignがnullになるのは、初期化なし変数定義の場合
+                    AssignExpression assign = universe.getAssignOfNode(declarators[i]);
                     gen.set(assign.getId());
-                    IASTName nameToBeKilled = null;
-                    if (assign.getLHS() instanceof IASTName) {
-                        nameToBeKilled = (IASTName)assign.getLHS();
-                    } else if (assign.getLHS() instanceof IASTIdExpression) {
-                        nameToBeKilled = ((IASTIdExpression)assign.getLHS()).getName();
-                    }
-                    if (nameToBeKilled != null) {
-                        ArrayList<AssignExpression> killedAssigns =
-                                getAssignExpressionsOfName(nameToBeKilled);
-                        for (int j = 0; j < killedAssigns.size(); ++j) {
-                            kill.set(killedAssigns.get(j).getId());
-                        }
+                    IBinding varToBeKilled = universe.getLHSBinding(assign);
+                    if (varToBeKilled != null) {
+                        kill.or(universe.getDefinitionsOf(varToBeKilled));
                     }
                 }
             }
@@ -235,114 +244,6 @@ public class RDAnalyzer {
         return null;
     }
 
-    /**
-     * 指定されたASTノードに対応する変数定義を取得する.
-     * 指定するASTノードは初期化付き変数定義のIASTDeclaratorか
-     * 代入文のIASTBinaryExpressionに対応している.
-     * @param ast
-     * @return
-     */
-    private AssignExpression getAssignExpressionOfNode(IASTNode ast) {
-        for (int i = 0; i < assignList.size(); ++i) {
-            if (assignList.get(i).getAST() == ast) {
-                return assignList.get(i);
-            }
-        }
-        return null;
-    }
-
-    /**
-     * 指定された名前を左辺値として持つ変数定義の一覧を取得する.
-     * @param name 抽出する名前
-     * @return 抽出された変数定義一覧
-     */
-    private ArrayList<AssignExpression> getAssignExpressionsOfName(IASTName name) {
-        ArrayList<AssignExpression> result = new ArrayList<AssignExpression>();
-        IBinding nameBinding = name.resolveBinding();
-
-        for (int i = 0; i < assignList.size(); ++i) {
-            IASTNode lhs = assignList.get(i).getLHS();
-            if (lhs instanceof IASTName) {
-                IASTName n = (IASTName)lhs;
-                if (n.resolveBinding().equals(nameBinding)) {
-                    result.add(assignList.get(i));
-                }
-            } else if (lhs instanceof IASTIdExpression) {
-                IASTIdExpression e = (IASTIdExpression)lhs;
-                if (e.getName().resolveBinding().equals(nameBinding)) {
-                    result.add(assignList.get(i));
-                }
-            }
-        }
-        return result;
-    }
-
-    private static ArrayList<DummyAssignExpression> createInitialAssigns(int startId, Collection<IASTIdExpression> idExpressionList) {
-        int id = startId;
-        ArrayList<DummyAssignExpression> result = new ArrayList<DummyAssignExpression>();
-        for (IASTIdExpression idExpression : idExpressionList) {
-            IType type = idExpression.getExpressionType();
-            if (!(type instanceof IFunctionType)) {
-                DummyAssignExpression e = new DummyAssignExpression(id, idExpression);
-                result.add(e);
-                id++;
-            }
-        }
-        return result;
-    }
-
-    private ArrayList<AssignExpression> createAssignExpressionList(IASTTranslationUnit ast) {
-        final ArrayList<AssignExpression> result = new ArrayList<AssignExpression>();
-        ast.accept(new ASTVisitor(true) {
-            private int id = 0;
-            @Override
-            public int visit(IASTExpression expression) {
-                if (expression instanceof IASTBinaryExpression) {
-                    IASTBinaryExpression e = (IASTBinaryExpression)expression;
-                    if (e.getOperator() == IASTBinaryExpression.op_assign) {
-                        result.add(new AssignExpression(id, e));
-                        id++;
-                    }
-                }
-                return super.visit(expression);
-            }
-            @Override
-            public int visit(IASTDeclaration declaration) {
-                if (declaration instanceof IASTSimpleDeclaration) {
-                    IASTSimpleDeclaration d = (IASTSimpleDeclaration)declaration;
-                    for (IASTDeclarator decl : d.getDeclarators()) {
-                        if (decl.getInitializer() != null) {
-                            // 初期化付き変数宣言
-                            result.add(new AssignExpression(id, decl));
-                            id++;
-                        }
-                    }
-                }
-                return super.visit(declaration);
-            }
-        });
-        return result;
-    }
-
-    private Set<IASTIdExpression> createIdExpressionList(IASTTranslationUnit ast) {
-        final Set<IASTIdExpression> result = new TreeSet<IASTIdExpression>(new Comparator<IASTIdExpression>() {
-            @Override
-            public int compare(IASTIdExpression o1, IASTIdExpression o2) {
-                return o1.getName().toString().compareTo(o2.getName().toString());
-            }
-        });
-        ast.accept(new ASTVisitor(true) {
-            @Override
-            public int visit(IASTExpression expression) {
-                if (expression instanceof IASTIdExpression) {
-                    result.add((IASTIdExpression)expression);
-                }
-                return super.visit(expression);
-            }
-        });
-        return result;
-    }
-
     public static void main(String[] args) {
         class RDEntry {
             final public String name;
@@ -363,13 +264,15 @@ public class RDAnalyzer {
                         new Parser(new FileInfo(inputFilename, false), fileContent).parse();
                 Map<String, CFG> procToCFG =
                         new CFGCreator(translationUnit).create();
+                Map<String, DefinitionUniverse> procToUniverse =
+                        DefinitionUniverse.create(translationUnit);
                 for (Entry<String, CFG> entry : procToCFG.entrySet()) {
                     CFG cfg = entry.getValue();
                     System.out.println("function " + entry.getKey());
 
                     long start = System.currentTimeMillis();
                     RD<CFG.Vertex> rd =
-                            new RDAnalyzer(translationUnit, cfg).analyze();
+                            new RDAnalyzer(procToUniverse.get(entry.getKey()), cfg).analyze();
                     long end = System.currentTimeMillis();
                     System.out.println("time ellapsed: " + (end - start) + "ms");
 
@@ -378,7 +281,7 @@ public class RDAnalyzer {
                         IScope[] nodeScopes = Util.getAllScopes(node).toArray(new IScope[] {});
 
                         ArrayList<RDEntry> rdTemp = new ArrayList<RDEntry>();
-                        BitSet exitSet = rd.getExitSets().get(vertex);
+                        BitSet exitSet = rd.getExitSet(vertex);
                         for (int assid = 0; assid < rd.getAssigns().length; ++assid) {
                             if (exitSet.get(assid)) {
                                 AssignExpression assign = rd.getAssigns()[assid];
@@ -0,0 +1,596 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTConditionalExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
+import org.eclipse.cdt.core.dom.ast.IBasicType;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IEnumeration;
+import org.eclipse.cdt.core.dom.ast.IPointerType;
+import org.eclipse.cdt.core.dom.ast.IQualifierType;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.ITypedef;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 関数の制御フローグラフの静的単一代入 (SSA) 形式.
+ *
+ * 頂点の ID と支配木は {@link CFG#getStructure()} のものを用いる.
+ * 反復支配辺境に φ 関数を置き、支配木を辿って定義に版番号を振る.
+ * 結果として、各変数の読み出しに到達する定義がただ1つに定まり、
+ * 定数伝播や値域解析を定義から使用への疎な辺の上で行える.
+ *
+ * 名前を付け替えるのは、アドレスを取られない仮引数と自動記憶域の局所変数のうち、
+ * 算術型、列挙型、ポインタ型のものに限る. それ以外の変数は関数呼び出しやポインタ経由で
+ * 書き換わり得るため扱わない.
+ *
+ * @author uchan
+ */
+public class SSAForm {
+    /**
+     * 値の定義の種類.
+     */
+    public enum Kind {
+        /** 関数の入口での値. 仮引数なら実引数、局所変数なら不定値 */
+        ENTRY,
+        /** 単純代入、初期化付き変数定義による値 */
+        ASSIGN,
+        /** 複合代入、インクリメント、デクリメントによる値. 直前の値から計算される */
+        UPDATE,
+        /** &&, ||, ?: の片側での代入による値. 直前の値のままである可能性がある */
+        CONDITIONAL,
+        /** 合流点で先行頂点ごとの値を選ぶ φ 関数 */
+        PHI
+    }
+
+    /**
+     * SSA 形式における1つの値（変数の1つの版）.
+     */
+    public static class Value {
+        private final int id;
+        private final Kind kind;
+        private final IVariable variable;
+        private final int version;
+        private final CFG.Vertex vertex;
+        private final IASTNode node;
+        private Value previous = null;
+        private final Map<CFG.Vertex, Value> operands;
+
+        private Value(int id, Kind kind, IVariable variable, int version,
+                CFG.Vertex vertex, IASTNode node) {
+            this.id = id;
+            this.kind = kind;
+            this.variable = variable;
+            this.version = version;
+            this.vertex = vertex;
+            this.node = node;
+            this.operands = kind == Kind.PHI ? new LinkedHashMap<CFG.Vertex, Value>() : null;
+        }
+
+        /**
+         * 関数内で一意な値の ID を返す. {@link SSAForm#values()} での位置である.
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        public Kind getKind() {
+            return this.kind;
+        }
+
+        public IVariable getVariable() {
+            return this.variable;
+        }
+
+        /**
+         * 変数ごとの版番号を返す. 入口での値は 0 である.
+         */
+        public int getVersion() {
+            return this.version;
+        }
+
+        /**
+         * 値を定義する頂点を返す. 入口での値なら入口の頂点、φ 関数なら合流点の頂点である.
+         */
+        public CFG.Vertex getVertex() {
+            return this.vertex;
+        }
+
+        /**
+         * 値を定義するASTノードを返す.
+         * 代入式、インクリメント・デクリメント式、または初期化子を持つ宣言子である.
+         * 入口での値と φ 関数では null を返す.
+         */
+        public IASTNode getNode() {
+            return this.node;
+        }
+
+        /**
+         * {@link Kind#UPDATE} と {@link Kind#CONDITIONAL} の値について、定義の直前の値を返す.
+         * それ以外の値では null を返す.
+         */
+        public Value getPrevious() {
+            return this.previous;
+        }
+
+        /**
+         * φ 関数の引数を、先行頂点から値への写像として返す.
+         * 入口の頂点に置かれた φ 関数では、関数の入口からの辺を null で表す.
+         * φ 関数でなければ空の写像を返す.
+         */
+        public Map<CFG.Vertex, Value> getOperands() {
+            if (this.operands == null) {
+                return Collections.emptyMap();
+            }
+            return Collections.unmodifiableMap(this.operands);
+        }
+
+        @Override
+        public String toString() {
+            return this.variable.getName() + "_" + this.version;
+        }
+    }
+
+    private final CFG cfg;
+    private final FunctionVariables variables;
+    private final List<IVariable> tracked;
+    private final Map<IVariable, Integer> trackedIndex;
+
+    private final List<Value> values;
+    private final Map<CFG.Vertex, List<Value>> phis;
+    private final Map<CFG.Vertex, List<Value>> definitions;
+    private final Map<IASTNode, Value> nodeToValue;
+    private final Map<IASTIdExpression, Value> useToValue;
+    private final Map<IASTIdExpression, CFG.Vertex> useToVertex;
+    private final Map<Value, List<IASTIdExpression>> uses;
+    private final Map<Value, List<Value>> phiUsers;
+    private final int[] nextVersion;
+
+    /**
+     * 関数を SSA 形式に変換する.
+     * @param function 関数の定義
+     * @param cfg 関数の凍結された制御フローグラフ
+     */
+    public SSAForm(IASTFunctionDefinition function, CFG cfg) {
+        this.cfg = cfg;
+        this.variables = new FunctionVariables(function);
+        this.tracked = new ArrayList<IVariable>();
+        this.trackedIndex = new HashMap<IVariable, Integer>();
+        for (IVariable var : this.variables.variables()) {
+            if (this.variables.isPrivate(var) && isScalar(var.getType())) {
+                this.trackedIndex.put(var, this.tracked.size());
+                this.tracked.add(var);
+            }
+        }
+
+        this.values = new ArrayList<Value>();
+        this.phis = new HashMap<CFG.Vertex, List<Value>>();
+        this.definitions = new HashMap<CFG.Vertex, List<Value>>();
+        this.nodeToValue = new HashMap<IASTNode, Value>();
+        this.useToValue = new HashMap<IASTIdExpression, Value>();
+        this.useToVertex = new HashMap<IASTIdExpression, CFG.Vertex>();
+        this.uses = new HashMap<Value, List<IASTIdExpression>>();
+        this.phiUsers = new HashMap<Value, List<Value>>();
+        this.nextVersion = new int[this.tracked.size()];
+
+        DominatorTree<CFG.Vertex> dominators = cfg.getStructure().getDominators();
+        placePhis(dominators);
+        rename(dominators);
+    }
+
+    // 算術型、列挙型、ポインタ型なら true
+    private static boolean isScalar(IType type) {
+        while (type instanceof ITypedef || type instanceof IQualifierType) {
+            if (type instanceof ITypedef) {
+                type = ((ITypedef)type).getType();
+            } else {
+                type = ((IQualifierType)type).getType();
+            }
+        }
+        return type instanceof IBasicType || type instanceof IPointerType
+            || type instanceof IEnumeration;
+    }
+
+    private Value newValue(Kind kind, int var, CFG.Vertex vertex, IASTNode node) {
+        Value value = new Value(this.values.size(), kind, this.tracked.get(var),
+                this.nextVersion[var]++, vertex, node);
+        this.values.add(value);
+        return value;
+    }
+
+    // 各変数を定義する頂点の反復支配辺境に φ 関数を置く
+    private void placePhis(DominatorTree<CFG.Vertex> dominators) {
+        final IndexedGraph<CFG.Vertex> graph = dominators.getGraph();
+        final List<BitSet> defSites = new ArrayList<BitSet>();
+        for (int i = 0; i < this.tracked.size(); ++i) {
+            BitSet sites = new BitSet(graph.size());
+            sites.set(0); // 入口での値
+            defSites.add(sites);
+        }
+        for (int v = 0; v < graph.numReachable(); ++v) {
+            final int vertexId = v;
+            IASTNode node = graph.vertex(v).getEvaluatedNode();
+            if (node == null) {
+                continue;
+            }
+            node.accept(new DefinitionVisitor(node) {
+                @Override
+                void define(int var, Kind kind, IASTNode def) {
+                    defSites.get(var).set(vertexId);
+                }
+
+                @Override
+                void use(int var, IASTIdExpression id) {
+                }
+            });
+        }
+
+        for (int var = 0; var < this.tracked.size(); ++var) {
+            BitSet frontier = dominators.iteratedDominanceFrontier(defSites.get(var));
+            for (int v = frontier.nextSetBit(0); v >= 0; v = frontier.nextSetBit(v + 1)) {
+                CFG.Vertex vertex = graph.vertex(v);
+                Value phi = newValue(Kind.PHI, var, vertex, null);
+                if (v == 0) {
+                    phi.operands.put(null, null);
+                }
+                for (int p : graph.predecessors(v)) {
+                    if (graph.isReachable(p)) {
+                        phi.operands.put(graph.vertex(p), null);
+                    }
+                }
+                add(this.phis, vertex, phi);
+            }
+        }
+    }
+
+    // 支配木を前順に辿り、各変数の現在の値をスタックで管理しながら名前を付け替える
+    private void rename(DominatorTree<CFG.Vertex> dominators) {
+        final IndexedGraph<CFG.Vertex> graph = dominators.getGraph();
+        if (graph.numReachable() == 0) {
+            return;
+        }
+
+        final List<List<Value>> stacks = new ArrayList<List<Value>>();
+        final CFG.Vertex root = graph.vertex(0);
+        for (int var = 0; var < this.tracked.size(); ++var) {
+            List<Value> stack = new ArrayList<Value>();
+            stack.add(newValue(Kind.ENTRY, var, root, null));
+            stacks.add(stack);
+        }
+        for (Value phi : getPhis(root)) {
+            if (phi.operands.containsKey(null)) {
+                setOperand(phi, null, top(stacks, phi.variable));
+            }
+        }
+
+        // 頂点 ID と、その頂点で積んだ変数の並び（帰りがけに降ろす）の組を積む
+        List<int[]> frames = new ArrayList<int[]>();
+        List<List<Integer>> pushed = new ArrayList<List<Integer>>();
+        frames.add(new int[] {0, 0});
+        pushed.add(null);
+        while (!frames.isEmpty()) {
+            int[] frame = frames.get(frames.size() - 1);
+            final int v = frame[0];
+            if (frame[1] == 0) {
+                // 行きがけ
+                final CFG.Vertex vertex = graph.vertex(v);
+                final List<Integer> pushedVars = new ArrayList<Integer>();
+                for (Value phi : getPhis(vertex)) {
+                    int var = this.trackedIndex.get(phi.variable);
+                    stacks.get(var).add(phi);
+                    pushedVars.add(var);
+                }
+                IASTNode node = vertex.getEvaluatedNode();
+                if (node != null) {
+                    node.accept(new DefinitionVisitor(node) {
+                        @Override
+                        void define(int var, Kind kind, IASTNode def) {
+                            Value value = newValue(kind, var, vertex, def);
+                            if (kind == Kind.UPDATE || kind == Kind.CONDITIONAL) {
+                                value.previous = top(stacks, var);
+                            }
+                            stacks.get(var).add(value);
+                            pushedVars.add(var);
+                            add(definitions, vertex, value);
+                            nodeToValue.put(def, value);
+                        }
+
+                        @Override
+                        void use(int var, IASTIdExpression id) {
+                            Value value = top(stacks, var);
+                            useToValue.put(id, value);
+                            useToVertex.put(id, vertex);
+                            add(uses, value, id);
+                        }
+                    });
+                }
+                for (int s : graph.successors(v)) {
+                    for (Value phi : getPhis(graph.vertex(s))) {
+                        setOperand(phi, vertex, top(stacks, phi.variable));
+                    }
+                }
+                pushed.set(pushed.size() - 1, pushedVars);
+            }
+
+            int[] children = dominators.children(v);
+            if (frame[1] < children.length) {
+                int child = children[frame[1]++];
+                frames.add(new int[] {child, 0});
+                pushed.add(null);
+            } else {
+                // 帰りがけ
+                for (int var : pushed.get(pushed.size() - 1)) {
+                    List<Value> stack = stacks.get(var);
+                    stack.remove(stack.size() - 1);
+                }
+                frames.remove(frames.size() - 1);
+                pushed.remove(pushed.size() - 1);
+            }
+        }
+    }
+
+    private Value top(List<List<Value>> stacks, IVariable var) {
+        return top(stacks, this.trackedIndex.get(var));
+    }
+
+    private static Value top(List<List<Value>> stacks, int var) {
+        List<Value> stack = stacks.get(var);
+        return stack.get(stack.size() - 1);
+    }
+
+    private void setOperand(Value phi, CFG.Vertex pred, Value value) {
+        phi.operands.put(pred, value);
+        add(this.phiUsers, value, phi);
+    }
+
+    private static <K, V> void add(Map<K, List<V>> map, K key, V value) {
+        List<V> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<V>();
+            map.put(key, list);
+        }
+        list.add(value);
+    }
+
+    /**
+     * 頂点で評価される部分を評価順に辿り、追跡対象の変数の使用と定義を通知する.
+     * 代入の右辺は左辺の定義より先に通知される.
+     */
+    private abstract class DefinitionVisitor extends ASTVisitor {
+        private final IASTNode root;
+
+        DefinitionVisitor(IASTNode root) {
+            super(true);
+            this.root = root;
+        }
+
+        abstract void define(int var, Kind kind, IASTNode node);
+        abstract void use(int var, IASTIdExpression id);
+
+        @Override
+        public int visit(IASTExpression expression) {
+            if (expression instanceof IASTIdExpression) {
+                IASTIdExpression id = (IASTIdExpression)expression;
+                int var = trackedIndex(id);
+                if (var >= 0 && !isAssignTarget(id)) {
+                    use(var, id);
+                }
+            }
+            return super.visit(expression);
+        }
+
+        @Override
+        public int leave(IASTExpression expression) {
+            if (expression instanceof IASTBinaryExpression) {
+                IASTBinaryExpression be = (IASTBinaryExpression)expression;
+                if (isAssignOperator(be.getOperator())) {
+                    int var = trackedIndex(be.getOperand1());
+                    if (var >= 0) {
+                        Kind kind = be.getOperator() == IASTBinaryExpression.op_assign
+                            ? Kind.ASSIGN : Kind.UPDATE;
+                        define(var, isConditional(be) ? Kind.CONDITIONAL : kind, be);
+                    }
+                }
+            } else if (expression instanceof IASTUnaryExpression) {
+                IASTUnaryExpression ue = (IASTUnaryExpression)expression;
+                switch (ue.getOperator()) {
+                case IASTUnaryExpression.op_prefixIncr:
+                case IASTUnaryExpression.op_prefixDecr:
+                case IASTUnaryExpression.op_postFixIncr:
+                case IASTUnaryExpression.op_postFixDecr:
+                    int var = trackedIndex(ue.getOperand());
+                    if (var >= 0) {
+                        define(var, isConditional(ue) ? Kind.CONDITIONAL : Kind.UPDATE, ue);
+                    }
+                    break;
+                }
+            }
+            return super.leave(expression);
+        }
+
+        @Override
+        public int leave(IASTDeclarator declarator) {
+            if (declarator.getInitializer() != null) {
+                IBinding binding = declarator.getName().resolveBinding();
+                Integer var = trackedIndex.get(binding);
+                if (var != null) {
+                    define(var, Kind.ASSIGN, declarator);
+                }
+            }
+            return super.leave(declarator);
+        }
+
+        // &&, || の右辺、?: の第2・第3オペランドの中にあれば true
+        private boolean isConditional(IASTNode node) {
+            while (node != this.root && node.getParent() != null) {
+                IASTNode parent = node.getParent();
+                if (parent instanceof IASTBinaryExpression) {
+                    IASTBinaryExpression be = (IASTBinaryExpression)parent;
+                    if ((be.getOperator() == IASTBinaryExpression.op_logicalAnd
+                            || be.getOperator() == IASTBinaryExpression.op_logicalOr)
+                            && be.getOperand2() == node) {
+                        return true;
+                    }
+                } else if (parent instanceof IASTConditionalExpression) {
+                    if (((IASTConditionalExpression)parent).getLogicalConditionExpression() != node) {
+                        return true;
+                    }
+                }
+                node = parent;
+            }
+            return false;
+        }
+    }
+
+    // 括弧を外した式が追跡対象の変数なら、その番号を返す. そうでなければ -1 を返す
+    private int trackedIndex(IASTExpression e) {
+        while (e instanceof IASTUnaryExpression
+                && ((IASTUnaryExpression)e).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+            e = ((IASTUnaryExpression)e).getOperand();
+        }
+        if (e instanceof IASTIdExpression) {
+            Integer var = this.trackedIndex.get(((IASTIdExpression)e).getName().resolveBinding());
+            return var == null ? -1 : var;
+        }
+        return -1;
+    }
+
+    // 単純代入の左辺そのものなら true
+    private static boolean isAssignTarget(IASTIdExpression id) {
+        IASTNode node = id;
+        while (node.getParent() instanceof IASTUnaryExpression
+                && ((IASTUnaryExpression)node.getParent()).getOperator()
+                    == IASTUnaryExpression.op_bracketedPrimary) {
+            node = node.getParent();
+        }
+        if (node.getParent() instanceof IASTBinaryExpression) {
+            IASTBinaryExpression be = (IASTBinaryExpression)node.getParent();
+            return be.getOperator() == IASTBinaryExpression.op_assign && be.getOperand1() == node;
+        }
+        return false;
+    }
+
+    private static boolean isAssignOperator(int op) {
+        switch (op) {
+        case IASTBinaryExpression.op_assign:
+        case IASTBinaryExpression.op_multiplyAssign:
+        case IASTBinaryExpression.op_divideAssign:
+        case IASTBinaryExpression.op_moduloAssign:
+        case IASTBinaryExpression.op_plusAssign:
+        case IASTBinaryExpression.op_minusAssign:
+        case IASTBinaryExpression.op_shiftLeftAssign:
+        case IASTBinaryExpression.op_shiftRightAssign:
+        case IASTBinaryExpression.op_binaryAndAssign:
+        case IASTBinaryExpression.op_binaryXorAssign:
+        case IASTBinaryExpression.op_binaryOrAssign:
+            return true;
+        }
+        return false;
+    }
+
+    public CFG getCFG() {
+        return this.cfg;
+    }
+
+    /**
+     * 変数が名前の付け替えの対象かを返す.
+     */
+    public boolean isTracked(IVariable var) {
+        return this.trackedIndex.containsKey(var);
+    }
+
+    /**
+     * 名前の付け替えの対象となった変数の一覧を返す.
+     */
+    public List<IVariable> getTrackedVariables() {
+        return Collections.unmodifiableList(this.tracked);
+    }
+
+    /**
+     * すべての値を返す. 位置が値の ID である.
+     */
+    public List<Value> values() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    /**
+     * 頂点に置かれた φ 関数を返す.
+     */
+    public List<Value> getPhis(CFG.Vertex v) {
+        List<Value> result = this.phis.get(v);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 頂点で定義される値を評価順に返す. φ 関数は含まない.
+     */
+    public List<Value> getDefinitions(CFG.Vertex v) {
+        List<Value> result = this.definitions.get(v);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * ASTノード（代入式、インクリメント・デクリメント式、宣言子）が定義する値を返す.
+     * 追跡対象の変数を定義するノードでなければ null を返す.
+     */
+    public Value getDefinition(IASTNode node) {
+        return this.nodeToValue.get(node);
+    }
+
+    /**
+     * 変数の読み出しが参照する値を返す.
+     * 追跡対象の変数の読み出しでない、または到達不能な頂点にあれば null を返す.
+     */
+    public Value getValue(IASTIdExpression use) {
+        return this.useToValue.get(use);
+    }
+
+    /**
+     * 変数の読み出しを含む頂点を返す.
+     */
+    public CFG.Vertex getVertex(IASTIdExpression use) {
+        return this.useToVertex.get(use);
+    }
+
+    /**
+     * 値を読み出す ID 式の一覧を返す. φ 関数の引数としての使用は含まない.
+     */
+    public List<IASTIdExpression> getUses(Value value) {
+        List<IASTIdExpression> result = this.uses.get(value);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 値を引数に持つ φ 関数の一覧を返す.
+     */
+    public List<Value> getPhiUsers(Value value) {
+        List<Value> result = this.phiUsers.get(value);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
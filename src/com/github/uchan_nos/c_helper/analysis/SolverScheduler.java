@@ -0,0 +1,158 @@
+package com.github.uchan_nos.c_helper.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.ICompositeType;
+import org.eclipse.cdt.core.dom.ast.IFunction;
+import org.eclipse.cdt.core.dom.ast.ITypedef;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 関数ごとに独立なデータフロー解析を、共有のスレッドプールで並列に実行する.
+ *
+ * 各タスクは1つの関数だけを扱い、解析器の状態（検出した問題の集合など）はタスク内に閉じ込める.
+ * 結果は関数名を与えた順に並べて返すので、逐次に実行した場合と同じ結果となる.
+ *
+ * @author uchan
+ */
+public class SolverScheduler {
+    /**
+     * 関数ごとに実行する解析.
+     * @param <Result> 解析結果の型
+     */
+    public interface Task<Result> {
+        /**
+         * 指定された関数を解析する. 複数のスレッドから同時に呼ばれる.
+         * AST から読み出してよい情報は {@link SolverScheduler#resolveBindings} で求めておいたものに限る.
+         * @param proc 関数名
+         * @return 解析結果
+         */
+        Result run(String proc);
+    }
+
+    private final ExecutorService executor;
+
+    /**
+     * 利用可能なプロセッサ数のスレッドを持つスケジューラを生成する.
+     */
+    public SolverScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * スケジューラを生成する.
+     * @param numThreads スレッド数. 1 以下なら呼び出し元のスレッドで逐次に実行する
+     */
+    public SolverScheduler(int numThreads) {
+        this.executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+    }
+
+    /**
+     * 各関数に対して解析を実行し、すべての完了を待つ.
+     * @param procs 解析する関数名. 結果はこの順に並ぶ
+     * @param task 解析
+     * @return 関数名から解析結果への写像
+     */
+    public <Result> Map<String, Result> runAll(Collection<String> procs, final Task<Result> task) {
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        if (this.executor == null || procs.size() <= 1) {
+            for (String proc : procs) {
+                results.put(proc, task.run(proc));
+            }
+            return results;
+        }
+
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(procs.size());
+        for (final String proc : procs) {
+            futures.add(this.executor.submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    return task.run(proc);
+                }
+            }));
+        }
+
+        int i = 0;
+        try {
+            for (String proc : procs) {
+                results.put(proc, futures.get(i++).get());
+            }
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> f : futures) {
+            f.cancel(true);
+        }
+    }
+
+    /**
+     * スレッドプールを終了する. 以降 runAll を呼んではならない.
+     */
+    public void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 翻訳単位のすべての名前の束縛と、変数・関数・型定義の型、式の型を求めておく.
+     * CDT は束縛や型を要求されたときに遅延して求めてキャッシュし、その処理はスレッド安全でない.
+     * 並列に解析する前にこれらを済ませ、各タスクからは読み出すだけにする.
+     *
+     * タスクが AST から読み出してよいのは、ノードの構造と位置、名前の束縛、
+     * {@link IVariable#getType()} などの束縛の型、構造体のメンバ、式の型に限る.
+     * これ以外の遅延して求められる情報（インデックスの検索など）をタスク内で使ってはならない.
+     */
+    public static void resolveBindings(IASTTranslationUnit translationUnit) {
+        translationUnit.accept(new ASTVisitor(true) {
+            @Override
+            public int visit(IASTName name) {
+                IBinding binding = name.resolveBinding();
+                if (binding instanceof IVariable) {
+                    ((IVariable) binding).getType();
+                } else if (binding instanceof IFunction) {
+                    ((IFunction) binding).getType();
+                } else if (binding instanceof ITypedef) {
+                    ((ITypedef) binding).getType();
+                } else if (binding instanceof ICompositeType) {
+                    ((ICompositeType) binding).getFields();
+                }
+                return super.visit(name);
+            }
+
+            @Override
+            public int visit(IASTExpression expression) {
+                expression.getExpressionType();
+                return super.visit(expression);
+            }
+        });
+    }
+}
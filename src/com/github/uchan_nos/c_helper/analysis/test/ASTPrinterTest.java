@@ -0,0 +1,89 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.ASTPrinter;
+import com.github.uchan_nos.c_helper.analysis.JsonGraphWriter;
+
+public class ASTPrinterTest {
+    private static final String SOURCE =
+        "int f(int x) {\n" +
+        "  if (x > 0)\n" +
+        "    return x + 1;\n" +
+        "  return 0;\n" +
+        "}\n";
+
+    private static List<Integer> matches(Pattern pattern, String s, int group) {
+        List<Integer> result = new ArrayList<Integer>();
+        Matcher m = pattern.matcher(s);
+        while (m.find()) {
+            result.add(Integer.valueOf(m.group(group)));
+        }
+        return result;
+    }
+
+    // 頂点IDが0から行きがけ順に増え、辺の両端がすべて出力済みの頂点であることを確かめる
+    private static void assertConsistent(List<Integer> vertices, List<Integer> from, List<Integer> to) {
+        assertFalse(vertices.isEmpty());
+        assertEquals(Integer.valueOf(0), vertices.get(0));
+        for (int i = 1; i < vertices.size(); ++i) {
+            assertTrue(vertices.get(i - 1) < vertices.get(i));
+        }
+        assertEquals(from.size(), to.size());
+        for (int i = 0; i < from.size(); ++i) {
+            assertTrue(vertices.contains(from.get(i)));
+            assertTrue(vertices.contains(to.get(i)));
+            assertTrue(from.get(i) < to.get(i));
+        }
+    }
+
+    @Test
+    public void dotTest() throws IOException {
+        ParsedSource src = new ParsedSource(SOURCE);
+        StringBuilder sb = new StringBuilder();
+        new ASTPrinter(src.function("f"), "f", "\n").writeDot(sb, true);
+        String dot = sb.toString();
+
+        assertTrue(dot.startsWith("digraph AST {\n"));
+        assertTrue(dot.endsWith("}\n"));
+        assertTrue(dot.contains("fv0 [shape=box,label=\"CASTFunctionDefinition\\l1:int f(int x) {\\l\"]"));
+
+        List<Integer> vertices = matches(Pattern.compile("fv(\\d+) \\[shape"), dot, 1);
+        Pattern edge = Pattern.compile("fv(\\d+) -> fv(\\d+)");
+        assertConsistent(vertices, matches(edge, dot, 1), matches(edge, dot, 2));
+        assertEquals(vertices.size() - 1, matches(edge, dot, 1).size());
+
+        // 同じ AST からは同じ出力になる
+        assertEquals(dot, new ASTPrinter(src.function("f"), "f", "\n").toDot(true));
+    }
+
+    @Test
+    public void jsonTest() throws IOException {
+        ParsedSource src = new ParsedSource(SOURCE);
+        StringBuilder sb = new StringBuilder();
+        JsonGraphWriter writer = new JsonGraphWriter(sb);
+        writer.beginDocument();
+        new ASTPrinter(src.function("f"), "f", "\n").writeJson(writer, "f");
+        writer.endDocument();
+        String json = sb.toString();
+
+        assertTrue(json.startsWith("{\"graphs\":[\n{\"name\":\"f\",\"entry\":0,\"vertices\":[\n"
+                    + " {\"id\":0,\"label\":\"int f(int x) {\",\"type\":\"CASTFunctionDefinition\",\"line\":\"1\"}"));
+
+        List<Integer> vertices = matches(Pattern.compile("\\{\"id\":(\\d+)"), json, 1);
+        Pattern edge = Pattern.compile("\\{\"from\":(\\d+),\"to\":(\\d+)");
+        assertConsistent(vertices, matches(edge, json, 1), matches(edge, json, 2));
+
+        // 頂点IDは DOT 形式と同じ
+        String dot = new ASTPrinter(src.function("f"), "f", "\n").toDot(false);
+        assertEquals(matches(Pattern.compile("fv(\\d+) \\[shape"), dot, 1), vertices);
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.BasicBlock;
+import com.github.uchan_nos.c_helper.analysis.BasicBlockGraph;
+import com.github.uchan_nos.c_helper.analysis.CFG;
+
+public class BasicBlockGraphTest {
+    @Test
+    public void straightLineAndBranch() {
+        // entry -> a -> b -> c -> (d | e) -> f -> exit
+        CFG.Vertex entry = new CFG.Vertex("entry");
+        CFG.Vertex a = new CFG.Vertex("a");
+        CFG.Vertex b = new CFG.Vertex("b");
+        CFG.Vertex c = new CFG.Vertex("c");
+        CFG.Vertex d = new CFG.Vertex("d");
+        CFG.Vertex e = new CFG.Vertex("e");
+        CFG.Vertex f = new CFG.Vertex("f");
+        CFG.Vertex exit = new CFG.Vertex("exit");
+        CFG cfg = new CFG(entry, exit);
+        cfg.add(a); cfg.add(b); cfg.add(c); cfg.add(d); cfg.add(e); cfg.add(f);
+        cfg.connect(entry, a);
+        cfg.connect(a, b);
+        cfg.connect(b, c);
+        cfg.connect(c, d);
+        cfg.connect(c, e);
+        cfg.connect(d, f);
+        cfg.connect(e, f);
+        cfg.connect(f, exit);
+        cfg.freeze();
+
+        BasicBlockGraph bbg = cfg.getBasicBlocks();
+        assertEquals(4, bbg.blocks().size());
+
+        BasicBlock first = bbg.entryBlock();
+        assertEquals(4, first.size());
+        assertSame(entry, first.first());
+        assertSame(c, first.last());
+        assertSame(first, bbg.blockOf(b));
+        assertEquals(2, bbg.getConnectedVerticesFrom(first).size());
+
+        BasicBlock last = bbg.exitBlock();
+        assertSame(f, last.first());
+        assertEquals(2, last.size());
+        assertSame(cfg.getBasicBlocks(), bbg);
+    }
+
+    @Test
+    public void loopHeaderStartsBlock() {
+        // entry -> h -> body -> h, h -> exit
+        CFG.Vertex entry = new CFG.Vertex("entry");
+        CFG.Vertex h = new CFG.Vertex("h");
+        CFG.Vertex body = new CFG.Vertex("body");
+        CFG.Vertex exit = new CFG.Vertex("exit");
+        CFG cfg = new CFG(entry, exit);
+        cfg.add(h); cfg.add(body);
+        cfg.connect(entry, h);
+        cfg.connect(h, body);
+        cfg.connect(body, h);
+        cfg.connect(h, exit);
+        cfg.freeze();
+
+        BasicBlockGraph bbg = cfg.getBasicBlocks();
+        assertEquals(4, bbg.blocks().size());
+        assertTrue(bbg.isConnected(bbg.blockOf(body), bbg.blockOf(h)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void frozenCFGRejectsModification() {
+        CFG.Vertex entry = new CFG.Vertex("entry");
+        CFG cfg = new CFG(entry, entry);
+        cfg.freeze();
+        cfg.add(new CFG.Vertex("x"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.cdt.core.dom.ast.IASTForStatement;
+import org.eclipse.cdt.core.dom.ast.IASTIfStatement;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+
+public class CFGTest {
+    private static void assertBranch(CFG cfg, CFG.Vertex cond, CFG.Vertex ifTrue, CFG.Vertex ifFalse) {
+        assertNotNull(ifTrue);
+        assertNotNull(ifFalse);
+        assertSame(ifTrue, cfg.getTrueSuccessor(cond));
+        assertSame(ifFalse, cfg.getFalseSuccessor(cond));
+        // 分岐先は正規化後のグラフに残っている後続頂点
+        assertTrue(cfg.getConnectedVerticesFrom(cond).contains(ifTrue));
+        assertTrue(cfg.getConnectedVerticesFrom(cond).contains(ifFalse));
+    }
+
+    @Test
+    public void branchTest() {
+        CFG.Vertex entry = new CFG.Vertex("entry");
+        CFG.Vertex t = new CFG.Vertex("t");
+        CFG.Vertex f = new CFG.Vertex("f");
+        CFG.Vertex exit = new CFG.Vertex("exit");
+        CFG cfg = new CFG(entry, exit);
+        cfg.add(t); cfg.add(f);
+        cfg.connect(entry, t);
+        cfg.connect(entry, f);
+        cfg.connect(t, exit);
+        cfg.connect(f, exit);
+        cfg.setBranch(entry, t, f);
+        cfg.freeze();
+
+        assertBranch(cfg, entry, t, f);
+        assertNull(cfg.getTrueSuccessor(t));
+        assertNull(cfg.getFalseSuccessor(t));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void frozenCFGRejectsBranch() {
+        CFG.Vertex entry = new CFG.Vertex("entry");
+        CFG cfg = new CFG(entry, entry);
+        cfg.freeze();
+        cfg.setBranch(entry, entry, entry);
+    }
+
+    @Test
+    public void normalizedBranchTest() {
+        // 空の頂点が併合されても、分岐先は併合後の頂点を指す
+        ParsedSource src = new ParsedSource(
+            "int f(int c) {\n" +
+            "  int x = 0;\n" +
+            "  if (c)\n" +
+            "    x = 1;\n" +
+            "  while (x < 10)\n" +
+            "    x = x + 1;\n" +
+            "  for (; x > 0; x = x - 1)\n" +
+            "    c = c + 1;\n" +
+            "  return c;\n" +
+            "}\n");
+        CFG cfg = src.cfg("f");
+        IASTIfStatement ifStmt = src.nodes("f", IASTIfStatement.class).get(0);
+        IASTWhileStatement whileStmt = src.nodes("f", IASTWhileStatement.class).get(0);
+        IASTForStatement forStmt = src.nodes("f", IASTForStatement.class).get(0);
+        IASTReturnStatement ret = src.nodes("f", IASTReturnStatement.class).get(0);
+
+        // else 節の無い if 文の偽の分岐先は、if 文の後の空の頂点が併合された while 文
+        assertBranch(cfg, src.vertex("f", ifStmt),
+                src.vertex("f", ifStmt.getThenClause()),
+                src.vertex("f", whileStmt));
+        assertBranch(cfg, src.vertex("f", whileStmt),
+                src.vertex("f", whileStmt.getBody()),
+                src.vertex("f", forStmt));
+        // for 文の分岐は条件式の頂点にある
+        assertBranch(cfg, src.vertex("f", forStmt.getConditionExpression()),
+                src.vertex("f", forStmt.getBody()),
+                src.vertex("f", ret));
+        assertNull(cfg.getTrueSuccessor(src.vertex("f", forStmt)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+
+public class CallGraphTest {
+    private static final String SOURCE =
+        "#include <stdlib.h>\n" +
+        "int fact(int n) {\n" +
+        "  return n <= 1 ? 1 : n * fact(n - 1);\n" +
+        "}\n" +
+        "int even(int n);\n" +
+        "int odd(int n) {\n" +
+        "  return n == 0 ? 0 : even(n - 1);\n" +
+        "}\n" +
+        "int even(int n) {\n" +
+        "  return n == 0 ? 1 : odd(n - 1);\n" +
+        "}\n" +
+        "int twice(int n) {\n" +
+        "  return odd(n) + odd(n + 1);\n" +
+        "}\n" +
+        "int main(void) {\n" +
+        "  int *p = malloc(sizeof(int));\n" +
+        "  free(p);\n" +
+        "  return twice(3) + fact(4);\n" +
+        "}\n";
+
+    private static Set<String> set(String... names) {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+
+    private static int levelOf(List<List<String>> levels, String proc) {
+        for (int i = 0; i < levels.size(); ++i) {
+            if (levels.get(i).contains(proc)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void bottomUpLevelsTest() {
+        ParsedSource src = new ParsedSource(
+            "#include <stdlib.h>\n" +
+            "struct node { struct node *next; int value; };\n" +
+            "struct node *create_node(int value) {\n" +
+            "  struct node *n = malloc(sizeof(struct node));\n" +
+            "  return n;\n" +
+            "}\n" +
+            "void destroy(struct node *p) {\n" +
+            "  free(p);\n" +
+            "}\n" +
+            "int even(int n);\n" +
+            "int odd(int n) {\n" +
+            "  return n == 0 ? 0 : even(n - 1);\n" +
+            "}\n" +
+            "int even(int n) {\n" +
+            "  return n == 0 ? 1 : odd(n - 1);\n" +
+            "}\n" +
+            "void use(void) {\n" +
+            "  struct node *n = create_node(1);\n" +
+            "  destroy(n);\n" +
+            "}\n" +
+            "int main(void) {\n" +
+            "  use();\n" +
+            "  return even(4);\n" +
+            "}\n");
+        CallGraph graph = new CallGraph(src.getProcToCFG());
+        List<List<String>> levels = graph.getBottomUpLevels();
+
+        // 呼び出しの無い関数は最初の段
+        assertEquals(0, levelOf(levels, "create_node"));
+        assertEquals(0, levelOf(levels, "destroy"));
+
+        // 呼び出される関数はすべて前の段にある
+        assertEquals(1, levelOf(levels, "use"));
+        assertEquals(2, levelOf(levels, "main"));
+
+        // 相互再帰する関数は同じ段にある
+        assertEquals(0, levelOf(levels, "odd"));
+        assertEquals(0, levelOf(levels, "even"));
+        assertTrue(graph.isRecursive("odd"));
+
+        int total = 0;
+        for (List<String> level : levels) {
+            total += level.size();
+        }
+        assertEquals(src.getProcToCFG().size(), total);
+    }
+
+    @Test
+    public void componentOrderTest() {
+        CallGraph graph = new CallGraph(new ParsedSource(SOURCE).getProcToCFG());
+        List<List<String>> components = graph.getStronglyConnectedComponents();
+
+        // 相互再帰する関数は1つの成分にまとまる
+        assertEquals(4, components.size());
+        assertEquals(graph.getComponentIndex("odd"), graph.getComponentIndex("even"));
+        assertEquals(set("odd", "even"), new HashSet<String>(components.get(graph.getComponentIndex("odd"))));
+        assertEquals(-1, graph.getComponentIndex("malloc"));
+
+        // 呼び出される成分は呼び出す成分より前にある
+        for (String caller : graph.getVertices()) {
+            for (String callee : graph.getCallees(caller)) {
+                assertTrue(graph.getComponentIndex(callee) <= graph.getComponentIndex(caller));
+            }
+        }
+        assertTrue(graph.getComponentIndex("odd") < graph.getComponentIndex("twice"));
+        assertTrue(graph.getComponentIndex("twice") < graph.getComponentIndex("main"));
+
+        // 自己再帰も再帰とみなす
+        assertTrue(graph.isRecursive("fact"));
+        assertTrue(graph.isRecursive("even"));
+        assertFalse(graph.isRecursive("twice"));
+        assertFalse(graph.isRecursive("main"));
+    }
+
+    @Test
+    public void callersAndCalleesTest() {
+        CallGraph graph = new CallGraph(new ParsedSource(SOURCE).getProcToCFG());
+
+        // 定義されていない関数は呼び出しグラフに含めないが、呼び出し式は記録する
+        assertEquals(set("twice", "fact"), graph.getCallees("main"));
+        assertEquals(4, graph.getCallSites("main").size());
+        assertEquals(2, graph.getCallSites("twice").size());
+
+        assertEquals(set("twice", "even"), graph.getCallers("odd"));
+        assertEquals(set("main", "fact"), graph.getCallers("fact"));
+        assertEquals(set("twice", "odd", "even"), graph.getReachableFrom("twice"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void callersAreUnmodifiableTest() {
+        CallGraph graph = new CallGraph(new ParsedSource(SOURCE).getProcToCFG());
+        graph.getCallers("odd").clear();
+    }
+}
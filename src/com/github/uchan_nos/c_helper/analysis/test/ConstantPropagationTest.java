@@ -0,0 +1,130 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTIfStatement;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTTypeIdExpression;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.AnalysisEnvironment;
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.ConstantPropagation;
+import com.github.uchan_nos.c_helper.analysis.SSAForm;
+import com.github.uchan_nos.c_helper.analysis.values.IntegralValue;
+import com.github.uchan_nos.c_helper.suggest.test.TestInput;
+
+public class ConstantPropagationTest {
+    private static ConstantPropagation constants(ParsedSource src, String function,
+            AnalysisEnvironment env) {
+        return new ConstantPropagation(
+                new SSAForm(src.function(function), src.cfg(function)), env);
+    }
+
+    private static IASTExpression returnValue(ParsedSource src, String function) {
+        return src.nodes(function, IASTReturnStatement.class).get(0).getReturnValue();
+    }
+
+    private static int intValue(IntegralValue value) {
+        return value.getValue().intValue();
+    }
+
+    @Test
+    public void phiFoldingTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(int c) {\n" +
+            "  int x;\n" +
+            "  if (c)\n" +
+            "    x = 2;\n" +
+            "  else\n" +
+            "    x = 2;\n" +
+            "  return x + 1;\n" +
+            "}\n" +
+            "int g(int n) {\n" +
+            "  int i;\n" +
+            "  int k = 4;\n" +
+            "  for (i = 0; i < n; i = i + 1)\n" +
+            "    k = k * 1;\n" +
+            "  return k;\n" +
+            "}\n" +
+            "int h(int c) {\n" +
+            "  int x;\n" +
+            "  if (c)\n" +
+            "    x = c;\n" +
+            "  else\n" +
+            "    x = 2;\n" +
+            "  return x;\n" +
+            "}\n");
+        AnalysisEnvironment env = TestInput.environment();
+
+        // 両辺で同じ定数が代入されれば φ 関数も定数
+        ConstantPropagation f = constants(src, "f", env);
+        SSAForm.Value phi = f.getSSA().getValue(src.ids("f", "x").get(2));
+        assertEquals(SSAForm.Kind.PHI, phi.getKind());
+        assertEquals(BigInteger.valueOf(2), f.getConstant(phi));
+        assertEquals(3, intValue(f.getValue(returnValue(src, "f"))));
+
+        // ループ頭部の φ 関数も、ループ内で値が変わらなければ定数
+        ConstantPropagation g = constants(src, "g", env);
+        assertEquals(4, intValue(g.getValue(returnValue(src, "g"))));
+        assertNull(g.getValue(src.ids("g", "i").get(1)));
+
+        // 一方が定数でなければ φ 関数は定数でない
+        ConstantPropagation h = constants(src, "h", env);
+        assertNull(h.getValue(returnValue(src, "h")));
+    }
+
+    @Test
+    public void unreachableBranchTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(void) {\n" +
+            "  int x = 0;\n" +
+            "  if (0)\n" +
+            "    x = 1;\n" +
+            "  return x;\n" +
+            "}\n");
+        ConstantPropagation f = constants(src, "f", TestInput.environment());
+        CFG cfg = src.cfg("f");
+        IASTIfStatement ifStmt = src.nodes("f", IASTIfStatement.class).get(0);
+        CFG.Vertex cond = src.vertex("f", ifStmt);
+        CFG.Vertex then = src.vertex("f", ifStmt.getThenClause());
+
+        List<CFG.Vertex> branches = f.getConstantBranches();
+        assertEquals(1, branches.size());
+        assertSame(cond, branches.get(0));
+        assertSame(then, cfg.getTrueSuccessor(cond));
+
+        // 条件が偽の定数なので then 節は実行されない
+        assertFalse(f.isExecutable(cond, then));
+        assertTrue(f.isExecutable(cond, cfg.getFalseSuccessor(cond)));
+        assertFalse(f.isExecutable(then));
+        assertTrue(f.getUnexecutableVertices().contains(then));
+        assertFalse(f.getUnexecutableVertices().contains(cond));
+
+        // 実行されない代入は φ 関数に合流しない
+        assertEquals(0, intValue(f.getValue(returnValue(src, "f"))));
+    }
+
+    @Test
+    public void sizeofTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(void) {\n" +
+            "  return sizeof(int *) + sizeof(int) + sizeof(char);\n" +
+            "}\n");
+        AnalysisEnvironment env = TestInput.environment();
+        env.POINTER_BIT = 64;
+        env.POINTER_BYTE = env.POINTER_BIT / env.CHAR_BIT;
+        ConstantPropagation f = constants(src, "f", env);
+
+        List<IASTTypeIdExpression> sizeofs = src.nodes("f", IASTTypeIdExpression.class);
+        assertEquals(8, intValue(f.getValue(sizeofs.get(0))));
+        assertEquals(4, intValue(f.getValue(sizeofs.get(1))));
+        assertEquals(1, intValue(f.getValue(sizeofs.get(2))));
+        assertEquals(13, intValue(f.getValue(returnValue(src, "f"))));
+    }
+}
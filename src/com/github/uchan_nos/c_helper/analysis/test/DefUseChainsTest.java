@@ -0,0 +1,76 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.AssignExpression;
+import com.github.uchan_nos.c_helper.analysis.DefUseChains;
+import com.github.uchan_nos.c_helper.analysis.DefinitionUniverse;
+import com.github.uchan_nos.c_helper.analysis.RDAnalyzer;
+
+public class DefUseChainsTest {
+    private static final String SOURCE =
+        "int f(int c) {\n" +
+        "  int x = 0;\n" +
+        "  int s = 0;\n" +
+        "  if (c)\n" +
+        "    x = 1;\n" +
+        "  s = s + x;\n" +
+        "  while (c > 0) {\n" +
+        "    s = s + c;\n" +
+        "    c = c - 1;\n" +
+        "  }\n" +
+        "  return s;\n" +
+        "}\n";
+
+    private static <T> Set<T> set(T... elements) {
+        return new HashSet<T>(Arrays.asList(elements));
+    }
+
+    @Test
+    public void chainsTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        DefinitionUniverse universe = new DefinitionUniverse(src.function("f"));
+        DefUseChains chains = new DefUseChains(src.cfg("f"),
+                new RDAnalyzer(universe, src.cfg("f")).analyze(), universe);
+
+        List<IASTBinaryExpression> assigns = src.assigns("f");
+        AssignExpression initX = universe.getAssignOfNode(src.declarator("f", "x"));
+        AssignExpression initS = universe.getAssignOfNode(src.declarator("f", "s"));
+        AssignExpression setX = universe.getAssignOfNode(assigns.get(0));
+        AssignExpression addX = universe.getAssignOfNode(assigns.get(1));
+        AssignExpression addC = universe.getAssignOfNode(assigns.get(2));
+
+        // x = 1 の左辺は使用ではない
+        List<IASTIdExpression> xs = src.ids("f", "x");
+        assertFalse(chains.isUse(xs.get(0)));
+        IASTIdExpression useX = xs.get(1);
+
+        // 分岐の片側での再定義: 初期化と再定義の両方が到達する
+        assertEquals(set(initX, setX), chains.getReachingDefinitions(useX));
+        assertEquals(set(useX), chains.getUses(initX));
+        assertEquals(set(useX), chains.getUses(setX));
+
+        // ループを回る定義: ループ内の使用と return には、ループ前後の定義の両方が到達する
+        List<IASTIdExpression> ss = src.ids("f", "s");
+        IASTIdExpression useBeforeLoop = ss.get(1);
+        IASTIdExpression useInLoop = ss.get(3);
+        IASTIdExpression useInReturn = ss.get(4);
+        assertEquals(set(initS), chains.getReachingDefinitions(useBeforeLoop));
+        assertEquals(set(addX, addC), chains.getReachingDefinitions(useInLoop));
+        assertEquals(set(addX, addC), chains.getReachingDefinitions(useInReturn));
+        assertEquals(set(useInLoop, useInReturn), chains.getUses(addC));
+        assertEquals(set(useBeforeLoop), chains.getUses(initS));
+
+        assertSame(src.vertex("f", assigns.get(2).getParent()), chains.getVertex(useInLoop));
+    }
+}
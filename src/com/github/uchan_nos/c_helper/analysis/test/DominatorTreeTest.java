@@ -0,0 +1,133 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.DirectedGraph;
+import com.github.uchan_nos.c_helper.analysis.DominatorTree;
+import com.github.uchan_nos.c_helper.analysis.LoopForest;
+
+public class DominatorTreeTest {
+    private static DirectedGraph<String> graph(String... edges) {
+        DirectedGraph<String> g = new DirectedGraph<String>();
+        for (String edge : edges) {
+            String[] fromTo = edge.split("->");
+            g.add(fromTo[0]);
+            g.add(fromTo[1]);
+            g.connect(fromTo[0], fromTo[1]);
+        }
+        return g;
+    }
+
+    @Test
+    public void dominatorsOfDiamond() {
+        // entry -> a -> (b | c) -> d -> exit
+        DirectedGraph<String> g = graph(
+                "entry->a", "a->b", "a->c", "b->d", "c->d", "d->exit");
+        DominatorTree<String> dom = DominatorTree.dominators(g, "entry", null);
+
+        assertNull(dom.immediateDominator("entry"));
+        assertEquals("entry", dom.immediateDominator("a"));
+        assertEquals("a", dom.immediateDominator("b"));
+        assertEquals("a", dom.immediateDominator("c"));
+        assertEquals("a", dom.immediateDominator("d"));
+        assertEquals("d", dom.immediateDominator("exit"));
+
+        assertTrue(dom.dominates("a", "d"));
+        assertTrue(dom.dominates("d", "d"));
+        assertFalse(dom.dominates("b", "d"));
+        assertFalse(dom.strictlyDominates("d", "d"));
+    }
+
+    @Test
+    public void postDominatorsWithReturn() {
+        // b は return 文のように出口へ接続されない
+        DirectedGraph<String> g = graph(
+                "entry->a", "a->b", "a->c", "c->exit");
+        DominatorTree<String> pdom = DominatorTree.postDominators(g, "exit", null);
+
+        assertEquals("exit", pdom.immediateDominator("c"));
+        // a の後支配者は仮想的な出口のみ
+        assertNull(pdom.immediateDominator("a"));
+        assertEquals("a", pdom.immediateDominator("entry"));
+        assertFalse(pdom.dominates("c", "a"));
+    }
+
+    @Test
+    public void unreachableVertex() {
+        DirectedGraph<String> g = graph("entry->a", "dead->a");
+        DominatorTree<String> dom = DominatorTree.dominators(g, "entry", null);
+
+        assertFalse(dom.isReachable("dead"));
+        assertNull(dom.immediateDominator("dead"));
+        assertEquals("entry", dom.immediateDominator("a"));
+        assertEquals(2, dom.getGraph().numReachable());
+    }
+
+    @Test
+    public void nestedLoops() {
+        // while (h1) { while (h2) { b } c }
+        DirectedGraph<String> g = graph(
+                "entry->h1", "h1->h2", "h1->exit",
+                "h2->b", "b->h2", "h2->c", "c->h1");
+        DominatorTree<String> dom = DominatorTree.dominators(g, "entry", null);
+        LoopForest<String> loops = new LoopForest<String>(dom);
+
+        assertEquals(2, loops.loops().size());
+        assertEquals(1, loops.topLevelLoops().size());
+        assertTrue(loops.isLoopHeader("h1"));
+        assertTrue(loops.isLoopHeader("h2"));
+
+        LoopForest.Loop<String> outer = loops.loopWithHeader("h1");
+        LoopForest.Loop<String> inner = loops.loopWithHeader("h2");
+        assertSame(outer, inner.parent());
+        assertEquals(4, outer.body().size());
+        assertEquals(2, inner.body().size());
+        assertTrue(inner.backEdgeSources().contains("b"));
+
+        assertEquals(0, loops.loopDepth("entry"));
+        assertEquals(1, loops.loopDepth("c"));
+        assertEquals(2, loops.loopDepth("b"));
+        assertEquals(0, loops.loopDepth("exit"));
+    }
+
+    @Test
+    public void reversePostorderIds() {
+        DirectedGraph<String> g = graph(
+                "entry->a", "a->b", "b->a", "b->exit");
+        DominatorTree<String> dom = DominatorTree.dominators(g, "entry", null);
+
+        int a = dom.getGraph().id("a");
+        int b = dom.getGraph().id("b");
+        assertEquals(0, dom.getGraph().id("entry"));
+        assertTrue(a < b);
+        assertTrue(dom.getGraph().isRetreatingEdge(b, a));
+        assertFalse(dom.getGraph().isRetreatingEdge(a, b));
+    }
+
+    @Test
+    public void dominanceFrontierOfLoopAndDiamond() {
+        // entry -> h -> (b | c) -> d -> h, h -> exit
+        DirectedGraph<String> g = graph(
+                "entry->h", "h->b", "h->c", "b->d", "c->d", "d->h", "h->exit");
+        DominatorTree<String> dom = DominatorTree.dominators(g, "entry", null);
+
+        assertEquals(Arrays.asList("d"), new ArrayList<String>(dom.dominanceFrontier("b")));
+        assertEquals(Arrays.asList("h"), new ArrayList<String>(dom.dominanceFrontier("d")));
+        assertEquals(Arrays.asList("h"), new ArrayList<String>(dom.dominanceFrontier("h")));
+        assertTrue(dom.dominanceFrontier("entry").isEmpty());
+
+        // b で定義された変数には d と h で φ 関数が必要
+        BitSet defs = new BitSet();
+        defs.set(dom.getGraph().id("b"));
+        BitSet idf = dom.iteratedDominanceFrontier(defs);
+        assertEquals(2, idf.cardinality());
+        assertTrue(idf.get(dom.getGraph().id("d")));
+        assertTrue(idf.get(dom.getGraph().id("h")));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.FunctionCFGCreator;
+
+public class FunctionCFGCreatorTest {
+    private static final String SOURCE =
+        "int f(int c) {\n" +
+        "  while (c) {\n" +
+        "    break;\n" +
+        "    c = c - 1;\n" +
+        "  }\n" +
+        "  if (c) {\n" +
+        "    goto end;\n" +
+        "    c = 4;\n" +
+        "  }\n" +
+        "  return c;\n" +
+        "  c = 3;\n" +
+        "end:\n" +
+        "  return 0;\n" +
+        "}\n";
+
+    // break, goto, return の直後にある代入文
+    private static Set<IASTNode> deadStatements(ParsedSource src) {
+        Set<IASTNode> result = new HashSet<IASTNode>();
+        for (IASTBinaryExpression e : src.assigns("f")) {
+            result.add(e.getParent());
+        }
+        return result;
+    }
+
+    private static Set<IASTNode> astNodes(Set<CFG.Vertex> vertices) {
+        Set<IASTNode> result = new HashSet<IASTNode>();
+        for (CFG.Vertex v : vertices) {
+            result.add(v.getASTNode());
+        }
+        return result;
+    }
+
+    private static CFG.Vertex find(CFG cfg, IASTNode node) {
+        for (CFG.Vertex v : cfg.getVertices()) {
+            if (v.getASTNode() == node) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void removeUnreachableTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        CFG cfg = new FunctionCFGCreator(src.function("f")).create();
+        Set<IASTNode> dead = deadStatements(src);
+        assertEquals(3, dead.size());
+
+        // 既定では到達不能な文の頂点はグラフから削除され、記録だけが残る
+        assertEquals(dead, astNodes(cfg.unreachableVertices()));
+        for (IASTNode stmt : dead) {
+            assertNull(find(cfg, stmt));
+        }
+
+        // goto の飛び先のラベル以降は到達できる
+        List<IASTReturnStatement> returns = src.nodes("f", IASTReturnStatement.class);
+        assertNotNull(find(cfg, returns.get(0)));
+        assertNotNull(find(cfg, returns.get(1)));
+        assertTrue(cfg.getVertices().contains(cfg.entryVertex()));
+        assertTrue(cfg.getVertices().contains(cfg.exitVertex()));
+    }
+
+    @Test
+    public void keepUnreachableTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        CFG cfg = new FunctionCFGCreator(src.function("f"), false).create();
+        Set<IASTNode> dead = deadStatements(src);
+
+        // 削除しない場合も到達不能な頂点は記録され、グラフにも残る
+        assertEquals(dead, astNodes(cfg.unreachableVertices()));
+        for (CFG.Vertex v : cfg.unreachableVertices()) {
+            assertTrue(cfg.getVertices().contains(v));
+        }
+        List<IASTReturnStatement> returns = src.nodes("f", IASTReturnStatement.class);
+        assertFalse(cfg.unreachableVertices().contains(find(cfg, returns.get(1))));
+    }
+}
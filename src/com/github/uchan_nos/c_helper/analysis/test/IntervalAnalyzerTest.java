@@ -0,0 +1,127 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTIfStatement;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.IntervalAnalyzer;
+import com.github.uchan_nos.c_helper.analysis.Intervals;
+import com.github.uchan_nos.c_helper.analysis.values.Interval;
+import com.github.uchan_nos.c_helper.suggest.test.TestInput;
+
+public class IntervalAnalyzerTest {
+    private static final Interval INT_RANGE = Interval.of(-2147483648L, 2147483647L);
+
+    private static Intervals analyze(ParsedSource src, String function) {
+        return new IntervalAnalyzer(src.function(function), src.cfg(function),
+                TestInput.environment()).analyze();
+    }
+
+    private static IVariable variable(ParsedSource src, String function, String name) {
+        return (IVariable) src.declarator(function, name).getName().resolveBinding();
+    }
+
+    @Test
+    public void loopCounterTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(void) {\n" +
+            "  int i = 0;\n" +
+            "  int s = 0;\n" +
+            "  while (i < 10) {\n" +
+            "    s = s + 2;\n" +
+            "    i = i + 1;\n" +
+            "  }\n" +
+            "  return i;\n" +
+            "}\n");
+        Intervals intervals = analyze(src, "f");
+        IVariable i = variable(src, "f", "i");
+        IVariable s = variable(src, "f", "s");
+        CFG.Vertex head = src.vertex("f", src.nodes("f", IASTWhileStatement.class).get(0));
+        List<IASTExpressionStatement> body = src.nodes("f", IASTExpressionStatement.class);
+        CFG.Vertex ret = src.vertex("f", src.nodes("f", IASTReturnStatement.class).get(0));
+
+        assertEquals(2, intervals.getTrackedVariables().size());
+
+        // 拡大で [0, +∞] となった i は、縮小により条件 i < 10 で抑えられる
+        assertEquals(Interval.of(0, 10), intervals.getEntry(head, i));
+        assertEquals(Interval.of(0, 9), intervals.getEntry(src.vertex("f", body.get(0)), i));
+        assertEquals(Interval.of(1, 10), intervals.getExit(src.vertex("f", body.get(1)), i));
+        assertEquals(Interval.of(10, 10), intervals.getEntry(ret, i));
+
+        // 条件で抑えられない s は上限が無くなり、型の値域全体となる
+        assertEquals(INT_RANGE, intervals.getEntry(ret, s));
+    }
+
+    @Test
+    public void branchRefinementTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(int x) {\n" +
+            "  int y;\n" +
+            "  if (x > 0 && x < 100)\n" +
+            "    y = x;\n" +
+            "  else\n" +
+            "    y = -1;\n" +
+            "  if (y > 100)\n" +
+            "    return 0;\n" +
+            "  return y + 1;\n" +
+            "}\n");
+        Intervals intervals = analyze(src, "f");
+        IVariable x = variable(src, "f", "x");
+        IVariable y = variable(src, "f", "y");
+        List<IASTIfStatement> ifs = src.nodes("f", IASTIfStatement.class);
+        List<IASTReturnStatement> returns = src.nodes("f", IASTReturnStatement.class);
+
+        // 仮引数は型の値域全体から始まり、分岐の辺で絞り込まれる
+        assertEquals(INT_RANGE, intervals.getEntry(src.vertex("f", ifs.get(0)), x));
+        assertEquals(Interval.of(1, 99),
+                intervals.getEntry(src.vertex("f", ifs.get(0).getThenClause()), x));
+        assertEquals(INT_RANGE,
+                intervals.getEntry(src.vertex("f", ifs.get(0).getElseClause()), x));
+        assertEquals(Interval.of(-1, 99), intervals.getEntry(src.vertex("f", ifs.get(1)), y));
+
+        // y > 100 は成り立たないので、then 節には到達しない
+        CFG.Vertex unreachable = src.vertex("f", returns.get(0));
+        assertFalse(intervals.isReachable(unreachable));
+        assertTrue(intervals.getEntry(unreachable, y).isEmpty());
+
+        CFG.Vertex ret = src.vertex("f", returns.get(1));
+        assertTrue(intervals.isReachable(ret));
+        assertEquals(Interval.of(0, 100), intervals.getInterval(returns.get(1).getReturnValue(), ret));
+    }
+
+    @Test
+    public void overflowTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(void) {\n" +
+            "  unsigned char u = 250;\n" +
+            "  int x = 2147483647;\n" +
+            "  int *p = &x;\n" +
+            "  int z = 2147483646;\n" +
+            "  u = u + 10;\n" +
+            "  z = z + 1;\n" +
+            "  z = z + 1;\n" +
+            "  return u + z + *p;\n" +
+            "}\n");
+        Intervals intervals = analyze(src, "f");
+        CFG.Vertex ret = src.vertex("f", src.nodes("f", IASTReturnStatement.class).get(0));
+
+        // 型で表せない値は、その型の値域全体になる
+        assertEquals(Interval.of(0, 255), intervals.getEntry(ret, variable(src, "f", "u")));
+        assertEquals(INT_RANGE, intervals.getEntry(ret, variable(src, "f", "z")));
+        List<IASTExpressionStatement> stmts = src.nodes("f", IASTExpressionStatement.class);
+        assertEquals(Interval.of(2147483647L, 2147483647L),
+                intervals.getExit(src.vertex("f", stmts.get(1)), variable(src, "f", "z")));
+
+        // アドレスを取られた変数は追跡しない
+        assertNull(intervals.getEntry(ret, variable(src, "f", "x")));
+    }
+}
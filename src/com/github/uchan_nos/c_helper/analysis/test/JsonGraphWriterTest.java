@@ -0,0 +1,55 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.JsonGraphWriter;
+
+public class JsonGraphWriterTest {
+    @Test
+    public void documentTest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JsonGraphWriter writer = new JsonGraphWriter(sb);
+        writer.beginDocument();
+        writer.beginGraph("f", 0);
+        writer.vertex(0, "entry");
+        writer.vertex(1, "x = 1", "kind", "stmt");
+        writer.beginEdges();
+        writer.edge(0, 1, null);
+        writer.edge(1, 0, "true");
+        writer.endGraph();
+        writer.beginGraph("g", -1);
+        writer.beginEdges();
+        writer.endGraph();
+        writer.endDocument();
+
+        assertEquals(
+            "{\"graphs\":[\n" +
+            "{\"name\":\"f\",\"entry\":0,\"vertices\":[\n" +
+            " {\"id\":0,\"label\":\"entry\"},\n" +
+            " {\"id\":1,\"label\":\"x = 1\",\"kind\":\"stmt\"}],\"edges\":[\n" +
+            " {\"from\":0,\"to\":1},\n" +
+            " {\"from\":1,\"to\":0,\"label\":\"true\"}]},\n" +
+            "{\"name\":\"g\",\"vertices\":[],\"edges\":[]}\n" +
+            "]}\n",
+            sb.toString());
+    }
+
+    @Test
+    public void escapeTest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JsonGraphWriter writer = new JsonGraphWriter(sb);
+        writer.beginGraph("g", 0);
+        writer.vertex(0, "puts(\"a\\\\b\");\n\tx\r\u0001");
+        writer.beginEdges();
+        writer.endGraph();
+
+        assertEquals(
+            "\n{\"name\":\"g\",\"entry\":0,\"vertices\":[\n" +
+            " {\"id\":0,\"label\":\"puts(\\\"a\\\\\\\\b\\\");\\n\\tx\\r\\u0001\"}],\"edges\":[]}",
+            sb.toString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.cdt.core.dom.ast.IASTDeclarationStatement;
+import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.LiveVariableAnalyzer;
+import com.github.uchan_nos.c_helper.analysis.LiveVariables;
+
+public class LiveVariableAnalyzerTest {
+    private static final String SOURCE =
+        "int f(int n) {\n" +
+        "  int s = 0;\n" +
+        "  int d = 1;\n" +
+        "  while (n > 0) {\n" +
+        "    s = s + n;\n" +
+        "    n = n - 1;\n" +
+        "  }\n" +
+        "  d = 2;\n" +
+        "  return s + d;\n" +
+        "}\n";
+
+    private static IVariable variable(ParsedSource src, String name) {
+        return (IVariable) src.declarator("f", name).getName().resolveBinding();
+    }
+
+    // i 番目の単純代入式を含む式文の頂点
+    private static CFG.Vertex assignVertex(ParsedSource src, int i) {
+        return src.vertex("f", src.assigns("f").get(i).getParent());
+    }
+
+    @Test
+    public void loopTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        LiveVariables live = new LiveVariableAnalyzer(src.function("f"), src.cfg("f")).analyze();
+        IVariable s = variable(src, "s");
+        IVariable n = variable(src, "n");
+
+        // 定義される変数は定義の入口では死んでいる
+        CFG.Vertex declS = src.vertex("f", src.nodes("f", IASTDeclarationStatement.class).get(0));
+        assertFalse(live.isLiveAtEntry(declS, s));
+        assertTrue(live.isLiveAtExit(declS, s));
+        assertTrue(live.isLiveAtEntry(declS, n));
+
+        // ループを回って次の反復で読まれる
+        CFG.Vertex addS = assignVertex(src, 0);
+        CFG.Vertex decN = assignVertex(src, 1);
+        assertTrue(live.isLiveAtEntry(addS, s));
+        assertTrue(live.isLiveAtExit(addS, s));
+        assertTrue(live.isLiveAtExit(addS, n));
+        assertTrue(live.isLiveAtExit(decN, n));
+        assertTrue(live.isLiveAtExit(decN, s));
+
+        CFG.Vertex loop = src.vertex("f", src.nodes("f", IASTWhileStatement.class).get(0));
+        assertTrue(live.isLiveAtEntry(loop, s));
+        assertTrue(live.isLiveAtEntry(loop, n));
+    }
+
+    @Test
+    public void deadStoreTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        LiveVariables live = new LiveVariableAnalyzer(src.function("f"), src.cfg("f")).analyze();
+        IVariable d = variable(src, "d");
+
+        // int d = 1 の値は読まれる前に d = 2 で上書きされる
+        CFG.Vertex declD = src.vertex("f", src.nodes("f", IASTDeclarationStatement.class).get(1));
+        assertFalse(live.isLiveAtExit(declD, d));
+        CFG.Vertex loop = src.vertex("f", src.nodes("f", IASTWhileStatement.class).get(0));
+        assertFalse(live.isLiveAtEntry(loop, d));
+        assertFalse(live.getLiveAtEntry(assignVertex(src, 0)).contains(d));
+
+        CFG.Vertex storeD = assignVertex(src, 2);
+        assertFalse(live.isLiveAtEntry(storeD, d));
+        assertTrue(live.isLiveAtExit(storeD, d));
+        assertFalse(live.isLiveAtExit(storeD, variable(src, "n")));
+    }
+}
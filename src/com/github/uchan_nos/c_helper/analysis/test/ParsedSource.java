@@ -0,0 +1,120 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.CFGCreator;
+import com.github.uchan_nos.c_helper.analysis.FileInfo;
+import com.github.uchan_nos.c_helper.analysis.Parser;
+import com.github.uchan_nos.c_helper.util.ASTFilter;
+
+/**
+ * テスト用に、ソースコードをパースして関数定義と制御フローグラフ、ASTノードを取り出す.
+ */
+public class ParsedSource {
+    private final IASTTranslationUnit tu;
+    private final Map<String, CFG> procToCFG;
+
+    public ParsedSource(String src) {
+        this.tu = new Parser(new FileInfo("", false), src).parseOrNull();
+        this.procToCFG = new CFGCreator(this.tu).create();
+    }
+
+    public IASTTranslationUnit getAst() {
+        return tu;
+    }
+
+    public Map<String, CFG> getProcToCFG() {
+        return procToCFG;
+    }
+
+    public CFG cfg(String function) {
+        return procToCFG.get(function);
+    }
+
+    public IASTFunctionDefinition function(String name) {
+        for (IASTDeclaration decl : tu.getDeclarations()) {
+            if (decl instanceof IASTFunctionDefinition
+                    && ((IASTFunctionDefinition) decl).getDeclarator().getName().toString().equals(name)) {
+                return (IASTFunctionDefinition) decl;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 関数の制御フローグラフから、指定されたASTノードを持つ頂点を返す.
+     */
+    public CFG.Vertex vertex(String function, IASTNode node) {
+        for (CFG.Vertex v : cfg(function).getVertices()) {
+            if (v.getASTNode() == node) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 関数内で指定された型を持つノードを出現順に返す.
+     */
+    public <T extends IASTNode> List<T> nodes(String function, final Class<T> type) {
+        List<T> result = new ArrayList<T>();
+        for (IASTNode n : new ASTFilter(function(function)).filter(new ASTFilter.Predicate() {
+            @Override
+            public boolean pass(IASTNode node) {
+                return type.isInstance(node);
+            }
+        })) {
+            result.add(type.cast(n));
+        }
+        return result;
+    }
+
+    /**
+     * 関数内で指定された名前の変数を参照する ID 式を出現順に返す.
+     */
+    public List<IASTIdExpression> ids(String function, String name) {
+        List<IASTIdExpression> result = new ArrayList<IASTIdExpression>();
+        for (IASTIdExpression id : nodes(function, IASTIdExpression.class)) {
+            if (id.getName().toString().equals(name)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 関数内で指定された名前の変数を宣言する宣言子を返す.
+     */
+    public IASTDeclarator declarator(String function, String name) {
+        for (IASTDeclarator d : nodes(function, IASTDeclarator.class)) {
+            if (d.getName().toString().equals(name)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 関数内の単純代入式を出現順に返す.
+     */
+    public List<IASTBinaryExpression> assigns(String function) {
+        List<IASTBinaryExpression> result = new ArrayList<IASTBinaryExpression>();
+        for (IASTBinaryExpression e : nodes(function, IASTBinaryExpression.class)) {
+            if (e.getOperator() == IASTBinaryExpression.op_assign) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+}
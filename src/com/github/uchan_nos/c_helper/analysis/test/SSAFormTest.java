@@ -0,0 +1,169 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.SSAForm;
+
+public class SSAFormTest {
+    private static SSAForm ssa(ParsedSource src, String function) {
+        return new SSAForm(src.function(function), src.cfg(function));
+    }
+
+    @Test
+    public void useToValueTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(void) {\n" +
+            "  int a = 1;\n" +
+            "  int b = a;\n" +
+            "  a = 2;\n" +
+            "  b = a + b;\n" +
+            "  return b;\n" +
+            "}\n");
+        SSAForm ssa = ssa(src, "f");
+        List<IASTIdExpression> a = src.ids("f", "a");
+        List<IASTIdExpression> b = src.ids("f", "b");
+        List<IASTBinaryExpression> assigns = src.assigns("f");
+
+        // int b = a; の a は int a = 1; の値
+        SSAForm.Value a1 = ssa.getDefinition(src.declarator("f", "a"));
+        assertEquals(SSAForm.Kind.ASSIGN, a1.getKind());
+        assertEquals(1, a1.getVersion());
+        assertSame(a1, ssa.getValue(a.get(0)));
+        assertEquals(1, ssa.getUses(a1).size());
+
+        // a = 2; の後の a + b の a は a = 2 の値、b は int b = a; の値
+        SSAForm.Value a2 = ssa.getDefinition(assigns.get(0));
+        assertEquals(2, a2.getVersion());
+        assertSame(a2, ssa.getValue(a.get(2)));
+        assertSame(ssa.getDefinition(src.declarator("f", "b")), ssa.getValue(b.get(1)));
+
+        // return b; の b は b = a + b の値
+        assertSame(ssa.getDefinition(assigns.get(1)), ssa.getValue(b.get(2)));
+
+        // 代入の左辺は読み出しではない
+        assertNull(ssa.getValue(a.get(1)));
+        assertTrue(ssa.getPhis(ssa.getVertex(b.get(2))).isEmpty());
+    }
+
+    @Test
+    public void phiAtJoinTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(int c) {\n" +
+            "  int x;\n" +
+            "  if (c)\n" +
+            "    x = 1;\n" +
+            "  else\n" +
+            "    x = 2;\n" +
+            "  return x;\n" +
+            "}\n");
+        SSAForm ssa = ssa(src, "f");
+        List<IASTBinaryExpression> assigns = src.assigns("f");
+        IASTIdExpression ret = src.ids("f", "x").get(2);
+
+        SSAForm.Value phi = ssa.getValue(ret);
+        assertEquals(SSAForm.Kind.PHI, phi.getKind());
+        assertEquals(2, phi.getOperands().size());
+        Set<SSAForm.Value> operands = new HashSet<SSAForm.Value>(phi.getOperands().values());
+        assertTrue(operands.contains(ssa.getDefinition(assigns.get(0))));
+        assertTrue(operands.contains(ssa.getDefinition(assigns.get(1))));
+        assertTrue(ssa.getPhiUsers(ssa.getDefinition(assigns.get(0))).contains(phi));
+
+        // 定義の無い仮引数は入口での値
+        SSAForm.Value c = ssa.getValue(src.ids("f", "c").get(0));
+        assertEquals(SSAForm.Kind.ENTRY, c.getKind());
+        assertEquals(0, c.getVersion());
+    }
+
+    @Test
+    public void phiAtLoopHeaderTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(int n) {\n" +
+            "  int i = 0;\n" +
+            "  int s = 0;\n" +
+            "  while (i < n) {\n" +
+            "    s = s + i;\n" +
+            "    i = i + 1;\n" +
+            "  }\n" +
+            "  return s;\n" +
+            "}\n");
+        SSAForm ssa = ssa(src, "f");
+        List<IASTIdExpression> i = src.ids("f", "i");
+        List<IASTIdExpression> s = src.ids("f", "s");
+        List<IASTBinaryExpression> assigns = src.assigns("f");
+
+        // ループ条件の i は、初期値と i = i + 1 を合流する φ 関数の値
+        SSAForm.Value phi = ssa.getValue(i.get(0));
+        assertEquals(SSAForm.Kind.PHI, phi.getKind());
+        assertSame(ssa.getVertex(i.get(0)), phi.getVertex());
+        assertTrue(ssa.getPhis(phi.getVertex()).contains(phi));
+        Set<SSAForm.Value> operands = new HashSet<SSAForm.Value>(phi.getOperands().values());
+        assertEquals(2, operands.size());
+        assertTrue(operands.contains(ssa.getDefinition(src.declarator("f", "i"))));
+        assertTrue(operands.contains(ssa.getDefinition(assigns.get(1))));
+
+        // ループ内の s + i の s と、ループ後の return s の s は同じ φ 関数の値
+        SSAForm.Value sPhi = ssa.getValue(s.get(1));
+        assertEquals(SSAForm.Kind.PHI, sPhi.getKind());
+        assertSame(sPhi, ssa.getValue(s.get(2)));
+        assertEquals(2, ssa.getUses(sPhi).size());
+
+        // ループ本体の i + 1 の i もループ頭部の φ 関数の値
+        assertSame(phi, ssa.getValue(i.get(3)));
+    }
+
+    @Test
+    public void conditionalDefinitionTest() {
+        ParsedSource src = new ParsedSource(
+            "int f(int c) {\n" +
+            "  int x = 0;\n" +
+            "  int y = 0;\n" +
+            "  int z = 0;\n" +
+            "  c && (x = 1);\n" +
+            "  c || (y = 2);\n" +
+            "  c ? (z = 3) : 0;\n" +
+            "  return x + y + z;\n" +
+            "}\n");
+        SSAForm ssa = ssa(src, "f");
+        List<IASTBinaryExpression> assigns = src.assigns("f");
+        String[] names = { "x", "y", "z" };
+
+        for (int k = 0; k < names.length; ++k) {
+            SSAForm.Value value = ssa.getDefinition(assigns.get(k));
+            assertEquals(SSAForm.Kind.CONDITIONAL, value.getKind());
+            // 代入されなかったときの値
+            assertSame(ssa.getDefinition(src.declarator("f", names[k])), value.getPrevious());
+
+            List<IASTIdExpression> uses = src.ids("f", names[k]);
+            assertSame(value, ssa.getValue(uses.get(uses.size() - 1)));
+        }
+    }
+
+    @Test
+    public void untrackedVariableTest() {
+        ParsedSource src = new ParsedSource(
+            "int g;\n" +
+            "int f(void) {\n" +
+            "  int a = 1;\n" +
+            "  int b = 2;\n" +
+            "  int *p = &b;\n" +
+            "  g = a;\n" +
+            "  return b + g + *p;\n" +
+            "}\n");
+        SSAForm ssa = ssa(src, "f");
+
+        // 大域変数とアドレスを取られた変数は名前を付け替えない
+        assertEquals(2, ssa.getTrackedVariables().size());
+        assertNull(ssa.getValue(src.ids("f", "g").get(1)));
+        assertNull(ssa.getValue(src.ids("f", "b").get(1)));
+        assertNotNull(ssa.getValue(src.ids("f", "p").get(0)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.uchan_nos.c_helper.analysis.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.SolverScheduler;
+
+public class SolverSchedulerTest {
+    private static final List<String> PROCS = Arrays.asList("main", "f", "g", "h", "a");
+
+    private static final SolverScheduler.Task<String> UPPER = new SolverScheduler.Task<String>() {
+        @Override
+        public String run(String proc) {
+            return proc.toUpperCase();
+        }
+    };
+
+    @Test
+    public void testResultOrder() {
+        SolverScheduler scheduler = new SolverScheduler(4);
+        try {
+            Map<String, String> results = scheduler.runAll(PROCS, UPPER);
+            assertEquals(PROCS, new ArrayList<String>(results.keySet()));
+            assertEquals(Arrays.asList("MAIN", "F", "G", "H", "A"),
+                    new ArrayList<String>(results.values()));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameAsSequential() {
+        SolverScheduler parallel = new SolverScheduler(4);
+        SolverScheduler sequential = new SolverScheduler(1);
+        try {
+            assertEquals(sequential.runAll(PROCS, UPPER), parallel.runAll(PROCS, UPPER));
+        } finally {
+            parallel.shutdown();
+            sequential.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExceptionPropagation() {
+        SolverScheduler scheduler = new SolverScheduler(4);
+        try {
+            scheduler.runAll(PROCS, new SolverScheduler.Task<String>() {
+                @Override
+                public String run(String proc) {
+                    if (proc.equals("g")) {
+                        throw new IllegalStateException(proc);
+                    }
+                    return proc;
+                }
+            });
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelTypeQueries() {
+        // 束縛と型を求めておけば、各タスクは AST を読み出すだけになる
+        final ParsedSource src = new ParsedSource(
+            "struct node { struct node *next; int value; };\n" +
+            "typedef struct node node_t;\n" +
+            "int f(node_t *p) { return p->value + 1; }\n" +
+            "int g(int a, long b) { return a * b; }\n" +
+            "int h(void) { node_t n; n.value = 2; return f(&n) + g(1, 2L); }\n");
+        SolverScheduler.resolveBindings(src.getAst());
+        SolverScheduler.Task<String> types = new SolverScheduler.Task<String>() {
+            @Override
+            public String run(String proc) {
+                StringBuilder sb = new StringBuilder();
+                for (IASTExpression e : src.nodes(proc, IASTExpression.class)) {
+                    sb.append(e.getRawSignature()).append(':')
+                        .append(String.valueOf(e.getExpressionType())).append('\n');
+                }
+                return sb.toString();
+            }
+        };
+        List<String> procs = Arrays.asList("f", "g", "h");
+        SolverScheduler parallel = new SolverScheduler(4);
+        SolverScheduler sequential = new SolverScheduler(1);
+        try {
+            Map<String, String> expected = sequential.runAll(procs, types);
+            assertTrue(expected.get("f").contains("p->value:int"));
+            assertEquals(expected, parallel.runAll(procs, types));
+        } finally {
+            parallel.shutdown();
+            sequential.shutdown();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.github.uchan_nos.c_helper.analysis.values;
+
+import java.math.BigInteger;
+
+import com.github.uchan_nos.c_helper.util.Util;
+
+/**
+ * 整数の閉区間 [lower, upper]. 値域解析の抽象値として用いる.
+ * 下限、上限の null はそれぞれ負の無限大、正の無限大を表す.
+ * 空の区間は {@link #EMPTY} のみで表す. インスタンスは不変である.
+ * @author uchan
+ */
+public final class Interval {
+    /** すべての整数 */
+    public static final Interval TOP = new Interval(null, null);
+    /** 空の区間 */
+    public static final Interval EMPTY = new Interval(BigInteger.ONE, BigInteger.ZERO);
+
+    private final BigInteger lower;
+    private final BigInteger upper;
+
+    private Interval(BigInteger lower, BigInteger upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * 区間を生成する. 下限が上限より大きければ空の区間を返す.
+     * @param lower 下限. null なら負の無限大
+     * @param upper 上限. null なら正の無限大
+     */
+    public static Interval of(BigInteger lower, BigInteger upper) {
+        if (lower != null && upper != null && lower.compareTo(upper) > 0) {
+            return EMPTY;
+        } else if (lower == null && upper == null) {
+            return TOP;
+        }
+        return new Interval(lower, upper);
+    }
+
+    /**
+     * 1点のみからなる区間を生成する.
+     */
+    public static Interval of(BigInteger value) {
+        return new Interval(value, value);
+    }
+
+    public static Interval of(long lower, long upper) {
+        return of(BigInteger.valueOf(lower), BigInteger.valueOf(upper));
+    }
+
+    /**
+     * 定数値を1点のみからなる区間に変換する.
+     */
+    public static Interval of(IntegralValue value) {
+        return of(value.getValue());
+    }
+
+    /**
+     * 下限を返す. 負の無限大なら null を返す.
+     */
+    public BigInteger lower() {
+        return this.lower;
+    }
+
+    /**
+     * 上限を返す. 正の無限大なら null を返す.
+     */
+    public BigInteger upper() {
+        return this.upper;
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * 区間がただ1つの値からなるかを返す.
+     */
+    public boolean isConstant() {
+        return !isEmpty() && this.lower != null && this.lower.equals(this.upper);
+    }
+
+    public boolean contains(BigInteger value) {
+        return !isEmpty()
+            && (this.lower == null || this.lower.compareTo(value) <= 0)
+            && (this.upper == null || this.upper.compareTo(value) >= 0);
+    }
+
+    /**
+     * 指定された区間を含むかを返す. 空の区間は任意の区間に含まれる.
+     */
+    public boolean contains(Interval other) {
+        if (other.isEmpty()) {
+            return true;
+        } else if (isEmpty()) {
+            return false;
+        }
+        return compareLower(this.lower, other.lower) <= 0
+            && compareUpper(this.upper, other.upper) >= 0;
+    }
+
+    /**
+     * 両方の区間を含む最小の区間を返す.
+     */
+    public Interval join(Interval other) {
+        if (isEmpty()) {
+            return other;
+        } else if (other.isEmpty()) {
+            return this;
+        }
+        return of(compareLower(this.lower, other.lower) <= 0 ? this.lower : other.lower,
+                compareUpper(this.upper, other.upper) >= 0 ? this.upper : other.upper);
+    }
+
+    /**
+     * 両方の区間の共通部分を返す.
+     */
+    public Interval meet(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        return of(compareLower(this.lower, other.lower) >= 0 ? this.lower : other.lower,
+                compareUpper(this.upper, other.upper) <= 0 ? this.upper : other.upper);
+    }
+
+    /**
+     * 拡大演算. this を前回の値、next を今回の値として、広がった側の端を無限大に飛ばす.
+     * 拡大を繰り返す列は有限回で停止する.
+     */
+    public Interval widen(Interval next) {
+        if (isEmpty()) {
+            return next;
+        } else if (next.isEmpty()) {
+            return this;
+        }
+        BigInteger l = compareLower(next.lower, this.lower) < 0 ? null : this.lower;
+        BigInteger u = compareUpper(next.upper, this.upper) > 0 ? null : this.upper;
+        return of(l, u);
+    }
+
+    /**
+     * 縮小演算. this を拡大後の値、next を今回の値として、無限大の端だけを next の端で置き換える.
+     */
+    public Interval narrow(Interval next) {
+        if (isEmpty() || next.isEmpty()) {
+            return EMPTY;
+        }
+        return of(this.lower == null ? next.lower : this.lower,
+                this.upper == null ? next.upper : this.upper);
+    }
+
+    public Interval negate() {
+        if (isEmpty()) {
+            return EMPTY;
+        }
+        return of(this.upper == null ? null : this.upper.negate(),
+                this.lower == null ? null : this.lower.negate());
+    }
+
+    public Interval add(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        return of(this.lower == null || other.lower == null ? null : this.lower.add(other.lower),
+                this.upper == null || other.upper == null ? null : this.upper.add(other.upper));
+    }
+
+    public Interval subtract(Interval other) {
+        return add(other.negate());
+    }
+
+    public Interval multiply(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (!isBounded() || !other.isBounded()) {
+            // 0 倍なら 0、それ以外は符号の情報を捨てる
+            if (isZero() || other.isZero()) {
+                return of(BigInteger.ZERO);
+            }
+            return TOP;
+        }
+        BigInteger[] products = {
+            this.lower.multiply(other.lower), this.lower.multiply(other.upper),
+            this.upper.multiply(other.lower), this.upper.multiply(other.upper)
+        };
+        BigInteger min = products[0], max = products[0];
+        for (BigInteger p : products) {
+            min = min.min(p);
+            max = max.max(p);
+        }
+        return of(min, max);
+    }
+
+    /**
+     * C言語の除算（0 方向への切り捨て）. 除数が 0 を含むなら、0 を除いた範囲で計算する.
+     */
+    public Interval divide(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (!isBounded() || !other.isBounded()) {
+            return TOP;
+        }
+        Interval result = EMPTY;
+        Interval negative = other.meet(of(null, BigInteger.ONE.negate()));
+        Interval positive = other.meet(of(BigInteger.ONE, null));
+        for (Interval d : new Interval[] {negative, positive}) {
+            if (d.isEmpty()) {
+                continue;
+            }
+            BigInteger[] quotients = {
+                this.lower.divide(d.lower), this.lower.divide(d.upper),
+                this.upper.divide(d.lower), this.upper.divide(d.upper)
+            };
+            BigInteger min = quotients[0], max = quotients[0];
+            for (BigInteger q : quotients) {
+                min = min.min(q);
+                max = max.max(q);
+            }
+            result = result.join(of(min, max));
+        }
+        return result;
+    }
+
+    /**
+     * C言語の剰余. 結果の符号は被除数に従い、絶対値は除数の絶対値未満となる.
+     */
+    public Interval remainder(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (!other.isBounded()) {
+            return of(isNonNegative() ? BigInteger.ZERO : null, isNonPositive() ? BigInteger.ZERO : null);
+        }
+        BigInteger m = other.lower.abs().max(other.upper.abs()).subtract(BigInteger.ONE);
+        if (m.signum() < 0) {
+            return EMPTY;
+        }
+        Interval result = of(m.negate(), m);
+        if (isNonNegative()) {
+            result = result.meet(of(BigInteger.ZERO, this.upper));
+        } else if (isNonPositive()) {
+            result = result.meet(of(this.lower, BigInteger.ZERO));
+        }
+        return result;
+    }
+
+    private boolean isBounded() {
+        return this.lower != null && this.upper != null;
+    }
+
+    private boolean isZero() {
+        return isConstant() && this.lower.signum() == 0;
+    }
+
+    private boolean isNonNegative() {
+        return this.lower != null && this.lower.signum() >= 0;
+    }
+
+    private boolean isNonPositive() {
+        return this.upper != null && this.upper.signum() <= 0;
+    }
+
+    // null を負の無限大として比較する
+    private static int compareLower(BigInteger a, BigInteger b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+
+    // null を正の無限大として比較する
+    private static int compareUpper(BigInteger a, BigInteger b) {
+        if (a == null) {
+            return b == null ? 0 : 1;
+        }
+        return b == null ? -1 : a.compareTo(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof Interval)) {
+            return false;
+        }
+        Interval other = (Interval)o;
+        if (isEmpty() || other.isEmpty()) {
+            return false;
+        }
+        return Util.equalsOrBothNull(this.lower, other.lower)
+            && Util.equalsOrBothNull(this.upper, other.upper);
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.lower == null ? 0 : this.lower.hashCode()) * 31
+            + (this.upper == null ? 0 : this.upper.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "[]";
+        }
+        return "[" + (this.lower == null ? "-inf" : this.lower.toString()) + ", "
+            + (this.upper == null ? "+inf" : this.upper.toString()) + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.uchan_nos.c_helper.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * ビットベクタで表せる gen/kill 型のデータフロー問題.
+ * 解析値は 0 以上 {@link #universeSize()} 未満の整数IDで表し、
+ * 合流は和集合、遷移関数は前進解析なら (入口 - kill) | gen、後進解析なら (出口 - kill) | gen とする.
+ * @author uchan
+ */
+public interface BitVectorProblem<Vertex> {
+    /**
+     * 解析値の総数を返す.
+     */
+    int universeSize();
+
+    /**
+     * 指定された頂点の gen 集合を返す.
+     */
+    BitSet gen(Vertex v);
+
+    /**
+     * 指定された頂点の kill 集合を返す.
+     */
+    BitSet kill(Vertex v);
+
+    /**
+     * 解析の初期情報を返す. 前進解析ではフローグラフの入口頂点の入口値、
+     * 後進解析では出口頂点と後続頂点を持たない頂点の出口値となる.
+     */
+    BitSet initialValue();
+}
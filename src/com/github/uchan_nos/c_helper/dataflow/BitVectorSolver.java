@@ -0,0 +1,219 @@
+package com.github.uchan_nos.c_helper.dataflow;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.github.uchan_nos.c_helper.analysis.IGraph;
+import com.github.uchan_nos.c_helper.analysis.IndexedGraph;
+
+/**
+ * {@link BitVectorProblem} を解くデータフロー解析器. 前進解析と後進解析に対応する.
+ * 集合は long 配列のワード列で保持し、合流と遷移関数、変化の検出をワード単位で行う.
+ * 頂点は（後進解析では逆グラフの）逆後順の優先度付きワークリストで処理する.
+ * @author uchan
+ */
+public class BitVectorSolver<Vertex> {
+    /**
+     * 解析の方向.
+     */
+    public enum Direction {
+        /** 入口値から出口値を計算する. 初期情報は入口頂点の入口値 */
+        FORWARD,
+        /** 出口値から入口値を計算する. 初期情報は出口頂点と後続を持たない頂点の出口値 */
+        BACKWARD
+    }
+
+    private final IGraph<Vertex> graph;
+    private final Vertex boundaryVertex;
+    private final BitVectorProblem<Vertex> problem;
+    private final Direction direction;
+
+    /**
+     * 解析の結果. 各頂点の入口値と出口値を保持する.
+     * 前進解析では、入口頂点から到達できない頂点の入口値は空集合、出口値は gen 集合となる.
+     */
+    public static class Result<Vertex> {
+        private final IndexedGraph<Vertex> graph;
+        private final long[][] entry;
+        private final long[][] exit;
+
+        Result(IndexedGraph<Vertex> graph, long[][] entry, long[][] exit) {
+            this.graph = graph;
+            this.entry = entry;
+            this.exit = exit;
+        }
+
+        /**
+         * 指定された頂点の入口値を新しい BitSet として返す.
+         */
+        public BitSet getEntry(Vertex v) {
+            return toBitSet(this.entry[indexOf(v)]);
+        }
+
+        /**
+         * 指定された頂点の出口値を新しい BitSet として返す.
+         */
+        public BitSet getExit(Vertex v) {
+            return toBitSet(this.exit[indexOf(v)]);
+        }
+
+        private int indexOf(Vertex v) {
+            int id = this.graph.id(v);
+            if (id < 0) {
+                throw new IllegalArgumentException("unknown vertex: " + v);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 前進解析器を生成する.
+     * @param graph フローグラフ
+     * @param entryVertex 入口頂点
+     * @param problem 解く問題
+     */
+    public BitVectorSolver(IGraph<Vertex> graph, Vertex entryVertex, BitVectorProblem<Vertex> problem) {
+        this(graph, entryVertex, problem, Direction.FORWARD);
+    }
+
+    /**
+     * 解析器を生成する.
+     * @param graph フローグラフ
+     * @param boundaryVertex 前進解析なら入口頂点、後進解析なら出口頂点
+     * @param problem 解く問題
+     * @param direction 解析の方向
+     */
+    public BitVectorSolver(IGraph<Vertex> graph, Vertex boundaryVertex,
+            BitVectorProblem<Vertex> problem, Direction direction) {
+        this.graph = graph;
+        this.boundaryVertex = boundaryVertex;
+        this.problem = problem;
+        this.direction = direction;
+    }
+
+    /**
+     * データフロー解析を行い、結果を返す.
+     */
+    public Result<Vertex> solve() {
+        final boolean forward = this.direction == Direction.FORWARD;
+        IndexedGraph<Vertex> g = forward
+            ? new IndexedGraph<Vertex>(this.graph, this.boundaryVertex)
+            : IndexedGraph.reverse(this.graph, sinks(this.graph, this.boundaryVertex), null);
+        final int numVertex = g.size();
+        // 後進解析では出口へ到達できない頂点（無限ループなど）も処理する
+        final int numProcessed = forward ? g.numReachable() : numVertex;
+        final int numWords = (this.problem.universeSize() + 63) >>> 6;
+
+        // in は解析の向きで手前側の値（前進解析では入口値）、out は向こう側の値
+        long[][] gen = new long[numVertex][];
+        long[][] kill = new long[numVertex][];
+        long[][] in = new long[numVertex][];
+        long[][] out = new long[numVertex][];
+        for (int id = 0; id < numVertex; ++id) {
+            Vertex v = g.vertex(id);
+            // 仮想的な根は恒等関数とする
+            gen[id] = toWords(v == null ? null : this.problem.gen(v), numWords);
+            kill[id] = toWords(v == null ? null : this.problem.kill(v), numWords);
+            in[id] = new long[numWords];
+            // 処理しない頂点は空の値に遷移関数を適用した値とする
+            out[id] = id < numProcessed ? new long[numWords] : gen[id].clone();
+        }
+
+        // 初期情報は根（仮想的な根があればそこ）に与える
+        final long[] init = toWords(this.problem.initialValue(), numWords);
+
+        PriorityWorklist worklist = new PriorityWorklist(numProcessed);
+        boolean[] visited = new boolean[numProcessed];
+        worklist.addAll();
+
+        while (!worklist.isEmpty()) {
+            final int id = worklist.poll();
+            final long[] inWords = in[id];
+
+            // 手前側の値は先行頂点の値の和集合. 解析値は単調増加なので上書きせず or する
+            boolean inModified = !visited[id];
+            visited[id] = true;
+            if (id == 0) {
+                inModified |= orInto(inWords, init);
+            }
+            for (int prev : g.predecessors(id)) {
+                if (prev < numProcessed) {
+                    inModified |= orInto(inWords, out[prev]);
+                }
+            }
+            if (!inModified) {
+                continue;
+            }
+
+            // 向こう側の値 = (手前側の値 - kill) | gen
+            final long[] outWords = out[id];
+            final long[] k = kill[id];
+            final long[] ge = gen[id];
+            boolean outModified = false;
+            for (int w = 0; w < numWords; ++w) {
+                long newWord = (inWords[w] & ~k[w]) | ge[w];
+                if (newWord != outWords[w]) {
+                    outWords[w] = newWord;
+                    outModified = true;
+                }
+            }
+            if (outModified) {
+                for (int succ : g.successors(id)) {
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        return forward ? new Result<Vertex>(g, in, out) : new Result<Vertex>(g, out, in);
+    }
+
+    // dst |= src を計算し、dst が変化したら true を返す
+    // 後進解析の根となる頂点、すなわち出口頂点と後続頂点を持たない頂点のリスト
+    private static <Vertex> List<Vertex> sinks(IGraph<Vertex> graph, Vertex exitVertex) {
+        List<Vertex> roots = new ArrayList<Vertex>();
+        if (exitVertex != null) {
+            roots.add(exitVertex);
+        }
+        for (Vertex v : graph.getVertices()) {
+            if (graph.getConnectedVerticesFrom(v).isEmpty() && !v.equals(exitVertex)) {
+                roots.add(v);
+            }
+        }
+        return roots;
+    }
+
+    private static boolean orInto(long[] dst, long[] src) {
+        boolean modified = false;
+        for (int w = 0; w < dst.length; ++w) {
+            long newWord = dst[w] | src[w];
+            if (newWord != dst[w]) {
+                dst[w] = newWord;
+                modified = true;
+            }
+        }
+        return modified;
+    }
+
+    static long[] toWords(BitSet set, int numWords) {
+        long[] words = new long[numWords];
+        if (set != null) {
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return words;
+    }
+
+    static BitSet toBitSet(long[] words) {
+        BitSet set = new BitSet(words.length * 64);
+        for (int w = 0; w < words.length; ++w) {
+            long word = words[w];
+            while (word != 0) {
+                set.set(w * 64 + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return set;
+    }
+}
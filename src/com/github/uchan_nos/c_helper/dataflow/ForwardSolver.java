@@ -1,14 +1,12 @@
 package com.github.uchan_nos.c_helper.dataflow;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
-
 
 import com.github.uchan_nos.c_helper.analysis.IGraph;
+import com.github.uchan_nos.c_helper.analysis.IndexedGraph;
 
 public abstract class ForwardSolver<Vertex, Value> extends Solver<Vertex, Value> {
     public ForwardSolver(IGraph<Vertex> cfg, Vertex entryVertex) {
@@ -36,38 +34,51 @@ public abstract class ForwardSolver<Vertex, Value> extends Solver<Vertex, Value>
         return new Result<Vertex, Value>(analysisValue);
     }
 
+    /**
+     * 逆後順の番号を優先度とするワークリストで不動点を求める.
+     * 入口から到達可能な頂点を逆後順に一度ずつ処理し、
+     * 以降は出口値が変化した頂点の後続頂点のみを再び処理する.
+     * 入口値が変化しなかった頂点では遷移関数を呼ばない.
+     */
     private void solveForward(Map<Vertex, EntryExitPair<Value>> analysisValue) {
-        Queue<Vertex> remainVertices = new ArrayDeque<Vertex>();
-        Set<Vertex> visitedVertices = new HashSet<Vertex>();
+        IndexedGraph<Vertex> graph = new IndexedGraph<Vertex>(getCFG(), getEntryVertex());
+        final int numReachable = graph.numReachable();
 
-        Vertex v;
-        boolean modified;
-        do {
-            modified = false;
-            visitedVertices.clear();
-            remainVertices.add(getEntryVertex());
+        List<EntryExitPair<Value>> values = new ArrayList<EntryExitPair<Value>>(numReachable);
+        for (int id = 0; id < numReachable; ++id) {
+            values.add(analysisValue.get(graph.vertex(id)));
+        }
 
-            while ((v = remainVertices.poll()) != null && !visitedVertices.contains(v)) {
-                visitedVertices.add(v);
-                Set<Vertex> connectedVertices = getCFG().getConnectedVerticesFrom(v);
-                for (Vertex nextVisit : connectedVertices) {
-                    remainVertices.add(nextVisit);
-                }
+        PriorityWorklist worklist = new PriorityWorklist(numReachable);
+        boolean[] visited = new boolean[numReachable];
+        worklist.addAll();
 
-                // 頂点 v の解析値を取得
-                final EntryExitPair<Value> vInfo = analysisValue.get(v);
+        while (!worklist.isEmpty()) {
+            final int id = worklist.poll();
 
-                // 頂点 v の入口値の計算
-                // 頂点 v に接続している各頂点の出口値をjoinする
-                for (Vertex prevVertex : getCFG().getConnectedVerticesTo(v)) {
-                    final Set<Value> exitSet = analysisValue.get(prevVertex).exit();
-                    modified |= join(vInfo.entry(), exitSet);
+            // 頂点 v の解析値を取得
+            final EntryExitPair<Value> vInfo = values.get(id);
+
+            // 頂点 v の入口値の計算
+            // 頂点 v に接続している各頂点の出口値をjoinする
+            boolean entryModified = !visited[id];
+            visited[id] = true;
+            for (int prev : graph.predecessors(id)) {
+                if (graph.isReachable(prev)) {
+                    entryModified |= join(vInfo.entry(), values.get(prev).exit());
                 }
+            }
+            if (!entryModified) {
+                continue;
+            }
 
-                // 頂点 v の出口値の計算
-                // 頂点 v の入口値を基に、遷移関数で出口値を計算する
-                modified |= transfer(v, vInfo.entry(), vInfo.exit());
+            // 頂点 v の出口値の計算
+            // 頂点 v の入口値を基に、遷移関数で出口値を計算する
+            if (transfer(graph.vertex(id), vInfo.entry(), vInfo.exit())) {
+                for (int succ : graph.successors(id)) {
+                    worklist.add(succ);
+                }
             }
-        } while (modified);
+        }
     }
 }
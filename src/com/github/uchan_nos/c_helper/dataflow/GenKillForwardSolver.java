@@ -33,17 +33,20 @@ public abstract class GenKillForwardSolver<Vertex, Value> extends ForwardSolver<
     }
 
     /**
-     * 遷移関数.
+     * 遷移関数. result に (entry - kill) | gen を加える.
+     * result には kill と gen の差を含む値が入らないので、
+     * 追加した要素の有無で変化を検出でき、result を複製する必要はない.
      */
     protected boolean transfer(Vertex v, Set<Value> entry, Set<Value> result) {
-        Set<Value> oldResult = clone(result);
-
         final GenKill<Value> gk = genkill.get(v);
-        result.addAll(entry);
-        result.removeAll(gk.kill);
-        result.addAll(gk.gen);
-
-        return !result.equals(oldResult);
+        boolean modified = false;
+        for (Value value : entry) {
+            if (!gk.kill.contains(value) || gk.gen.contains(value)) {
+                modified |= result.add(value);
+            }
+        }
+        modified |= result.addAll(gk.gen);
+        return modified;
     }
 
     /**
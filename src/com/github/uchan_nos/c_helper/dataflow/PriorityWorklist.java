@@ -0,0 +1,46 @@
+package com.github.uchan_nos.c_helper.dataflow;
+
+import java.util.PriorityQueue;
+
+/**
+ * 整数IDの小さい順に取り出すワークリスト. 同じIDは重複して格納されない.
+ * 頂点IDを逆後順に付けておけば、前進解析で先行頂点を先に処理できる.
+ */
+class PriorityWorklist {
+    private final PriorityQueue<Integer> queue;
+    private final boolean[] inQueue;
+
+    public PriorityWorklist(int size) {
+        this.queue = new PriorityQueue<Integer>(Math.max(1, size));
+        this.inQueue = new boolean[size];
+    }
+
+    /**
+     * 0 から size-1 までのすべてのIDを追加する.
+     */
+    public void addAll() {
+        for (int id = 0; id < this.inQueue.length; ++id) {
+            add(id);
+        }
+    }
+
+    public void add(int id) {
+        if (!this.inQueue[id]) {
+            this.inQueue[id] = true;
+            this.queue.add(id);
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.queue.isEmpty();
+    }
+
+    /**
+     * 最も小さいIDを取り出す.
+     */
+    public int poll() {
+        int id = this.queue.poll();
+        this.inQueue[id] = false;
+        return id;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.uchan_nos.c_helper.dataflow;
+
+/**
+ * 高さが有限とは限らない束の上の前進データフロー問題.
+ * ループの先頭では拡大演算で値の増加を打ち切り、収束後に縮小演算で精度を回復する.
+ * 解析値 null は「到達しない」（束の最小元）を表し、各メソッドに null は渡されない.
+ * @author uchan
+ */
+public interface WideningProblem<Vertex, State> {
+    /**
+     * 入口頂点の入口値を返す.
+     */
+    State initialValue();
+
+    /**
+     * 頂点の入口値から出口値を計算する. entry を変更してはならない.
+     */
+    State transfer(Vertex v, State entry);
+
+    /**
+     * 辺 from -> to を通るときの値を計算する. 分岐条件による絞り込みに用いる.
+     * 辺を通り得なければ null を返す. exit を変更してはならない.
+     */
+    State transferEdge(Vertex from, Vertex to, State exit);
+
+    /**
+     * 合流. 両方の値を含む値を返す.
+     */
+    State join(State a, State b);
+
+    /**
+     * 拡大演算. 前回の値 previous と今回の値 next の両方を含み、
+     * 拡大を繰り返すと有限回で変化しなくなる値を返す.
+     */
+    State widen(State previous, State next);
+
+    /**
+     * 縮小演算. 拡大後の値 previous と今回の値 next の間の値を返す.
+     * 縮小を繰り返すと有限回で変化しなくなること.
+     */
+    State narrow(State previous, State next);
+
+    /**
+     * 2つの値が等しいかを返す.
+     */
+    boolean isSame(State a, State b);
+}
@@ -0,0 +1,163 @@
+package com.github.uchan_nos.c_helper.dataflow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.github.uchan_nos.c_helper.analysis.IGraph;
+import com.github.uchan_nos.c_helper.analysis.IndexedGraph;
+
+/**
+ * {@link WideningProblem} を解く前進データフロー解析器.
+ *
+ * 逆後順で後退辺の終点となる頂点（ループの先頭）を拡大点とし、
+ * 上昇反復では拡大点で拡大演算を、続く下降反復では縮小演算を適用する.
+ * 拡大点はすべての閉路に含まれるので、上昇反復は値の増加が無限に続く束でも停止する.
+ * @author uchan
+ */
+public class WideningSolver<Vertex, State> {
+    private final IGraph<Vertex> graph;
+    private final Vertex entryVertex;
+    private final WideningProblem<Vertex, State> problem;
+    private final Comparator<? super Vertex> order;
+
+    /**
+     * 解析の結果. 入口から到達しない頂点の値は null である.
+     */
+    public static class Result<Vertex, State> {
+        private final IndexedGraph<Vertex> graph;
+        private final List<State> entry;
+        private final List<State> exit;
+
+        Result(IndexedGraph<Vertex> graph, List<State> entry, List<State> exit) {
+            this.graph = graph;
+            this.entry = entry;
+            this.exit = exit;
+        }
+
+        public State getEntry(Vertex v) {
+            int id = this.graph.id(v);
+            return id < 0 || id >= this.entry.size() ? null : this.entry.get(id);
+        }
+
+        public State getExit(Vertex v) {
+            int id = this.graph.id(v);
+            return id < 0 || id >= this.exit.size() ? null : this.exit.get(id);
+        }
+
+        /**
+         * 指定された頂点が拡大点（ループの先頭）かを返す.
+         */
+        public boolean isWideningPoint(Vertex v) {
+            int id = this.graph.id(v);
+            return id >= 0 && WideningSolver.isWideningPoint(this.graph, id);
+        }
+    }
+
+    /**
+     * 解析器を生成する.
+     * @param graph フローグラフ
+     * @param entryVertex 入口頂点
+     * @param problem 解く問題
+     * @param order 頂点の順序. 頂点IDの割り当てを決定的にする. null ならグラフの列挙順
+     */
+    public WideningSolver(IGraph<Vertex> graph, Vertex entryVertex,
+            WideningProblem<Vertex, State> problem, Comparator<? super Vertex> order) {
+        this.graph = graph;
+        this.entryVertex = entryVertex;
+        this.problem = problem;
+        this.order = order;
+    }
+
+    public Result<Vertex, State> solve() {
+        IndexedGraph<Vertex> g = new IndexedGraph<Vertex>(this.graph, this.entryVertex, this.order);
+        final int n = g.numReachable();
+        List<State> in = new ArrayList<State>(n);
+        List<State> out = new ArrayList<State>(n);
+        for (int id = 0; id < n; ++id) {
+            in.add(null);
+            out.add(null);
+        }
+        if (n == 0) {
+            return new Result<Vertex, State>(g, in, out);
+        }
+
+        // 上昇反復
+        PriorityWorklist worklist = new PriorityWorklist(n);
+        in.set(0, this.problem.initialValue());
+        worklist.add(0);
+        while (!worklist.isEmpty()) {
+            int id = worklist.poll();
+            State exit = this.problem.transfer(g.vertex(id), in.get(id));
+            out.set(id, exit);
+            for (int succ : g.successors(id)) {
+                if (succ >= n) {
+                    continue;
+                }
+                State edge = this.problem.transferEdge(g.vertex(id), g.vertex(succ), exit);
+                if (edge == null) {
+                    continue;
+                }
+                State old = in.get(succ);
+                State next = old == null ? edge : this.problem.join(old, edge);
+                if (old != null && isWideningPoint(g, succ)) {
+                    next = this.problem.widen(old, next);
+                }
+                if (old == null || !this.problem.isSame(old, next)) {
+                    in.set(succ, next);
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        // 下降反復. 各頂点の入口値を先行頂点の出口値から計算し直す
+        worklist.addAll();
+        while (!worklist.isEmpty()) {
+            int id = worklist.poll();
+            State old = in.get(id);
+            if (old == null) {
+                continue;
+            }
+            State next = id == 0 ? this.problem.initialValue() : null;
+            for (int pred : g.predecessors(id)) {
+                if (pred >= n || out.get(pred) == null) {
+                    continue;
+                }
+                State edge = this.problem.transferEdge(g.vertex(pred), g.vertex(id), out.get(pred));
+                if (edge != null) {
+                    next = next == null ? edge : this.problem.join(next, edge);
+                }
+            }
+            if (next == null) {
+                // 分岐条件の絞り込みにより、実際には到達しないと分かった
+                in.set(id, null);
+                out.set(id, null);
+            } else {
+                if (isWideningPoint(g, id)) {
+                    next = this.problem.narrow(old, next);
+                }
+                if (this.problem.isSame(old, next)) {
+                    continue;
+                }
+                in.set(id, next);
+                out.set(id, this.problem.transfer(g.vertex(id), next));
+            }
+            for (int succ : g.successors(id)) {
+                if (succ < n) {
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        return new Result<Vertex, State>(g, in, out);
+    }
+
+    static boolean isWideningPoint(IndexedGraph<?> g, int id) {
+        for (int pred : g.predecessors(id)) {
+            if (g.isRetreatingEdge(pred, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
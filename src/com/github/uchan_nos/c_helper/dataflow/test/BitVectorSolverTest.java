@@ -0,0 +1,125 @@
+package com.github.uchan_nos.c_helper.dataflow.test;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.DirectedGraph;
+import com.github.uchan_nos.c_helper.dataflow.BitVectorProblem;
+import com.github.uchan_nos.c_helper.dataflow.BitVectorSolver;
+
+public class BitVectorSolverTest {
+    /**
+     * 頂点ごとに gen, kill を指定できる問題.
+     */
+    private static class TestProblem implements BitVectorProblem<String> {
+        private final int size;
+        private final Map<String, BitSet> gen = new HashMap<String, BitSet>();
+        private final Map<String, BitSet> kill = new HashMap<String, BitSet>();
+        private final BitSet init = new BitSet();
+
+        public TestProblem(int size) {
+            this.size = size;
+        }
+
+        public void set(String v, int[] genBits, int[] killBits) {
+            gen.put(v, bits(genBits));
+            kill.put(v, bits(killBits));
+        }
+
+        @Override
+        public int universeSize() {
+            return size;
+        }
+
+        @Override
+        public BitSet gen(String v) {
+            return gen.containsKey(v) ? gen.get(v) : new BitSet();
+        }
+
+        @Override
+        public BitSet kill(String v) {
+            return kill.containsKey(v) ? kill.get(v) : new BitSet();
+        }
+
+        @Override
+        public BitSet initialValue() {
+            return init;
+        }
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet s = new BitSet();
+        for (int i : indices) {
+            s.set(i);
+        }
+        return s;
+    }
+
+    private static DirectedGraph<String> graph(String... edges) {
+        DirectedGraph<String> g = new DirectedGraph<String>();
+        for (String edge : edges) {
+            String[] fromTo = edge.split("->");
+            g.add(fromTo[0]);
+            g.add(fromTo[1]);
+            g.connect(fromTo[0], fromTo[1]);
+        }
+        return g;
+    }
+
+    @Test
+    public void reachingDefinitionsInLoop() {
+        // entry -> d1 -> h -> d2 -> h, h -> exit
+        // d1 と d2 は同じ変数の定義（値 0 と 1）. 値 70 はワード境界をまたぐ確認用
+        DirectedGraph<String> g = graph("entry->d1", "d1->h", "h->d2", "d2->h", "h->exit");
+        TestProblem p = new TestProblem(71);
+        p.init.set(70);
+        p.set("d1", new int[] {0}, new int[] {0, 1, 70});
+        p.set("d2", new int[] {1}, new int[] {0, 1, 70});
+
+        BitVectorSolver.Result<String> result = new BitVectorSolver<String>(g, "entry", p).solve();
+
+        assertEquals(bits(70), result.getEntry("entry"));
+        assertEquals(bits(0), result.getExit("d1"));
+        assertEquals(bits(0, 1), result.getEntry("h"));
+        assertEquals(bits(1), result.getExit("d2"));
+        assertEquals(bits(0, 1), result.getEntry("exit"));
+    }
+
+    @Test
+    public void unreachableVertexGetsGenOnly() {
+        DirectedGraph<String> g = graph("entry->a", "dead->a");
+        TestProblem p = new TestProblem(4);
+        p.set("dead", new int[] {3}, new int[] {});
+
+        BitVectorSolver.Result<String> result = new BitVectorSolver<String>(g, "entry", p).solve();
+
+        assertTrue(result.getEntry("dead").isEmpty());
+        assertEquals(bits(3), result.getExit("dead"));
+        assertFalse(result.getEntry("a").get(3));
+    }
+
+    @Test
+    public void backwardLivenessWithLoopAndSink() {
+        // entry -> def -> h -> use -> h, h -> exit, def -> ret（後続なし）
+        // 変数 0 は def で書き込まれ use で読み出される. 変数 1 は出口で生きている
+        DirectedGraph<String> g = graph("entry->def", "def->h", "h->use", "use->h", "h->exit", "def->ret");
+        TestProblem p = new TestProblem(2);
+        p.init.set(1);
+        p.set("def", new int[] {}, new int[] {0});
+        p.set("use", new int[] {0}, new int[] {});
+
+        BitVectorSolver.Result<String> result = new BitVectorSolver<String>(
+                g, "exit", p, BitVectorSolver.Direction.BACKWARD).solve();
+
+        assertEquals(bits(0, 1), result.getEntry("h"));
+        assertEquals(bits(0, 1), result.getExit("use"));
+        assertEquals(bits(1), result.getEntry("def"));
+        assertEquals(bits(1), result.getEntry("ret"));
+        assertEquals(bits(1), result.getEntry("entry"));
+    }
+}
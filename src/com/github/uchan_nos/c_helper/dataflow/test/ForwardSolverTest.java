@@ -0,0 +1,91 @@
+package com.github.uchan_nos.c_helper.dataflow.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.DirectedGraph;
+import com.github.uchan_nos.c_helper.dataflow.ForwardSolver;
+import com.github.uchan_nos.c_helper.dataflow.Solver;
+
+public class ForwardSolverTest {
+    /**
+     * 各頂点で自身の名前を集合に加える解析. 入口値は通過した頂点の集合となる.
+     */
+    private static class PathSolver extends ForwardSolver<String, String> {
+        public int numTransfer = 0;
+
+        public PathSolver(DirectedGraph<String> g, String entry) {
+            super(g, entry);
+        }
+
+        @Override
+        protected Set<String> getInitValue() {
+            return new HashSet<String>();
+        }
+
+        @Override
+        protected Set<String> createDefaultSet() {
+            return new HashSet<String>();
+        }
+
+        @Override
+        protected boolean transfer(String v, Set<String> entry, Set<String> result) {
+            numTransfer++;
+            boolean modified = result.addAll(entry);
+            modified |= result.add(v);
+            return modified;
+        }
+
+        @Override
+        protected boolean join(Set<String> result, Set<String> set) {
+            return result.addAll(set);
+        }
+
+        @Override
+        protected Set<String> clone(Set<String> set) {
+            return new HashSet<String>(set);
+        }
+    }
+
+    private static DirectedGraph<String> graph(String... edges) {
+        DirectedGraph<String> g = new DirectedGraph<String>();
+        for (String edge : edges) {
+            String[] fromTo = edge.split("->");
+            g.add(fromTo[0]);
+            g.add(fromTo[1]);
+            g.connect(fromTo[0], fromTo[1]);
+        }
+        return g;
+    }
+
+    @Test
+    public void loopReachesFixpoint() {
+        // entry -> h -> b -> h, h -> exit
+        DirectedGraph<String> g = graph("entry->h", "h->b", "b->h", "h->exit");
+        PathSolver solver = new PathSolver(g, "entry");
+        Solver.Result<String, String> result = solver.solve();
+
+        Set<String> hEntry = result.analysisValue.get("h").entry();
+        assertTrue(hEntry.contains("entry"));
+        assertTrue(hEntry.contains("b"));
+        assertTrue(hEntry.contains("h"));
+        assertEquals(4, result.analysisValue.get("exit").exit().size());
+        // 逆後順で処理するので、ループを2周すれば収束する
+        assertTrue(solver.numTransfer <= 7);
+    }
+
+    @Test
+    public void unreachableVertexIsNotVisited() {
+        DirectedGraph<String> g = graph("entry->a", "dead->a");
+        PathSolver solver = new PathSolver(g, "entry");
+        Solver.Result<String, String> result = solver.solve();
+
+        assertTrue(result.analysisValue.get("dead").exit().isEmpty());
+        assertFalse(result.analysisValue.get("a").entry().contains("dead"));
+        assertEquals(2, solver.numTransfer);
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.uchan_nos.c_helper.dataflow.test;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.DirectedGraph;
+import com.github.uchan_nos.c_helper.analysis.values.Interval;
+import com.github.uchan_nos.c_helper.dataflow.WideningProblem;
+import com.github.uchan_nos.c_helper.dataflow.WideningSolver;
+
+public class WideningSolverTest {
+    /**
+     * 変数を1つだけ持つプログラム
+     * <pre>
+     * i = init;
+     * while (i < bound) i++;
+     * </pre>
+     * の値域を求める問題.
+     */
+    private static class LoopProblem implements WideningProblem<String, Interval> {
+        private final long init;
+        private final long bound;
+
+        public LoopProblem(long init, long bound) {
+            this.init = init;
+            this.bound = bound;
+        }
+
+        @Override
+        public Interval initialValue() {
+            return Interval.TOP;
+        }
+
+        @Override
+        public Interval transfer(String v, Interval entry) {
+            if (v.equals("entry")) {
+                return Interval.of(init, init);
+            } else if (v.equals("body")) {
+                return entry.add(Interval.of(1, 1));
+            }
+            return entry;
+        }
+
+        @Override
+        public Interval transferEdge(String from, String to, Interval exit) {
+            Interval result = exit;
+            if (from.equals("head") && to.equals("body")) {
+                result = exit.meet(Interval.of(null, BigInteger.valueOf(bound - 1)));
+            } else if (from.equals("head") && to.equals("exit")) {
+                result = exit.meet(Interval.of(BigInteger.valueOf(bound), null));
+            }
+            return result.isEmpty() ? null : result;
+        }
+
+        @Override
+        public Interval join(Interval a, Interval b) {
+            return a.join(b);
+        }
+
+        @Override
+        public Interval widen(Interval previous, Interval next) {
+            return previous.widen(next);
+        }
+
+        @Override
+        public Interval narrow(Interval previous, Interval next) {
+            return previous.narrow(next);
+        }
+
+        @Override
+        public boolean isSame(Interval a, Interval b) {
+            return a.equals(b);
+        }
+    }
+
+    private static DirectedGraph<String> loop() {
+        DirectedGraph<String> g = new DirectedGraph<String>();
+        for (String v : new String[] {"entry", "head", "body", "exit"}) {
+            g.add(v);
+        }
+        g.connect("entry", "head");
+        g.connect("head", "body");
+        g.connect("body", "head");
+        g.connect("head", "exit");
+        return g;
+    }
+
+    @Test
+    public void testLoopBound() {
+        WideningSolver.Result<String, Interval> result = new WideningSolver<String, Interval>(
+                loop(), "entry", new LoopProblem(0, 10), null).solve();
+
+        assertTrue(result.isWideningPoint("head"));
+        assertFalse(result.isWideningPoint("body"));
+        // 拡大で [0, +inf] となった後、縮小で上限が回復する
+        assertEquals(Interval.of(0, 10), result.getEntry("head"));
+        assertEquals(Interval.of(0, 9), result.getEntry("body"));
+        assertEquals(Interval.of(10, 10), result.getEntry("exit"));
+    }
+
+    @Test
+    public void testInfeasibleEdge() {
+        // ループ本体は一度も実行されない
+        WideningSolver.Result<String, Interval> result = new WideningSolver<String, Interval>(
+                loop(), "entry", new LoopProblem(20, 10), null).solve();
+
+        assertEquals(Interval.of(20, 20), result.getEntry("head"));
+        assertNull(result.getEntry("body"));
+        assertEquals(Interval.of(20, 20), result.getEntry("exit"));
+    }
+}
@@ -1,50 +1,146 @@
 package com.github.uchan_nos.c_helper.pointer;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.cdt.core.dom.ast.*;
 
 import com.github.uchan_nos.c_helper.util.ASTFilter;
+import com.github.uchan_nos.c_helper.util.AllASTVisitor;
 import com.github.uchan_nos.c_helper.util.Util;
 
 public class ASTPathFinder {
+    /**
+     * 関数呼び出しや代入式を含み得るノードでのみ true となる枝刈りの述語.
+     * 名前、リテラル、型の指定などの子は辿らない.
+     */
+    public static final ASTFilter.Predicate MAY_CONTAIN_CALL = new ASTFilter.Predicate() {
+        @Override public boolean pass(IASTNode node) {
+            return !(node instanceof IASTName
+                    || node instanceof IASTIdExpression
+                    || node instanceof IASTLiteralExpression
+                    || node instanceof IASTTypeIdExpression
+                    || node instanceof IASTTypeId
+                    || node instanceof IASTDeclSpecifier
+                    || node instanceof IASTPointerOperator
+                    || node instanceof IASTProblem);
+        }
+    };
+
     public static List<List<IASTNode>> findPath(IASTNode ast, ASTFilter.Predicate pred) {
-        final Finder finder = new Finder(pred);
-        finder.find(ast);
-        return finder.path();
+        return findPaths(ast, new ASTFilter.Predicate[] {pred}, null).get(pred);
     }
 
-    private static class Finder {
-        // この述語がtrueになるパスを探す
-        private ASTFilter.Predicate pred;
+    /**
+     * 1回の走査で複数の述語それぞれについて、述語が true となるノードへのパスを探す.
+     * 各パスは ast から始まり、述語が true となるノードで終わる.
+     * パスは途中までの部分を互いに共有するので、変更してはならない.
+     * @param ast 探索する AST
+     * @param preds 述語
+     * @param descend 子を辿るノードで true となる述語. null ならすべてのノードの子を辿る
+     * @return 述語から、その述語が true となるノードへのパスのリストへの写像
+     */
+    public static Map<ASTFilter.Predicate, List<List<IASTNode>>> findPaths(IASTNode ast,
+            ASTFilter.Predicate[] preds, ASTFilter.Predicate descend) {
+        final Finder finder = new Finder(preds, descend);
+        ast.accept(finder);
 
-        public Finder(ASTFilter.Predicate pred) {
-            this.pred = pred;
+        Map<ASTFilter.Predicate, List<List<IASTNode>>> result =
+            new LinkedHashMap<ASTFilter.Predicate, List<List<IASTNode>>>();
+        for (int i = 0; i < preds.length; ++i) {
+            result.put(preds[i], finder.paths[i]);
         }
+        return result;
+    }
 
-        // 辿ったノードを順に記録する.
-        private ArrayList<IASTNode> currentPath = new ArrayList<IASTNode>();
+    /**
+     * 親のパスを共有する、根からノードまでのパス.
+     * 要素を参照したときに初めて配列に展開する.
+     */
+    private static class Path extends AbstractList<IASTNode> {
+        private final IASTNode node;
+        private final Path parent;
+        private final int size;
+        private IASTNode[] elements = null;
+
+        public Path(IASTNode node, Path parent) {
+            this.node = node;
+            this.parent = parent;
+            this.size = parent == null ? 1 : parent.size + 1;
+        }
 
-        // malloc にたどり着くパスの一覧.
-        private ArrayList<List<IASTNode>> path = new ArrayList<List<IASTNode>>();
+        @Override
+        public IASTNode get(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            if (this.elements == null) {
+                IASTNode[] e = new IASTNode[this.size];
+                Path p = this;
+                for (int i = this.size - 1; i >= 0; --i) {
+                    e[i] = p.node;
+                    p = p.parent;
+                }
+                this.elements = e;
+            }
+            return this.elements[index];
+        }
 
-        public List<List<IASTNode>> path() {
-            return path;
+        @Override
+        public int size() {
+            return this.size;
         }
+    }
+
+    private static class Finder extends AllASTVisitor {
+        // これらの述語がtrueになるパスを探す
+        private final ASTFilter.Predicate[] preds;
+        private final ASTFilter.Predicate descend;
+
+        // 根から現在のノードまでのパス
+        private Path currentPath = null;
 
-        public void find(IASTNode ast) {
-            this.currentPath.add(ast);
+        // 述語ごとの、述語を満たすノードへのパスの一覧.
+        private final List<List<IASTNode>>[] paths;
 
-            if (pred.pass(ast)) {
-                this.path.add(new ArrayList<IASTNode>(this.currentPath));
+        @SuppressWarnings("unchecked")
+        public Finder(ASTFilter.Predicate[] preds, ASTFilter.Predicate descend) {
+            super(true);
+            this.preds = preds;
+            this.descend = descend;
+            this.paths = new List[preds.length];
+            for (int i = 0; i < preds.length; ++i) {
+                this.paths[i] = new ArrayList<List<IASTNode>>();
             }
+        }
 
-            for (IASTNode c : ast.getChildren()) {
-                find(c);
+        @Override
+        protected void visitAny(IASTNode node) {
+            Path path = new Path(node, this.currentPath);
+            for (int i = 0; i < this.preds.length; ++i) {
+                if (this.preds[i].pass(node)) {
+                    this.paths[i].add(path);
+                }
             }
+            this.currentPath = path;
+        }
+
+        @Override
+        protected boolean shouldVisitChildren(IASTNode node) {
+            if (this.descend == null || this.descend.pass(node)) {
+                return true;
+            }
+            // 子を辿らないノードでは leaveAny が呼ばれないので、ここでパスから外す
+            this.currentPath = this.currentPath.parent;
+            return false;
+        }
 
-            this.currentPath.remove(this.currentPath.size() - 1);
+        @Override
+        protected void leaveAny(IASTNode node) {
+            this.currentPath = this.currentPath.parent;
         }
     }
 
@@ -0,0 +1,86 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * ポインタが指し得る先となる抽象的な記憶域. 変数、割り当て地点ごとのヒープ領域、関数のいずれかである.
+ * 構造体のメンバや配列の要素は区別せず、それを含む記憶域全体として扱う.
+ *
+ * 1つの解析で記憶域は1つずつしか作らないので、同一性で比較する.
+ *
+ * @author uchan
+ *
+ */
+public final class AbstractLocation {
+    public enum Kind {
+        /** 変数（大域変数、局所変数、仮引数） */
+        VARIABLE,
+        /** malloc などの呼び出し地点ごとのヒープ領域 */
+        HEAP,
+        /** 関数. 関数ポインタの指す先 */
+        FUNCTION
+    }
+
+    private final Kind kind;
+    private final IVariable variable;
+    private final IASTFunctionCallExpression allocationSite;
+    private final String functionName;
+
+    private AbstractLocation(Kind kind, IVariable variable,
+            IASTFunctionCallExpression allocationSite, String functionName) {
+        this.kind = kind;
+        this.variable = variable;
+        this.allocationSite = allocationSite;
+        this.functionName = functionName;
+    }
+
+    static AbstractLocation variable(IVariable variable) {
+        return new AbstractLocation(Kind.VARIABLE, variable, null, null);
+    }
+
+    static AbstractLocation heap(IASTFunctionCallExpression allocationSite) {
+        return new AbstractLocation(Kind.HEAP, null, allocationSite, null);
+    }
+
+    static AbstractLocation function(String name) {
+        return new AbstractLocation(Kind.FUNCTION, null, null, name);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * 変数を表すなら、その変数を返す. そうでなければ null を返す.
+     */
+    public IVariable variable() {
+        return variable;
+    }
+
+    /**
+     * ヒープ領域を表すなら、それを割り当てる関数呼び出し式を返す. そうでなければ null を返す.
+     */
+    public IASTFunctionCallExpression allocationSite() {
+        return allocationSite;
+    }
+
+    /**
+     * 関数を表すなら、その名前を返す. そうでなければ null を返す.
+     */
+    public String functionName() {
+        return functionName;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+        case VARIABLE:
+            return "LOC(" + variable.getName() + ")";
+        case HEAP:
+            return "LOC(heap@" + allocationSite.getFileLocation().getStartingLineNumber() + ")";
+        default:
+            return "LOC(" + functionName + "())";
+        }
+    }
+}
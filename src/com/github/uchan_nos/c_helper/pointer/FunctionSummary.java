@@ -0,0 +1,223 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTParameterDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTStandardFunctionDeclarator;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+import com.github.uchan_nos.c_helper.dataflow.EntryExitPair;
+import com.github.uchan_nos.c_helper.dataflow.Solver;
+import com.github.uchan_nos.c_helper.util.TypeUtil;
+
+/**
+ * 関数呼び出しがヒープ領域に与える影響の要約.
+ * 呼び出し側のポインタ解析で、関数本体を解析し直さずに呼び出しの効果を反映するために用いる.
+ *
+ * 要約は次の3つからなる.
+ * <ul>
+ * <li>関数内で割り当てた領域を戻り値として返し得るか（所有権が呼び出し元に移る）</li>
+ * <li>戻り値が NULL になり得るか</li>
+ * <li>どの経路でも解放される仮引数の番号</li>
+ * </ul>
+ *
+ * @author uchan
+ *
+ */
+public final class FunctionSummary {
+    /**
+     * ヒープ領域に影響しない関数の要約.
+     */
+    public static final FunctionSummary NO_EFFECT = new FunctionSummary(false, false, new int[0]);
+
+    private final boolean returnsAllocation;
+    private final boolean mayReturnNull;
+    private final int[] freedParameters;
+
+    /**
+     * @param returnsAllocation 関数内で割り当てた領域を返し得るなら true
+     * @param mayReturnNull 戻り値が NULL になり得るなら true
+     * @param freedParameters どの経路でも解放される仮引数の番号
+     */
+    public FunctionSummary(boolean returnsAllocation, boolean mayReturnNull, int[] freedParameters) {
+        this.returnsAllocation = returnsAllocation;
+        this.mayReturnNull = mayReturnNull;
+        this.freedParameters = freedParameters.clone();
+        Arrays.sort(this.freedParameters);
+    }
+
+    /**
+     * 関数内で割り当てた領域を返し得るかを返す.
+     */
+    public boolean returnsAllocation() {
+        return returnsAllocation;
+    }
+
+    /**
+     * 戻り値が NULL になり得るかを返す.
+     */
+    public boolean mayReturnNull() {
+        return mayReturnNull;
+    }
+
+    /**
+     * どの経路でも解放される仮引数の番号を昇順に返す.
+     */
+    public int[] freedParameters() {
+        return freedParameters.clone();
+    }
+
+    /**
+     * 呼び出し側のメモリ状態に影響するかを返す.
+     */
+    public boolean hasEffect() {
+        return returnsAllocation || freedParameters.length > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FunctionSummary)) {
+            return false;
+        }
+        FunctionSummary s = (FunctionSummary) o;
+        return this.returnsAllocation == s.returnsAllocation
+            && this.mayReturnNull == s.mayReturnNull
+            && Arrays.equals(this.freedParameters, s.freedParameters);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result = 31 * result + (returnsAllocation ? 1 : 0);
+        result = 31 * result + (mayReturnNull ? 1 : 0);
+        result = 31 * result + Arrays.hashCode(freedParameters);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FunctionSummary(returnsAllocation=" + returnsAllocation
+            + ",mayReturnNull=" + mayReturnNull
+            + ",freedParameters=" + Arrays.toString(freedParameters) + ")";
+    }
+
+    /**
+     * 関数定義の仮引数を宣言順に返す. 変数に解決できない仮引数は null となる.
+     */
+    public static IVariable[] parametersOf(IASTFunctionDefinition function) {
+        List<IVariable> params = new ArrayList<IVariable>();
+        if (function != null && function.getDeclarator() instanceof IASTStandardFunctionDeclarator) {
+            for (IASTParameterDeclaration param :
+                    ((IASTStandardFunctionDeclarator) function.getDeclarator()).getParameters()) {
+                IBinding binding = param.getDeclarator().getName().resolveBinding();
+                params.add(binding instanceof IVariable ? (IVariable) binding : null);
+            }
+        }
+        return params.toArray(new IVariable[params.size()]);
+    }
+
+    /**
+     * 変数がポインタ型かを返す.
+     */
+    static boolean isPointer(IVariable var) {
+        return var != null
+            && TypeUtil.getPointerToType(TypeUtil.resolveOuterTypedef(var.getType())) != null;
+    }
+
+    /**
+     * 関数のポインタ解析の結果から要約を作る.
+     * 解析は {@link PointToSolver} に仮引数を与えて行ったものでなければならない.
+     * @param cfg 関数の制御フローグラフ
+     * @param parameters 解析に与えた仮引数
+     * @param result ポインタ解析の結果
+     * @param summaries 呼び出す関数の要約. return f(..) の形の戻り値に用いる
+     */
+    public static FunctionSummary summarize(CFG cfg, IVariable[] parameters,
+            Solver.Result<CFG.Vertex, MemoryStatus> result,
+            Map<String, FunctionSummary> summaries) {
+        boolean returnsAllocation = false;
+        boolean mayReturnNull = false;
+
+        for (CFG.Vertex v : cfg.getVertices()) {
+            if (!(v.getASTNode() instanceof IASTReturnStatement)) {
+                continue;
+            }
+            IASTExpression value = ((IASTReturnStatement) v.getASTNode()).getReturnValue();
+            EntryExitPair<MemoryStatus> statuses = result.analysisValue.get(v);
+
+            if (value instanceof IASTFunctionCallExpression) {
+                // return malloc(..) や return f(..) の形
+                String callee = CallGraph.getCalleeName((IASTFunctionCallExpression) value);
+                FunctionSummary s = summaries.get(callee);
+                if ("malloc".equals(callee) || "calloc".equals(callee) || "realloc".equals(callee)) {
+                    returnsAllocation = true;
+                    mayReturnNull = true;
+                } else if (s != null && s.returnsAllocation) {
+                    returnsAllocation = true;
+                    mayReturnNull |= s.mayReturnNull;
+                }
+            } else if (value instanceof IASTIdExpression && statuses != null) {
+                IBinding binding = ((IASTIdExpression) value).getName().resolveBinding();
+                if (!(binding instanceof IVariable)) {
+                    continue;
+                }
+                for (MemoryStatus s : statuses.entry()) {
+                    Variable var = s.variableManager().get((IVariable) binding);
+                    if (var == null) {
+                        continue;
+                    }
+                    mayReturnNull |= var.mayStatuses().contains(Variable.States.NULL);
+                    for (Address a : var.mayValues()) {
+                        if (a instanceof HeapAddress) {
+                            MemoryBlock b = s.memoryManager().find(((HeapAddress) a).memoryBlockId());
+                            if (b != null && b.mayAllocated() && b.parameterIndex() < 0) {
+                                returnsAllocation = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return new FunctionSummary(returnsAllocation, mayReturnNull,
+                freedParameters(parameters, result.analysisValue.get(cfg.exitVertex())));
+    }
+
+    // 関数の出口のすべての状態で、確実に解放済みである仮引数の領域を求める
+    private static int[] freedParameters(IVariable[] parameters, EntryExitPair<MemoryStatus> exit) {
+        if (exit == null || exit.entry().isEmpty()) {
+            return new int[0];
+        }
+
+        // 出口の状態に無い仮引数の領域は、解放されて誰からも参照されなくなったもの
+        boolean[] mayAllocated = new boolean[parameters.length];
+        for (MemoryStatus s : exit.entry()) {
+            for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
+                int i = b.parameterIndex();
+                if (i >= 0 && i < parameters.length) {
+                    mayAllocated[i] |= b.mayAllocated();
+                }
+            }
+        }
+
+        int[] freed = new int[parameters.length];
+        int n = 0;
+        for (int i = 0; i < parameters.length; ++i) {
+            if (isPointer(parameters[i]) && !mayAllocated[i]) {
+                freed[n++] = i;
+            }
+        }
+        return Arrays.copyOf(freed, n);
+    }
+}
@@ -0,0 +1,449 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 包含制約（Andersen の方式）を解き、各節点が指し得る節点の集合を求める.
+ * 節点は変数や割り当て地点などの抽象的な記憶域で、{@link #addNode()} が振る 0 からの番号で表す.
+ *
+ * 制約は次の4種類である.
+ * <ul>
+ * <li>{@link #addressOf(int, int)} a = &amp;b : pts(a) ⊇ {b}</li>
+ * <li>{@link #copy(int, int)} a = b : pts(a) ⊇ pts(b)</li>
+ * <li>{@link #load(int, int)} a = *b : pts(b) の各 v について pts(a) ⊇ pts(v)</li>
+ * <li>{@link #store(int, int)} *a = b : pts(a) の各 v について pts(v) ⊇ pts(b)</li>
+ * </ul>
+ *
+ * 指し得る先の集合はビット集合で表し、差分伝播のワークリストで解く.
+ * 各節点は既に後続へ伝えた集合を覚えておき、増えた分だけを伝える.
+ * また辺の先に伝える前から両端の集合が等しいなら閉路を疑って探し（遅延閉路検出）、
+ * 見つかった閉路上の節点を union-find で1つの代表節点にまとめる.
+ *
+ * @author uchan
+ *
+ */
+public class InclusionConstraintSolver {
+    private int numNodes = 0;
+    private int[] parent = new int[16];
+    private BitSet[] pointsTo = new BitSet[16];
+    // 既に後続へ伝えた集合
+    private BitSet[] propagated = new BitSet[16];
+    // copy 制約の辺. successors[b] に a があれば pts(a) ⊇ pts(b)
+    private BitSet[] successors = new BitSet[16];
+    // loads[b] に a があれば a = *b
+    private IntList[] loads = new IntList[16];
+    // stores[a] に b があれば *a = b
+    private IntList[] stores = new IntList[16];
+
+    private final Deque<Integer> worklist = new ArrayDeque<Integer>();
+    private boolean[] queued = new boolean[16];
+    // 閉路検出を試みた辺
+    private final Set<Long> checkedEdges = new HashSet<Long>();
+    private boolean solved = false;
+
+    private static final BitSet EMPTY = new BitSet(0);
+
+    /**
+     * 新たな節点を追加し、その番号を返す.
+     */
+    public int addNode() {
+        if (numNodes == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            pointsTo = Arrays.copyOf(pointsTo, capacity);
+            propagated = Arrays.copyOf(propagated, capacity);
+            successors = Arrays.copyOf(successors, capacity);
+            loads = Arrays.copyOf(loads, capacity);
+            stores = Arrays.copyOf(stores, capacity);
+            queued = Arrays.copyOf(queued, capacity);
+        }
+        parent[numNodes] = numNodes;
+        return numNodes++;
+    }
+
+    /**
+     * 節点の数を返す.
+     */
+    public int size() {
+        return numNodes;
+    }
+
+    /**
+     * 制約 a = &amp;b を追加する.
+     */
+    public void addressOf(int a, int b) {
+        checkNodes(a, b);
+        a = find(a);
+        if (pointsToOf(a).get(b)) {
+            return;
+        }
+        pointsToOf(a).set(b);
+        if (solved) {
+            enqueue(a);
+        }
+    }
+
+    /**
+     * 制約 a = b を追加する.
+     */
+    public void copy(int a, int b) {
+        checkNodes(a, b);
+        addEdge(find(b), find(a));
+    }
+
+    /**
+     * 制約 a = *b を追加する.
+     */
+    public void load(int a, int b) {
+        checkNodes(a, b);
+        b = find(b);
+        listOf(loads, b).add(a);
+        if (solved) {
+            forEach(pointsToOf(b), a, true);
+        }
+    }
+
+    /**
+     * 制約 *a = b を追加する.
+     */
+    public void store(int a, int b) {
+        checkNodes(a, b);
+        a = find(a);
+        listOf(stores, a).add(b);
+        if (solved) {
+            forEach(pointsToOf(a), b, false);
+        }
+    }
+
+    /**
+     * 制約を解く. 解いた後に制約を追加したら、再び呼び出せば差分だけを解く.
+     * 解いた後、次に制約を追加するまでの問い合わせは状態を変更しないので、複数のスレッドから行ってよい.
+     */
+    public void solve() {
+        if (!solved) {
+            for (int n = 0; n < numNodes; ++n) {
+                if (parent[n] == n && pointsTo[n] != null && !pointsTo[n].isEmpty()) {
+                    enqueue(n);
+                }
+            }
+            solved = true;
+        }
+
+        List<long[]> candidates = new ArrayList<long[]>();
+        while (!worklist.isEmpty()) {
+            int n = worklist.poll();
+            queued[n] = false;
+            if (parent[n] != n) {
+                continue;
+            }
+
+            BitSet delta = (BitSet) pointsToOf(n).clone();
+            delta.andNot(propagatedOf(n));
+            if (delta.isEmpty()) {
+                continue;
+            }
+            propagatedOf(n).or(delta);
+
+            // 新たに指し得るようになった節点について、load と store を辺に置き換える
+            IntList ls = loads[n];
+            IntList ss = stores[n];
+            if (ls != null || ss != null) {
+                for (int v = delta.nextSetBit(0); v >= 0; v = delta.nextSetBit(v + 1)) {
+                    for (int i = 0; ls != null && i < ls.size(); ++i) {
+                        addEdge(find(v), find(ls.get(i)));
+                    }
+                    for (int i = 0; ss != null && i < ss.size(); ++i) {
+                        addEdge(find(ss.get(i)), find(v));
+                    }
+                }
+            }
+
+            BitSet succ = successors[n];
+            if (succ == null) {
+                continue;
+            }
+            for (int s = succ.nextSetBit(0); s >= 0; s = succ.nextSetBit(s + 1)) {
+                int t = find(s);
+                if (t == n) {
+                    continue;
+                }
+                BitSet target = pointsToOf(t);
+                int before = target.cardinality();
+                target.or(delta);
+                if (target.cardinality() != before) {
+                    enqueue(t);
+                } else if (target.equals(pointsTo[n]) && checkedEdges.add(edgeKey(n, t))) {
+                    // 伝える前から両端が等しいなら、閉路を一周して戻ってきたのかもしれない
+                    candidates.add(new long[] { n, t });
+                }
+            }
+
+            // 辺を走査し終えてから閉路をまとめる
+            for (long[] c : candidates) {
+                int from = find((int) c[0]);
+                int to = find((int) c[1]);
+                if (from != to) {
+                    collapseCycles(to);
+                }
+            }
+            candidates.clear();
+        }
+
+        // 経路を圧縮しておき、問い合わせで parent を書き換えないようにする
+        for (int n = 0; n < numNodes; ++n) {
+            find(n);
+        }
+    }
+
+    /**
+     * 節点 a が指し得る節点の集合を返す. 返される集合を変更してはならない.
+     * 閉路をまとめた節点の集合は共有される.
+     */
+    public BitSet pointsTo(int a) {
+        checkNodes(a, a);
+        BitSet pts = pointsTo[find(a)];
+        return pts == null ? EMPTY : pts;
+    }
+
+    /**
+     * 節点 a が節点 b を指し得るかを返す.
+     */
+    public boolean mayPointTo(int a, int b) {
+        return pointsTo(a).get(b);
+    }
+
+    /**
+     * 節点 a と b が同じ節点を指し得るかを返す.
+     */
+    public boolean mayAlias(int a, int b) {
+        return pointsTo(a).intersects(pointsTo(b));
+    }
+
+    /**
+     * 2つの節点が閉路としてまとめられているかを返す.
+     */
+    public boolean isMerged(int a, int b) {
+        checkNodes(a, b);
+        return find(a) == find(b);
+    }
+
+    private void checkNodes(int a, int b) {
+        if (a < 0 || a >= numNodes || b < 0 || b >= numNodes) {
+            throw new IllegalArgumentException("unknown node: " + a + ", " + b);
+        }
+    }
+
+    // pts(v) の各 v について、辺 v -> other (load) または other -> v (store) を張る
+    private void forEach(BitSet pts, int other, boolean load) {
+        for (int v = pts.nextSetBit(0); v >= 0; v = pts.nextSetBit(v + 1)) {
+            if (load) {
+                addEdge(find(v), find(other));
+            } else {
+                addEdge(find(other), find(v));
+            }
+        }
+    }
+
+    // 辺 src -> dst を張り、src が既に指し得る集合をすべて dst に伝える
+    private void addEdge(int src, int dst) {
+        if (src == dst) {
+            return;
+        }
+        BitSet succ = successors[src];
+        if (succ == null) {
+            succ = successors[src] = new BitSet();
+        } else if (succ.get(dst)) {
+            return;
+        }
+        succ.set(dst);
+
+        BitSet pts = pointsTo[src];
+        if (pts != null && !pts.isEmpty()) {
+            BitSet target = pointsToOf(dst);
+            int before = target.cardinality();
+            target.or(pts);
+            if (target.cardinality() != before) {
+                enqueue(dst);
+            }
+        }
+    }
+
+    private void enqueue(int n) {
+        if (!queued[n]) {
+            queued[n] = true;
+            worklist.add(n);
+        }
+    }
+
+    private int find(int n) {
+        int root = n;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[n] != root) {
+            int next = parent[n];
+            parent[n] = root;
+            n = next;
+        }
+        return root;
+    }
+
+    private static long edgeKey(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private BitSet pointsToOf(int n) {
+        if (pointsTo[n] == null) {
+            pointsTo[n] = new BitSet();
+        }
+        return pointsTo[n];
+    }
+
+    private BitSet propagatedOf(int n) {
+        if (propagated[n] == null) {
+            propagated[n] = new BitSet();
+        }
+        return propagated[n];
+    }
+
+    private static IntList listOf(IntList[] lists, int n) {
+        if (lists[n] == null) {
+            lists[n] = new IntList();
+        }
+        return lists[n];
+    }
+
+    // start から辿れる強連結成分を Tarjan のアルゴリズムで求め、節点が2つ以上の成分をまとめる.
+    // 長い代入の連鎖でスタックがあふれないよう、再帰を使わずに辿る
+    private void collapseCycles(int start) {
+        Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+        Map<Integer, Integer> lowlink = new HashMap<Integer, Integer>();
+        IntList stack = new IntList();
+        Set<Integer> onStack = new HashSet<Integer>();
+        // 各要素は {節点, 次に調べる後続の番号}
+        Deque<int[]> frames = new ArrayDeque<int[]>();
+        List<IntList> components = new ArrayList<IntList>();
+
+        index.put(start, 0);
+        lowlink.put(start, 0);
+        stack.add(start);
+        onStack.add(start);
+        frames.push(new int[] { start, 0 });
+
+        while (!frames.isEmpty()) {
+            int[] frame = frames.peek();
+            int v = frame[0];
+            BitSet succ = successors[v];
+            int w = succ == null ? -1 : succ.nextSetBit(frame[1]);
+            if (w >= 0) {
+                frame[1] = w + 1;
+                int u = find(w);
+                if (u == v) {
+                    continue;
+                }
+                if (!index.containsKey(u)) {
+                    index.put(u, index.size());
+                    lowlink.put(u, index.get(u));
+                    stack.add(u);
+                    onStack.add(u);
+                    frames.push(new int[] { u, 0 });
+                } else if (onStack.contains(u)) {
+                    lowlink.put(v, Math.min(lowlink.get(v), index.get(u)));
+                }
+                continue;
+            }
+
+            frames.pop();
+            if (!frames.isEmpty()) {
+                int p = frames.peek()[0];
+                lowlink.put(p, Math.min(lowlink.get(p), lowlink.get(v)));
+            }
+            if (lowlink.get(v).equals(index.get(v))) {
+                IntList component = new IntList();
+                int u;
+                do {
+                    u = stack.removeLast();
+                    onStack.remove(u);
+                    component.add(u);
+                } while (u != v);
+                if (component.size() > 1) {
+                    components.add(component);
+                }
+            }
+        }
+
+        for (IntList component : components) {
+            int root = component.get(0);
+            for (int i = 1; i < component.size(); ++i) {
+                merge(root, component.get(i));
+            }
+            enqueue(root);
+        }
+    }
+
+    // 代表節点 b を a にまとめる
+    private void merge(int a, int b) {
+        parent[b] = a;
+        pointsToOf(a).or(pointsToOf(b));
+        // 両方で伝え済みの要素だけが、まとめた後のすべての後続に伝わっている
+        propagatedOf(a).and(propagatedOf(b));
+        if (successors[b] != null) {
+            if (successors[a] == null) {
+                successors[a] = successors[b];
+            } else {
+                successors[a].or(successors[b]);
+            }
+        }
+        if (loads[b] != null) {
+            listOf(loads, a).addAll(loads[b]);
+        }
+        if (stores[b] != null) {
+            listOf(stores, a).addAll(stores[b]);
+        }
+        pointsTo[b] = null;
+        propagated[b] = null;
+        successors[b] = null;
+        loads[b] = null;
+        stores[b] = null;
+    }
+
+    // int の可変長配列
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList o) {
+            for (int i = 0; i < o.size; ++i) {
+                add(o.values[i]);
+            }
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
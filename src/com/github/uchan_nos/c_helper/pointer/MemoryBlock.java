@@ -1,29 +1,73 @@
 package com.github.uchan_nos.c_helper.pointer;
 
 /**
- * ヒープ領域にある1つのメモリブロックを表す.
+ * ヒープ領域にある1つのメモリブロックを表す不変オブジェクト.
+ * 状態の変更は {@link MemoryManager} を通じて行い、変更後のブロックは新たなインスタンスとなる.
+ *
+ * 要約された状態では、割り当て済みかどうかと参照カウントが1つに定まらない.
+ * そのため「必ず割り当て済み」「割り当て済みかもしれない」と、参照カウントの下限・上限を持つ.
+ * 要約されていないブロックでは両者は一致する.
+ *
+ * malloc などの呼び出し地点（割り当て地点）ごとに、最後に割り当てたブロックと、
+ * それより前に割り当てたブロックすべてを表す複数ブロックを1つずつ持つ.
+ * 複数ブロックの参照カウントは、それが表すブロックへの参照の合計である.
+ * 「割り当て済み」は表すブロックすべてが割り当て済みであることを意味する.
+ *
+ * 仮引数が指す呼び出し元の領域も、負の割り当て地点番号を持つブロックとして表す
+ * （{@link #parameterSite(int)}）.
  */
-public class MemoryBlock {
-    private int id;
-    private boolean allocated;
-    private int refCount;
+public final class MemoryBlock {
+    private final int id;
+    private final int site;
+    private final boolean multiple;
+    private final boolean allocated;
+    private final boolean mayAllocated;
+    private final int refCount;
+    private final int mayRefCount;
+    private final int hash;
 
     /**
      * 新たなメモリブロックを生成する.
      */
     public MemoryBlock(int id, boolean allocated, int refCount) {
-        this.id = id;
-        this.allocated = allocated;
-        this.refCount = refCount;
+        this(id, allocated, allocated, refCount, refCount);
     }
 
     /**
-     * 指定されたメモリブロックのコピーを生成する.
+     * 要約されたメモリブロックを生成する.
+     * @param allocated 必ず割り当て済みなら true
+     * @param mayAllocated 割り当て済みかもしれないなら true
+     * @param refCount 参照カウントの下限
+     * @param mayRefCount 参照カウントの上限
      */
-    public MemoryBlock(MemoryBlock o) {
-        this.id = o.id;
-        this.allocated = o.allocated;
-        this.refCount = o.refCount;
+    public MemoryBlock(int id, boolean allocated, boolean mayAllocated, int refCount, int mayRefCount) {
+        this(id, -1, false, allocated, mayAllocated, refCount, mayRefCount);
+    }
+
+    /**
+     * 割り当て地点を持つメモリブロックを生成する.
+     * @param site 割り当て地点の番号. 不明なら -1
+     * @param multiple 割り当て地点で以前に割り当てた複数のブロックを表すなら true
+     */
+    MemoryBlock(int id, int site, boolean multiple,
+            boolean allocated, boolean mayAllocated, int refCount, int mayRefCount) {
+        this.id = id;
+        this.site = site;
+        this.multiple = multiple;
+        this.allocated = allocated;
+        this.mayAllocated = allocated || mayAllocated;
+        this.refCount = refCount;
+        this.mayRefCount = Math.max(refCount, mayRefCount);
+
+        int result = 17;
+        result = 31 * result + this.id;
+        result = 31 * result + (this.allocated ? 0 : 1);
+        result = 31 * result + this.refCount;
+        result = 31 * result + (this.mayAllocated ? 0 : 1);
+        result = 31 * result + this.mayRefCount;
+        result = 31 * result + this.site;
+        result = 31 * result + (this.multiple ? 0 : 1);
+        this.hash = result;
     }
 
     @Override
@@ -32,18 +76,19 @@ public class MemoryBlock {
             return false;
         }
         MemoryBlock b = (MemoryBlock) o;
-        return this.id == b.id
+        return this.hash == b.hash
+            && this.id == b.id
             && this.allocated == b.allocated
-            && this.refCount == b.refCount;
+            && this.refCount == b.refCount
+            && this.mayAllocated == b.mayAllocated
+            && this.mayRefCount == b.mayRefCount
+            && this.site == b.site
+            && this.multiple == b.multiple;
     }
 
     @Override
     public int hashCode() {
-        int result = 17;
-        result = 31 * result + this.id;
-        result = 31 * result + (this.allocated ? 0 : 1);
-        result = 31 * result + this.refCount;
-        return result;
+        return this.hash;
     }
 
     @Override
@@ -51,42 +96,112 @@ public class MemoryBlock {
         StringBuilder sb = new StringBuilder();
         sb.append("MB(id=");
         sb.append(id);
+        if (site >= 0) {
+            sb.append('@');
+            sb.append(site);
+        }
+        if (multiple) {
+            sb.append('*');
+        }
         sb.append(',');
-        sb.append(allocated ? "allocated" : "released");
+        sb.append(allocated ? "allocated" : mayAllocated ? "may-allocated" : "released");
         sb.append(",rc=");
         sb.append(refCount);
+        if (mayRefCount != refCount) {
+            sb.append("..");
+            sb.append(mayRefCount);
+        }
         sb.append(')');
         return sb.toString();
     }
 
     /**
-     * このメモリブロックの参照カウントを1増加させる.
+     * 2つの状態における同じ識別子のブロックを併合したブロックを返す.
+     * o が null なら、もう一方の状態にはこのブロックが存在しないとみなす.
      */
-    public void ref() {
-        ++refCount;
+    MemoryBlock join(MemoryBlock o) {
+        if (o == null) {
+            return new MemoryBlock(this.id, this.site, this.multiple,
+                    false, this.mayAllocated, 0, this.mayRefCount);
+        } else if (this.equals(o)) {
+            return this;
+        }
+        // 割り当て地点が異なるブロックを併合したら、地点は不明とする
+        boolean sameSite = this.site == o.site;
+        return new MemoryBlock(this.id,
+                sameSite ? this.site : -1,
+                this.multiple || o.multiple || !sameSite,
+                this.allocated && o.allocated,
+                this.mayAllocated || o.mayAllocated,
+                Math.min(this.refCount, o.refCount),
+                Math.max(this.mayRefCount, o.mayRefCount));
     }
 
     /**
-     * このメモリブロックの参照カウントを1減少させる.
+     * 参照カウントを delta だけ変化させたメモリブロックを返す.
      */
-    public void unref() {
-        --refCount;
+    MemoryBlock withRefCountDelta(int delta) {
+        return new MemoryBlock(this.id, this.site, this.multiple, this.allocated, this.mayAllocated,
+                this.refCount + delta, this.mayRefCount + delta);
     }
 
     /**
-     * このメモリブロックに割り当て済みマークを付ける.
-     * MemoryManagerから呼び出されることを想定している.
+     * 参照カウントの上限だけを delta だけ変化させたメモリブロックを返す.
+     * 要約変数が指し得るブロックの参照カウントの更新に用いる.
      */
-    public void allocate() {
-        allocated = true;
+    MemoryBlock withMayRefCountDelta(int delta) {
+        return new MemoryBlock(this.id, this.site, this.multiple, this.allocated, this.mayAllocated,
+                Math.min(this.refCount, this.mayRefCount + delta), this.mayRefCount + delta);
     }
 
     /**
-     * このメモリブロックの割り当て済みマークを消す.
+     * 割り当て済みマークを変更したメモリブロックを返す.
      * MemoryManagerから呼び出されることを想定している.
      */
-    public void release() {
-        allocated = false;
+    MemoryBlock withAllocated(boolean allocated) {
+        if (allocated == this.allocated && allocated == this.mayAllocated) {
+            return this;
+        }
+        return new MemoryBlock(this.id, this.site, this.multiple,
+                allocated, allocated, this.refCount, this.mayRefCount);
+    }
+
+    /**
+     * 解放されたかもしれないことを表すブロックを返す. 弱い更新に用いる.
+     */
+    MemoryBlock withMayReleased() {
+        return this.allocated
+            ? new MemoryBlock(this.id, this.site, this.multiple,
+                    false, this.mayAllocated, this.refCount, this.mayRefCount)
+            : this;
+    }
+
+    /**
+     * 識別子だけを変更したメモリブロックを返す. 状態の正規化に用いる.
+     */
+    MemoryBlock withId(int id) {
+        return id == this.id ? this : new MemoryBlock(id, this.site, this.multiple,
+                this.allocated, this.mayAllocated, this.refCount, this.mayRefCount);
+    }
+
+    /**
+     * このブロックを複数ブロックにしたものを返す.
+     */
+    MemoryBlock asMultiple() {
+        return this.multiple ? this : new MemoryBlock(this.id, this.site, true,
+                this.allocated, this.mayAllocated, this.refCount, this.mayRefCount);
+    }
+
+    /**
+     * 同じ割り当て地点のブロック o をこの複数ブロックに取り込んだものを返す.
+     * 参照カウントは合計となる.
+     */
+    MemoryBlock fold(MemoryBlock o) {
+        return new MemoryBlock(this.id, this.site, true,
+                this.allocated && o.allocated,
+                this.mayAllocated || o.mayAllocated,
+                this.refCount + o.refCount,
+                this.mayRefCount + o.mayRefCount);
     }
 
     /**
@@ -96,17 +211,71 @@ public class MemoryBlock {
         return id;
     }
 
+    /**
+     * このメモリブロックの割り当て地点の番号を返す. 不明なら -1 を返す.
+     */
+    public int site() {
+        return site;
+    }
+
+    /**
+     * 割り当て地点で以前に割り当てた複数のブロックを表すかを返す.
+     * 複数ブロックへの free は、表すブロックのうち1つだけを解放する弱い更新となる.
+     */
+    public boolean isMultiple() {
+        return multiple;
+    }
+
+    /**
+     * 仮引数 index が指す、呼び出し元の領域を表すブロックの割り当て地点番号を返す.
+     */
+    public static int parameterSite(int index) {
+        return -2 - index;
+    }
+
+    /**
+     * 仮引数が指す呼び出し元の領域を表すブロックなら、その仮引数の番号を返す.
+     * そうでなければ -1 を返す.
+     * このブロックを解放する責任は呼び出し元にあるので、関数内でのメモリリークとはしない.
+     */
+    public int parameterIndex() {
+        return site <= -2 ? -2 - site : -1;
+    }
+
     /**
      * このメモリブロックの割り当て済みマークを返す.
+     * 要約されたブロックでは、必ず割り当て済みである場合に true となる.
      */
     public boolean allocated() {
         return allocated;
     }
 
+    /**
+     * 割り当て済みかもしれないなら true を返す.
+     */
+    public boolean mayAllocated() {
+        return mayAllocated;
+    }
+
     /**
      * このメモリブロックの参照カウント値を返す.
+     * 要約されたブロックでは下限を返す.
      */
     public int refCount() {
         return refCount;
     }
+
+    /**
+     * 参照カウントの上限を返す.
+     */
+    public int mayRefCount() {
+        return mayRefCount;
+    }
+
+    /**
+     * 割り当て状態か参照カウントが1つに定まらないかを返す.
+     */
+    public boolean isSummary() {
+        return allocated != mayAllocated || refCount != mayRefCount;
+    }
 }
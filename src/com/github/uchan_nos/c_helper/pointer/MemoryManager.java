@@ -1,21 +1,51 @@
 package com.github.uchan_nos.c_helper.pointer;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * ヒープ領域のメモリブロックを管理する.
+ * メモリブロックの配列は変更せずに共有し、変更するときは配列を複製して差し替える（コピーオンライト）.
+ * メモリブロックの識別子は配列の添字に等しい.
+ */
 public class MemoryManager {
-    private final List<MemoryBlock> memoryBlocks;
+    private static final MemoryBlock[] NO_BLOCKS = new MemoryBlock[0];
+
+    private MemoryBlock[] memoryBlocks;
+
+    // ハッシュ値のキャッシュ. 配列を差し替えたら無効にする
+    private int hash = 0;
+    private boolean hashValid = false;
 
     public MemoryManager() {
-        this.memoryBlocks = new ArrayList<MemoryBlock>();
+        this.memoryBlocks = NO_BLOCKS;
     }
 
+    /**
+     * 指定されたマネージャのコピーを生成する. メモリブロックの配列は共有する.
+     */
     public MemoryManager(MemoryManager o) {
-        this.memoryBlocks = new ArrayList<MemoryBlock>(o.memoryBlocks.size());
-        for (MemoryBlock b : o.memoryBlocks) {
-            this.memoryBlocks.add(new MemoryBlock(b));
-        }
+        this.memoryBlocks = o.memoryBlocks;
+        this.hash = o.hash;
+        this.hashValid = o.hashValid;
+    }
+
+    /**
+     * 指定されたメモリブロックを持つマネージャを生成する. blocks[i] の識別子は i でなければならない.
+     */
+    MemoryManager(MemoryBlock[] blocks) {
+        this.memoryBlocks = blocks;
+    }
+
+    // id 番目のメモリブロックを差し替える
+    private MemoryBlock replace(int id, MemoryBlock b) {
+        MemoryBlock[] newBlocks = this.memoryBlocks.clone();
+        newBlocks[id] = b;
+        this.memoryBlocks = newBlocks;
+        this.hashValid = false;
+        return b;
     }
 
     @Override
@@ -24,19 +54,24 @@ public class MemoryManager {
             return false;
         }
         MemoryManager m = (MemoryManager) o;
-        return this.memoryBlocks.equals(m.memoryBlocks);
+        return this.memoryBlocks == m.memoryBlocks
+            || (hashCode() == m.hashCode() && Arrays.equals(this.memoryBlocks, m.memoryBlocks));
     }
 
     @Override
     public int hashCode() {
-        return this.memoryBlocks.hashCode();
+        if (!this.hashValid) {
+            this.hash = Arrays.hashCode(this.memoryBlocks);
+            this.hashValid = true;
+        }
+        return this.hash;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
 
-        Iterator<MemoryBlock> it = memoryBlocks.iterator();
+        Iterator<MemoryBlock> it = memoryBlocks().iterator();
         if (it.hasNext()) {
             sb.append(it.next().toString());
 
@@ -55,17 +90,36 @@ public class MemoryManager {
      * メモリブロックを割り当てて返す.
      * 既存のメモリブロック郡の中で解放済みかつ参照されていないブロックがあれば，
      * そのブロックを割り当て済みにして返す.
+     * 要約されたブロックは、確実に解放済みかつ参照されていない場合に限り再利用する.
      * 参照カウントは変更されない.
      */
     public MemoryBlock allocate() {
+        return allocate(-1);
+    }
+
+    /**
+     * 割り当て地点 site で新たなメモリブロックを割り当てて返す.
+     * 再利用できるブロックのうち、同じ割り当て地点のものを優先して使う.
+     * 同じ地点の以前のブロックを複数ブロックにまとめるのは {@link MemoryStatus#allocate(int)} が行う.
+     */
+    public MemoryBlock allocate(int site) {
+        MemoryBlock reusable = null;
         for (MemoryBlock b : memoryBlocks) {
-            if (b.allocated() == false && b.refCount() == 0) {
-                b.allocate();
-                return b;
+            if (b.mayAllocated() == false && b.mayRefCount() == 0) {
+                if (reusable == null || (b.site() == site && reusable.site() != site)) {
+                    reusable = b;
+                }
             }
         }
-        MemoryBlock newBlock = new MemoryBlock(memoryBlocks.size(), true, 0);
-        memoryBlocks.add(newBlock);
+        if (reusable != null) {
+            return replace(reusable.id(),
+                    new MemoryBlock(reusable.id(), site, false, true, true, 0, 0));
+        }
+        MemoryBlock newBlock = new MemoryBlock(memoryBlocks.length, site, false, true, true, 0, 0);
+        MemoryBlock[] newBlocks = Arrays.copyOf(memoryBlocks, memoryBlocks.length + 1);
+        newBlocks[memoryBlocks.length] = newBlock;
+        this.memoryBlocks = newBlocks;
+        this.hashValid = false;
         return newBlock;
     }
 
@@ -74,7 +128,63 @@ public class MemoryManager {
      * 参照カウントは変更されない.
      */
     public void release(MemoryBlock b) {
-        b.release();
+        MemoryBlock current = memoryBlocks[b.id()];
+        if (current.mayAllocated()) {
+            replace(b.id(), current.withAllocated(false));
+        }
+    }
+
+    /**
+     * 指定されたメモリブロックを解放済みかもしれない状態にする（弱い更新）.
+     * 要約変数が指し得るブロックを解放するときに用いる.
+     */
+    public void weakRelease(MemoryBlock b) {
+        MemoryBlock current = memoryBlocks[b.id()];
+        if (current.allocated()) {
+            replace(b.id(), current.withMayReleased());
+        }
+    }
+
+    /**
+     * 指定されたメモリブロックの参照カウントを1増加させる.
+     */
+    public void ref(MemoryBlock b) {
+        replace(b.id(), memoryBlocks[b.id()].withRefCountDelta(1));
+    }
+
+    /**
+     * 指定されたメモリブロックの参照カウントを1減少させる.
+     */
+    public void unref(MemoryBlock b) {
+        replace(b.id(), memoryBlocks[b.id()].withRefCountDelta(-1));
+    }
+
+    /**
+     * 指定されたメモリブロックの参照カウントの上限を1増加させる.
+     * 要約変数が指し得るブロックへの参照に用いる.
+     */
+    public void mayRef(MemoryBlock b) {
+        replace(b.id(), memoryBlocks[b.id()].withMayRefCountDelta(1));
+    }
+
+    /**
+     * 指定されたメモリブロックの参照カウントの下限を1減少させる.
+     * 要約変数が指し得るブロックへの参照をやめるときに用いる.
+     */
+    public void mayUnref(MemoryBlock b) {
+        MemoryBlock current = memoryBlocks[b.id()];
+        if (current.refCount() > 0) {
+            replace(b.id(), new MemoryBlock(current.id(), current.site(), current.isMultiple(),
+                    current.allocated(), current.mayAllocated(),
+                    current.refCount() - 1, current.mayRefCount()));
+        }
+    }
+
+    /**
+     * 指定されたブロックで置き換える. 識別子が同じブロックが置き換えられる.
+     */
+    void set(MemoryBlock b) {
+        replace(b.id(), b);
     }
 
     /**
@@ -82,18 +192,13 @@ public class MemoryManager {
      * そのようなメモリブロックが見つからなければ null を返す.
      */
     public MemoryBlock find(int id) {
-        for (MemoryBlock b : memoryBlocks) {
-            if (b.id() == id) {
-                return b;
-            }
-        }
-        return null;
+        return id >= 0 && id < memoryBlocks.length ? memoryBlocks[id] : null;
     }
 
     /**
-     * メモリブロックの一覧を返す.
+     * メモリブロックの一覧を返す. 返されるリストは変更できない.
      */
     public List<MemoryBlock> memoryBlocks() {
-        return memoryBlocks;
+        return Collections.unmodifiableList(Arrays.asList(memoryBlocks));
     }
 }
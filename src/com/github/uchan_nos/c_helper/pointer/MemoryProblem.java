@@ -18,9 +18,17 @@ public class MemoryProblem {
 
     public final IASTNode position;
     public final Kind message;
+    /** 要約された状態から検出され、起こるかもしれないだけの問題なら true */
+    public final boolean possible;
+
     public MemoryProblem(IASTNode position, Kind message) {
+        this(position, message, false);
+    }
+
+    public MemoryProblem(IASTNode position, Kind message, boolean possible) {
         this.position = position;
         this.message = message;
+        this.possible = possible;
     }
 
     @Override
@@ -30,7 +38,8 @@ public class MemoryProblem {
         }
         MemoryProblem p = (MemoryProblem) o;
         return Util.equalsOrBothNull(position, p.position)
-            && Util.equalsOrBothNull(message, p.message);
+            && Util.equalsOrBothNull(message, p.message)
+            && possible == p.possible;
     }
 
     @Override
@@ -38,6 +47,7 @@ public class MemoryProblem {
         int result = 17;
         result = 31 * result + (position == null ? 0 : position.hashCode());
         result = 31 * result + (message == null ? 0 : message.hashCode());
+        result = 31 * result + (possible ? 1 : 0);
         return result;
     }
 }
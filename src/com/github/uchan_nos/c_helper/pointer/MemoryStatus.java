@@ -1,5 +1,12 @@
 package com.github.uchan_nos.c_helper.pointer;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
 //import org.eclipse.cdt.core.dom.ast.IASTName;
 
 public class MemoryStatus {
@@ -11,6 +18,23 @@ public class MemoryStatus {
         this.memoryManager = new MemoryManager();
     }
 
+    /**
+     * 指定された索引で変数に番号を振る、空のメモリ状態を生成する.
+     */
+    MemoryStatus(VariableIndex index) {
+        this.variableManager = new VariableManager(index);
+        this.memoryManager = new MemoryManager();
+    }
+
+    MemoryStatus(VariableManager variableManager, MemoryManager memoryManager) {
+        this.variableManager = variableManager;
+        this.memoryManager = memoryManager;
+    }
+
+    /**
+     * 指定されたメモリ状態のコピーを生成する.
+     * 変数とメモリブロックの表は変更されるまで元の状態と共有するので、コピーは定数時間で済む.
+     */
     public MemoryStatus(MemoryStatus o) {
         this.variableManager = new VariableManager(o.variableManager);
         this.memoryManager = new MemoryManager(o.memoryManager);
@@ -18,7 +42,10 @@ public class MemoryStatus {
 
     @Override
     public boolean equals(Object o) {
-        if (!(o instanceof MemoryStatus)) {
+        if (this == o) {
+            // 正規化された状態は同じインスタンスを共有するので、多くの比較はここで終わる
+            return true;
+        } else if (!(o instanceof MemoryStatus)) {
             return false;
         }
         MemoryStatus s = (MemoryStatus) o;
@@ -39,6 +66,145 @@ public class MemoryStatus {
         return "MemoryStatus(" + variableManager.toString() + "," + memoryManager.toString() + ")";
     }
 
+    /**
+     * 複数のメモリ状態を併合した、1つの要約された状態を返す.
+     * 一部の状態にしかない変数は、他の状態では未定義だったとみなす.
+     * 一部の状態にしかないメモリブロックは、他の状態では解放済みで参照されていなかったとみなす.
+     * ブロックの識別子は状態をまたいで対応付けるので、正規化した状態を渡すとよい.
+     */
+    public static MemoryStatus summarize(Collection<MemoryStatus> statuses) {
+        Iterator<MemoryStatus> it = statuses.iterator();
+        MemoryStatus first = it.next();
+        if (!it.hasNext()) {
+            return first;
+        }
+
+        Set<IVariable> bindings = new HashSet<IVariable>();
+        int numBlocks = 0;
+        for (MemoryStatus s : statuses) {
+            for (Variable var : s.variableManager.getContainingVariables()) {
+                bindings.add(var.binding());
+            }
+            numBlocks = Math.max(numBlocks, s.memoryManager.memoryBlocks().size());
+        }
+
+        VariableManager vm = new VariableManager(first.variableManager.index());
+        for (IVariable binding : bindings) {
+            Variable joined = null;
+            for (MemoryStatus s : statuses) {
+                Variable var = s.variableManager.get(binding);
+                if (var == null) {
+                    var = new Variable(binding, Variable.States.UNDEFINED, null);
+                }
+                joined = joined == null ? var : joined.join(var);
+            }
+            vm.put(joined);
+        }
+
+        MemoryBlock[] blocks = new MemoryBlock[numBlocks];
+        boolean firstStatus = true;
+        for (MemoryStatus s : statuses) {
+            for (int id = 0; id < numBlocks; ++id) {
+                MemoryBlock b = s.memoryManager.find(id);
+                if (firstStatus) {
+                    blocks[id] = b;
+                } else if (blocks[id] == null) {
+                    blocks[id] = b == null ? null : b.join(null);
+                } else {
+                    blocks[id] = blocks[id].join(b);
+                }
+            }
+            firstStatus = false;
+        }
+        for (int id = 0; id < numBlocks; ++id) {
+            if (blocks[id] == null) {
+                // どの状態にも現れないことはないが、念のため解放済みのブロックで埋める
+                blocks[id] = new MemoryBlock(id, false, 0);
+            }
+        }
+        return new MemoryStatus(vm, new MemoryManager(blocks));
+    }
+
+    /**
+     * 割り当て地点 site でメモリブロックを割り当てて返す（割り当て地点による抽象化）.
+     *
+     * 各割り当て地点は、最後に割り当てたブロックと、それより前のブロックすべてを表す
+     * 複数ブロックを高々1つずつ持つ. 最後に割り当てたブロックがまだ使われているなら
+     * それを複数ブロックに取り込み、指していた変数は複数ブロックを指すようにする.
+     * ただし解放済みで参照だけが残っているブロックは取り込まず、割り当て地点から外す.
+     * これによりループ中の malloc でもブロック数が増え続けず、解析が収束する.
+     * @param site 割り当て地点の番号. 負なら毎回新しいブロックを割り当てる
+     */
+    public MemoryBlock allocate(int site) {
+        if (site < 0) {
+            return this.memoryManager.allocate();
+        }
+
+        MemoryBlock recent = null, multiple = null;
+        for (MemoryBlock b : this.memoryManager.memoryBlocks()) {
+            if (b.site() == site) {
+                if (b.isMultiple()) {
+                    multiple = b;
+                } else {
+                    recent = b;
+                }
+            }
+        }
+
+        if (recent != null && !recent.mayAllocated() && recent.mayRefCount() != 0) {
+            // 解放済みでまだ参照されている最後のブロックは、複数ブロックに取り込まずに
+            // 割り当て地点から外す. 取り込むと複数ブロックが「解放済みかもしれない」状態になる
+            this.memoryManager.set(new MemoryBlock(recent.id(), -1, false,
+                        false, false, recent.refCount(), recent.mayRefCount()));
+        } else if (recent != null && (recent.mayAllocated() || recent.mayRefCount() != 0)) {
+            if (multiple == null) {
+                // 最後のブロックをそのまま複数ブロックにする. 変数の指す先は変わらない
+                this.memoryManager.set(recent.asMultiple());
+            } else {
+                this.memoryManager.set(multiple.fold(recent));
+                this.memoryManager.set(new MemoryBlock(recent.id(), false, 0));
+                redirect(recent.id(), multiple.id());
+            }
+        }
+        return this.memoryManager.allocate(site);
+    }
+
+    // ブロック from を指す変数を、ブロック to を指すようにする
+    private void redirect(int from, int to) {
+        HeapAddress fromAddress = new HeapAddress(from);
+        HeapAddress toAddress = new HeapAddress(to);
+        for (Variable var : this.variableManager.getContainingVariables()) {
+            if (!var.mayValues().contains(fromAddress)) {
+                continue;
+            }
+            if (var.isSummary()) {
+                Set<Address> values = new HashSet<Address>(var.mayValues());
+                values.remove(fromAddress);
+                values.add(toAddress);
+                this.variableManager.put(Variable.create(var.binding(), var.mayStatuses(), values));
+            } else {
+                this.variableManager.put(new Variable(var.binding(), var.status(), toAddress));
+            }
+        }
+    }
+
+    /**
+     * 要約された変数かメモリブロックを含むかを返す.
+     */
+    public boolean isSummary() {
+        for (Variable var : this.variableManager.getContainingVariables()) {
+            if (var.isSummary()) {
+                return true;
+            }
+        }
+        for (MemoryBlock b : this.memoryManager.memoryBlocks()) {
+            if (b.isSummary()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void update(Variable... vs) {
         for (Variable v : vs) {
             this.variableManager.put(v);
@@ -0,0 +1,167 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * メモリ状態を正規化し、等しい状態を1つのインスタンスにまとめる（ハッシュコンシング）.
+ *
+ * 正規化では、ヒープのメモリブロックを変数から参照される順に番号を振り直し、
+ * 解放済みで参照されていないブロックを取り除く.
+ * 変数から参照されないブロックのうち内容が等しいものは1つにまとめる.
+ * これにより、割り当てたブロックの番号だけが異なる状態が同一視される.
+ * 変数の順序は {@link VariableIndex} が番号を振った順とする. 同じ解析器の状態は索引を共有するので、
+ * この順序は状態によらない.
+ * 要約変数が指し得るブロックには、番号の小さい順に番号を振る.
+ *
+ * 正規化した状態は表に登録して共有するので、変更してはならない.
+ * 表は解析器ごとに持ち、複数のスレッドから使ってはならない.
+ */
+public final class MemoryStatusCanonicalizer {
+    // 正規化した状態の表
+    private final Map<MemoryStatus, MemoryStatus> table = new HashMap<MemoryStatus, MemoryStatus>();
+
+    // 参照されないブロックの順序. 同じ内容のブロックは区別できないので内容だけで並べる
+    private static final Comparator<MemoryBlock> CONTENT_ORDER = new Comparator<MemoryBlock>() {
+        @Override
+        public int compare(MemoryBlock o1, MemoryBlock o2) {
+            if (o1.allocated() != o2.allocated()) {
+                return o1.allocated() ? -1 : 1;
+            } else if (o1.mayAllocated() != o2.mayAllocated()) {
+                return o1.mayAllocated() ? -1 : 1;
+            } else if (o1.refCount() != o2.refCount()) {
+                return o1.refCount() - o2.refCount();
+            } else if (o1.mayRefCount() != o2.mayRefCount()) {
+                return o1.mayRefCount() - o2.mayRefCount();
+            } else if (o1.site() != o2.site()) {
+                return o1.site() - o2.site();
+            } else if (o1.isMultiple() != o2.isMultiple()) {
+                return o1.isMultiple() ? 1 : -1;
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * 正規化した状態を返す. 等しい状態には同じインスタンスを返す.
+     */
+    public MemoryStatus canonicalize(MemoryStatus s) {
+        MemoryStatus interned = this.table.get(s);
+        if (interned != null) {
+            return interned;
+        }
+        MemoryStatus renumbered = renumber(s);
+        if (renumbered != s) {
+            interned = this.table.get(renumbered);
+            if (interned != null) {
+                return interned;
+            }
+        }
+        this.table.put(renumbered, renumbered);
+        return renumbered;
+    }
+
+    private MemoryStatus renumber(MemoryStatus s) {
+        Collection<Variable> vars = s.variableManager().getContainingVariables();
+        List<MemoryBlock> blocks = s.memoryManager().memoryBlocks();
+
+        // 古い番号から新しい番号への写像. -1 は未割り当て
+        int[] newId = new int[blocks.size()];
+        Arrays.fill(newId, -1);
+        int next = 0;
+        for (Variable var : vars) {
+            for (int id : heapIds(var)) {
+                if (id >= 0 && id < newId.length && newId[id] < 0) {
+                    newId[id] = next++;
+                }
+            }
+        }
+
+        // 変数から参照されないブロック. 解放済みで参照カウントが 0 のものは捨てる
+        List<MemoryBlock> unreferenced = new ArrayList<MemoryBlock>();
+        for (MemoryBlock b : blocks) {
+            if (newId[b.id()] < 0 && (b.mayAllocated() || b.mayRefCount() != 0)) {
+                unreferenced.add(b);
+            }
+        }
+        Collections.sort(unreferenced, CONTENT_ORDER);
+        MemoryBlock previous = null;
+        for (MemoryBlock b : unreferenced) {
+            // 二度と参照されないブロックは内容が等しければ区別しなくてよい.
+            // ループ中で割り当てたまま失ったブロックが際限なく増えるのを防ぐ
+            if (previous != null && b.mayRefCount() == 0
+                    && CONTENT_ORDER.compare(previous, b) == 0) {
+                newId[b.id()] = newId[previous.id()];
+            } else {
+                newId[b.id()] = next++;
+            }
+            previous = b;
+        }
+
+        boolean identity = next == blocks.size();
+        for (int id = 0; identity && id < newId.length; ++id) {
+            identity = newId[id] == id;
+        }
+        if (identity) {
+            return s;
+        }
+
+        MemoryBlock[] newBlocks = new MemoryBlock[next];
+        for (MemoryBlock b : blocks) {
+            if (newId[b.id()] >= 0) {
+                newBlocks[newId[b.id()]] = b.withId(newId[b.id()]);
+            }
+        }
+        VariableManager newVariables = new VariableManager(s.variableManager());
+        for (Variable var : vars) {
+            if (var.isSummary()) {
+                Set<Address> values = new HashSet<Address>();
+                boolean changed = false;
+                for (Address value : var.mayValues()) {
+                    int id = value instanceof HeapAddress ? ((HeapAddress) value).memoryBlockId() : -1;
+                    if (id >= 0 && id < newId.length && newId[id] != id) {
+                        values.add(new HeapAddress(newId[id]));
+                        changed = true;
+                    } else {
+                        values.add(value);
+                    }
+                }
+                if (changed) {
+                    newVariables.put(Variable.create(var.binding(), var.mayStatuses(), values));
+                }
+            } else if (var.value() instanceof HeapAddress) {
+                int id = ((HeapAddress) var.value()).memoryBlockId();
+                if (id >= 0 && id < newId.length && newId[id] != id) {
+                    newVariables.put(new Variable(var.binding(), var.status(), new HeapAddress(newId[id])));
+                }
+            }
+        }
+        return new MemoryStatus(newVariables, new MemoryManager(newBlocks));
+    }
+
+    // 変数が指し得るヒープ領域のブロック番号を小さい順に返す
+    private static int[] heapIds(Variable var) {
+        if (!var.isSummary()) {
+            return var.value() instanceof HeapAddress
+                ? new int[] {((HeapAddress) var.value()).memoryBlockId()} : new int[0];
+        }
+        int[] ids = new int[var.mayValues().size()];
+        int n = 0;
+        for (Address value : var.mayValues()) {
+            if (value instanceof HeapAddress) {
+                ids[n++] = ((HeapAddress) value).memoryBlockId();
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        Arrays.sort(ids);
+        return ids;
+    }
+}
@@ -3,6 +3,11 @@ package com.github.uchan_nos.c_helper.pointer;
 import java.io.File;
 import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
@@ -18,8 +23,10 @@ import org.eclipse.core.runtime.CoreException;
 import com.github.uchan_nos.c_helper.analysis.CFG;
 import com.github.uchan_nos.c_helper.analysis.CFG.Vertex;
 import com.github.uchan_nos.c_helper.analysis.CFGCreator;
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
 import com.github.uchan_nos.c_helper.analysis.FileInfo;
 import com.github.uchan_nos.c_helper.analysis.IGraph;
+import com.github.uchan_nos.c_helper.analysis.LiveVariables;
 import com.github.uchan_nos.c_helper.analysis.Parser;
 
 import com.github.uchan_nos.c_helper.dataflow.EntryExitPair;
@@ -31,16 +38,99 @@ import com.github.uchan_nos.c_helper.util.Util;
 public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     private Set<MemoryProblem> problems = new HashSet<MemoryProblem>();
+    private final LiveVariables liveVariables;
+    private final MemoryStatusCanonicalizer canonicalizer = new MemoryStatusCanonicalizer();
+    private final int maxStates;
+    private final IVariable[] parameters;
+    private final Map<String, FunctionSummary> summaries;
+    // 変数の番号. すべてのメモリ状態で共有する
+    private final VariableIndex index = new VariableIndex();
+
+    /**
+     * 1つの頂点で保持するメモリ状態の数の既定の上限.
+     */
+    public static final int DEFAULT_MAX_STATES = 32;
 
     public PointToSolver(IGraph<CFG.Vertex> cfg, CFG.Vertex entryVertex) {
+        this(cfg, entryVertex, null);
+    }
+
+    /**
+     * 生存変数解析の結果を用いる解析器を生成する.
+     * 各頂点の出口で死んでいてヒープ領域を指していない変数をメモリ状態から取り除き、
+     * 状態数の増加を抑える.
+     * @param liveVariables 生存変数解析の結果. null なら変数を取り除かない
+     */
+    public PointToSolver(IGraph<CFG.Vertex> cfg, CFG.Vertex entryVertex,
+            LiveVariables liveVariables) {
+        this(cfg, entryVertex, liveVariables, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * 頂点ごとのメモリ状態の数に上限を設けた解析器を生成する.
+     * 状態の数が上限を超えた頂点では、すべての状態を1つの要約された状態に併合する.
+     * 要約された状態は変数が取り得る状態と指し得るアドレスの集合を持ち、
+     * そこから検出した問題は「起こるかもしれない」問題として報告する.
+     * @param maxStates 1つの頂点で保持するメモリ状態の数の上限
+     */
+    public PointToSolver(IGraph<CFG.Vertex> cfg, CFG.Vertex entryVertex,
+            LiveVariables liveVariables, int maxStates) {
+        this(cfg, entryVertex, liveVariables, maxStates, new IVariable[0],
+                Collections.<String, FunctionSummary>emptyMap());
+    }
+
+    /**
+     * 仮引数と、呼び出す関数の要約を用いる解析器を生成する.
+     * ポインタ型の仮引数は、初期状態で呼び出し元の領域（{@link MemoryBlock#parameterSite(int)}）を指す.
+     * 要約を持つ関数の呼び出しは、要約に従って malloc や free と同様に評価する.
+     * @param parameters 関数の仮引数. {@link FunctionSummary#parametersOf} で得る
+     * @param summaries 関数名から、その関数の要約への写像
+     */
+    public PointToSolver(IGraph<CFG.Vertex> cfg, CFG.Vertex entryVertex,
+            LiveVariables liveVariables, int maxStates,
+            IVariable[] parameters, Map<String, FunctionSummary> summaries) {
         super(cfg, entryVertex);
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("maxStates must be positive: " + maxStates);
+        }
+        this.liveVariables = liveVariables;
+        this.maxStates = maxStates;
+        this.parameters = parameters.clone();
+        this.summaries = summaries;
+        this.statements = classifyStatements(cfg,
+                summaries.isEmpty() ? null : createSummarizedCallPredicate(summaries), this.index);
+    }
+
+    // 呼び出し側に影響する要約を持つ関数の呼び出しで true となる述語
+    private static ASTFilter.Predicate createSummarizedCallPredicate(
+            final Map<String, FunctionSummary> summaries) {
+        return new ASTFilter.Predicate() {
+            @Override public boolean pass(IASTNode node) {
+                if (node instanceof IASTFunctionCallExpression) {
+                    FunctionSummary s = summaries.get(
+                            CallGraph.getCalleeName((IASTFunctionCallExpression) node));
+                    return s != null && s.hasEffect();
+                }
+                return false;
+            }
+        };
     }
 
     @Override
     protected Set<MemoryStatus> getInitValue() {
-        // すべての変数が UNDEFINED であるメモリ状態だけを含む集合が初期値となる
+        // すべての変数が UNDEFINED であるメモリ状態だけを含む集合が初期値となる.
+        // ただしポインタ型の仮引数は、呼び出し元の割り当て済みの領域を指す
+        MemoryStatus init = new MemoryStatus(this.index);
+        for (int i = 0; i < this.parameters.length; ++i) {
+            if (FunctionSummary.isPointer(this.parameters[i])) {
+                MemoryBlock b = init.memoryManager().allocate(MemoryBlock.parameterSite(i));
+                init.memoryManager().ref(b);
+                init.update(new Variable(this.parameters[i], Variable.States.POINTING,
+                            new HeapAddress(b.id())));
+            }
+        }
         Set<MemoryStatus> result = new HashSet<MemoryStatus>();
-        result.add(new MemoryStatus());
+        result.add(canonicalizer.canonicalize(init));
         return result;
     }
 
@@ -49,15 +139,94 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
         return new HashSet<MemoryStatus>();
     }
 
+    /**
+     * 入口の各状態のうち、この頂点でまだ遷移関数を適用していないものだけを評価する.
+     * 入口の状態は正規化されているので、同じ状態の遷移は頂点ごとに一度しか計算しない.
+     * 出口の集合は単調に大きくなる（要約されても以前の状態を含む）ので、
+     * 評価済みの状態の結果は既に出口に含まれている.
+     */
     @Override
     protected boolean transfer(Vertex v, Set<MemoryStatus> entry,
             Set<MemoryStatus> result) {
-        return result.addAll(analyze(v.getASTNode(), entry));
+        Set<MemoryStatus> evaluated = this.evaluatedStatuses.get(v);
+        if (evaluated == null) {
+            evaluated = new HashSet<MemoryStatus>();
+            this.evaluatedStatuses.put(v, evaluated);
+        }
+
+        List<MemoryStatus> canonical = new ArrayList<MemoryStatus>();
+        for (MemoryStatus in : entry) {
+            if (!evaluated.add(in)) {
+                continue;
+            }
+            for (MemoryStatus s : analyze(v, Collections.singleton(in))) {
+                if (liveVariables != null) {
+                    s = removeDeadVariables(v, s);
+                }
+                // ブロック番号だけが異なる状態を同一視し、等しい状態は1つのインスタンスにまとめる
+                canonical.add(canonicalizer.canonicalize(s));
+            }
+        }
+        return addBounded(result, canonical);
+    }
+
+    // 頂点ごとの、遷移関数を適用済みの入口の状態
+    private final Map<Vertex, Set<MemoryStatus>> evaluatedStatuses =
+        new HashMap<Vertex, Set<MemoryStatus>>();
+
+    // 状態を result に加え、状態の数が上限を超えたら1つの要約された状態に併合する.
+    // 既にある要約された状態に含まれる状態は加えない
+    private boolean addBounded(Set<MemoryStatus> result, Collection<MemoryStatus> statuses) {
+        boolean modified = false;
+        for (MemoryStatus s : statuses) {
+            if (!result.contains(s) && !isSubsumed(result, s)) {
+                result.add(s);
+                modified = true;
+            }
+        }
+        if (result.size() > this.maxStates) {
+            MemoryStatus summary = canonicalizer.canonicalize(MemoryStatus.summarize(result));
+            result.clear();
+            result.add(summary);
+        }
+        return modified;
+    }
+
+    // s が result 中のいずれかの要約された状態に含まれるか
+    private boolean isSubsumed(Set<MemoryStatus> result, MemoryStatus s) {
+        for (MemoryStatus t : result) {
+            if (t.isSummary()) {
+                List<MemoryStatus> pair = new ArrayList<MemoryStatus>(2);
+                pair.add(t);
+                pair.add(s);
+                if (canonicalizer.canonicalize(MemoryStatus.summarize(pair)) == t) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 頂点 v の出口で死んでいる変数のうち、ヒープ領域を指していないものを取り除く.
+    // ヒープ領域を指す変数は参照カウントに関わるので残す
+    private MemoryStatus removeDeadVariables(Vertex v, MemoryStatus s) {
+        MemoryStatus result = s;
+        for (int id = 0; id < this.index.size(); ++id) {
+            Variable var = s.variableManager().get(id);
+            if (var != null && !var.mayPointToHeap()
+                    && !liveVariables.isLiveAtExit(v, var.binding())) {
+                if (result == s) {
+                    result = new MemoryStatus(s);
+                }
+                result.variableManager().remove(id);
+            }
+        }
+        return result;
     }
 
     @Override
     protected boolean join(Set<MemoryStatus> result, Set<MemoryStatus> set) {
-        return result.addAll(set);
+        return addBounded(result, set);
     }
 
     @Override
@@ -73,98 +242,229 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
         return this.problems;
     }
 
-    private Set<MemoryStatus> analyze(IASTNode ast, Set<MemoryStatus> entry) {
-        if (!(ast instanceof IASTExpressionStatement
-                || ast instanceof IASTDeclarationStatement)) {
-            return entry;
+    /**
+     * 頂点が評価する文の種類. 解析の前に頂点ごとに一度だけ求めておく.
+     */
+    private static class Statement {
+        public static enum Kind {
+            OTHER, MALLOC, FREE, REALLOC, CALL, VARIABLE_ASSIGN, RETURN, UNSUPPORTED
         }
 
-        // ヒープメモリブロックの数が変数の数を上回っていたら解析中止
-        for (MemoryStatus s : entry) {
-            int numVariables = s.variableManager().getContainingVariables().size();
-            //if (numVariables > 0 && numVariables < s.memoryManager().memoryBlocks().size()) {
-            int numAllocatedBlocks = 0;
-            for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
-                if (b.allocated()) {
-                    numAllocatedBlocks++;
+        public static final Statement OTHER = new Statement(Kind.OTHER, null, -1);
+        public static final Statement UNSUPPORTED = new Statement(Kind.UNSUPPORTED, null, -1);
+
+        public final Kind kind;
+        // 文の根から注目する式（malloc呼び出しなど）までのパス
+        public final List<IASTNode> path;
+        // malloc, realloc の割り当て地点の番号. それ以外の文では -1
+        public final int site;
+        // 文に現れる変数の名前と、その変数. 同じ添字どうしが対応する
+        private final IASTName[] names;
+        private final VariableRef[] variables;
+
+        public Statement(Kind kind, List<IASTNode> path, int site) {
+            this(kind, path, site, new IASTName[0], new VariableRef[0]);
+        }
+
+        public Statement(Kind kind, List<IASTNode> path, int site,
+                IASTName[] names, VariableRef[] variables) {
+            this.kind = kind;
+            this.path = path;
+            this.site = site;
+            this.names = names;
+            this.variables = variables;
+        }
+
+        /**
+         * 文に現れる名前が表す変数を返す. 変数でなければ null を返す.
+         * 名前は同一性で比べるので、ハッシュ値の計算や名前解決は行わない.
+         */
+        public VariableRef variable(IASTName name) {
+            for (int i = 0; i < this.names.length; ++i) {
+                if (this.names[i] == name) {
+                    return this.variables[i];
                 }
             }
-            if (numVariables > 0 && numVariables < numAllocatedBlocks) {
-                return entry;
-            }
+            return null;
         }
+    }
 
-        // malloc呼び出しへのすべてのパスを取得
-        ASTFilter.Predicate mallocCallPredicate = ASTPathFinder.createFunctionCallPredicate("malloc");
-        List<List<IASTNode>> pathToMalloc = ASTPathFinder.findPath(ast, mallocCallPredicate);
+    /**
+     * 変数と、{@link VariableIndex} が振ったその番号. 番号は文を分類するときに一度だけ求める.
+     */
+    private static final class VariableRef {
+        public final IVariable binding;
+        public final int id;
 
-        // free呼び出しへのすべてのパスを取得
-        ASTFilter.Predicate freeCallPredicate = ASTPathFinder.createFunctionCallPredicate("free");
-        List<List<IASTNode>> pathToFree = ASTPathFinder.findPath(ast, freeCallPredicate);
+        public VariableRef(IVariable binding, int id) {
+            this.binding = binding;
+            this.id = id;
+        }
+    }
 
-        // realloc呼び出しへのすべてのパスを取得
-        ASTFilter.Predicate reallocCallPredicate = ASTPathFinder.createFunctionCallPredicate("realloc");
-        List<List<IASTNode>> pathToRealloc = ASTPathFinder.findPath(ast, reallocCallPredicate);
+    // 頂点ごとの文の分類. 不動点反復の各回で AST を辿り直さないようにする
+    private final Map<Vertex, Statement> statements;
 
-        // 変数代入へのすべてのパスを取得
-        ASTFilter.Predicate variableAssignPredicate = new ASTFilter.Predicate() {
-            @Override public boolean pass(IASTNode node) {
-                if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
-                    IASTBinaryExpression be = (IASTBinaryExpression) node;
-                    return be.getOperand2() instanceof IASTIdExpression ||
-                        be.getOperand2().getRawSignature().equals("NULL");
-                } else if (node instanceof IASTDeclarator) {
-                    IASTDeclarator decl = (IASTDeclarator) node;
-                    if (decl.getInitializer() instanceof IASTEqualsInitializer) {
-                        IASTEqualsInitializer ei = (IASTEqualsInitializer) decl.getInitializer();
-                        return ei.getInitializerClause() instanceof IASTIdExpression ||
-                                ei.getInitializerClause().getRawSignature().equals("NULL");
-                    }
-                }
-                return false;
-            }
-        };
-        List<List<IASTNode>> pathToVariableAssign = ASTPathFinder.findPath(ast, variableAssignPredicate);
+    private static final ASTFilter.Predicate MALLOC_CALL_PREDICATE =
+        ASTPathFinder.createFunctionCallPredicate("malloc");
+    private static final ASTFilter.Predicate FREE_CALL_PREDICATE =
+        ASTPathFinder.createFunctionCallPredicate("free");
+    private static final ASTFilter.Predicate REALLOC_CALL_PREDICATE =
+        ASTPathFinder.createFunctionCallPredicate("realloc");
 
-        if (pathToMalloc.size() >= 1) {
-            if (pathToMalloc.size() == 1) {
-                return analyzeMalloc(pathToMalloc.get(0), entry);
+    // 変数代入へのパスを探す述語
+    private static final ASTFilter.Predicate VARIABLE_ASSIGN_PREDICATE = new ASTFilter.Predicate() {
+        @Override public boolean pass(IASTNode node) {
+            if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
+                IASTBinaryExpression be = (IASTBinaryExpression) node;
+                return be.getOperand2() instanceof IASTIdExpression ||
+                    be.getOperand2().getRawSignature().equals("NULL");
+            } else if (node instanceof IASTDeclarator) {
+                IASTDeclarator decl = (IASTDeclarator) node;
+                if (decl.getInitializer() instanceof IASTEqualsInitializer) {
+                    IASTEqualsInitializer ei = (IASTEqualsInitializer) decl.getInitializer();
+                    return ei.getInitializerClause() instanceof IASTIdExpression ||
+                            ei.getInitializerClause().getRawSignature().equals("NULL");
+                }
             }
-            throw new UnsupportedOperationException();
-        } else if (pathToFree.size() >= 1) {
-            if (pathToFree.size() == 1) {
-                return analyzeFree(pathToFree.get(0), entry);
+            return false;
+        }
+    };
+
+    private static final ASTFilter.Predicate[] STATEMENT_PREDICATES = {
+        MALLOC_CALL_PREDICATE, FREE_CALL_PREDICATE, REALLOC_CALL_PREDICATE, VARIABLE_ASSIGN_PREDICATE
+    };
+
+    private static Map<Vertex, Statement> classifyStatements(IGraph<CFG.Vertex> cfg,
+            ASTFilter.Predicate callPredicate, VariableIndex index) {
+        Map<Vertex, Statement> result = new HashMap<Vertex, Statement>();
+        int numSites = 0;
+        for (Vertex v : cfg.getVertices()) {
+            Statement statement = classify(v.getASTNode(), callPredicate);
+            if (statement.kind != Statement.Kind.OTHER && statement.kind != Statement.Kind.UNSUPPORTED) {
+                int site = -1;
+                if (statement.kind == Statement.Kind.MALLOC || statement.kind == Statement.Kind.REALLOC
+                        || statement.kind == Statement.Kind.CALL) {
+                    // 割り当てを行う頂点ごとに割り当て地点の番号を振る
+                    site = numSites++;
+                }
+                statement = withVariables(statement, site, index);
             }
-            throw new UnsupportedOperationException();
-        } else if (pathToRealloc.size() >= 1) {
-            if (pathToRealloc.size() == 1) {
-                return analyzeRealloc(pathToRealloc.get(0), entry);
+            result.put(v, statement);
+        }
+        return result;
+    }
+
+    // 文に現れる変数の名前を解決し、番号を振った文を返す
+    private static Statement withVariables(Statement statement, int site, VariableIndex index) {
+        List<IASTName> names = new ArrayList<IASTName>();
+        List<VariableRef> variables = new ArrayList<VariableRef>();
+        for (IASTNode node : new ASTFilter(statement.path.get(0)).filter(NAME_PREDICATE)) {
+            IBinding binding = ((IASTName) node).resolveBinding();
+            if (binding instanceof IVariable) {
+                names.add((IASTName) node);
+                variables.add(new VariableRef((IVariable) binding, index.idOf((IVariable) binding)));
             }
-            throw new UnsupportedOperationException();
-        } else if (pathToVariableAssign.size() >= 1) {
-            if (pathToVariableAssign.size() == 1) {
-                return analyzeVariableAssign(pathToVariableAssign.get(0), entry);
+        }
+        return new Statement(statement.kind, statement.path, site,
+                names.toArray(new IASTName[names.size()]),
+                variables.toArray(new VariableRef[variables.size()]));
+    }
+
+    private static final ASTFilter.Predicate NAME_PREDICATE = new ASTFilter.Predicate() {
+        @Override public boolean pass(IASTNode node) {
+            return node instanceof IASTName;
+        }
+    };
+
+    // 文を malloc, free, realloc, 要約を持つ関数の呼び出し, 変数代入のいずれかに分類する.
+    // 優先順位もこの順である. 変数を返す return 文も分類する
+    private static Statement classify(IASTNode ast, ASTFilter.Predicate callPredicate) {
+        if (ast instanceof IASTReturnStatement) {
+            IASTExpression value = ((IASTReturnStatement) ast).getReturnValue();
+            IASTName name = value instanceof IASTIdExpression ? ((IASTIdExpression) value).getName() : null;
+            if (name != null && name.resolveBinding() instanceof IVariable) {
+                return new Statement(Statement.Kind.RETURN, Collections.singletonList(ast), -1);
             }
+            return Statement.OTHER;
+        } else if (!(ast instanceof IASTExpressionStatement
+                || ast instanceof IASTDeclarationStatement)) {
+            return Statement.OTHER;
+        }
+
+        // malloc, free, realloc 呼び出しと変数代入へのすべてのパスを1回の走査で取得
+        ASTFilter.Predicate[] preds = STATEMENT_PREDICATES;
+        if (callPredicate != null) {
+            preds = Arrays.copyOf(STATEMENT_PREDICATES, STATEMENT_PREDICATES.length + 1);
+            preds[STATEMENT_PREDICATES.length] = callPredicate;
+        }
+        Map<ASTFilter.Predicate, List<List<IASTNode>>> paths = ASTPathFinder.findPaths(ast,
+                preds, ASTPathFinder.MAY_CONTAIN_CALL);
+        if (paths.get(MALLOC_CALL_PREDICATE).size() >= 1) {
+            return classified(Statement.Kind.MALLOC, paths.get(MALLOC_CALL_PREDICATE));
+        } else if (paths.get(FREE_CALL_PREDICATE).size() >= 1) {
+            return classified(Statement.Kind.FREE, paths.get(FREE_CALL_PREDICATE));
+        } else if (paths.get(REALLOC_CALL_PREDICATE).size() >= 1) {
+            return classified(Statement.Kind.REALLOC, paths.get(REALLOC_CALL_PREDICATE));
+        } else if (callPredicate != null && paths.get(callPredicate).size() >= 1) {
+            return classified(Statement.Kind.CALL, paths.get(callPredicate));
+        } else if (paths.get(VARIABLE_ASSIGN_PREDICATE).size() >= 1) {
+            return classified(Statement.Kind.VARIABLE_ASSIGN, paths.get(VARIABLE_ASSIGN_PREDICATE));
+        }
+        return Statement.OTHER;
+    }
+
+    // 注目する式が2つ以上ある文は未対応. 例外はその頂点を解析するときに投げる
+    private static Statement classified(Statement.Kind kind, List<List<IASTNode>> paths) {
+        return paths.size() == 1 ? new Statement(kind, paths.get(0), -1) : Statement.UNSUPPORTED;
+    }
+
+    private Set<MemoryStatus> analyze(Vertex v, Set<MemoryStatus> entry) {
+        Statement statement = this.statements.get(v);
+        if (statement == null || statement.kind == Statement.Kind.OTHER) {
+            return entry;
+        }
+
+        switch (statement.kind) {
+        case MALLOC:
+            return analyzeMalloc(statement, entry);
+        case FREE:
+            return analyzeFree(statement, entry);
+        case REALLOC:
+            return analyzeRealloc(statement, entry);
+        case CALL:
+            return analyzeCall(statement, entry);
+        case VARIABLE_ASSIGN:
+            return analyzeVariableAssign(statement, entry);
+        case RETURN:
+            return analyzeReturn(statement, entry);
+        case UNSUPPORTED:
             throw new UnsupportedOperationException();
-        } else {
+        default:
             return entry;
         }
     }
 
-    private Set<MemoryStatus> analyzeMalloc(
-            List<IASTNode> pathToMalloc, Set<MemoryStatus> entry) {
-
-        // malloc呼び出しのノードから上方向へトラバース
-        ListIterator<IASTNode> it = pathToMalloc.listIterator(pathToMalloc.size());
-        IASTNode node = it.previous();
+    private Set<MemoryStatus> analyzeMalloc(Statement statement, Set<MemoryStatus> entry) {
+        List<IASTNode> pathToMalloc = statement.path;
 
         // pathToMallocの一番後ろの要素はmalloc呼び出し式でなければならない
-        assert node instanceof IASTFunctionCallExpression
-            && Util.getName(((IASTFunctionCallExpression) node).getFunctionNameExpression())
-                .resolveBinding().getName().equals("malloc");
+        assert pathToMalloc.get(pathToMalloc.size() - 1) instanceof IASTFunctionCallExpression
+            && Util.getName(((IASTFunctionCallExpression) pathToMalloc.get(pathToMalloc.size() - 1))
+                    .getFunctionNameExpression()).resolveBinding().getName().equals("malloc");
 
         // malloc呼び出し後の状態を計算
-        Set<MallocEvalElement> afterMallocStatusSet = evalMalloc(entry);
+        return assignAllocation(statement, evalMalloc(entry, statement.site, true));
+    }
+
+    // 領域を割り当てる呼び出し式（malloc や、割り当てた領域を返す関数の呼び出し）の値を代入する
+    private Set<MemoryStatus> assignAllocation(
+            Statement statement, Set<MallocEvalElement> afterMallocStatusSet) {
+        List<IASTNode> pathToMalloc = statement.path;
+
+        // malloc呼び出しのノードから上方向へトラバース
+        ListIterator<IASTNode> it = pathToMalloc.listIterator(pathToMalloc.size());
+        IASTNode node = it.previous();
 
         // a = b = .. = malloc(..)
         // という形なら=の続く限り解析し、最終的な状態を全体の状態とする
@@ -175,26 +475,24 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
                 // pathToMallocの後ろから二番目の要素が代入式である場合
                 IASTBinaryExpression be = (IASTBinaryExpression) node;
-                IASTName lhsName = Util.getName(be.getOperand1());
-                IBinding lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                VariableRef lhs = statement.variable(Util.getName(be.getOperand1()));
 
-                if (lhsBinding instanceof IVariable) {
+                if (lhs != null) {
                     // hoge = malloc()
-                    Set<MemoryStatus> intermediateStatus = evalAssignMallocToVariable(be, afterMallocStatusSet);
+                    Set<MemoryStatus> intermediateStatus = evalAssignMallocToVariable(be, lhs, afterMallocStatusSet);
 
-                    IVariable rhsBinding = (IVariable) lhsBinding;
-                    while (it.hasPrevious() && rhsBinding != null) {
+                    VariableRef rhs = lhs;
+                    while (it.hasPrevious() && rhs != null) {
                         node = it.previous();
                         if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
                             be = (IASTBinaryExpression) node;
-                            lhsName = Util.getName(be.getOperand1());
-                            lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                            lhs = statement.variable(Util.getName(be.getOperand1()));
 
                             // hoge = foo
                             intermediateStatus = evalAssignVariableToVariable(
-                                    be, rhsBinding, intermediateStatus);
+                                    be, lhs, rhs, intermediateStatus);
 
-                            rhsBinding = lhsBinding instanceof IVariable ? (IVariable) lhsBinding : null;
+                            rhs = lhs;
                         } else {
                             break;
                         }
@@ -212,15 +510,12 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             } else if (node instanceof IASTEqualsInitializer
                     && node.getParent() instanceof IASTDeclarator) {
                 // pathToMallocの後ろから二番目の要素が変数定義の初期化の場合
-                IASTEqualsInitializer ei = (IASTEqualsInitializer) node;
-                IASTDeclarator decl = (IASTDeclarator) ei.getParent();
-                IASTName lhsName = decl.getName();
-                IBinding lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                IASTDeclarator decl = (IASTDeclarator) node.getParent();
+                VariableRef lhs = statement.variable(decl.getName());
 
-                if (lhsBinding instanceof IVariable) {
+                if (lhs != null) {
                     // hoge = malloc()
-                    Set<MemoryStatus> intermediateStatus = evalAssignMallocToVariable(decl, afterMallocStatusSet);
-                    return intermediateStatus;
+                    return evalAssignMallocToVariable(lhs, afterMallocStatusSet);
                 }
             }
         }
@@ -242,16 +537,19 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
     }
 
     // malloc(..)
-    private Set<MallocEvalElement> evalMalloc(Set<MemoryStatus> entry) {
+    // mayFail が false なら、割り当てに失敗して NULL を返す場合を考えない
+    private Set<MallocEvalElement> evalMalloc(Set<MemoryStatus> entry, int site, boolean mayFail) {
         Set<MallocEvalElement> result = new HashSet<MallocEvalElement>();
 
         for (MemoryStatus s : entry) {
             // mallocがメモリ生成に失敗した場合
-            result.add(new MallocEvalElement(s, InvalidAddress.NULL));
+            if (mayFail) {
+                result.add(new MallocEvalElement(s, InvalidAddress.NULL));
+            }
 
             // mallocがメモリ生成した場合
             MemoryStatus newStatus = new MemoryStatus(s);
-            MemoryBlock b = newStatus.memoryManager().allocate();
+            MemoryBlock b = newStatus.allocate(site);
             result.add(new MallocEvalElement(newStatus, new HeapAddress(b.id())));
         }
 
@@ -260,7 +558,7 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
     
     // p = malloc(...)
     private Set<MemoryStatus> evalAssignMallocToVariable(
-            IVariable lhs, Set<MallocEvalElement> entry) {
+            VariableRef lhs, Set<MallocEvalElement> entry) {
         Set<MemoryStatus> result = new HashSet<MemoryStatus>();
         // 普通の変数への代入
         for (MallocEvalElement elem : entry) {
@@ -269,18 +567,18 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             unrefIfPointingToHeapAddress(lhs, newStatus);
 
             if (elem.allocatedAddress == InvalidAddress.NULL) {
-                newStatus.variableManager().put(new Variable(
-                            lhs,
+                newStatus.variableManager().put(lhs.id, new Variable(
+                            lhs.binding,
                             Variable.States.NULL,
                             null));
             } else {
                 if (elem.allocatedAddress instanceof HeapAddress) {
                     MemoryBlock b = newStatus.memoryManager().find(
                             ((HeapAddress) elem.allocatedAddress).memoryBlockId());
-                    b.ref();
+                    newStatus.memoryManager().ref(b);
                 }
-                newStatus.variableManager().put(new Variable(
-                            lhs,
+                newStatus.variableManager().put(lhs.id, new Variable(
+                            lhs.binding,
                             Variable.States.POINTING,
                             elem.allocatedAddress));
             }
@@ -292,27 +590,9 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     // p = malloc(...)
     private Set<MemoryStatus> evalAssignMallocToVariable(
-            IASTBinaryExpression assignNode, Set<MallocEvalElement> entry) {
-        if (assignNode.getOperand1() instanceof IASTIdExpression) {
-            IBinding lhsBinding = Util.getName(assignNode.getOperand1()).resolveBinding();
-
-            if (lhsBinding instanceof IVariable) {
-                // 普通の変数への代入
-                IVariable lhs = (IVariable) lhsBinding;
-                return evalAssignMallocToVariable(lhs, entry);
-            }
-        }
-        return new HashSet<MemoryStatus>();
-    }
-
-    // T *p = malloc(..);
-    private Set<MemoryStatus> evalAssignMallocToVariable(
-            IASTDeclarator assignNode, Set<MallocEvalElement> entry) {
-        IBinding lhsBinding = assignNode.getName().resolveBinding();
-
-        if (lhsBinding instanceof IVariable) {
+            IASTBinaryExpression assignNode, VariableRef lhs, Set<MallocEvalElement> entry) {
+        if (assignNode.getOperand1() instanceof IASTIdExpression && lhs != null) {
             // 普通の変数への代入
-            IVariable lhs = (IVariable) lhsBinding;
             return evalAssignMallocToVariable(lhs, entry);
         }
         return new HashSet<MemoryStatus>();
@@ -320,7 +600,7 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     // p = q
     private Set<MemoryStatus> evalAssignVariableToVariable(
-            IVariable lhs, IVariable rhs, Set<MemoryStatus> entry) {
+            VariableRef lhs, VariableRef rhs, Set<MemoryStatus> entry) {
         Set<MemoryStatus> result = new HashSet<MemoryStatus>();
         for (MemoryStatus status : entry) {
             MemoryStatus newStatus = new MemoryStatus(status);
@@ -329,10 +609,10 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             unrefIfPointingToHeapAddress(lhs, newStatus);
             refIfPointingToHeapAddress(rhs, newStatus);
 
-            newStatus.variableManager().put(new Variable(
-                        lhs,
-                        vm.get(rhs).status(),
-                        vm.get(rhs).value()));
+            Variable rhsVar = vm.get(rhs.id);
+            vm.put(lhs.id, rhsVar == null
+                    ? new Variable(lhs.binding, Variable.States.UNDEFINED, null)
+                    : rhsVar.bind(lhs.binding));
 
             result.add(newStatus);
         }
@@ -341,28 +621,9 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     // p = q
     private Set<MemoryStatus> evalAssignVariableToVariable(
-            IASTBinaryExpression assignNode, IVariable rhs, Set<MemoryStatus> entry) {
-        if (assignNode.getOperand1() instanceof IASTIdExpression) {
-            IBinding lhsBinding = Util.getName(assignNode.getOperand1()).resolveBinding();
-
-            if (lhsBinding instanceof IVariable) {
-                // 普通の変数への代入
-                IVariable lhs = (IVariable) lhsBinding;
-                return evalAssignVariableToVariable(lhs, rhs, entry);
-            }
-        }
-
-        return new HashSet<MemoryStatus>();
-    }
-
-    // p = q
-    private Set<MemoryStatus> evalAssignVariableToVariable(
-            IASTDeclarator assignNode, IVariable rhs, Set<MemoryStatus> entry) {
-        IBinding lhsBinding = assignNode.getName().resolveBinding();
-
-        if (lhsBinding instanceof IVariable) {
+            IASTBinaryExpression assignNode, VariableRef lhs, VariableRef rhs, Set<MemoryStatus> entry) {
+        if (assignNode.getOperand1() instanceof IASTIdExpression && lhs != null) {
             // 普通の変数への代入
-            IVariable lhs = (IVariable) lhsBinding;
             return evalAssignVariableToVariable(lhs, rhs, entry);
         }
 
@@ -371,7 +632,7 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     // p = NULL
     private Set<MemoryStatus> evalAssignNullToVariable(
-            IVariable lhs, Set<MemoryStatus> entry) {
+            VariableRef lhs, Set<MemoryStatus> entry) {
         Set<MemoryStatus> result = new HashSet<MemoryStatus>();
 
         // 普通の変数への代入
@@ -380,8 +641,8 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
             unrefIfPointingToHeapAddress(lhs, newStatus);
 
-            newStatus.variableManager().put(new Variable(
-                        lhs,
+            newStatus.variableManager().put(lhs.id, new Variable(
+                        lhs.binding,
                         Variable.States.NULL,
                         null));
 
@@ -392,8 +653,62 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
     }
 
 
-    private Set<MemoryStatus> analyzeFree(
-            List<IASTNode> pathToFree, Set<MemoryStatus> entry) {
+    // f(..) : 要約を持つ関数の呼び出し
+    // 要約に従い、解放される仮引数に渡した領域を free し、割り当てた領域を返すなら malloc と同様に扱う
+    private Set<MemoryStatus> analyzeCall(Statement statement, Set<MemoryStatus> entry) {
+        IASTFunctionCallExpression call =
+            (IASTFunctionCallExpression) statement.path.get(statement.path.size() - 1);
+        FunctionSummary summary = this.summaries.get(CallGraph.getCalleeName(call));
+
+        Set<MemoryStatus> result = entry;
+        IASTExpression[] arguments = Util.getArguments(call);
+        for (int i : summary.freedParameters()) {
+            VariableRef arg = i < arguments.length ? statement.variable(Util.getName(arguments[i])) : null;
+            if (arg != null) {
+                result = collectFreeResults(call, evalFree(result, arg));
+            }
+        }
+
+        if (summary.returnsAllocation()) {
+            return assignAllocation(statement, evalMalloc(result, statement.site, summary.mayReturnNull()));
+        }
+        return result;
+    }
+
+    // return p : p が指す領域の所有権は呼び出し元に移るので、この関数では解放済みとみなす.
+    // 仮引数が指す領域は元から呼び出し元のものなので変更しない
+    private Set<MemoryStatus> analyzeReturn(Statement statement, Set<MemoryStatus> entry) {
+        IASTIdExpression value =
+            (IASTIdExpression) ((IASTReturnStatement) statement.path.get(0)).getReturnValue();
+        VariableRef var = statement.variable(value.getName());
+
+        Set<MemoryStatus> result = new HashSet<MemoryStatus>();
+        for (MemoryStatus s : entry) {
+            Variable v = s.variableManager().get(var.id);
+            if (v == null || !v.mayPointToHeap()) {
+                result.add(s);
+                continue;
+            }
+            MemoryStatus newStatus = new MemoryStatus(s);
+            for (Address a : v.mayValues()) {
+                if (a instanceof HeapAddress) {
+                    MemoryBlock b = newStatus.memoryManager().find(((HeapAddress) a).memoryBlockId());
+                    if (b.parameterIndex() >= 0) {
+                        continue;
+                    } else if (v.isSummary() || b.isMultiple()) {
+                        newStatus.memoryManager().weakRelease(b);
+                    } else {
+                        newStatus.memoryManager().release(b);
+                    }
+                }
+            }
+            result.add(newStatus);
+        }
+        return result;
+    }
+
+    private Set<MemoryStatus> analyzeFree(Statement statement, Set<MemoryStatus> entry) {
+        List<IASTNode> pathToFree = statement.path;
 
         // free呼び出しのノードから上方向へトラバース
         ListIterator<IASTNode> it = pathToFree.listIterator(pathToFree.size());
@@ -410,18 +725,20 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             System.out.println("freeの引数の数がおかしい: " + node.getRawSignature());
             return entry;
         }
-        IASTName arg0Name = Util.getName(arguments[0]);
-        IBinding arg0Binding;
-        if (arg0Name == null || !((arg0Binding = arg0Name.resolveBinding()) instanceof IVariable)) {
+        VariableRef arg0 = statement.variable(Util.getName(arguments[0]));
+        if (arg0 == null) {
             System.out.println("freeの引数が変数名ではない");
             return entry;
         }
-        Set<FreeEvalElement> afterFreeStatusSet = evalFree(entry, (IVariable) arg0Binding);
+        return collectFreeResults(node, evalFree(entry, arg0));
+    }
 
+    // free の評価結果から問題を記録し、評価後の状態の集合を返す
+    private Set<MemoryStatus> collectFreeResults(IASTNode node, Set<FreeEvalElement> afterFreeStatusSet) {
         Set<MemoryStatus> result = new HashSet<MemoryStatus>();
         for (FreeEvalElement elem : afterFreeStatusSet) {
             if (elem.problem != null) {
-                this.problems.add(new MemoryProblem(node, elem.problem));
+                this.problems.add(new MemoryProblem(node, elem.problem, elem.possible));
             }
             result.add(elem.afterStatus);
         }
@@ -432,28 +749,47 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
     private static class FreeEvalElement {
         public final MemoryStatus afterStatus; // free呼び出しにより変化したメモリ状態
         public final MemoryProblem.Kind problem; // free呼び出しで発見された問題
+        public final boolean possible; // 問題が起こるかもしれないだけなら true
         public FreeEvalElement(MemoryStatus afterStatus, MemoryProblem.Kind problem) {
+            this(afterStatus, problem, false);
+        }
+        public FreeEvalElement(MemoryStatus afterStatus, MemoryProblem.Kind problem, boolean possible) {
             this.afterStatus = afterStatus;
             this.problem = problem;
+            this.possible = possible;
         }
     }
 
     // free(..)
-    private Set<FreeEvalElement> evalFree(Set<MemoryStatus> entry, IVariable arg) {
+    private Set<FreeEvalElement> evalFree(Set<MemoryStatus> entry, VariableRef arg) {
         Set<FreeEvalElement> result = new HashSet<FreeEvalElement>();
 
         for (MemoryStatus s : entry) {
             MemoryStatus newStatus = new MemoryStatus(s);
             MemoryProblem.Kind problem = null;
+            boolean possible = false;
 
-            switch (s.variableManager().getVariableStatus(arg)) {
+            switch (s.variableManager().getVariableStatus(arg.id)) {
             case POINTING: {
-                Address value = newStatus.variableManager().get(arg).value();
+                Address value = newStatus.variableManager().get(arg.id).value();
                 if (value instanceof HeapAddress) {
                     MemoryBlock b = newStatus.memoryManager().find(
                             ((HeapAddress) value).memoryBlockId());
-                    if (b.allocated()) {
+                    if (b.isMultiple()) {
+                        // 複数ブロックのうちどれを解放するかは分からないので弱い更新とする.
+                        // すべて解放済みの場合に限り2重解放とする
+                        if (b.mayAllocated()) {
+                            newStatus.memoryManager().weakRelease(b);
+                        } else {
+                            problem = MemoryProblem.Kind.DOUBLE_FREE;
+                        }
+                    } else if (b.allocated()) {
                         newStatus.memoryManager().release(b);
+                    } else if (b.mayAllocated()) {
+                        // 要約されたブロックは解放済みかもしれない
+                        newStatus.memoryManager().release(b);
+                        problem = MemoryProblem.Kind.DOUBLE_FREE;
+                        possible = true;
                     } else {
                         //problem = "既に開放されている領域をfreeしてはいけない";
                         problem = MemoryProblem.Kind.DOUBLE_FREE;
@@ -472,16 +808,43 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
                 //problem = "未初期化変数をfreeしてはいけない";
                 problem = MemoryProblem.Kind.UNINITIALIZED_VALUE_FREE;
                 break;
+            case UNKNOWN:
+                evalFreeSummary(newStatus, newStatus.variableManager().get(arg.id), result);
+                continue;
             }
 
-            result.add(new FreeEvalElement(newStatus, problem));
+            result.add(new FreeEvalElement(newStatus, problem, possible));
         }
 
         return result;
     }
 
-    private Set<MemoryStatus> analyzeRealloc(
-            List<IASTNode> pathToRealloc, Set<MemoryStatus> entry) {
+    // free(..) の引数が要約変数である場合.
+    // 指し得るブロックはどれが解放されるか分からないので、解放済みかもしれない状態にする
+    private static void evalFreeSummary(MemoryStatus newStatus, Variable var,
+            Set<FreeEvalElement> result) {
+        result.add(new FreeEvalElement(newStatus, null));
+        if (var.mayStatuses().contains(Variable.States.UNDEFINED)) {
+            result.add(new FreeEvalElement(newStatus,
+                        MemoryProblem.Kind.UNINITIALIZED_VALUE_FREE, true));
+        }
+        for (Address value : var.mayValues()) {
+            if (value instanceof HeapAddress) {
+                MemoryBlock b = newStatus.memoryManager().find(
+                        ((HeapAddress) value).memoryBlockId());
+                if (b.isMultiple() ? !b.mayAllocated() : !b.allocated()) {
+                    result.add(new FreeEvalElement(newStatus, MemoryProblem.Kind.DOUBLE_FREE, true));
+                }
+                newStatus.memoryManager().weakRelease(b);
+            } else {
+                result.add(new FreeEvalElement(newStatus, MemoryProblem.Kind.UNKNOWN_VALUE_FREE, true));
+            }
+        }
+    }
+
+    private Set<MemoryStatus> analyzeRealloc(Statement statement, Set<MemoryStatus> entry) {
+        List<IASTNode> pathToRealloc = statement.path;
+        int site = statement.site;
 
         // malloc呼び出しのノードから上方向へトラバース
         ListIterator<IASTNode> it = pathToRealloc.listIterator(pathToRealloc.size());
@@ -503,16 +866,16 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
         Set<MallocEvalElement> afterReallocStatusSet = null;
         if (Util.equals(arg0Name.getSimpleID(), "NULL")) {
-            afterReallocStatusSet = evalMalloc(entry);
+            afterReallocStatusSet = evalMalloc(entry, site, true);
         } else {
-            IBinding arg0Binding;
-            if (arg0Name == null || !((arg0Binding = arg0Name.resolveBinding()) instanceof IVariable)) {
+            VariableRef arg0 = statement.variable(arg0Name);
+            if (arg0 == null) {
                 System.out.println("reallocの第1引数が変数名ではない");
                 return entry;
             }
             if (arg1Signature.equals("0")) {
             } else {
-                afterReallocStatusSet = evalRealloc(entry, (IVariable) arg0Binding);
+                afterReallocStatusSet = evalRealloc(entry, arg0, site);
             }
         }
 
@@ -525,26 +888,24 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
                 // pathToReallocの後ろから二番目の要素が代入式である場合
                 IASTBinaryExpression be = (IASTBinaryExpression) node;
-                IASTName lhsName = Util.getName(be.getOperand1());
-                IBinding lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                VariableRef lhs = statement.variable(Util.getName(be.getOperand1()));
 
-                if (lhsBinding instanceof IVariable) {
+                if (lhs != null) {
                     // hoge = realloc()
-                    Set<MemoryStatus> intermediateStatus = evalAssignMallocToVariable(be, afterReallocStatusSet);
+                    Set<MemoryStatus> intermediateStatus = evalAssignMallocToVariable(be, lhs, afterReallocStatusSet);
 
-                    IVariable rhsBinding = (IVariable) lhsBinding;
-                    while (it.hasPrevious() && rhsBinding != null) {
+                    VariableRef rhs = lhs;
+                    while (it.hasPrevious() && rhs != null) {
                         node = it.previous();
                         if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
                             be = (IASTBinaryExpression) node;
-                            lhsName = Util.getName(be.getOperand1());
-                            lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                            lhs = statement.variable(Util.getName(be.getOperand1()));
 
                             // hoge = foo
                             intermediateStatus = evalAssignVariableToVariable(
-                                    be, rhsBinding, intermediateStatus);
+                                    be, lhs, rhs, intermediateStatus);
 
-                            rhsBinding = lhsBinding instanceof IVariable ? (IVariable) lhsBinding : null;
+                            rhs = lhs;
                         } else {
                             break;
                         }
@@ -571,7 +932,7 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
 
     // realloc(..)
     // ptr, sizeともに0ではない場合の処理
-    private Set<MallocEvalElement> evalRealloc(Set<MemoryStatus> entry, IVariable arg) {
+    private Set<MallocEvalElement> evalRealloc(Set<MemoryStatus> entry, VariableRef arg, int site) {
         Set<MallocEvalElement> result = new HashSet<MallocEvalElement>();
 
         for (MemoryStatus s : entry) {
@@ -581,30 +942,47 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             // reallocがサイズ変更に成功した場合
             MemoryStatus newStatus = new MemoryStatus(s);
             MemoryBlock argPointingBlock = null;
+            Variable argVar = null;
 
             // argが指しているメモリ領域を探す
-            switch (s.variableManager().getVariableStatus(arg)) {
+            switch (s.variableManager().getVariableStatus(arg.id)) {
             case POINTING:
-                Address value = s.variableManager().get(arg).value();
+                Address value = s.variableManager().get(arg.id).value();
                 if (value instanceof HeapAddress) {
                     HeapAddress heapAddress = (HeapAddress) value;
                     argPointingBlock = newStatus.memoryManager().find(heapAddress.memoryBlockId());
                 }
                 break;
+            case UNKNOWN:
+                argVar = s.variableManager().get(arg.id);
+                break;
             }
 
-            MemoryBlock b = newStatus.memoryManager().allocate();
-            result.add(new MallocEvalElement(newStatus, new HeapAddress(b.id())));
-            if (argPointingBlock != null) {
+            // 割り当てより先に解放する. arg がまだ指しているブロックを割り当て地点の
+            // 複数ブロックに取り込んでしまうと、解放が弱い解放になりリークを誤検出する
+            if (argPointingBlock != null && argPointingBlock.isMultiple()) {
+                newStatus.memoryManager().weakRelease(argPointingBlock);
+            } else if (argPointingBlock != null) {
                 newStatus.memoryManager().release(argPointingBlock);
+            } else if (argVar != null) {
+                // 要約変数が指し得るブロックのどれが解放されるかは分からない
+                for (Address value : argVar.mayValues()) {
+                    if (value instanceof HeapAddress) {
+                        newStatus.memoryManager().weakRelease(newStatus.memoryManager().find(
+                                    ((HeapAddress) value).memoryBlockId()));
+                    }
+                }
             }
+
+            MemoryBlock b = newStatus.allocate(site);
+            result.add(new MallocEvalElement(newStatus, new HeapAddress(b.id())));
         }
 
         return result;
     }
 
-    private Set<MemoryStatus> analyzeVariableAssign(
-            List<IASTNode> pathToVariableAssign, Set<MemoryStatus> entry) {
+    private Set<MemoryStatus> analyzeVariableAssign(Statement statement, Set<MemoryStatus> entry) {
+        List<IASTNode> pathToVariableAssign = statement.path;
 
         // 変数代入のノードから上方向へトラバース
         ListIterator<IASTNode> it = pathToVariableAssign.listIterator(pathToVariableAssign.size());
@@ -635,19 +1013,19 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
                 }
             }
         }
-        IBinding lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+        VariableRef lhs = lhsName == null ? null : statement.variable(lhsName);
 
-        if (lhsBinding instanceof IVariable) {
+        if (lhs != null) {
             IASTName rhsName = Util.getName(rhs);
-            IBinding rhsBinding = rhsName == null ? null : rhsName.resolveBinding();
+            VariableRef rhsVariable = rhsName == null ? null : statement.variable(rhsName);
             Set<MemoryStatus> intermediateStatus = null;
 
             if (rhs.getRawSignature().equals("NULL")) {
                 // hoge = NULL
-                intermediateStatus = evalAssignNullToVariable((IVariable) lhsBinding, entry);
-            } else if (rhsBinding instanceof IVariable) {
+                intermediateStatus = evalAssignNullToVariable(lhs, entry);
+            } else if (rhsVariable != null) {
                 // hoge = variable
-                intermediateStatus = evalAssignVariableToVariable((IVariable) lhsBinding, (IVariable) rhsBinding, entry);
+                intermediateStatus = evalAssignVariableToVariable(lhs, rhsVariable, entry);
             } else {
                 System.out.println("Not supported syntax: the most right expression is not a ID expression");
                 return entry;
@@ -656,19 +1034,18 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
             // a = b = .. = foo
             // という形なら=の続く限り解析し、最終的な状態を全体の状態とする
             if (node instanceof IASTBinaryExpression) {
-                rhsBinding = lhsBinding;
-                while (it.hasPrevious() && rhsBinding != null) {
+                rhsVariable = lhs;
+                while (it.hasPrevious() && rhsVariable != null) {
                     node = it.previous();
                     if (Util.isIASTBinaryExpression(node, IASTBinaryExpression.op_assign)) {
                         IASTBinaryExpression be = (IASTBinaryExpression) node;
-                        lhsName = Util.getName(be.getOperand1());
-                        lhsBinding = lhsName == null ? null : lhsName.resolveBinding();
+                        lhs = statement.variable(Util.getName(be.getOperand1()));
     
                         // hoge = foo
                         intermediateStatus = evalAssignVariableToVariable(
-                                be, (IVariable) rhsBinding, intermediateStatus);
+                                be, lhs, rhsVariable, intermediateStatus);
     
-                        rhsBinding = lhsBinding instanceof IVariable ? (IVariable) lhsBinding : null;
+                        rhsVariable = lhs;
                     } else {
                         break;
                     }
@@ -690,27 +1067,43 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
     }
 
     private static void refIfPointingToHeapAddress(
-            IVariable var, MemoryStatus status) {
+            VariableRef var, MemoryStatus status) {
         VariableManager vm = status.variableManager();
-        if (vm.getVariableStatus(var) == Variable.States.POINTING) {
-            Address value = vm.get(var).value();
+        if (vm.getVariableStatus(var.id) == Variable.States.UNKNOWN) {
+            // 要約変数が指し得るブロックは、参照カウントの上限だけが増える
+            for (Address value : vm.get(var.id).mayValues()) {
+                if (value instanceof HeapAddress) {
+                    status.memoryManager().mayRef(status.memoryManager().find(
+                                ((HeapAddress) value).memoryBlockId()));
+                }
+            }
+        } else if (vm.getVariableStatus(var.id) == Variable.States.POINTING) {
+            Address value = vm.get(var.id).value();
             if (value instanceof HeapAddress) {
                 MemoryBlock b = status.memoryManager().find(
                         ((HeapAddress) value).memoryBlockId());
-                b.ref();
+                status.memoryManager().ref(b);
             }
         }
     }
 
     private static void unrefIfPointingToHeapAddress(
-            IVariable var, MemoryStatus status) {
+            VariableRef var, MemoryStatus status) {
         VariableManager vm = status.variableManager();
-        if (vm.getVariableStatus(var) == Variable.States.POINTING) {
-            Address value = vm.get(var).value();
+        if (vm.getVariableStatus(var.id) == Variable.States.UNKNOWN) {
+            // 要約変数が指し得るブロックは、参照カウントの下限だけが減る
+            for (Address value : vm.get(var.id).mayValues()) {
+                if (value instanceof HeapAddress) {
+                    status.memoryManager().mayUnref(status.memoryManager().find(
+                                ((HeapAddress) value).memoryBlockId()));
+                }
+            }
+        } else if (vm.getVariableStatus(var.id) == Variable.States.POINTING) {
+            Address value = vm.get(var.id).value();
             if (value instanceof HeapAddress) {
                 MemoryBlock b = status.memoryManager().find(
                         ((HeapAddress) value).memoryBlockId());
-                b.unref();
+                status.memoryManager().unref(b);
             }
         }
     }
@@ -747,8 +1140,12 @@ public class PointToSolver extends ForwardSolver<CFG.Vertex, MemoryStatus> {
                             System.out.println("  " + memoryStatus);
 
                             for (MemoryBlock b : memoryStatus.memoryManager().memoryBlocks()) {
-                                if (b.allocated() && (leavingNode || b.refCount() == 0)) {
+                                if (b.parameterIndex() >= 0) {
+                                    // 呼び出し元の領域
+                                } else if (b.allocated() && (leavingNode || b.mayRefCount() == 0)) {
                                     System.out.println("    メモリリーク検出: " + b);
+                                } else if (b.mayAllocated() && (leavingNode || b.refCount() == 0)) {
+                                    System.out.println("    メモリリークの可能性: " + b);
                                 }
                             }
                         }
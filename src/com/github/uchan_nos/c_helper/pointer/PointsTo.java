@@ -0,0 +1,102 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 翻訳単位全体のポインタ解析（{@link PointsToAnalyzer}）の結果.
+ * ポインタが指し得る記憶域と、2つのポインタが同じ記憶域を指し得るかを問い合わせる.
+ *
+ * 結果はフロー非依存なので、ポインタがプログラムのどこかで指し得る記憶域をすべて含む.
+ * 解析の後は変更されないので、複数のスレッドから同時に問い合わせてよい.
+ *
+ * @author uchan
+ *
+ */
+public class PointsTo {
+    private final InclusionConstraintSolver solver;
+    private final List<AbstractLocation> locations;
+    private final Map<IVariable, Integer> variableNodes;
+    private final Map<IASTExpression, Integer> expressionNodes;
+
+    /**
+     * @param solver 解き終えた制約
+     * @param locations 節点番号から記憶域への対応. 記憶域でない節点は null
+     * @param variableNodes 変数の節点番号
+     * @param expressionNodes 式の値を表す節点番号
+     */
+    PointsTo(InclusionConstraintSolver solver,
+            List<AbstractLocation> locations,
+            Map<IVariable, Integer> variableNodes,
+            Map<IASTExpression, Integer> expressionNodes) {
+        this.solver = solver;
+        this.locations = locations;
+        this.variableNodes = variableNodes;
+        this.expressionNodes = expressionNodes;
+    }
+
+    /**
+     * ポインタ変数が指し得る記憶域の集合を返す.
+     * 解析の対象外の変数なら空集合を返す.
+     */
+    public Set<AbstractLocation> mayPointTo(IVariable pointer) {
+        return toLocations(pointsTo(variableNodes.get(pointer)));
+    }
+
+    /**
+     * 式の値が指し得る記憶域の集合を返す.
+     * 関数の中や大域変数の初期化子に現れる式が対象で、ポインタの値を持たない式なら空集合を返す.
+     */
+    public Set<AbstractLocation> mayPointTo(IASTExpression pointer) {
+        return toLocations(pointsTo(expressionNodes.get(pointer)));
+    }
+
+    /**
+     * 変数が指し得る記憶域のうち、ヒープ領域の割り当て地点を持つものがあるかを返す.
+     */
+    public boolean mayPointToHeap(IVariable pointer) {
+        BitSet pts = pointsTo(variableNodes.get(pointer));
+        for (int n = pts.nextSetBit(0); n >= 0; n = pts.nextSetBit(n + 1)) {
+            if (locations.get(n).kind() == AbstractLocation.Kind.HEAP) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 2つのポインタ変数が同じ記憶域を指し得るかを返す.
+     */
+    public boolean mayAlias(IVariable a, IVariable b) {
+        return pointsTo(variableNodes.get(a)).intersects(pointsTo(variableNodes.get(b)));
+    }
+
+    /**
+     * 2つの式の値が同じ記憶域を指し得るかを返す.
+     */
+    public boolean mayAlias(IASTExpression a, IASTExpression b) {
+        return pointsTo(expressionNodes.get(a)).intersects(pointsTo(expressionNodes.get(b)));
+    }
+
+    private BitSet pointsTo(Integer node) {
+        return node == null ? new BitSet(0) : solver.pointsTo(node);
+    }
+
+    private Set<AbstractLocation> toLocations(BitSet pts) {
+        if (pts.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<AbstractLocation> result = new LinkedHashSet<AbstractLocation>();
+        for (int n = pts.nextSetBit(0); n >= 0; n = pts.nextSetBit(n + 1)) {
+            result.add(locations.get(n));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
@@ -0,0 +1,478 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTArraySubscriptExpression;
+import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
+import org.eclipse.cdt.core.dom.ast.IASTCastExpression;
+import org.eclipse.cdt.core.dom.ast.IASTConditionalExpression;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTEqualsInitializer;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionList;
+import org.eclipse.cdt.core.dom.ast.IASTFieldReference;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
+import org.eclipse.cdt.core.dom.ast.IASTInitializer;
+import org.eclipse.cdt.core.dom.ast.IASTInitializerClause;
+import org.eclipse.cdt.core.dom.ast.IASTInitializerList;
+import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IASTStatement;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
+import org.eclipse.cdt.core.dom.ast.IArrayType;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IFunction;
+import org.eclipse.cdt.core.dom.ast.IFunctionType;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+import com.github.uchan_nos.c_helper.util.TypeUtil;
+import com.github.uchan_nos.c_helper.util.Util;
+
+/**
+ * 翻訳単位全体を対象とする、フロー非依存・文脈非依存のポインタ解析（Andersen の方式）.
+ * 代入、アドレス演算子、間接参照、関数呼び出しから包含制約を作り、
+ * {@link InclusionConstraintSolver} で解いて {@link PointsTo} を得る.
+ *
+ * 構造体のメンバと配列の要素は区別せず、それを含む変数として扱う.
+ * ヒープ領域は malloc, calloc, realloc の呼び出し地点ごとに1つの記憶域とする.
+ * 関数ポインタによる間接呼び出しは、指し得る関数が増えなくなるまで制約を追加して解き直す.
+ *
+ * @author uchan
+ *
+ */
+public class PointsToAnalyzer {
+    private final IASTTranslationUnit ast;
+
+    private final InclusionConstraintSolver solver = new InclusionConstraintSolver();
+    private final List<AbstractLocation> locations = new ArrayList<AbstractLocation>();
+    private final Map<IVariable, Integer> variableNodes = new HashMap<IVariable, Integer>();
+    private final Map<String, Integer> functionNodes = new HashMap<String, Integer>();
+    private final Map<String, Integer> returnNodes = new HashMap<String, Integer>();
+    private final Map<String, IVariable[]> parameters = new HashMap<String, IVariable[]>();
+    // 記憶域の節点から、そのアドレスを値に持つ節点への対応
+    private final Map<Integer, Integer> addressNodes = new HashMap<Integer, Integer>();
+    private final Map<IASTExpression, Integer> expressionNodes = new HashMap<IASTExpression, Integer>();
+    private final List<IndirectCall> indirectCalls = new ArrayList<IndirectCall>();
+
+    public PointsToAnalyzer(IASTTranslationUnit ast) {
+        this.ast = ast;
+    }
+
+    /**
+     * 式が表す記憶域. deref が false なら節点 node そのもの、true なら node が指す先である.
+     */
+    private static class Location {
+        final int node;
+        final boolean deref;
+
+        Location(int node, boolean deref) {
+            this.node = node;
+            this.deref = deref;
+        }
+    }
+
+    // 関数ポインタによる呼び出し
+    private static class IndirectCall {
+        final int callee;
+        final int[] arguments;
+        final int result;
+        final Set<Integer> boundFunctions = new HashSet<Integer>();
+
+        IndirectCall(int callee, int[] arguments, int result) {
+            this.callee = callee;
+            this.arguments = arguments;
+            this.result = result;
+        }
+    }
+
+    public PointsTo analyze() {
+        for (IASTDeclaration decl : ast.getDeclarations()) {
+            if (decl instanceof IASTFunctionDefinition) {
+                IASTFunctionDefinition def = (IASTFunctionDefinition) decl;
+                parameters.put(def.getDeclarator().getName().toString(),
+                        FunctionSummary.parametersOf(def));
+            }
+        }
+
+        ast.accept(new ASTVisitor(true) {
+            private String function = null;
+
+            @Override
+            public int visit(IASTDeclaration declaration) {
+                if (declaration instanceof IASTFunctionDefinition) {
+                    function = ((IASTFunctionDefinition) declaration).getDeclarator().getName().toString();
+                }
+                return super.visit(declaration);
+            }
+
+            @Override
+            public int leave(IASTDeclaration declaration) {
+                if (declaration instanceof IASTFunctionDefinition) {
+                    function = null;
+                }
+                return super.leave(declaration);
+            }
+
+            @Override
+            public int visit(IASTDeclarator declarator) {
+                // int (*fp)(int) = f; では、名前は最も内側の宣言子にある
+                IASTDeclarator nestedDecl = declarator;
+                while (nestedDecl.getNestedDeclarator() != null) {
+                    nestedDecl = nestedDecl.getNestedDeclarator();
+                }
+                IBinding binding = nestedDecl.getName().resolveBinding();
+                if (binding instanceof IVariable
+                        && declarator.getInitializer() instanceof IASTEqualsInitializer) {
+                    initialize(variableNode((IVariable) binding),
+                            ((IASTEqualsInitializer) declarator.getInitializer()).getInitializerClause());
+                }
+                return super.visit(declarator);
+            }
+
+            @Override
+            public int visit(IASTInitializer initializer) {
+                // 初期化子は宣言子とともに処理した
+                return PROCESS_SKIP;
+            }
+
+            @Override
+            public int visit(IASTStatement statement) {
+                if (statement instanceof IASTReturnStatement) {
+                    int value = value(((IASTReturnStatement) statement).getReturnValue());
+                    if (function != null && value >= 0) {
+                        solver.copy(returnNode(function), value);
+                    }
+                    return PROCESS_SKIP;
+                }
+                return super.visit(statement);
+            }
+
+            @Override
+            public int visit(IASTExpression expression) {
+                // 部分式は value で辿る
+                value(expression);
+                return PROCESS_SKIP;
+            }
+        });
+
+        solver.solve();
+        while (bindIndirectCalls()) {
+            solver.solve();
+        }
+
+        return new PointsTo(solver, locations, variableNodes, expressionNodes);
+    }
+
+    // 関数ポインタが新たに指し得るようになった関数について、引数と戻り値の制約を追加する
+    private boolean bindIndirectCalls() {
+        boolean added = false;
+        for (IndirectCall call : indirectCalls) {
+            List<Integer> functions = new ArrayList<Integer>();
+            BitSet pts = solver.pointsTo(call.callee);
+            for (int n = pts.nextSetBit(0); n >= 0; n = pts.nextSetBit(n + 1)) {
+                if (locations.get(n).kind() == AbstractLocation.Kind.FUNCTION
+                        && !call.boundFunctions.contains(n)) {
+                    functions.add(n);
+                }
+            }
+            for (int n : functions) {
+                call.boundFunctions.add(n);
+                bindCall(locations.get(n).functionName(), call.arguments, call.result);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    // 関数 name の呼び出しの引数を仮引数に、戻り値を result に流す
+    private void bindCall(String name, int[] arguments, int result) {
+        IVariable[] params = parameters.get(name);
+        for (int i = 0; params != null && i < Math.min(params.length, arguments.length); ++i) {
+            if (params[i] != null && arguments[i] >= 0) {
+                solver.copy(variableNode(params[i]), arguments[i]);
+            }
+        }
+        solver.copy(result, returnNode(name));
+    }
+
+    private void initialize(int variable, IASTInitializerClause clause) {
+        if (clause instanceof IASTInitializerList) {
+            // 要素やメンバは区別しないので、すべて変数自身への代入とみなす
+            for (IASTInitializerClause c : ((IASTInitializerList) clause).getClauses()) {
+                initialize(variable, c);
+            }
+        } else if (clause instanceof IASTExpression) {
+            int value = value((IASTExpression) clause);
+            if (value >= 0) {
+                solver.copy(variable, value);
+            }
+        }
+    }
+
+    /**
+     * 式の値が指し得る先を表す節点を返す. ポインタの値を持たない式なら -1 を返す.
+     * 部分式も辿り、代入や関数呼び出しの制約を追加する.
+     */
+    private int value(IASTExpression e) {
+        if (e == null) {
+            return -1;
+        }
+        int node = translate(e);
+        if (node >= 0) {
+            expressionNodes.put(e, node);
+        }
+        return node;
+    }
+
+    private int translate(IASTExpression e) {
+        if (e instanceof IASTIdExpression
+                || e instanceof IASTFieldReference
+                || e instanceof IASTArraySubscriptExpression
+                || (e instanceof IASTUnaryExpression
+                    && ((IASTUnaryExpression) e).getOperator() == IASTUnaryExpression.op_star)) {
+            Location loc = location(e);
+            if (loc == null) {
+                return -1;
+            } else if (decaysToPointer(e)) {
+                // 配列と関数は先頭のアドレスに変換される
+                return address(loc);
+            }
+            return read(loc);
+        } else if (e instanceof IASTUnaryExpression) {
+            IASTUnaryExpression u = (IASTUnaryExpression) e;
+            switch (u.getOperator()) {
+            case IASTUnaryExpression.op_amper:
+                Location loc = location(u.getOperand());
+                return loc == null ? -1 : address(loc);
+            case IASTUnaryExpression.op_bracketedPrimary:
+            case IASTUnaryExpression.op_prefixIncr:
+            case IASTUnaryExpression.op_prefixDecr:
+            case IASTUnaryExpression.op_postFixIncr:
+            case IASTUnaryExpression.op_postFixDecr:
+                // ポインタ演算は同じ記憶域の中を指すとみなす
+                return value(u.getOperand());
+            case IASTUnaryExpression.op_sizeof:
+            case IASTUnaryExpression.op_alignOf:
+                // 評価されない
+                return -1;
+            default:
+                value(u.getOperand());
+                return -1;
+            }
+        } else if (e instanceof IASTBinaryExpression) {
+            IASTBinaryExpression b = (IASTBinaryExpression) e;
+            switch (b.getOperator()) {
+            case IASTBinaryExpression.op_assign: {
+                int rhs = value(b.getOperand2());
+                assign(location(b.getOperand1()), rhs);
+                return rhs;
+            }
+            case IASTBinaryExpression.op_plus:
+                return union(value(b.getOperand1()), value(b.getOperand2()));
+            case IASTBinaryExpression.op_minus:
+            case IASTBinaryExpression.op_plusAssign:
+            case IASTBinaryExpression.op_minusAssign: {
+                int lhs = value(b.getOperand1());
+                value(b.getOperand2());
+                return lhs;
+            }
+            default:
+                value(b.getOperand1());
+                value(b.getOperand2());
+                return -1;
+            }
+        } else if (e instanceof IASTCastExpression) {
+            return value(((IASTCastExpression) e).getOperand());
+        } else if (e instanceof IASTConditionalExpression) {
+            IASTConditionalExpression c = (IASTConditionalExpression) e;
+            int condition = value(c.getLogicalConditionExpression());
+            int positive = c.getPositiveResultExpression() == null
+                ? condition : value(c.getPositiveResultExpression());
+            return union(positive, value(c.getNegativeResultExpression()));
+        } else if (e instanceof IASTExpressionList) {
+            int last = -1;
+            for (IASTExpression sub : ((IASTExpressionList) e).getExpressions()) {
+                last = value(sub);
+            }
+            return last;
+        } else if (e instanceof IASTFunctionCallExpression) {
+            return call((IASTFunctionCallExpression) e);
+        }
+        return -1;
+    }
+
+    /**
+     * 左辺値となる式が表す記憶域を返す. 記憶域を特定できなければ null を返す.
+     */
+    private Location location(IASTExpression e) {
+        if (e instanceof IASTIdExpression) {
+            IBinding binding = ((IASTIdExpression) e).getName().resolveBinding();
+            if (binding instanceof IVariable) {
+                int node = variableNode((IVariable) binding);
+                expressionNodes.put(e, node);
+                return new Location(node, false);
+            } else if (binding instanceof IFunction) {
+                return new Location(functionNode(binding.getName()), false);
+            }
+            return null;
+        } else if (e instanceof IASTFieldReference) {
+            IASTFieldReference f = (IASTFieldReference) e;
+            if (f.isPointerDereference()) {
+                int pointer = value(f.getFieldOwner());
+                return pointer < 0 ? null : new Location(pointer, true);
+            }
+            return location(f.getFieldOwner());
+        } else if (e instanceof IASTArraySubscriptExpression) {
+            IASTArraySubscriptExpression a = (IASTArraySubscriptExpression) e;
+            int array = value(a.getArrayExpression());
+            value(a.getSubscriptExpression());
+            return array < 0 ? null : new Location(array, true);
+        } else if (e instanceof IASTUnaryExpression) {
+            IASTUnaryExpression u = (IASTUnaryExpression) e;
+            if (u.getOperator() == IASTUnaryExpression.op_star) {
+                int pointer = value(u.getOperand());
+                return pointer < 0 ? null : new Location(pointer, true);
+            } else if (u.getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+                return location(u.getOperand());
+            }
+        } else if (e instanceof IASTCastExpression) {
+            return location(((IASTCastExpression) e).getOperand());
+        }
+        value(e);
+        return null;
+    }
+
+    // 記憶域の値を表す節点
+    private int read(Location loc) {
+        if (!loc.deref) {
+            return loc.node;
+        }
+        int t = newNode(null);
+        solver.load(t, loc.node);
+        return t;
+    }
+
+    // 記憶域のアドレスを表す節点
+    private int address(Location loc) {
+        if (loc.deref) {
+            // &*p は p
+            return loc.node;
+        }
+        Integer node = addressNodes.get(loc.node);
+        if (node == null) {
+            node = newNode(null);
+            solver.addressOf(node, loc.node);
+            addressNodes.put(loc.node, node);
+        }
+        return node;
+    }
+
+    private void assign(Location loc, int value) {
+        if (loc == null || value < 0) {
+            return;
+        }
+        if (loc.deref) {
+            solver.store(loc.node, value);
+        } else {
+            solver.copy(loc.node, value);
+        }
+    }
+
+    private int union(int a, int b) {
+        if (a < 0 || b < 0) {
+            return a < 0 ? b : a;
+        }
+        int t = newNode(null);
+        solver.copy(t, a);
+        solver.copy(t, b);
+        return t;
+    }
+
+    private int call(IASTFunctionCallExpression call) {
+        IASTExpression[] args = Util.getArguments(call);
+        int[] arguments = new int[args.length];
+        for (int i = 0; i < args.length; ++i) {
+            arguments[i] = value(args[i]);
+        }
+
+        // 宣言の無い関数も名前で直接呼び出すとみなす
+        IASTExpression nameExpression = call.getFunctionNameExpression();
+        String name = CallGraph.getCalleeName(call);
+        if (name == null
+                || ((IASTIdExpression) nameExpression).getName().resolveBinding() instanceof IVariable) {
+            int pointer = value(nameExpression);
+            if (pointer < 0) {
+                return -1;
+            }
+            int result = newNode(null);
+            indirectCalls.add(new IndirectCall(pointer, arguments, result));
+            return result;
+        }
+
+        if ("malloc".equals(name) || "calloc".equals(name) || "realloc".equals(name)) {
+            int heap = newNode(AbstractLocation.heap(call));
+            int result = address(new Location(heap, false));
+            if ("realloc".equals(name) && arguments.length > 0) {
+                // 領域を移動せずに広げたなら元の領域を指す
+                result = union(result, arguments[0]);
+            }
+            return result;
+        }
+
+        int result = newNode(null);
+        bindCall(name, arguments, result);
+        return result;
+    }
+
+    // 節点を追加する. 記憶域でない節点なら location は null
+    private int newNode(AbstractLocation location) {
+        int node = solver.addNode();
+        locations.add(location);
+        return node;
+    }
+
+    private int variableNode(IVariable variable) {
+        Integer node = variableNodes.get(variable);
+        if (node == null) {
+            node = newNode(AbstractLocation.variable(variable));
+            variableNodes.put(variable, node);
+        }
+        return node;
+    }
+
+    private int functionNode(String name) {
+        Integer node = functionNodes.get(name);
+        if (node == null) {
+            node = newNode(AbstractLocation.function(name));
+            functionNodes.put(name, node);
+        }
+        return node;
+    }
+
+    private int returnNode(String function) {
+        Integer node = returnNodes.get(function);
+        if (node == null) {
+            node = newNode(null);
+            returnNodes.put(function, node);
+        }
+        return node;
+    }
+
+    // 配列型と関数型の式は、値として使うとポインタに変換される
+    private static boolean decaysToPointer(IASTExpression e) {
+        IType type = TypeUtil.resolveOuterTypedef(e.getExpressionType());
+        return type instanceof IArrayType || type instanceof IFunctionType;
+    }
+}
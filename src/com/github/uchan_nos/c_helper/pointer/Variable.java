@@ -1,38 +1,107 @@
 package com.github.uchan_nos.c_helper.pointer;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.cdt.core.dom.ast.IVariable;
 
 import com.github.uchan_nos.c_helper.util.Util;
 
 /**
  * 1つの変数を表す不変オブジェクト.
+ *
+ * 要約された状態（複数のメモリ状態を併合した状態）では、変数は取り得る状態の集合と
+ * 指し得るアドレスの集合を持つ. 状態とアドレスが1つに定まらない変数を要約変数と呼び、
+ * その {@link #status()} は {@link States#UNKNOWN} となる.
  */
 public class Variable {
     public enum States {
         UNDEFINED,
         NULL,
-        POINTING
+        POINTING,
+        /** 要約変数. 取り得る状態は {@link Variable#mayStatuses()} で得られる */
+        UNKNOWN
     }
 
     private final IVariable binding;
     private final States status;
     private final Address value;
 
+    // 取り得る状態と、POINTING のときに指し得るアドレス
+    private final Set<States> mayStatuses;
+    private final Set<Address> mayValues;
+
     public Variable(IVariable binding, States status, Address value) {
         this.binding = binding;
         this.status = status;
         this.value = value;
+        this.mayStatuses = Collections.unmodifiableSet(EnumSet.of(status));
+        this.mayValues = status == States.POINTING && value != null
+            ? Collections.singleton(value) : Collections.<Address>emptySet();
+    }
+
+    private Variable(IVariable binding, Set<States> mayStatuses, Set<Address> mayValues) {
+        this.binding = binding;
+        this.status = States.UNKNOWN;
+        this.value = null;
+        this.mayStatuses = Collections.unmodifiableSet(mayStatuses);
+        this.mayValues = Collections.unmodifiableSet(mayValues);
+    }
+
+    /**
+     * 取り得る状態と指し得るアドレスから変数を生成する.
+     * 状態とアドレスが1つに定まるなら通常の変数を返す.
+     */
+    public static Variable create(IVariable binding, Set<States> mayStatuses, Set<Address> mayValues) {
+        if (mayStatuses.size() == 1 && mayValues.size() <= 1) {
+            States s = mayStatuses.iterator().next();
+            if (s != States.POINTING || mayValues.size() == 1) {
+                return new Variable(binding, s,
+                        mayValues.isEmpty() ? null : mayValues.iterator().next());
+            }
+        }
+        return new Variable(binding, EnumSet.copyOf(mayStatuses), new HashSet<Address>(mayValues));
+    }
+
+    /**
+     * 2つの変数を併合した変数を返す. 束縛は this のものを使う.
+     */
+    public Variable join(Variable o) {
+        if (this.equals(o)) {
+            return this;
+        }
+        Set<States> statuses = EnumSet.copyOf(this.mayStatuses);
+        statuses.addAll(o.mayStatuses);
+        Set<Address> values = new HashSet<Address>(this.mayValues);
+        values.addAll(o.mayValues);
+        return create(this.binding, statuses, values);
+    }
+
+    /**
+     * 束縛だけを置き換えた変数を返す. 代入 lhs = this に用いる.
+     */
+    public Variable bind(IVariable binding) {
+        if (isSummary()) {
+            return new Variable(binding, this.mayStatuses, this.mayValues);
+        }
+        return new Variable(binding, this.status, this.value);
     }
 
     @Override
     public final boolean equals(Object o) {
-        if (!(o instanceof Variable)) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof Variable)) {
             return false;
         }
         Variable v = (Variable) o;
         return Util.equalsOrBothNull(this.binding, v.binding)
             && this.status == v.status
-            && Util.equalsOrBothNull(this.value, v.value);
+            && Util.equalsOrBothNull(this.value, v.value)
+            && (this.status != States.UNKNOWN
+                    || (this.mayStatuses.equals(v.mayStatuses) && this.mayValues.equals(v.mayValues)));
     }
 
     @Override
@@ -41,6 +110,9 @@ public class Variable {
         result = 31 * result + (binding == null ? 0 : binding.hashCode());
         result = 31 * result + status.ordinal();
         result = 31 * result + (value == null ? 0 : value.hashCode());
+        if (status == States.UNKNOWN) {
+            result = 31 * result + mayValues.hashCode();
+        }
         return result;
     }
 
@@ -50,9 +122,15 @@ public class Variable {
         sb.append("VAR(");
         sb.append(String.valueOf(binding));
         sb.append(',');
-        sb.append(String.valueOf(status));
-        sb.append(',');
-        sb.append(String.valueOf(value));
+        if (isSummary()) {
+            sb.append(String.valueOf(mayStatuses));
+            sb.append(',');
+            sb.append(String.valueOf(mayValues));
+        } else {
+            sb.append(String.valueOf(status));
+            sb.append(',');
+            sb.append(String.valueOf(value));
+        }
         sb.append(')');
         return sb.toString();
     }
@@ -61,11 +139,50 @@ public class Variable {
         return binding;
     }
 
+    /**
+     * 変数の状態を返す. 要約変数なら UNKNOWN を返す.
+     */
     public States status() {
         return status;
     }
 
+    /**
+     * 変数の値を返す. 要約変数なら null を返す.
+     */
     public Address value() {
         return value;
     }
+
+    /**
+     * 状態とアドレスが1つに定まらない要約変数かを返す.
+     */
+    public boolean isSummary() {
+        return status == States.UNKNOWN;
+    }
+
+    /**
+     * 取り得る状態の集合を返す.
+     */
+    public Set<States> mayStatuses() {
+        return mayStatuses;
+    }
+
+    /**
+     * 指し得るアドレスの集合を返す.
+     */
+    public Set<Address> mayValues() {
+        return mayValues;
+    }
+
+    /**
+     * ヒープ領域を指し得るかを返す.
+     */
+    public boolean mayPointToHeap() {
+        for (Address a : mayValues) {
+            if (a instanceof HeapAddress) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,50 @@
+package com.github.uchan_nos.c_helper.pointer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+/**
+ * 1つの関数の解析で現れる変数に、現れた順に 0 から始まる番号を振る.
+ * 1つの初期状態からコピーして作られたメモリ状態はすべて同じ索引を共有し、
+ * {@link VariableManager} は変数の状態を番号で引く配列に保持する.
+ * 番号を引くにはハッシュ表の探索が要るので、{@link PointToSolver} は文を分類するときに一度だけ引き、
+ * 解析中は番号で変数を扱う.
+ *
+ * 索引は状態のコピーの間で共有されるので、複数のスレッドから同時に使ってはならない.
+ */
+final class VariableIndex {
+    private final Map<IVariable, Integer> ids = new HashMap<IVariable, Integer>();
+    private final List<IVariable> variables = new ArrayList<IVariable>();
+
+    /**
+     * 変数の番号を返す. 番号が振られていなければ -1 を返す.
+     */
+    public int find(IVariable v) {
+        Integer id = this.ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 変数の番号を返す. 番号が振られていなければ新たに振る.
+     */
+    public int idOf(IVariable v) {
+        Integer id = this.ids.get(v);
+        if (id == null) {
+            id = this.variables.size();
+            this.ids.put(v, id);
+            this.variables.add(v);
+        }
+        return id;
+    }
+
+    /**
+     * 番号が振られた変数の数を返す.
+     */
+    public int size() {
+        return this.variables.size();
+    }
+}
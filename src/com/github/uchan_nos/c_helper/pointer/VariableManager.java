@@ -1,32 +1,57 @@
 package com.github.uchan_nos.c_helper.pointer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.cdt.core.dom.ast.IVariable;
 
-import com.github.uchan_nos.c_helper.util.Util;
-
 /**
  * 変数の状態を管理する.
  * 変数は明示的に割り当てられない限り Undefined を示す.
+ *
+ * 変数の状態は、{@link VariableIndex} が振った番号で引く配列に保持する.
+ * 配列はコピーの間で共有し、変更するときに複製する（コピーオンライト）.
+ * そのためコピーは O(1) だが、{@link #put} と {@link #remove} は配列全体を複製するので O(変数の数) かかる.
+ * 番号を引く {@link #get(int)} などは配列の参照だけで済み、変数のハッシュ値を計算しない.
  */
 public class VariableManager {
-    private final Map<IVariable, Variable> variables;
+    private final VariableIndex index;
+    private Variable[] variables;
+    private int size;
+    private int hash;
+
+    // getContainingVariables の結果. 変更されるまで使い回す
+    private List<Variable> containing = null;
+
+    private static final Variable[] NO_VARIABLES = new Variable[0];
 
     public VariableManager() {
-        this.variables = new HashMap<IVariable, Variable>();
+        this(new VariableIndex());
+    }
+
+    /**
+     * 指定された索引を共有する、空のマネージャを生成する.
+     */
+    VariableManager(VariableIndex index) {
+        this.index = index;
+        this.variables = NO_VARIABLES;
+        this.size = 0;
+        this.hash = 0;
     }
 
     public VariableManager(VariableManager o) {
-        // Variable が不変オブジェクトなので，シャローコピーする
-        this.variables = new HashMap<IVariable, Variable>(o.variables);
+        // 配列は書き込み時に複製し，Variable は不変オブジェクトなので，共有する
+        this.index = o.index;
+        this.variables = o.variables;
+        this.size = o.size;
+        this.hash = o.hash;
+        this.containing = o.containing;
     }
 
     @Override
@@ -35,45 +60,55 @@ public class VariableManager {
             return false;
         }
         VariableManager m = (VariableManager) o;
-        return Util.equalsOrBothNull(this.variables, m.variables);
+        if (this.variables == m.variables) {
+            return true;
+        } else if (this.size != m.size || this.hash != m.hash) {
+            return false;
+        } else if (this.index != m.index) {
+            // 別々の索引を持つマネージャは変数の集合として比べる
+            return new HashSet<Variable>(getContainingVariables()).equals(
+                    new HashSet<Variable>(m.getContainingVariables()));
+        }
+        int n = Math.max(this.variables.length, m.variables.length);
+        for (int id = 0; id < n; ++id) {
+            Variable v1 = id < this.variables.length ? this.variables[id] : null;
+            Variable v2 = id < m.variables.length ? m.variables[id] : null;
+            if (v1 != v2 && (v1 == null || !v1.equals(v2))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public final int hashCode() {
-        return variables.hashCode();
+        // 変数のハッシュ値の和. 索引や配列の長さによらない
+        return this.hash;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        List<IVariable> keys = new ArrayList<IVariable>(variables.keySet());
+        List<Variable> vars = new ArrayList<Variable>(getContainingVariables());
 
-        Collections.sort(keys,
-                new Comparator<IVariable>() {
-                    @Override public int compare(IVariable o1, IVariable o2) {
-                        String o1_ = o1.getName();
+        Collections.sort(vars,
+                new Comparator<Variable>() {
+                    @Override public int compare(Variable v1, Variable v2) {
+                        String o1_ = v1.binding().getName();
                         if (o1_ == null) {
-                            return o2.getName() == null ? 0 : -1;
+                            return v2.binding().getName() == null ? 0 : -1;
                         }
-                        return o1_.compareTo(o2.getName());
+                        return o1_.compareTo(v2.binding().getName());
                     }
                 });
 
-        /*
-        Util.Function<String, Variable> varToString = new Util.Function<String, Variable>() {
-            @Override public String calc(Variable arg) {
-                return arg.binding().getName() +
-                    ((arg.status() == Variable.States.UNDEFINED) ? "?" : ("->" + arg.value()));
-            }};
-            */
-
-        Iterator<IVariable> it = keys.iterator();
+        Iterator<Variable> it = vars.iterator();
         if (it.hasNext()) {
-            sb.append(variables.get(it.next()).toString());
+            sb.append(it.next().toString());
 
             while (it.hasNext()) {
                 sb.append(',');
-                sb.append(variables.get(it.next()).toString());
+                sb.append(it.next().toString());
             }
         } else {
             sb.append("empty-var-mgr");
@@ -89,7 +124,15 @@ public class VariableManager {
      * このメソッドでその変数が登録されているかどうかは判定できない。
      */
     public Variable.States getVariableStatus(IVariable v) {
-        Variable var = variables.get(v);
+        return getVariableStatus(this.index.find(v));
+    }
+
+    /**
+     * 番号 id の変数の状態を返す. 番号は {@link VariableIndex} が振ったもの.
+     * 登録されていないなら UNDEFINED を返す.
+     */
+    Variable.States getVariableStatus(int id) {
+        Variable var = get(id);
         if (var == null) {
             return Variable.States.UNDEFINED;
         } else {
@@ -102,7 +145,14 @@ public class VariableManager {
      * 登録されていないなら null を返す.
      */
     public Variable get(IVariable v) {
-        return variables.get(v);
+        return get(this.index.find(v));
+    }
+
+    /**
+     * 番号 id の変数を返す. 登録されていないなら null を返す.
+     */
+    Variable get(int id) {
+        return id >= 0 && id < this.variables.length ? this.variables[id] : null;
     }
 
     /**
@@ -110,13 +160,74 @@ public class VariableManager {
      * もし指定された変数が既にこのマネージャに登録されているなら、上書きする.
      */
     public void put(Variable var) {
-        variables.put(var.binding(), var);
+        put(this.index.idOf(var.binding()), var);
+    }
+
+    /**
+     * 番号 id の変数として var を登録する. id は var の変数に振られた番号でなければならない.
+     */
+    void put(int id, Variable var) {
+        assert this.index.find(var.binding()) == id;
+        Variable old = id < this.variables.length ? this.variables[id] : null;
+        if (old == var) {
+            return;
+        }
+        Variable[] newVariables = Arrays.copyOf(this.variables,
+                Math.max(this.variables.length, id + 1));
+        newVariables[id] = var;
+        this.variables = newVariables;
+        if (old == null) {
+            this.size++;
+        } else {
+            this.hash -= old.hashCode();
+        }
+        this.hash += var.hashCode();
+        this.containing = null;
     }
 
     /**
-     * このマネージャが保持している変数の一覧を返す.
+     * 指定された変数の登録を解除する. 解除した変数は UNDEFINED を示す.
+     */
+    public void remove(IVariable v) {
+        remove(this.index.find(v));
+    }
+
+    /**
+     * 番号 id の変数の登録を解除する.
+     */
+    void remove(int id) {
+        if (id < 0 || id >= this.variables.length || this.variables[id] == null) {
+            return;
+        }
+        Variable[] newVariables = this.variables.clone();
+        this.hash -= newVariables[id].hashCode();
+        this.size--;
+        newVariables[id] = null;
+        this.variables = newVariables;
+        this.containing = null;
+    }
+
+    /**
+     * このマネージャが保持している変数の一覧を、変数の番号の順に返す.
+     * 返されるコレクションは呼び出し時点の内容を表し、以降の変更の影響を受けない.
      */
     public Collection<Variable> getContainingVariables() {
-        return variables.values();
+        if (this.containing == null) {
+            List<Variable> result = new ArrayList<Variable>(this.size);
+            for (Variable var : this.variables) {
+                if (var != null) {
+                    result.add(var);
+                }
+            }
+            this.containing = Collections.unmodifiableList(result);
+        }
+        return this.containing;
+    }
+
+    /**
+     * 変数に番号を振る索引を返す.
+     */
+    VariableIndex index() {
+        return this.index;
     }
 }
@@ -3,6 +3,7 @@ package com.github.uchan_nos.c_helper.pointer.test;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.cdt.core.dom.ast.*;
 
@@ -68,6 +69,47 @@ public class ASTPathFinderTest {
         assertEquals(3, pathToMalloc.size());
     }
 
+    @Test
+    public void findPathsTest() {
+        final String src =
+            "#include <stdlib.h>\n" +
+            "void f(void) {\n" +
+            "  char *p = malloc(10), *q;\n" +
+            "  free(p = q = malloc(20));\n" +
+            "}\n";
+
+        IASTTranslationUnit tu = new Parser(new FileInfo("", false), src).parseOrNull();
+        List<IASTDeclaration> decls = extractPartOfTUDeclarations(tu.getDeclarations());
+
+        ASTFilter.Predicate mallocCallPredicate = ASTPathFinder.createFunctionCallPredicate("malloc");
+        ASTFilter.Predicate freeCallPredicate = ASTPathFinder.createFunctionCallPredicate("free");
+        ASTFilter.Predicate[] preds = {mallocCallPredicate, freeCallPredicate};
+
+        // free(p = q = malloc(20));
+        Map<ASTFilter.Predicate, List<List<IASTNode>>> paths = ASTPathFinder.findPaths(
+                Util.getChildNode(decls.get(0), 2, 1), preds, ASTPathFinder.MAY_CONTAIN_CALL);
+        assertEquals(1, paths.get(mallocCallPredicate).size());
+        assertEquals(1, paths.get(freeCallPredicate).size());
+        assertTrue(isSameOrder(paths.get(freeCallPredicate).get(0),
+                    IASTExpressionStatement.class,
+                    IASTFunctionCallExpression.class
+                    ));
+        assertTrue(isSameOrder(paths.get(mallocCallPredicate).get(0),
+                    IASTExpressionStatement.class,
+                    IASTFunctionCallExpression.class,
+                    IASTBinaryExpression.class,
+                    IASTBinaryExpression.class,
+                    IASTFunctionCallExpression.class
+                    ));
+
+        // 関数全体では findPath と同じ結果になる
+        paths = ASTPathFinder.findPaths(Util.getChildNode(decls.get(0), 2), preds, null);
+        assertEquals(2, paths.get(mallocCallPredicate).size());
+        assertEquals(1, paths.get(freeCallPredicate).size());
+        assertEquals(ASTPathFinder.findPath(Util.getChildNode(decls.get(0), 2), mallocCallPredicate),
+                paths.get(mallocCallPredicate));
+    }
+
     private List<IASTDeclaration> extractPartOfTUDeclarations(IASTDeclaration[] declarations) {
         ArrayList<IASTDeclaration> result = new ArrayList<IASTDeclaration>();
         for (IASTDeclaration d : declarations) {
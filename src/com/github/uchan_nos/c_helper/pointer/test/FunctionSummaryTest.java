@@ -0,0 +1,146 @@
+package com.github.uchan_nos.c_helper.pointer.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+import com.github.uchan_nos.c_helper.analysis.test.ParsedSource;
+import com.github.uchan_nos.c_helper.pointer.FunctionSummary;
+import com.github.uchan_nos.c_helper.pointer.MemoryBlock;
+import com.github.uchan_nos.c_helper.pointer.MemoryProblem;
+import com.github.uchan_nos.c_helper.pointer.MemoryStatus;
+import com.github.uchan_nos.c_helper.pointer.PointToSolver;
+
+public class FunctionSummaryTest {
+    private static final String SOURCE =
+        "#include <stdlib.h>\n" +
+        "struct node { struct node *next; int value; };\n" +
+        "struct node *create_node(int value) {\n" +
+        "  struct node *n = malloc(sizeof(struct node));\n" +
+        "  return n;\n" +
+        "}\n" +
+        "void destroy(struct node *p) {\n" +
+        "  free(p);\n" +
+        "}\n" +
+        "void destroy_head(struct node *p) {\n" +
+        "  struct node *next = p->next;\n" +
+        "  free(p);\n" +
+        "  p = next;\n" +
+        "}\n" +
+        "void release(char *buf) {\n" +
+        "  free(buf);\n" +
+        "  buf = NULL;\n" +
+        "}\n" +
+        "void keep(struct node *p, int c) {\n" +
+        "  if (c)\n" +
+        "    free(p);\n" +
+        "}\n" +
+        "void use(void) {\n" +
+        "  struct node *n = create_node(1);\n" +
+        "  destroy(n);\n" +
+        "}\n" +
+        "void twice(void) {\n" +
+        "  struct node *n = create_node(1);\n" +
+        "  destroy_head(n);\n" +
+        "  free(n);\n" +
+        "}\n" +
+        "void leak(void) {\n" +
+        "  struct node *n = create_node(1);\n" +
+        "  n = NULL;\n" +
+        "}\n";
+
+    // 呼び出しグラフの段の順に各関数を解析して要約を返す. 解析器と出口の状態は引数に格納する
+    private static Map<String, FunctionSummary> summarizeAll(ParsedSource src,
+            Map<String, PointToSolver> solvers, Map<String, Set<MemoryStatus>> exits) {
+        Map<String, FunctionSummary> summaries = new HashMap<String, FunctionSummary>();
+        for (List<String> level : new CallGraph(src.getProcToCFG()).getBottomUpLevels()) {
+            Map<String, FunctionSummary> calleeSummaries =
+                Collections.unmodifiableMap(new HashMap<String, FunctionSummary>(summaries));
+            for (String proc : level) {
+                CFG cfg = src.cfg(proc);
+                IVariable[] parameters = FunctionSummary.parametersOf(src.function(proc));
+                PointToSolver solver = new PointToSolver(cfg, cfg.entryVertex(), null,
+                        PointToSolver.DEFAULT_MAX_STATES, parameters, calleeSummaries);
+                PointToSolver.Result<CFG.Vertex, MemoryStatus> result = solver.solve();
+                summaries.put(proc, FunctionSummary.summarize(cfg, parameters, result, calleeSummaries));
+                solvers.put(proc, solver);
+                exits.put(proc, result.analysisValue.get(cfg.exitVertex()).entry());
+            }
+        }
+        return summaries;
+    }
+
+    private static IASTFunctionCallExpression call(ParsedSource src, String function, String signature) {
+        for (IASTFunctionCallExpression c : src.nodes(function, IASTFunctionCallExpression.class)) {
+            if (c.getRawSignature().equals(signature)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    // 仮引数の領域以外に、割り当て済みで誰からも参照されないブロックがあるか
+    private static boolean leaks(Set<MemoryStatus> statuses) {
+        for (MemoryStatus s : statuses) {
+            for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
+                if (b.parameterIndex() < 0 && b.allocated() && b.mayRefCount() == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void summarizeTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        Map<String, FunctionSummary> summaries = summarizeAll(src,
+                new HashMap<String, PointToSolver>(), new HashMap<String, Set<MemoryStatus>>());
+
+        // return n : 割り当てた領域の所有権は呼び出し元に移る
+        assertEquals(new FunctionSummary(true, true, new int[0]), summaries.get("create_node"));
+
+        // 解放した仮引数は、出口で参照されずに状態から消えていても解放済みとする
+        assertArrayEquals(new int[] { 0 }, summaries.get("destroy").freedParameters());
+        assertArrayEquals(new int[] { 0 }, summaries.get("destroy_head").freedParameters());
+        assertArrayEquals(new int[] { 0 }, summaries.get("release").freedParameters());
+
+        // 解放しない経路がある仮引数は解放済みとしない
+        assertArrayEquals(new int[0], summaries.get("keep").freedParameters());
+        assertFalse(summaries.get("keep").hasEffect());
+    }
+
+    @Test
+    public void callWithSummaryTest() {
+        ParsedSource src = new ParsedSource(SOURCE);
+        Map<String, PointToSolver> solvers = new HashMap<String, PointToSolver>();
+        Map<String, Set<MemoryStatus>> exits = new HashMap<String, Set<MemoryStatus>>();
+        summarizeAll(src, solvers, exits);
+
+        // 返した領域は create_node 内ではリークしない
+        assertFalse(leaks(exits.get("create_node")));
+        assertTrue(solvers.get("create_node").problems().isEmpty());
+
+        // 割り当てた領域を受け取り、要約に従って解放する
+        assertFalse(leaks(exits.get("use")));
+        assertTrue(solvers.get("use").problems().isEmpty());
+
+        // destroy_head が解放した領域をもう一度解放する
+        assertTrue(solvers.get("twice").problems().contains(new MemoryProblem(
+                        call(src, "twice", "free(n)"), MemoryProblem.Kind.DOUBLE_FREE, false)));
+
+        // 受け取った領域を解放せずに捨てる
+        assertTrue(leaks(exits.get("leak")));
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.uchan_nos.c_helper.pointer.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.pointer.InclusionConstraintSolver;
+
+public class InclusionConstraintSolverTest {
+
+    @Test
+    public void basicTest() {
+        // p = &a; q = p; r = &q; s = *r; *r = &b;
+        InclusionConstraintSolver s = new InclusionConstraintSolver();
+        int a = s.addNode(), b = s.addNode();
+        int p = s.addNode(), q = s.addNode(), r = s.addNode(), t = s.addNode();
+        int addrB = s.addNode();
+
+        s.addressOf(p, a);
+        s.copy(q, p);
+        s.addressOf(r, q);
+        s.load(t, r);
+        s.addressOf(addrB, b);
+        s.store(r, addrB);
+        s.solve();
+
+        assertTrue(s.mayPointTo(p, a));
+        assertFalse(s.mayPointTo(p, b));
+        assertTrue(s.mayPointTo(q, a));
+        assertTrue(s.mayPointTo(q, b));
+        assertTrue(s.mayPointTo(t, a));
+        assertTrue(s.mayPointTo(t, b));
+        assertEquals(1, s.pointsTo(r).cardinality());
+        assertTrue(s.mayAlias(p, q));
+        assertFalse(s.mayAlias(p, r));
+    }
+
+    @Test
+    public void cycleTest() {
+        // x = y; y = z; z = x; x = &a; w = z;
+        InclusionConstraintSolver s = new InclusionConstraintSolver();
+        int a = s.addNode();
+        int x = s.addNode(), y = s.addNode(), z = s.addNode(), w = s.addNode();
+
+        s.copy(x, y);
+        s.copy(y, z);
+        s.copy(z, x);
+        s.copy(w, z);
+        s.addressOf(x, a);
+        s.solve();
+
+        assertTrue(s.mayPointTo(y, a));
+        assertTrue(s.mayPointTo(z, a));
+        assertTrue(s.mayPointTo(w, a));
+        assertTrue(s.isMerged(x, y));
+        assertTrue(s.isMerged(y, z));
+        assertFalse(s.isMerged(z, w));
+    }
+
+    @Test
+    public void incrementalTest() {
+        InclusionConstraintSolver s = new InclusionConstraintSolver();
+        int a = s.addNode(), b = s.addNode();
+        int p = s.addNode(), q = s.addNode();
+
+        s.addressOf(p, a);
+        s.copy(q, p);
+        s.solve();
+        assertFalse(s.mayPointTo(q, b));
+
+        // 解いた後に追加した制約は差分だけを解く
+        s.addressOf(p, b);
+        s.solve();
+        assertTrue(s.mayPointTo(q, a));
+        assertTrue(s.mayPointTo(q, b));
+    }
+
+    @Test
+    public void longChainTest() {
+        // 長い代入の連鎖と、それを閉じる閉路
+        InclusionConstraintSolver s = new InclusionConstraintSolver();
+        int a = s.addNode();
+        int first = s.addNode();
+        int prev = first;
+        for (int i = 0; i < 100000; ++i) {
+            int n = s.addNode();
+            s.copy(n, prev);
+            prev = n;
+        }
+        s.copy(first, prev);
+        s.addressOf(first, a);
+        s.solve();
+
+        assertTrue(s.mayPointTo(prev, a));
+        assertTrue(s.isMerged(first, prev));
+    }
+
+    @Test(timeout = 10000)
+    public void acyclicChainTest() {
+        // 閉路の無い長い連鎖で閉路検出を繰り返さない
+        InclusionConstraintSolver s = new InclusionConstraintSolver();
+        int a = s.addNode();
+        int first = s.addNode();
+        int prev = first;
+        for (int i = 0; i < 100000; ++i) {
+            int n = s.addNode();
+            s.copy(n, prev);
+            prev = n;
+        }
+        s.addressOf(first, a);
+        s.solve();
+
+        assertTrue(s.mayPointTo(prev, a));
+        assertFalse(s.isMerged(first, prev));
+    }
+}
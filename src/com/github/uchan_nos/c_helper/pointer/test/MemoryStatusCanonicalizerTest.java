@@ -0,0 +1,110 @@
+package com.github.uchan_nos.c_helper.pointer.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.pointer.HeapAddress;
+import com.github.uchan_nos.c_helper.pointer.MemoryBlock;
+import com.github.uchan_nos.c_helper.pointer.MemoryStatus;
+import com.github.uchan_nos.c_helper.pointer.MemoryStatusCanonicalizer;
+import com.github.uchan_nos.c_helper.pointer.Variable;
+
+public class MemoryStatusCanonicalizerTest {
+    private final VarName p = new VarName("p");
+    private final VarName q = new VarName("q");
+
+    // 変数の索引を共有する、p と q が未定義の状態. 同じ解析器の状態はこれをコピーして作る
+    private MemoryStatus base() {
+        MemoryStatus s = new MemoryStatus();
+        s.update(new Variable(p, Variable.States.UNDEFINED, null),
+                new Variable(q, Variable.States.UNDEFINED, null));
+        return s;
+    }
+
+    private static void point(MemoryStatus s, VarName var, MemoryBlock b) {
+        s.memoryManager().ref(b);
+        s.update(new Variable(var, Variable.States.POINTING, new HeapAddress(b.id())));
+    }
+
+    @Test
+    public void blockNumberingTest() {
+        MemoryStatus base = base();
+
+        // p が 1 番、q が 0 番のブロックを指す
+        MemoryStatus s1 = new MemoryStatus(base);
+        MemoryBlock b0 = s1.memoryManager().allocate();
+        MemoryBlock b1 = s1.memoryManager().allocate();
+        point(s1, q, b0);
+        point(s1, p, b1);
+
+        // ブロックの番号だけが異なる
+        MemoryStatus s2 = new MemoryStatus(base);
+        MemoryBlock c0 = s2.memoryManager().allocate();
+        MemoryBlock c1 = s2.memoryManager().allocate();
+        point(s2, p, c0);
+        point(s2, q, c1);
+        assertFalse(s1.equals(s2));
+
+        MemoryStatusCanonicalizer canonicalizer = new MemoryStatusCanonicalizer();
+        MemoryStatus canonical = canonicalizer.canonicalize(s1);
+        assertSame(canonical, canonicalizer.canonicalize(s2));
+        assertSame(canonical, canonicalizer.canonicalize(new MemoryStatus(s1)));
+
+        // 変数の順にブロックの番号を振り直す
+        assertEquals(new HeapAddress(0), canonical.variableManager().get(p).value());
+        assertEquals(new HeapAddress(1), canonical.variableManager().get(q).value());
+
+        // 既に正規形の状態はそのまま登録される
+        assertSame(s2, new MemoryStatusCanonicalizer().canonicalize(s2));
+    }
+
+    @Test
+    public void freedBlockTest() {
+        MemoryStatus s = new MemoryStatus(base());
+        MemoryBlock freed = s.memoryManager().allocate();
+        MemoryBlock dangling = s.memoryManager().allocate();
+        MemoryBlock leaked = s.memoryManager().allocate();
+        s.memoryManager().release(freed);
+        point(s, p, dangling);
+        s.memoryManager().release(dangling);
+
+        MemoryStatus canonical = new MemoryStatusCanonicalizer().canonicalize(s);
+
+        // 解放済みで参照されないブロックだけが取り除かれる
+        assertEquals(2, canonical.memoryManager().memoryBlocks().size());
+        MemoryBlock d = canonical.memoryManager().find(0);
+        assertEquals(new HeapAddress(0), canonical.variableManager().get(p).value());
+        assertFalse(d.allocated());
+        assertEquals(1, d.refCount());
+        MemoryBlock l = canonical.memoryManager().find(1);
+        assertTrue(l.allocated());
+        assertEquals(0, l.refCount());
+        assertEquals(leaked.site(), l.site());
+    }
+
+    @Test
+    public void unreferencedBlockMergeTest() {
+        MemoryStatus base = base();
+
+        // 変数から参照されず内容が等しいブロックは1つにまとめる
+        MemoryStatus s1 = new MemoryStatus(base);
+        s1.memoryManager().allocate();
+        s1.memoryManager().allocate();
+        s1.memoryManager().allocate();
+        MemoryStatus s2 = new MemoryStatus(base);
+        s2.memoryManager().allocate();
+
+        MemoryStatusCanonicalizer canonicalizer = new MemoryStatusCanonicalizer();
+        MemoryStatus canonical = canonicalizer.canonicalize(s1);
+        assertEquals(1, canonical.memoryManager().memoryBlocks().size());
+        assertSame(canonical, canonicalizer.canonicalize(s2));
+
+        // 参照カウントが 0 でないブロックは、まだ他から参照され得るのでまとめない
+        MemoryStatus s3 = new MemoryStatus(base);
+        s3.memoryManager().allocate();
+        s3.memoryManager().ref(s3.memoryManager().allocate());
+        s3.memoryManager().ref(s3.memoryManager().allocate());
+        assertEquals(3, canonicalizer.canonicalize(s3).memoryManager().memoryBlocks().size());
+    }
+}
@@ -9,6 +9,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.github.uchan_nos.c_helper.pointer.Address;
+import com.github.uchan_nos.c_helper.pointer.HeapAddress;
+import com.github.uchan_nos.c_helper.pointer.MemoryBlock;
 import com.github.uchan_nos.c_helper.pointer.MemoryStatus;
 import com.github.uchan_nos.c_helper.pointer.Variable;
 
@@ -71,6 +73,109 @@ public class MemoryStatusTest {
         ms0.update(new Variable(p, Variable.States.POINTING, new DummyAddress(3)));
         assertEquals(1, (new HashSet<MemoryStatus>(Arrays.asList(ms0, ms1))).size());
     }
+
+    @Test
+    public void summarizeTest() {
+        final VarName p = new VarName("p");
+        final VarName q = new VarName("q");
+
+        MemoryStatus ms0 = new MemoryStatus();
+        ms0.update(
+                new Variable(p, Variable.States.POINTING, new DummyAddress(1)),
+                new Variable(q, Variable.States.NULL, null)
+                );
+        MemoryBlock b = ms0.memoryManager().allocate();
+        ms0.memoryManager().ref(b);
+
+        MemoryStatus ms1 = new MemoryStatus();
+        ms1.update(new Variable(p, Variable.States.NULL, null));
+
+        MemoryStatus summary = MemoryStatus.summarize(Arrays.asList(ms0, ms1));
+        assertTrue(summary.isSummary());
+        assertFalse(ms0.isSummary());
+
+        Variable sp = summary.variableManager().get(p);
+        assertEquals(Variable.States.UNKNOWN, sp.status());
+        assertEquals(new HashSet<Variable.States>(Arrays.asList(
+                        Variable.States.POINTING, Variable.States.NULL)), sp.mayStatuses());
+        assertEquals(new HashSet<Address>(Arrays.asList(new DummyAddress(1))), sp.mayValues());
+
+        // ms1 に q はないので未定義だったとみなす
+        Variable sq = summary.variableManager().get(q);
+        assertEquals(new HashSet<Variable.States>(Arrays.asList(
+                        Variable.States.NULL, Variable.States.UNDEFINED)), sq.mayStatuses());
+
+        // ms1 にブロックはないので、割り当て済みかもしれないだけとなる
+        MemoryBlock sb = summary.memoryManager().find(b.id());
+        assertFalse(sb.allocated());
+        assertTrue(sb.mayAllocated());
+        assertEquals(0, sb.refCount());
+        assertEquals(1, sb.mayRefCount());
+
+        // 同じ状態同士を併合しても変わらない
+        assertEquals(summary, MemoryStatus.summarize(Arrays.asList(summary, summary)));
+        assertEquals(ms0, MemoryStatus.summarize(Arrays.asList(ms0, new MemoryStatus(ms0))));
+    }
+
+    @Test
+    public void allocationSiteTest() {
+        final VarName p = new VarName("p");
+        final VarName q = new VarName("q");
+
+        // ループ中の p = malloc(..) を模倣する
+        MemoryStatus ms = new MemoryStatus();
+        MemoryBlock b0 = ms.allocate(0);
+        ms.memoryManager().ref(b0);
+        ms.update(new Variable(p, Variable.States.POINTING, new HeapAddress(b0.id())));
+
+        // 2回目の割り当てで、1回目のブロックは複数ブロックになる
+        MemoryBlock b1 = ms.allocate(0);
+        assertTrue(ms.memoryManager().find(b0.id()).isMultiple());
+        assertFalse(b1.isMultiple());
+        assertEquals(0, b1.site());
+
+        ms.memoryManager().ref(b1);
+        ms.update(new Variable(q, Variable.States.POINTING, new HeapAddress(b1.id())));
+
+        // 3回目の割り当てで、2回目のブロックは複数ブロックに取り込まれ、q もそれを指す
+        MemoryBlock b2 = ms.allocate(0);
+        assertEquals(new HeapAddress(b0.id()), ms.variableManager().get(q).value());
+        MemoryBlock multiple = ms.memoryManager().find(b0.id());
+        assertTrue(multiple.isMultiple());
+        assertTrue(multiple.allocated());
+        assertEquals(2, multiple.refCount());
+
+        // ブロック数は割り当て地点あたり2つを超えない
+        assertFalse(b2.id() == b0.id());
+        assertEquals(2, ms.memoryManager().memoryBlocks().size());
+    }
+
+    @Test
+    public void releasedBlockTest() {
+        final VarName p = new VarName("p");
+
+        // ループ中の p = realloc(p, n) を模倣する
+        MemoryStatus ms = new MemoryStatus();
+        MemoryBlock b0 = ms.allocate(0);
+        ms.memoryManager().ref(b0);
+        ms.update(new Variable(p, Variable.States.POINTING, new HeapAddress(b0.id())));
+        ms.memoryManager().release(ms.memoryManager().find(b0.id()));
+
+        // 解放済みで p だけが指しているブロックは複数ブロックにならず、割り当て地点から外れる
+        MemoryBlock b1 = ms.allocate(0);
+        MemoryBlock released = ms.memoryManager().find(b0.id());
+        assertFalse(released.isMultiple());
+        assertFalse(released.mayAllocated());
+        assertEquals(-1, released.site());
+        assertEquals(1, released.refCount());
+        assertEquals(new HeapAddress(b0.id()), ms.variableManager().get(p).value());
+
+        // 次の割り当てでは新しいブロックが複数ブロックになる
+        ms.memoryManager().ref(b1);
+        ms.allocate(0);
+        assertTrue(ms.memoryManager().find(b1.id()).isMultiple());
+        assertTrue(ms.memoryManager().find(b1.id()).allocated());
+    }
 }
 
 interface Function<Ret, Arg> {
@@ -104,5 +209,5 @@ class DummyAddress extends Address {
     public String toString() {
         return "addr(" + id + ")";
     }
-}
 
+}
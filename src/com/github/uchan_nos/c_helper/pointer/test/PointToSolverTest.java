@@ -0,0 +1,212 @@
+package com.github.uchan_nos.c_helper.pointer.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.test.ParsedSource;
+import com.github.uchan_nos.c_helper.dataflow.Solver;
+import com.github.uchan_nos.c_helper.pointer.FunctionSummary;
+import com.github.uchan_nos.c_helper.pointer.HeapAddress;
+import com.github.uchan_nos.c_helper.pointer.MemoryBlock;
+import com.github.uchan_nos.c_helper.pointer.MemoryProblem;
+import com.github.uchan_nos.c_helper.pointer.MemoryStatus;
+import com.github.uchan_nos.c_helper.pointer.PointToSolver;
+import com.github.uchan_nos.c_helper.pointer.Variable;
+
+public class PointToSolverTest {
+    private static PointToSolver solver(ParsedSource src, String function, int maxStates) {
+        CFG cfg = src.cfg(function);
+        return new PointToSolver(cfg, cfg.entryVertex(), null, maxStates,
+                FunctionSummary.parametersOf(src.function(function)),
+                Collections.<String, FunctionSummary>emptyMap());
+    }
+
+    private static IVariable variable(ParsedSource src, String function, String name) {
+        return (IVariable) src.declarator(function, name).getName().resolveBinding();
+    }
+
+    private static IASTFunctionCallExpression call(ParsedSource src, String function, String signature) {
+        for (IASTFunctionCallExpression c : src.nodes(function, IASTFunctionCallExpression.class)) {
+            if (c.getRawSignature().equals(signature)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsSummary(Set<MemoryStatus> statuses) {
+        for (MemoryStatus s : statuses) {
+            if (s.isSummary()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 6つのポインタそれぞれが NULL、割り当て済み、解放済みのいずれかとなり、状態は 3^6 通りある
+    private static final String MANY_STATES_SOURCE =
+        "#include <stdlib.h>\n" +
+        "void f(int c) {\n" +
+        "  char *p0 = malloc(1);\n" +
+        "  char *p1 = malloc(1);\n" +
+        "  char *p2 = malloc(1);\n" +
+        "  char *p3 = malloc(1);\n" +
+        "  char *p4 = malloc(1);\n" +
+        "  char *p5 = malloc(1);\n" +
+        "  if (c) free(p0);\n" +
+        "  if (c) free(p1);\n" +
+        "  if (c) free(p2);\n" +
+        "  if (c) free(p3);\n" +
+        "  if (c) free(p4);\n" +
+        "  if (c) free(p5);\n" +
+        "}\n";
+
+    @Test
+    public void stateBoundTest() {
+        ParsedSource src = new ParsedSource(MANY_STATES_SOURCE);
+        CFG cfg = src.cfg("f");
+
+        // 上限が無ければ状態は既定の上限を超える
+        Set<MemoryStatus> unbounded = solver(src, "f", Integer.MAX_VALUE).solve()
+            .analysisValue.get(cfg.exitVertex()).exit();
+        assertTrue(unbounded.size() > PointToSolver.DEFAULT_MAX_STATES);
+        assertFalse(containsSummary(unbounded));
+
+        // 既定の上限では要約された状態に併合され、以降の状態はその要約に含まれる
+        Solver.Result<CFG.Vertex, MemoryStatus> result =
+            solver(src, "f", PointToSolver.DEFAULT_MAX_STATES).solve();
+        for (CFG.Vertex v : cfg.getVertices()) {
+            assertTrue(result.analysisValue.get(v).exit().size() <= PointToSolver.DEFAULT_MAX_STATES);
+        }
+        Set<MemoryStatus> bounded = result.analysisValue.get(cfg.exitVertex()).exit();
+        assertTrue(containsSummary(bounded));
+        assertTrue(bounded.size() < unbounded.size());
+        for (MemoryStatus s : bounded) {
+            if (s.isSummary()) {
+                Variable p0 = s.variableManager().get(variable(src, "f", "p0"));
+                assertTrue(p0.mayStatuses().contains(Variable.States.NULL));
+                assertTrue(p0.mayStatuses().contains(Variable.States.POINTING));
+            }
+        }
+    }
+
+    @Test
+    public void possibleDoubleFreeTest() {
+        ParsedSource src = new ParsedSource(
+            "#include <stdlib.h>\n" +
+            "void f(char *p, char *q, int c) {\n" +
+            "  char *r;\n" +
+            "  if (c)\n" +
+            "    r = p;\n" +
+            "  else\n" +
+            "    r = q;\n" +
+            "  free(p);\n" +
+            "  free(r);\n" +
+            "}\n");
+        IASTFunctionCallExpression freeR = call(src, "f", "free(r)");
+
+        // 状態を分けていれば、r = p の状態で確実に2重解放となる
+        PointToSolver precise = solver(src, "f", PointToSolver.DEFAULT_MAX_STATES);
+        precise.solve();
+        assertTrue(precise.problems().contains(
+                    new MemoryProblem(freeR, MemoryProblem.Kind.DOUBLE_FREE, false)));
+        assertFalse(precise.problems().contains(
+                    new MemoryProblem(freeR, MemoryProblem.Kind.DOUBLE_FREE, true)));
+
+        // 要約された状態では r は p か q の領域を指し得るので、2重解放かもしれないだけとなる
+        PointToSolver summarized = solver(src, "f", 1);
+        summarized.solve();
+        assertTrue(summarized.problems().contains(
+                    new MemoryProblem(freeR, MemoryProblem.Kind.DOUBLE_FREE, true)));
+        assertFalse(summarized.problems().contains(
+                    new MemoryProblem(freeR, MemoryProblem.Kind.DOUBLE_FREE, false)));
+    }
+
+    @Test
+    public void weakUpdateTest() {
+        ParsedSource src = new ParsedSource(
+            "#include <stdlib.h>\n" +
+            "void f(char *p, char *q, int c) {\n" +
+            "  char *r;\n" +
+            "  char *s;\n" +
+            "  if (c)\n" +
+            "    r = p;\n" +
+            "  else\n" +
+            "    r = q;\n" +
+            "  s = r;\n" +
+            "  r = q;\n" +
+            "  free(s);\n" +
+            "}\n");
+        List<IASTExpressionStatement> stmts = src.nodes("f", IASTExpressionStatement.class);
+        Solver.Result<CFG.Vertex, MemoryStatus> result = solver(src, "f", 1).solve();
+        // 仮引数 p, q の指す領域は 0, 1 番のブロック
+        HeapAddress pBlock = new HeapAddress(0);
+        HeapAddress qBlock = new HeapAddress(1);
+
+        // s = r : 要約変数 r が指し得るブロックは、参照カウントの上限だけが増える
+        Set<MemoryStatus> afterCopy = result.analysisValue.get(src.vertex("f", stmts.get(2))).exit();
+        assertEquals(1, afterCopy.size());
+        MemoryStatus s = afterCopy.iterator().next();
+        Variable sVar = s.variableManager().get(variable(src, "f", "s"));
+        assertEquals(Variable.States.UNKNOWN, sVar.status());
+        assertTrue(sVar.mayValues().contains(pBlock));
+        assertTrue(sVar.mayValues().contains(qBlock));
+        for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
+            assertTrue(b.refCount() < b.mayRefCount());
+        }
+
+        // r = q : r が指し得たブロックは、参照カウントの下限だけが減る
+        s = result.analysisValue.get(src.vertex("f", stmts.get(3))).exit().iterator().next();
+        assertEquals(0, s.memoryManager().find(pBlock.memoryBlockId()).refCount());
+        assertEquals(qBlock, s.variableManager().get(variable(src, "f", "r")).value());
+
+        // free(s) : どちらのブロックを解放したかは分からないので、解放されたかもしれない状態にする
+        s = result.analysisValue.get(src.vertex("f", stmts.get(4))).exit().iterator().next();
+        for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
+            assertFalse(b.allocated());
+            assertTrue(b.mayAllocated());
+        }
+    }
+
+    @Test
+    public void reallocLoopTest() {
+        ParsedSource src = new ParsedSource(
+            "#include <stdlib.h>\n" +
+            "void f(int n) {\n" +
+            "  char *p = malloc(1);\n" +
+            "  while (n) {\n" +
+            "    p = realloc(p, n);\n" +
+            "    n = n - 1;\n" +
+            "  }\n" +
+            "  free(p);\n" +
+            "}\n");
+        IASTExpressionStatement reallocStmt = src.nodes("f", IASTExpressionStatement.class).get(0);
+        Set<MemoryStatus> afterRealloc = solver(src, "f", PointToSolver.DEFAULT_MAX_STATES).solve()
+            .analysisValue.get(src.vertex("f", reallocStmt)).exit();
+        assertFalse(afterRealloc.isEmpty());
+
+        // 元の領域は確実に解放されるので、繰り返しても解放されたかもしれないブロックは現れない.
+        // 失敗時に残る領域は確実なリークとなる
+        for (MemoryStatus s : afterRealloc) {
+            assertFalse(s.isSummary());
+            for (MemoryBlock b : s.memoryManager().memoryBlocks()) {
+                assertEquals(b.allocated(), b.mayAllocated());
+            }
+            Variable p = s.variableManager().get(variable(src, "f", "p"));
+            if (p.status() == Variable.States.POINTING) {
+                HeapAddress a = (HeapAddress) p.value();
+                assertTrue(s.memoryManager().find(a.memoryBlockId()).allocated());
+            }
+        }
+    }
+}
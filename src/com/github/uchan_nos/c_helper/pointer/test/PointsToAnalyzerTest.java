@@ -0,0 +1,134 @@
+package com.github.uchan_nos.c_helper.pointer.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IVariable;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.analysis.test.ParsedSource;
+import com.github.uchan_nos.c_helper.pointer.AbstractLocation;
+import com.github.uchan_nos.c_helper.pointer.PointsTo;
+import com.github.uchan_nos.c_helper.pointer.PointsToAnalyzer;
+
+public class PointsToAnalyzerTest {
+    private static IVariable variable(ParsedSource src, String function, String name) {
+        return (IVariable) src.declarator(function, name).getName().resolveBinding();
+    }
+
+    // 記憶域を、変数名、割り当てる呼び出し式、関数名() で表す
+    private static Set<String> names(Set<AbstractLocation> locations) {
+        Set<String> result = new HashSet<String>();
+        for (AbstractLocation loc : locations) {
+            switch (loc.kind()) {
+            case VARIABLE:
+                result.add(loc.variable().getName());
+                break;
+            case HEAP:
+                result.add(loc.allocationSite().getRawSignature());
+                break;
+            default:
+                result.add(loc.functionName() + "()");
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> set(String... names) {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+
+    private static Set<String> pointsTo(PointsTo pts, ParsedSource src, String function, String name) {
+        return names(pts.mayPointTo(variable(src, function, name)));
+    }
+
+    @Test
+    public void basicConstraintTest() {
+        ParsedSource src = new ParsedSource(
+            "#include <stdlib.h>\n" +
+            "struct pair { int *first; int *second; };\n" +
+            "int *id(int *x) {\n" +
+            "  return x;\n" +
+            "}\n" +
+            "void f(void) {\n" +
+            "  int a, b, c;\n" +
+            "  int *p = &a;\n" +
+            "  int **pp = &p;\n" +
+            "  int *q = *pp;\n" +
+            "  struct pair s = { &b, 0 };\n" +
+            "  struct pair *ps = &s;\n" +
+            "  int *r = ps->first;\n" +
+            "  int *arr[2];\n" +
+            "  int *t;\n" +
+            "  arr[0] = &c;\n" +
+            "  t = arr[1];\n" +
+            "  int *u = id(&c);\n" +
+            "  int *h = malloc(sizeof(int));\n" +
+            "  int *h2 = realloc(h, 2 * sizeof(int));\n" +
+            "}\n");
+        PointsTo pts = new PointsToAnalyzer(src.getAst()).analyze();
+
+        // & と *
+        assertEquals(set("a"), pointsTo(pts, src, "f", "p"));
+        assertEquals(set("p"), pointsTo(pts, src, "f", "pp"));
+        assertEquals(set("a"), pointsTo(pts, src, "f", "q"));
+        assertTrue(pts.mayAlias(variable(src, "f", "p"), variable(src, "f", "q")));
+
+        // 初期化子リストと ->. メンバは区別しない
+        assertEquals(set("b"), pointsTo(pts, src, "f", "s"));
+        assertEquals(set("s"), pointsTo(pts, src, "f", "ps"));
+        assertEquals(set("b"), pointsTo(pts, src, "f", "r"));
+        assertFalse(pts.mayAlias(variable(src, "f", "p"), variable(src, "f", "r")));
+
+        // [] . 要素は区別しない
+        assertEquals(set("c"), pointsTo(pts, src, "f", "arr"));
+        assertEquals(set("c"), pointsTo(pts, src, "f", "t"));
+
+        // 直接呼び出しでは、引数が仮引数に、return の値が戻り値に流れる
+        assertEquals(set("c"), pointsTo(pts, src, "id", "x"));
+        assertEquals(set("c"), pointsTo(pts, src, "f", "u"));
+
+        // ヒープ領域は割り当て地点ごと. realloc の戻り値は元の領域も指し得る
+        assertEquals(set("malloc(sizeof(int))"), pointsTo(pts, src, "f", "h"));
+        assertEquals(set("malloc(sizeof(int))", "realloc(h, 2 * sizeof(int))"),
+                pointsTo(pts, src, "f", "h2"));
+        assertTrue(pts.mayPointToHeap(variable(src, "f", "h2")));
+        assertFalse(pts.mayPointToHeap(variable(src, "f", "p")));
+    }
+
+    @Test
+    public void functionPointerTest() {
+        ParsedSource src = new ParsedSource(
+            "int inc(int x) { return x + 1; }\n" +
+            "int dec(int x) { return x - 1; }\n" +
+            "int *ident(int *x) { return x; }\n" +
+            "int main(int c) {\n" +
+            "  int (*fp)(int) = inc;\n" +
+            "  int (*gp)(int);\n" +
+            "  int *(*ip)(int *) = ident;\n" +
+            "  int v;\n" +
+            "  int *w;\n" +
+            "  if (c)\n" +
+            "    gp = dec;\n" +
+            "  else\n" +
+            "    gp = fp;\n" +
+            "  w = ip(&v);\n" +
+            "  return fp(1) + gp(2);\n" +
+            "}\n");
+        PointsTo pts = new PointsToAnalyzer(src.getAst()).analyze();
+
+        // 宣言で初期化した関数ポインタ. 名前は入れ子の宣言子にある
+        assertEquals(set("inc()"), pointsTo(pts, src, "main", "fp"));
+        assertEquals(set("ident()"), pointsTo(pts, src, "main", "ip"));
+        assertEquals(set("inc()", "dec()"), pointsTo(pts, src, "main", "gp"));
+
+        // 関数ポインタによる呼び出しも、指し得る関数の仮引数と戻り値に結び付ける
+        assertEquals(set("v"), pointsTo(pts, src, "ident", "x"));
+        assertEquals(set("v"), pointsTo(pts, src, "main", "w"));
+    }
+}
@@ -61,5 +61,32 @@ public class VariableManagerTest {
                 new HashSet<Variable>(m0.getContainingVariables()));
 
     }
-}
 
+    @Test
+    public void copyTest() {
+        VarName p = new VarName("p");
+        VarName q = new VarName("q");
+
+        VariableManager m0 = new VariableManager();
+        m0.put(new Variable(p, Variable.States.NULL, null));
+        VariableManager m1 = new VariableManager(m0);
+        assertEquals(m0, m1);
+
+        // コピーへの変更は元に影響しない
+        m1.put(new Variable(q, Variable.States.NULL, null));
+        assertEquals(Variable.States.UNDEFINED, m0.getVariableStatus(q));
+        assertFalse(m0.equals(m1));
+
+        m1.remove(q);
+        assertEquals(m0, m1);
+        assertEquals(m0.hashCode(), m1.hashCode());
+
+        // 別々に作ったマネージャも、同じ変数を持てば等しい
+        VariableManager m2 = new VariableManager();
+        m2.put(new Variable(q, Variable.States.NULL, null));
+        m2.put(new Variable(p, Variable.States.NULL, null));
+        m2.remove(q);
+        assertEquals(m0, m2);
+        assertEquals(m0.hashCode(), m2.hashCode());
+    }
+}
@@ -1,15 +1,23 @@
 package com.github.uchan_nos.c_helper.suggest;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Set;
 
 import org.eclipse.cdt.core.dom.ast.*;
 import org.eclipse.jface.text.BadLocationException;
 
+import com.github.uchan_nos.c_helper.analysis.AnalysisEnvironment;
 import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.ConstantPropagation;
+import com.github.uchan_nos.c_helper.analysis.values.IntegralValue;
+import com.github.uchan_nos.c_helper.analysis.values.Interval;
+import com.github.uchan_nos.c_helper.pointer.AbstractLocation;
+import com.github.uchan_nos.c_helper.pointer.PointsTo;
 import com.github.uchan_nos.c_helper.resource.StringResource;
 import com.github.uchan_nos.c_helper.util.ASTFilter;
-import com.github.uchan_nos.c_helper.util.ConstantValueCalculator;
+import com.github.uchan_nos.c_helper.util.IntegerLimits;
 import com.github.uchan_nos.c_helper.util.TypeUtil;
 import com.github.uchan_nos.c_helper.util.Util;
 
@@ -28,14 +36,48 @@ public class FreadBufferSizeSuggester extends Suggester {
         return false;
     }
 
+    /**
+     * 要素数の区間の上限まで読み込むとバッファからあふれるかを返す.
+     * 区間が要素数の型の値域全体であれば、範囲が分からないものとして false を返す.
+     */
+    private static boolean mayOverflow(Interval readNum, IASTExpression readNumExpression,
+            int readSize, int bufferBytes, AnalysisEnvironment env) {
+        IBasicType type = TypeUtil.asIntegralType(readNumExpression.getExpressionType());
+        if (readSize <= 0 || type == null || readNum.isEmpty() || readNum.upper() == null) {
+            return false;
+        }
+        IntegerLimits limits = IntegerLimits.create(type, env);
+        if (readNum.contains(Interval.of(limits.min, limits.max))) {
+            return false;
+        }
+        return readNum.upper().multiply(BigInteger.valueOf(readSize))
+            .compareTo(BigInteger.valueOf(bufferBytes)) > 0;
+    }
+
+    /**
+     * ポインタ解析により、式の値が指し得る記憶域がただ1つの配列変数であればその変数を返す.
+     * そうでなければ null を返す.
+     */
+    private static IVariable pointedArray(PointsTo pointsTo, IASTExpression pointer) {
+        Set<AbstractLocation> locations = pointsTo.mayPointTo(pointer);
+        if (locations.size() != 1) {
+            return null;
+        }
+        AbstractLocation location = locations.iterator().next();
+        if (location.kind() != AbstractLocation.Kind.VARIABLE
+                || !(location.variable().getType() instanceof IArrayType)) {
+            return null;
+        }
+        return location.variable();
+    }
+
     @Override
     public Collection<Suggestion> suggest(SuggesterInput input, AssumptionManager assumptionManager) {
         ArrayList<Suggestion> suggestions = new ArrayList<Suggestion>();
 
         for (String proc : input.getProcToCFG().keySet()) {
             CFG cfg = input.getProcToCFG().get(proc);
-            ConstantValueCalculator calc = new ConstantValueCalculator(
-                    input.getProcToRD().get(proc), input.getAnalysisEnvironment());
+            ConstantPropagation constants = input.getConstants(proc);
 
             for (CFG.Vertex v : cfg.getVertices()) {
                 if (v.getASTNode() == null) {
@@ -81,10 +123,17 @@ public class FreadBufferSizeSuggester extends Suggester {
                     if (!(readBufferBinding instanceof IVariable)) {
                         continue;
                     }
-                    if (!(((IVariable)readBufferBinding).getType() instanceof IArrayType)) {
-                        continue;
+                    IVariable readBufferVariable = (IVariable) readBufferBinding;
+                    boolean viaPointer = false;
+                    if (!(readBufferVariable.getType() instanceof IArrayType)) {
+                        // ポインタなら、指し得る先がただ1つの配列に決まるときだけその配列を調べる
+                        readBufferVariable = pointedArray(input.getPointsTo(), readBuffer);
+                        if (readBufferVariable == null) {
+                            continue;
+                        }
+                        viaPointer = true;
                     }
-                    IArrayType readBufferType = (IArrayType) ((IVariable)readBufferBinding).getType();
+                    IArrayType readBufferType = (IArrayType) readBufferVariable.getType();
 
                     // 配列定義の型名、要素数式に名前をつける
                     // readBufferElementType array_name[ readBufferSize ];
@@ -97,24 +146,43 @@ public class FreadBufferSizeSuggester extends Suggester {
                     }
 
                     // 読み込み先配列の要素数を計算（定数でなければcontinue）
-                    int readBufferSizeValue = 0;
-                    try {
-                        readBufferSizeValue = calc.toInteger(readBufferSize, v);
-                    } catch (Exception e1) {
+                    IntegralValue readBufferSizeConstant = constants.getValue(readBufferSize);
+                    if (readBufferSizeConstant == null) {
                         continue;
                     }
+                    int readBufferSizeValue = readBufferSizeConstant.getValue().intValue();
                     // 読み込み先配列の要素サイズを計算
                     int readBufferElementBytes = TypeUtil.bytesOfType(readBufferElementType, input.getAnalysisEnvironment());
 
                     // freadの引数（要素サイズ、要素数）を計算（定数でなければcontinue）
                     IASTExpression readSize = arguments[1];
                     IASTExpression readNum = arguments[2];
-                    int readSizeValue = 0;
-                    int readNumValue = 0;
-                    try {
-                        readSizeValue = calc.toInteger(readSize, v);
-                        readNumValue = calc.toInteger(readNum, v);
-                    } catch (Exception e1) {
+                    IntegralValue readSizeConstant = constants.getValue(readSize);
+                    IntegralValue readNumConstant = constants.getValue(readNum);
+                    if (readSizeConstant == null) {
+                        continue;
+                    }
+                    int readSizeValue = readSizeConstant.getValue().intValue();
+                    if (readNumConstant == null) {
+                        // 要素数が定数でなければ、値域解析で求めた範囲の上限で判定する
+                        if (mayOverflow(input.getIntervals(proc).getInterval(readNum, v), readNum,
+                                    readSizeValue, readBufferElementBytes * readBufferSizeValue,
+                                    input.getAnalysisEnvironment())) {
+                            try {
+                                suggestions.add(new Suggestion(
+                                        input.getSource(), readBuffer,
+                                        StringResource.get("バッファからデータがあふれる可能性がある"),
+                                        StringResource.get("第3引数が%dを超えないようにする",
+                                            readBufferElementBytes * readBufferSizeValue / readSizeValue)));
+                            } catch (BadLocationException e) {
+                                e.printStackTrace();
+                            }
+                        }
+                        continue;
+                    }
+                    int readNumValue = readNumConstant.getValue().intValue();
+                    if (viaPointer && readBufferElementBytes * readBufferSizeValue >= readSizeValue * readNumValue) {
+                        // ポインタは配列の途中を指しているかもしれないので、あふれるときだけ指摘する
                         continue;
                     }
 
@@ -2,22 +2,30 @@ package com.github.uchan_nos.c_helper.suggest;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
+import org.eclipse.cdt.core.dom.ast.IVariable;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.osgi.service.log.LogEntry;
 
 import com.github.uchan_nos.c_helper.Activator;
 import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.DefinitionUniverse;
+import com.github.uchan_nos.c_helper.analysis.SolverScheduler;
 
 import com.github.uchan_nos.c_helper.dataflow.EntryExitPair;
 
+import com.github.uchan_nos.c_helper.pointer.FunctionSummary;
 import com.github.uchan_nos.c_helper.pointer.MemoryBlock;
 import com.github.uchan_nos.c_helper.pointer.MemoryProblem;
 import com.github.uchan_nos.c_helper.pointer.MemoryStatus;
@@ -36,43 +44,116 @@ public class MemoryLeakSuggester extends Suggester {
 
     private Logger logger = Activator.getLogger();
 
+    // 1つの関数に対するポインタ解析の結果
+    private static class SolvedFunction {
+        public final PointToSolver.Result<CFG.Vertex, MemoryStatus> result;
+        public final Set<MemoryProblem> problems;
+        public final FunctionSummary summary;
+        public SolvedFunction(PointToSolver.Result<CFG.Vertex, MemoryStatus> result,
+                Set<MemoryProblem> problems, FunctionSummary summary) {
+            this.result = result;
+            this.problems = problems;
+            this.summary = summary;
+        }
+    }
+
+    // 呼び出される関数から順にポインタ解析を行い、各関数の要約を呼び出し側の解析に用いる.
+    // 呼び出しグラフの同じ段にある関数は互いに独立なので並列に解析する.
+    // 再帰呼び出しの成分内の呼び出しには要約を用いない
+    private static Map<String, SolvedFunction> solveBottomUp(final SuggesterInput input) {
+        List<List<String>> levels;
+        if (input.getCallGraph() != null) {
+            levels = input.getCallGraph().getBottomUpLevels();
+        } else {
+            levels = new ArrayList<List<String>>();
+            levels.add(new ArrayList<String>(input.getProcToCFG().keySet()));
+        }
+
+        Map<String, FunctionSummary> summaries = new HashMap<String, FunctionSummary>();
+        Map<String, SolvedFunction> solved = new HashMap<String, SolvedFunction>();
+        for (List<String> level : levels) {
+            final Map<String, FunctionSummary> calleeSummaries =
+                Collections.unmodifiableMap(new HashMap<String, FunctionSummary>(summaries));
+            Map<String, SolvedFunction> levelSolved = input.getScheduler().runAll(
+                    level, new SolverScheduler.Task<SolvedFunction>() {
+                        @Override
+                        public SolvedFunction run(String proc) {
+                            CFG cfg = input.getProcToCFG().get(proc);
+                            DefinitionUniverse universe = input.getProcToUniverse().get(proc);
+                            IVariable[] parameters = FunctionSummary.parametersOf(
+                                    universe == null ? null : universe.getFunction());
+                            PointToSolver solver = new PointToSolver(cfg, cfg.entryVertex(),
+                                    input.getLiveVariables(proc), PointToSolver.DEFAULT_MAX_STATES,
+                                    parameters, calleeSummaries);
+                            PointToSolver.Result<CFG.Vertex, MemoryStatus> result = solver.solve();
+                            return new SolvedFunction(result, solver.problems(),
+                                    FunctionSummary.summarize(cfg, parameters, result, calleeSummaries));
+                        }
+                    });
+            for (Map.Entry<String, SolvedFunction> entry : levelSolved.entrySet()) {
+                summaries.put(entry.getKey(), entry.getValue().summary);
+            }
+            solved.putAll(levelSolved);
+        }
+        return solved;
+    }
+
     @Override
-    public Collection<Suggestion> suggest(SuggesterInput input, AssumptionManager assumptionManager) {
+    public Collection<Suggestion> suggest(final SuggesterInput input, AssumptionManager assumptionManager) {
         ArrayList<Suggestion> suggestions = new ArrayList<Suggestion>();
 
+        // 解析器と検出した問題の集合は関数ごとに生成し、サジェストの生成は元の順序で逐次に行う
+        Map<String, SolvedFunction> solved = solveBottomUp(input);
+
         try {
             for (Map.Entry<String, CFG> entry : input.getProcToCFG().entrySet()) {
                 CFG cfg = entry.getValue();
 
-                PointToSolver solver =
-                        new PointToSolver(cfg, cfg.entryVertex());
-                PointToSolver.Result<CFG.Vertex, MemoryStatus> result = solver.solve();
-                Set<MemoryProblem> problems = solver.problems();
+                PointToSolver.Result<CFG.Vertex, MemoryStatus> result = solved.get(entry.getKey()).result;
+                Set<MemoryProblem> problems = solved.get(entry.getKey()).problems;
 
+                // メモリ状態の文字列化は変数を名前順に並べるので、ログを出力するときだけ行う
+                boolean logging = logger.isLoggable(Level.FINE);
                 StringBuilder resultMessage = new StringBuilder();
 
                 for (CFG.Vertex v : Util.sort(result.analysisValue.keySet())) {
                     EntryExitPair<MemoryStatus> memoryStatuses = result.analysisValue.get(v);
-                    resultMessage.append(v.label() + ": exit\n");
+                    if (logging) {
+                        resultMessage.append(v.label() + ": exit\n");
+                    }
 
                     // 関数から抜ける頂点かどうか
                     boolean leavingNode = v.equals(cfg.exitVertex())
                         || (v.getASTNode() != null && v.getASTNode() instanceof IASTReturnStatement);
 
+                    // 確実にリークする状態の数と、要約された状態でリークするかもしれない状態の数
                     int memoryLeakFound = 0;
+                    int possibleMemoryLeakFound = 0;
                     for (MemoryStatus memoryStatus : memoryStatuses.exit()) {
-                        resultMessage.append("  " + memoryStatus + "\n");
+                        if (logging) {
+                            resultMessage.append("  " + memoryStatus + "\n");
+                        }
 
+                        boolean possible = false;
                         for (MemoryBlock b : memoryStatus.memoryManager().memoryBlocks()) {
-                            if (b.allocated() && (leavingNode || b.refCount() == 0)) {
+                            if (b.parameterIndex() >= 0) {
+                                // 仮引数が指す領域は呼び出し元が解放する
+                                continue;
+                            } else if (b.allocated() && (leavingNode || b.mayRefCount() == 0)) {
                                 memoryLeakFound++;
+                                possible = false;
                                 break;
                                 //System.out.println("    メモリリーク検出: " + b);
+                            } else if (b.mayAllocated() && (leavingNode || b.refCount() == 0)) {
+                                possible = true;
                             }
                         }
+                        if (possible) {
+                            possibleMemoryLeakFound++;
+                        }
                     }
 
-                    if (memoryLeakFound > 0) {
+                    if (memoryLeakFound + possibleMemoryLeakFound > 0) {
                         Suggestion s;
                         String message = memoryLeakFound == memoryStatuses.exit().size() ?
                             "メモリリークする" :
@@ -101,8 +182,14 @@ public class MemoryLeakSuggester extends Suggester {
                     }
 
                     for (MemoryProblem p : problems) {
+                        if (p.possible && problems.contains(
+                                    new MemoryProblem(p.position, p.message))) {
+                            // 同じ問題が確実に起こる状態もあるなら、そちらだけを指摘する
+                            continue;
+                        }
                         if (v.getASTNode().contains(p.position)) {
-                            boolean unconditionallyHappen = memoryStatuses.exit().size() == 1;
+                            boolean unconditionallyHappen =
+                                memoryStatuses.exit().size() == 1 && !p.possible;
 
                             String message = null;
                             if (p.message != null) {
@@ -139,7 +226,9 @@ public class MemoryLeakSuggester extends Suggester {
                     //System.out.println();
                 }
 
-                logger.fine(resultMessage.toString());
+                if (logging) {
+                    logger.fine(resultMessage.toString());
+                }
             }
         } catch (BadLocationException e) {
             e.printStackTrace();
@@ -9,9 +9,8 @@ import org.eclipse.jface.text.BadLocationException;
 
 import com.github.uchan_nos.c_helper.analysis.AssignExpression;
 import com.github.uchan_nos.c_helper.analysis.CFG;
-import com.github.uchan_nos.c_helper.analysis.RD;
+import com.github.uchan_nos.c_helper.analysis.DefUseChains;
 import com.github.uchan_nos.c_helper.util.ASTFilter;
-import com.github.uchan_nos.c_helper.util.Util;
 
 public class SizeofSuggester extends Suggester {
 
@@ -21,7 +20,7 @@ public class SizeofSuggester extends Suggester {
 
         for (String proc : input.getProcToCFG().keySet()) {
             CFG cfg = input.getProcToCFG().get(proc);
-            RD<CFG.Vertex> rd = input.getProcToRD().get(proc);
+            DefUseChains chains = input.getDefUseChains(proc);
 
             for (CFG.Vertex v : cfg.getVertices()) {
                 if (v.getASTNode() == null) {
@@ -54,11 +53,7 @@ public class SizeofSuggester extends Suggester {
                     }
                     if (ue.getOperand() instanceof IASTIdExpression) {
                         IASTIdExpression id = (IASTIdExpression)ue.getOperand();
-                        Set<AssignExpression> assigns =
-                                Util.getAssigns(
-                                        rd.getAssigns(),
-                                        rd.getEntrySets().get(v),
-                                        id.getName());
+                        Set<AssignExpression> assigns = chains.getReachingDefinitions(id);
 
                         ArrayList<String> beginnerExpectingValues =
                                 new ArrayList<String>();
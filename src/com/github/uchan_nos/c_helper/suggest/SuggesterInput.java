@@ -1,13 +1,28 @@
 package com.github.uchan_nos.c_helper.suggest;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.jface.text.IDocument;
 
 import com.github.uchan_nos.c_helper.analysis.AnalysisEnvironment;
 import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+import com.github.uchan_nos.c_helper.analysis.ConstantPropagation;
+import com.github.uchan_nos.c_helper.analysis.DefUseChains;
+import com.github.uchan_nos.c_helper.analysis.DefinitionUniverse;
+import com.github.uchan_nos.c_helper.analysis.IntervalAnalyzer;
+import com.github.uchan_nos.c_helper.analysis.Intervals;
+import com.github.uchan_nos.c_helper.analysis.LiveVariableAnalyzer;
+import com.github.uchan_nos.c_helper.analysis.LiveVariables;
 import com.github.uchan_nos.c_helper.analysis.RD;
+import com.github.uchan_nos.c_helper.analysis.SSAForm;
+import com.github.uchan_nos.c_helper.analysis.SolverScheduler;
+import com.github.uchan_nos.c_helper.pointer.PointsTo;
+import com.github.uchan_nos.c_helper.pointer.PointsToAnalyzer;
 
 /**
  * 各種サジェスト機能で用いる共通の入力データ.
@@ -19,21 +34,56 @@ public class SuggesterInput {
     private final IDocument source;
     private final IASTTranslationUnit ast;
     private final Map<String, CFG> procToCFG;
+    private final Map<String, DefinitionUniverse> procToUniverse;
     private final Map<String, RD<CFG.Vertex>> procToRD;
+    private final CallGraph callGraph;
     private final AnalysisEnvironment analysisEnvironment;
+    private final SolverScheduler scheduler;
+    private final Map<String, DefUseChains> procToDefUse;
+    private final ConcurrentMap<String, LiveVariables> procToLive;
+    private final Map<String, SSAForm> procToSSA;
+    private final Map<String, ConstantPropagation> procToConstants;
+    private final Map<String, Intervals> procToIntervals;
+    private PointsTo pointsTo;
 
     public SuggesterInput(String filePath,
             IDocument source,
             IASTTranslationUnit ast,
             Map<String, CFG> procToCFG,
+            Map<String, DefinitionUniverse> procToUniverse,
             Map<String, RD<CFG.Vertex>> procToRD,
+            CallGraph callGraph,
             AnalysisEnvironment analysisEnvironment) {
+        this(filePath, source, ast, procToCFG, procToUniverse, procToRD,
+                callGraph, analysisEnvironment, new SolverScheduler(1));
+    }
+
+    /**
+     * @param scheduler 関数ごとの解析を並列に実行するスケジューラ
+     */
+    public SuggesterInput(String filePath,
+            IDocument source,
+            IASTTranslationUnit ast,
+            Map<String, CFG> procToCFG,
+            Map<String, DefinitionUniverse> procToUniverse,
+            Map<String, RD<CFG.Vertex>> procToRD,
+            CallGraph callGraph,
+            AnalysisEnvironment analysisEnvironment,
+            SolverScheduler scheduler) {
         this.filePath = filePath;
         this.source = source;
         this.ast = ast;
         this.procToCFG = procToCFG;
+        this.procToUniverse = procToUniverse;
         this.procToRD = procToRD;
+        this.callGraph = callGraph;
         this.analysisEnvironment = analysisEnvironment;
+        this.scheduler = scheduler;
+        this.procToDefUse = new HashMap<String, DefUseChains>();
+        this.procToLive = new ConcurrentHashMap<String, LiveVariables>();
+        this.procToSSA = new HashMap<String, SSAForm>();
+        this.procToConstants = new HashMap<String, ConstantPropagation>();
+        this.procToIntervals = new HashMap<String, Intervals>();
     }
 
     public String getFilePath() {
@@ -52,11 +102,110 @@ public class SuggesterInput {
         return procToCFG;
     }
 
+    public Map<String, DefinitionUniverse> getProcToUniverse() {
+        return procToUniverse;
+    }
+
     public Map<String, RD<CFG.Vertex>> getProcToRD() {
         return procToRD;
     }
 
+    /**
+     * 指定された関数の use-def, def-use 連鎖を返す.
+     * 連鎖は最初に要求されたときに到達定義解析の結果から生成する.
+     */
+    public synchronized DefUseChains getDefUseChains(String proc) {
+        DefUseChains chains = procToDefUse.get(proc);
+        if (chains == null && procToCFG.containsKey(proc)) {
+            chains = new DefUseChains(
+                    procToCFG.get(proc), procToRD.get(proc), procToUniverse.get(proc));
+            procToDefUse.put(proc, chains);
+        }
+        return chains;
+    }
+
+    /**
+     * 指定された関数の生存変数解析の結果を返す.
+     * 結果は最初に要求されたときに計算する.
+     * 並列に解析する関数ごとのタスクから呼ばれるため、ロックを取らずに計算する.
+     * 同じ関数を同時に要求された場合は両方が計算し、先に登録された結果を共有する.
+     */
+    public LiveVariables getLiveVariables(String proc) {
+        LiveVariables live = procToLive.get(proc);
+        if (live == null && procToCFG.containsKey(proc)) {
+            live = new LiveVariableAnalyzer(
+                    procToUniverse.get(proc).getFunction(), procToCFG.get(proc)).analyze();
+            LiveVariables registered = procToLive.putIfAbsent(proc, live);
+            if (registered != null) {
+                live = registered;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 指定された関数の SSA 形式を返す.
+     * SSA 形式は最初に要求されたときに構築する.
+     */
+    public synchronized SSAForm getSSA(String proc) {
+        SSAForm ssa = procToSSA.get(proc);
+        if (ssa == null && procToCFG.containsKey(proc)) {
+            ssa = new SSAForm(procToUniverse.get(proc).getFunction(), procToCFG.get(proc));
+            procToSSA.put(proc, ssa);
+        }
+        return ssa;
+    }
+
+    /**
+     * 指定された関数の定数伝播の結果を返す.
+     * 結果は最初に要求されたときに SSA 形式から計算し、以降は各サジェスタで共有する.
+     */
+    public synchronized ConstantPropagation getConstants(String proc) {
+        ConstantPropagation constants = procToConstants.get(proc);
+        if (constants == null && procToCFG.containsKey(proc)) {
+            constants = new ConstantPropagation(getSSA(proc), analysisEnvironment);
+            procToConstants.put(proc, constants);
+        }
+        return constants;
+    }
+
+    /**
+     * 指定された関数の値域解析の結果を返す.
+     * 結果は最初に要求されたときに計算し、以降は各サジェスタで共有する.
+     */
+    public synchronized Intervals getIntervals(String proc) {
+        Intervals intervals = procToIntervals.get(proc);
+        if (intervals == null && procToCFG.containsKey(proc)) {
+            intervals = new IntervalAnalyzer(procToUniverse.get(proc).getFunction(),
+                    procToCFG.get(proc), analysisEnvironment).analyze();
+            procToIntervals.put(proc, intervals);
+        }
+        return intervals;
+    }
+
+    /**
+     * 翻訳単位全体のポインタ解析の結果を返す.
+     * 結果は最初に要求されたときに計算し、以降は各サジェスタで共有する.
+     */
+    public synchronized PointsTo getPointsTo() {
+        if (pointsTo == null) {
+            pointsTo = new PointsToAnalyzer(ast).analyze();
+        }
+        return pointsTo;
+    }
+
+    public CallGraph getCallGraph() {
+        return callGraph;
+    }
+
     public AnalysisEnvironment getAnalysisEnvironment() {
         return analysisEnvironment;
     }
+
+    /**
+     * 関数ごとの解析を並列に実行するスケジューラを返す.
+     */
+    public SolverScheduler getScheduler() {
+        return scheduler;
+    }
 }
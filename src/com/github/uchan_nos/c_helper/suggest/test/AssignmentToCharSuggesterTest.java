@@ -0,0 +1,54 @@
+package com.github.uchan_nos.c_helper.suggest.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.suggest.AssignmentToCharSuggester;
+import com.github.uchan_nos.c_helper.suggest.AssumptionManager;
+import com.github.uchan_nos.c_helper.suggest.Suggestion;
+
+public class AssignmentToCharSuggesterTest {
+    private static List<Integer> suggestedLines(String src) {
+        Collection<Suggestion> suggestions = new AssignmentToCharSuggester().suggest(
+                TestInput.create(src), new AssumptionManager());
+        List<Integer> lines = new ArrayList<Integer>();
+        for (Suggestion s : suggestions) {
+            lines.add(s.getLineNumber());
+        }
+        return lines;
+    }
+
+    @Test
+    public void initializerTest() {
+        // 初期化付き変数定義は、ファイルスコープでも関数内でも指摘しない
+        final String src =
+            "char g = \"abc\";\n" +
+            "int main(void) {\n" +
+            "  char c = \"abc\";\n" +
+            "  return 0;\n" +
+            "}\n";
+        assertTrue(suggestedLines(src).isEmpty());
+    }
+
+    @Test
+    public void functionBodyTest() {
+        final String src =
+            "int main(void) {\n" +
+            "  char c;\n" +
+            "  char s[4];\n" +
+            "  s[0] = \"a\";\n" +
+            "  c = \"abc\";\n" +
+            "  c = 'a';\n" +
+            "  return 0;\n" +
+            "}\n";
+        List<Integer> lines = suggestedLines(src);
+        assertEquals(2, lines.size());
+        assertTrue(lines.contains(3));
+        assertTrue(lines.contains(4));
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.uchan_nos.c_helper.suggest.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.resource.StringResource;
+import com.github.uchan_nos.c_helper.suggest.AssumptionManager;
+import com.github.uchan_nos.c_helper.suggest.FreadBufferSizeSuggester;
+import com.github.uchan_nos.c_helper.suggest.Suggestion;
+
+public class FreadBufferSizeSuggesterTest {
+    private static Map<Integer, String> suggestedMessages(String src) {
+        Map<Integer, String> messages = new HashMap<Integer, String>();
+        for (Suggestion s : new FreadBufferSizeSuggester().suggest(
+                    TestInput.create(src), new AssumptionManager())) {
+            messages.put(s.getLineNumber(), s.getMessage());
+        }
+        return messages;
+    }
+
+    @Test
+    public void bufferSizeTest() {
+        final String src =
+            "int main(void) {\n" +
+            "  int buf[10];\n" +
+            "  int n = 20;\n" +
+            "  fread(buf, sizeof(int), 20, 0);\n" +
+            "  fread(buf, sizeof(int), n, 0);\n" +
+            "  fread(buf, sizeof(int), 5, 0);\n" +
+            "  fread(buf, 4, 10, 0);\n" +
+            "  fread(buf, sizeof(int), 10, 0);\n" +
+            "  fread(buf, sizeof(int), 10);\n" +
+            "  return 0;\n" +
+            "}\n";
+        Map<Integer, String> messages = suggestedMessages(src);
+        assertEquals(5, messages.size());
+        assertEquals(StringResource.get("バッファからデータがあふれる可能性がある"), messages.get(3));
+        // 要素数は定数伝播により求める
+        assertEquals(StringResource.get("バッファからデータがあふれる可能性がある"), messages.get(4));
+        assertEquals(StringResource.get("バッファの大きさと fread の引数が整合していない"), messages.get(5));
+        assertEquals(StringResource.get("要素のサイズを固定値で指定している"), messages.get(6));
+        assertEquals(StringResource.get("引数の数が不正"), messages.get(8));
+    }
+
+    @Test
+    public void nonConstantSizeTest() {
+        final String src =
+            "int main(int argc) {\n" +
+            "  int buf[10];\n" +
+            "  int n = 20;\n" +
+            "  if (argc)\n" +
+            "    n = argc;\n" +
+            "  fread(buf, sizeof(int), n, 0);\n" +
+            "  return 0;\n" +
+            "}\n";
+        assertTrue(suggestedMessages(src).isEmpty());
+    }
+
+    @Test
+    public void loopCounterSizeTest() {
+        // 要素数が定数でなくても、値域解析で上限が分かれば判定する
+        final String src =
+            "int main(void) {\n" +
+            "  int buf[10];\n" +
+            "  int n;\n" +
+            "  for (n = 1; n <= 20; n = n + 1)\n" +
+            "    fread(buf, sizeof(int), n, 0);\n" +
+            "  for (n = 1; n <= 10; n = n + 1)\n" +
+            "    fread(buf, sizeof(int), n, 0);\n" +
+            "  return 0;\n" +
+            "}\n";
+        Map<Integer, String> messages = suggestedMessages(src);
+        assertEquals(1, messages.size());
+        assertEquals(StringResource.get("バッファからデータがあふれる可能性がある"), messages.get(4));
+    }
+
+    @Test
+    public void pointerBufferTest() {
+        final String src =
+            "int main(int argc) {\n" +
+            "  int buf[10];\n" +
+            "  int other[10];\n" +
+            "  int *p = buf;\n" +
+            "  int *q = argc ? buf : other;\n" +
+            "  fread(p, sizeof(int), 20, 0);\n" +
+            "  fread(p, sizeof(int), 5, 0);\n" +
+            "  fread(q, sizeof(int), 20, 0);\n" +
+            "  return 0;\n" +
+            "}\n";
+        Map<Integer, String> messages = suggestedMessages(src);
+        // p は buf だけを指すので buf の大きさで判定する.
+        // 配列の途中を指しているかもしれないので、あふれない呼び出しは指摘しない
+        assertEquals(1, messages.size());
+        assertEquals(StringResource.get("バッファからデータがあふれる可能性がある"), messages.get(5));
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.uchan_nos.c_helper.suggest.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.uchan_nos.c_helper.resource.StringResource;
+import com.github.uchan_nos.c_helper.suggest.AssumptionManager;
+import com.github.uchan_nos.c_helper.suggest.MemoryLeakSuggester;
+import com.github.uchan_nos.c_helper.suggest.Suggestion;
+
+public class MemoryLeakSuggesterTest {
+    private static final String LEAK = StringResource.get("メモリリークする");
+    private static final String POSSIBLE_LEAK = StringResource.get("メモリリークする可能性がある");
+
+    private static List<Suggestion> suggest(String src) {
+        return new ArrayList<Suggestion>(new MemoryLeakSuggester().suggest(
+                    TestInput.create(src), new AssumptionManager()));
+    }
+
+    private static List<String> messagesAt(List<Suggestion> suggestions, int line) {
+        List<String> messages = new ArrayList<String>();
+        for (Suggestion s : suggestions) {
+            if (s.getLineNumber() == line) {
+                messages.add(s.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    public void leakTest() {
+        final String src =
+            "#include <stdlib.h>\n" +
+            "void f(void) {\n" +
+            "  char *p = malloc(1);\n" +
+            "  p = NULL;\n" +
+            "}\n" +
+            "void g(int c) {\n" +
+            "  char *p = malloc(1);\n" +
+            "  if (c)\n" +
+            "    free(p);\n" +
+            "}\n";
+        List<Suggestion> suggestions = suggest(src);
+        // malloc が失敗した状態ではリークしない
+        assertTrue(messagesAt(suggestions, 3).contains(POSSIBLE_LEAK));
+        assertTrue(messagesAt(suggestions, 9).contains(POSSIBLE_LEAK));
+    }
+
+    @Test
+    public void summarizedLeakTest() {
+        // 状態の数が上限を超えて要約されても、リークするかもしれない出口を報告する
+        final String src =
+            "#include <stdlib.h>\n" +
+            "void f(int c) {\n" +
+            "  char *p0 = malloc(1);\n" +
+            "  char *p1 = malloc(1);\n" +
+            "  char *p2 = malloc(1);\n" +
+            "  char *p3 = malloc(1);\n" +
+            "  char *p4 = malloc(1);\n" +
+            "  char *p5 = malloc(1);\n" +
+            "  if (c) free(p0);\n" +
+            "  if (c) free(p1);\n" +
+            "  if (c) free(p2);\n" +
+            "  if (c) free(p3);\n" +
+            "  if (c) free(p4);\n" +
+            "  if (c) free(p5);\n" +
+            "}\n";
+        List<Suggestion> suggestions = suggest(src);
+        List<String> atExit = messagesAt(suggestions, 14);
+        assertEquals(1, atExit.size());
+        assertEquals(POSSIBLE_LEAK, atExit.get(0));
+        for (Suggestion s : suggestions) {
+            assertFalse(LEAK.equals(s.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.uchan_nos.c_helper.suggest.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.jface.text.Document;
+
+import com.github.uchan_nos.c_helper.analysis.AnalysisEnvironment;
+import com.github.uchan_nos.c_helper.analysis.CFG;
+import com.github.uchan_nos.c_helper.analysis.CFGCreator;
+import com.github.uchan_nos.c_helper.analysis.CallGraph;
+import com.github.uchan_nos.c_helper.analysis.DefinitionUniverse;
+import com.github.uchan_nos.c_helper.analysis.FileInfo;
+import com.github.uchan_nos.c_helper.analysis.Parser;
+import com.github.uchan_nos.c_helper.analysis.RD;
+import com.github.uchan_nos.c_helper.analysis.RDAnalyzer;
+import com.github.uchan_nos.c_helper.suggest.SuggesterInput;
+
+/**
+ * テスト用に、ソースコードからサジェスタへの入力を Analyzer と同じ手順で生成する.
+ */
+public class TestInput {
+    public static AnalysisEnvironment environment() {
+        AnalysisEnvironment env = new AnalysisEnvironment();
+        env.CHAR_BIT = 8;
+        env.SHORT_BIT = 16;
+        env.INT_BIT = 32;
+        env.LONG_BIT = 32;
+        env.LONG_LONG_BIT = 64;
+        env.POINTER_BIT = env.INT_BIT;
+        env.POINTER_BYTE = env.POINTER_BIT / env.CHAR_BIT;
+        return env;
+    }
+
+    public static SuggesterInput create(String src) {
+        IASTTranslationUnit tu = new Parser(new FileInfo("", false), src).parseOrNull();
+        Map<String, CFG> procToCFG = new CFGCreator(tu).create();
+        Map<String, DefinitionUniverse> procToUniverse = DefinitionUniverse.create(tu);
+        Map<String, RD<CFG.Vertex>> procToRD = new HashMap<String, RD<CFG.Vertex>>();
+        for (String proc : procToCFG.keySet()) {
+            procToRD.put(proc,
+                    new RDAnalyzer(procToUniverse.get(proc), procToCFG.get(proc)).analyze());
+        }
+        return new SuggesterInput("", new Document(src), tu, procToCFG, procToUniverse, procToRD,
+                new CallGraph(procToCFG), environment());
+    }
+}
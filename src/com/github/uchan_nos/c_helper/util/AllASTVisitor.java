@@ -22,85 +22,95 @@ public class AllASTVisitor extends ASTVisitor{
      */
     protected void visitAny(IASTNode node) {
     }
+
+    /**
+     * visitAny の直後に呼ばれ、ノードの子を訪問するかを決める.
+     * false を返したノードについては leaveAny が呼ばれない.
+     * @param node 訪問しているノード
+     * @return 子を訪問するなら true
+     */
+    protected boolean shouldVisitChildren(IASTNode node) {
+        return true;
+    }
     @Override
     public int visit(IASTStatement statement) {
         visitAny(statement);
-        return super.visit(statement);
+        return shouldVisitChildren(statement) ? super.visit(statement) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTDeclaration declaration) {
         visitAny(declaration);
-        return super.visit(declaration);
+        return shouldVisitChildren(declaration) ? super.visit(declaration) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTTranslationUnit tu) {
         visitAny(tu);
-        return super.visit(tu);
+        return shouldVisitChildren(tu) ? super.visit(tu) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTName name) {
         visitAny(name);
-        return super.visit(name);
+        return shouldVisitChildren(name) ? super.visit(name) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTInitializer initializer) {
         visitAny(initializer);
-        return super.visit(initializer);
+        return shouldVisitChildren(initializer) ? super.visit(initializer) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTParameterDeclaration parameterDeclaration) {
         visitAny(parameterDeclaration);
-        return super.visit(parameterDeclaration);
+        return shouldVisitChildren(parameterDeclaration) ? super.visit(parameterDeclaration) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTDeclarator declarator) {
         visitAny(declarator);
-        return super.visit(declarator);
+        return shouldVisitChildren(declarator) ? super.visit(declarator) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTDeclSpecifier declSpec) {
         visitAny(declSpec);
-        return super.visit(declSpec);
+        return shouldVisitChildren(declSpec) ? super.visit(declSpec) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTArrayModifier arrayModifier) {
         visitAny(arrayModifier);
-        return super.visit(arrayModifier);
+        return shouldVisitChildren(arrayModifier) ? super.visit(arrayModifier) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTPointerOperator ptrOperator) {
         visitAny(ptrOperator);
-        return super.visit(ptrOperator);
+        return shouldVisitChildren(ptrOperator) ? super.visit(ptrOperator) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTAttribute attribute) {
         visitAny(attribute);
-        return super.visit(attribute);
+        return shouldVisitChildren(attribute) ? super.visit(attribute) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTToken token) {
         visitAny(token);
-        return super.visit(token);
+        return shouldVisitChildren(token) ? super.visit(token) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTExpression expression) {
         visitAny(expression);
-        return super.visit(expression);
+        return shouldVisitChildren(expression) ? super.visit(expression) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTTypeId typeId) {
         visitAny(typeId);
-        return super.visit(typeId);
+        return shouldVisitChildren(typeId) ? super.visit(typeId) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTEnumerator enumerator) {
         visitAny(enumerator);
-        return super.visit(enumerator);
+        return shouldVisitChildren(enumerator) ? super.visit(enumerator) : PROCESS_SKIP;
     }
     @Override
     public int visit(IASTProblem problem) {
         visitAny(problem);
-        return super.visit(problem);
+        return shouldVisitChildren(problem) ? super.visit(problem) : PROCESS_SKIP;
     }
 
     /**
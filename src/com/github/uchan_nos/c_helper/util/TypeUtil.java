@@ -92,6 +92,19 @@ public class TypeUtil {
         return null;
     }
 
+    /**
+     * 指定された型から typedef と CV修飾子を取り除いた型が char または int 系の基本型なら、その型を返す.
+     * そうでなければ null を返す.
+     * @param type 調べる型
+     * @return 汎整数型（列挙型、_Bool を除く）なら typedef と修飾子を取り除いた型
+     */
+    public static IBasicType asIntegralType(IType type) {
+        while (type instanceof ITypedef || type instanceof IQualifierType) {
+            type = removeQualifiers(resolveOuterTypedef(type));
+        }
+        return asIBasicType(type, IBasicType.Kind.eChar, IBasicType.Kind.eInt);
+    }
+
     /**
      * 指定された型がtypedef型の場合、本当の型を解決して返す.
      * 一番外側がtypedefでなくなるまで解決する.
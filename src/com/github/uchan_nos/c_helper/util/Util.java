@@ -101,11 +101,8 @@ public class Util {
             @Override
             public int compare(CFG.Vertex o1, CFG.Vertex o2) {
                 if (o1.getASTNode() == null && o2.getASTNode() == null) {
-                    if (o1.equals(o2)) {
-                        return 0;
-                    } else {
-                        return -1;
-                    }
+                    // 位置で比較できない頂点は生成順で並べ、出力を決定的にする
+                    return CFG.CREATION_ORDER.compare(o1, o2);
                 } else if (o1.getASTNode() == null && o2.getASTNode() != null) {
                     return -1;
                 } else if (o1.getASTNode() != null && o2.getASTNode() == null) {
@@ -120,7 +117,7 @@ public class Util {
                     } else if (l1.getNodeLength() != l2.getNodeLength()) {
                         return l1.getNodeLength() - l2.getNodeLength();
                     } else {
-                        return -1;
+                        return CFG.CREATION_ORDER.compare(o1, o2);
                     }
                 }
             }